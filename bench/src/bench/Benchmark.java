@@ -0,0 +1,72 @@
+package bench;
+
+import java.util.*;
+
+/**
+ * A benchmark: an operation to be timed by the Harness.
+ * <p>
+ * setUp is called once before the measurement, and tearDown once after
+ * it; neither is timed. run is called repeatedly; its result is consumed
+ * by the harness so the work cannot be optimized away.
+ *
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+public abstract class Benchmark {
+	private final String name;
+	private final Map params = new LinkedHashMap();
+	private int elements = 1;
+
+	/**
+	 * Creates a benchmark.
+	 *
+	 * @param name Qualified name, like "sigoper.Smooth".
+	 */
+	protected Benchmark(String name) {
+		this.name = name;
+	}
+
+	/** Gets the name of this benchmark. */
+	public String getName() {
+		return name;
+	}
+
+	/** Sets a parameter, just informative, for the report. */
+	public Benchmark setParam(String param, Object value) {
+		params.put(param, String.valueOf(value));
+		return this;
+	}
+
+	/** Gets the parameters: param name -&gt; value, in order of definition. */
+	public Map getParams() {
+		return Collections.unmodifiableMap(params);
+	}
+
+	/** Sets the number of elements (signatures, files, ...) processed by
+	 * each call to run; 1 by default. Used to report the throughput. */
+	public Benchmark setElements(int elements) {
+		this.elements = Math.max(1, elements);
+		return this;
+	}
+
+	/** Gets the number of elements processed by each call to run. */
+	public int getElements() {
+		return elements;
+	}
+
+	/** Prepares the data for the benchmark. Nothing by default. */
+	public void setUp() throws Exception {
+	}
+
+	/** Runs the operation being measured once. */
+	public abstract Object run() throws Exception;
+
+	/** Releases the data for the benchmark. Nothing by default. */
+	public void tearDown() throws Exception {
+	}
+
+	/** Returns the name and the parameters. */
+	public String toString() {
+		return params.isEmpty() ? name : name+ " " +params;
+	}
+}
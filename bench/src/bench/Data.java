@@ -0,0 +1,70 @@
+package bench;
+
+import samscore.SamsDbGenerator;
+import sig.Signature;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ * Synthetic data for the benchmarks. Spectra are those of
+ * SamsDbGenerator; the data only depends on the given seed.
+ *
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+public final class Data {
+	private Data() {}
+
+	/** Gets the wavelengths for a number of bands (at least 2). */
+	public static double[] getWavelengths(int bands) {
+		return SamsDbGenerator.getWavelengths(bands);
+	}
+
+	/** Creates a reflectance spectrum. */
+	public static Signature createSignature(double[] wls, Random rnd) {
+		return SamsDbGenerator.createSignature(wls, rnd);
+	}
+
+	/** Creates a number of reflectance spectra. */
+	public static Signature[] createSignatures(int num_sigs, int bands, long seed) {
+		Random rnd = new Random(seed);
+		double[] wls = getWavelengths(bands);
+		Signature[] sigs = new Signature[num_sigs];
+		for ( int i = 0; i < num_sigs; i++ )
+			sigs[i] = createSignature(wls, rnd);
+		return sigs;
+	}
+
+	/** Creates a solar-like irradiance spectrum, for reflectance to radiance. */
+	public static Signature createIrradiance(int bands) {
+		double[] wls = getWavelengths(bands);
+		Signature sig = new Signature(null, bands);
+		for ( int i = 0; i < bands; i++ ) {
+			double w = wls[i] / 1000;
+			// Planck-like curve peaking around 500 nm:
+			double y = 1 / (Math.pow(w, 5) * (Math.exp(2.9 / w) - 1));
+			sig.addDatapoint(wls[i], y);
+		}
+		return sig;
+	}
+
+	/**
+	 * Creates a FWHM reference: (wavelength, FWHM) for bands every 10 nm
+	 * in [400, 2400], as for a multispectral sensor.
+	 */
+	public static Signature createFWHMReference() {
+		Signature sig = new Signature();
+		for ( double w = 400; w <= 2400; w += 10 )
+			sig.addDatapoint(w, 10);
+		return sig;
+	}
+
+	/** Creates an empty temporary directory. */
+	public static File createTempDirectory(String prefix) throws IOException {
+		File file = File.createTempFile(prefix, "");
+		if ( !file.delete() || !file.mkdir() )
+			throw new IOException(file+ ": Cannot create temporary directory");
+		return file;
+	}
+}
@@ -0,0 +1,90 @@
+package bench;
+
+import sig.Signature;
+import envifile.BinaryExporter;
+import envifile.EnviDataType;
+import fileutils.Files;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ * Benchmarks for BinaryExporter: export of synthetic spectra as an Envi
+ * BIP image and as an Envi spectral library, in float and 16-bit integer
+ * data types, to a temporary file.
+ *
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+public final class EnviBenchmarks {
+	private EnviBenchmarks() {}
+
+	/**
+	 * Adds the benchmarks to a harness.
+	 *
+	 * @param harness    The harness.
+	 * @param num_sigs   Numbers of spectra.
+	 * @param bands      Numbers of bands.
+	 * @param max_values Combinations with more than this number of values
+	 *                   (spectra times bands) are skipped.
+	 */
+	public static void addTo(Harness harness, int[] num_sigs, int[] bands, long max_values) {
+		EnviDataType[] types = { EnviDataType.FLOAT32, EnviDataType.INT16, };
+		for ( int s = 0; s < num_sigs.length; s++ ) {
+			for ( int b = 0; b < bands.length; b++ ) {
+				if ( (long) num_sigs[s] * bands[b] > max_values )
+					continue;
+				for ( int t = 0; t < types.length; t++ ) {
+					harness.add(new ExportBenchmark("envifile.exportBIP", num_sigs[s], bands[b], types[t]));
+					harness.add(new ExportBenchmark("envifile.exportToEnviSpectralLibrary", num_sigs[s], bands[b], types[t]));
+				}
+			}
+		}
+	}
+
+	/** Exports spectra to a temporary file. */
+	static final class ExportBenchmark extends Benchmark {
+		final int num_sigs;
+		final int bands;
+		final EnviDataType type;
+
+		Signature[] sigs;
+		String[] names;
+		File dir;
+		String filename;
+
+		ExportBenchmark(String name, int num_sigs, int bands, EnviDataType type) {
+			super(name);
+			this.num_sigs = num_sigs;
+			this.bands = bands;
+			this.type = type;
+			setParam("sigs", new Integer(num_sigs));
+			setParam("bands", new Integer(bands));
+			setParam("type", type);
+			setElements(num_sigs);
+		}
+
+		public void setUp() throws Exception {
+			sigs = Data.createSignatures(num_sigs, bands, 1);
+			names = new String[num_sigs];
+			for ( int i = 0; i < num_sigs; i++ )
+				names[i] = "s" +i;
+			dir = Data.createTempDirectory("samsbench");
+			filename = new File(dir, "export").getPath();
+		}
+
+		public Object run() throws Exception {
+			if ( getName().endsWith("exportBIP") )
+				BinaryExporter.exportBIP(sigs, filename, "benchmark", type);
+			else
+				BinaryExporter.exportToEnviSpectralLibrary(names, sigs, filename, "benchmark", type);
+			return filename;
+		}
+
+		public void tearDown() {
+			sigs = null;
+			names = null;
+			Files.deleteDirectory(dir.getPath());
+		}
+	}
+}
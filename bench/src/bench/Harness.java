@@ -0,0 +1,301 @@
+package bench;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ * Runs benchmarks and collects the results.
+ * <p>
+ * Each benchmark is set up, run for a number of warmup iterations, and
+ * then for a number of measured iterations. In each iteration, the
+ * benchmark is run repeatedly until the iteration time has elapsed (at
+ * least once); the score of the iteration is the average time per run.
+ * The result of a benchmark is the average of the measured scores, with
+ * their standard deviation, minimum and maximum.
+ * <p>
+ * A benchmark throwing an exception gets a result with the error
+ * message, and the remaining benchmarks are run.
+ *
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+public final class Harness {
+	private int warmup_iterations = 3;
+	private int iterations = 5;
+	private long iteration_millis = 1000;
+	private String[] filters;
+
+	private List benchmarks = new ArrayList();
+	private List results = new ArrayList();
+
+	/** Consumes the results of the benchmarks. */
+	private volatile int sink;
+
+	/** Sets the number of warmup and measured iterations. */
+	public void setIterations(int warmup_iterations, int iterations) {
+		this.warmup_iterations = Math.max(0, warmup_iterations);
+		this.iterations = Math.max(1, iterations);
+	}
+
+	/** Sets the minimum duration of an iteration, in milliseconds. */
+	public void setIterationMillis(long iteration_millis) {
+		this.iteration_millis = Math.max(1, iteration_millis);
+	}
+
+	/**
+	 * Sets the benchmarks to be run.
+	 *
+	 * @param filter Comma-separated list of strings; only the benchmarks
+	 *               whose name contains one of them are run. null for all.
+	 */
+	public void setFilter(String filter) {
+		if ( filter == null || filter.trim().length() == 0 ) {
+			filters = null;
+			return;
+		}
+		List list = new ArrayList();
+		for ( StringTokenizer st = new StringTokenizer(filter, ","); st.hasMoreTokens(); ) {
+			String s = st.nextToken().trim();
+			if ( s.length() > 0 )
+				list.add(s);
+		}
+		filters = (String[]) list.toArray(new String[list.size()]);
+	}
+
+	/** Tells if a benchmark name is accepted by the filter. */
+	public boolean accepts(String name) {
+		if ( filters == null )
+			return true;
+		for ( int i = 0; i < filters.length; i++ ) {
+			if ( name.indexOf(filters[i]) >= 0 )
+				return true;
+		}
+		return false;
+	}
+
+	/** Adds a benchmark, if accepted by the filter. */
+	public void add(Benchmark benchmark) {
+		if ( accepts(benchmark.getName()) )
+			benchmarks.add(benchmark);
+	}
+
+	/** Gets the number of benchmarks added. */
+	public int getNumBenchmarks() {
+		return benchmarks.size();
+	}
+
+	/**
+	 * Runs all the benchmarks added.
+	 *
+	 * @param log Where to report progress; null for none.
+	 * @return The results, Result objects in the order of the benchmarks.
+	 */
+	public List run(PrintWriter log) {
+		results.clear();
+		for ( int b = 0; b < benchmarks.size(); b++ ) {
+			Benchmark benchmark = (Benchmark) benchmarks.get(b);
+			if ( log != null ) {
+				log.print("[" +(b+1)+ "/" +benchmarks.size()+ "] " +benchmark+ " ... ");
+				log.flush();
+			}
+			Result result = _run(benchmark);
+			results.add(result);
+			if ( log != null )
+				log.println(result.getSummary());
+		}
+		return results;
+	}
+
+	private Result _run(Benchmark benchmark) {
+		Result result = new Result(benchmark);
+		System.gc();
+		try {
+			benchmark.setUp();
+			try {
+				for ( int i = 0; i < warmup_iterations; i++ )
+					_iteration(benchmark);
+				result.scores = new double[iterations];
+				for ( int i = 0; i < iterations; i++ )
+					result.scores[i] = _iteration(benchmark);
+			}
+			finally {
+				benchmark.tearDown();
+			}
+		}
+		catch(Throwable ex) {
+			result.scores = null;
+			result.error = ex.getClass().getName()+ ": " +ex.getMessage();
+		}
+		return result;
+	}
+
+	/** Runs an iteration; returns the average time per run, in nanoseconds. */
+	private double _iteration(Benchmark benchmark) throws Exception {
+		long ops = 0;
+		long start = System.currentTimeMillis();
+		long elapsed;
+		do {
+			Object res = benchmark.run();
+			sink ^= System.identityHashCode(res);
+			ops++;
+			elapsed = System.currentTimeMillis() - start;
+		} while ( elapsed < iteration_millis );
+		return elapsed * 1e6 / ops;
+	}
+
+	/** Gets the results of the last run. */
+	public List getResults() {
+		return results;
+	}
+
+	/**
+	 * Writes the results of the last run as a JSON array with one object
+	 * per benchmark: benchmark, params, mode ("avgt"), unit ("ns/op"),
+	 * iterations, score, scoreStdev, scoreMin, scoreMax, elements,
+	 * elementsPerSecond; or benchmark, params and error if it failed.
+	 */
+	public void writeJson(Writer w) throws IOException {
+		PrintWriter pw = new PrintWriter(w);
+		pw.println("[");
+		for ( int r = 0; r < results.size(); r++ ) {
+			Result result = (Result) results.get(r);
+			pw.println("  {");
+			pw.println("    \"benchmark\": " +_quote(result.benchmark.getName())+ ",");
+			pw.print("    \"params\": {");
+			Map params = result.benchmark.getParams();
+			int p = 0;
+			for ( Iterator it = params.keySet().iterator(); it.hasNext(); p++ ) {
+				String param = (String) it.next();
+				pw.print((p > 0 ? ", " : "") +_quote(param)+ ": " +_quote((String) params.get(param)));
+			}
+			pw.println("},");
+			if ( result.error != null ) {
+				pw.println("    \"error\": " +_quote(result.error));
+			}
+			else {
+				pw.println("    \"mode\": \"avgt\",");
+				pw.println("    \"unit\": \"ns/op\",");
+				pw.println("    \"iterations\": " +result.scores.length+ ",");
+				pw.println("    \"score\": " +_number(result.getScore())+ ",");
+				pw.println("    \"scoreStdev\": " +_number(result.getStdev())+ ",");
+				pw.println("    \"scoreMin\": " +_number(result.getMin())+ ",");
+				pw.println("    \"scoreMax\": " +_number(result.getMax())+ ",");
+				pw.println("    \"elements\": " +result.benchmark.getElements()+ ",");
+				pw.println("    \"elementsPerSecond\": " +_number(result.getElementsPerSecond()));
+			}
+			pw.println(r < results.size() - 1 ? "  }," : "  }");
+		}
+		pw.println("]");
+		pw.flush();
+	}
+
+	private static String _number(double d) {
+		if ( Double.isNaN(d) || Double.isInfinite(d) )
+			return "null";
+		return String.valueOf(d);
+	}
+
+	private static String _quote(String s) {
+		StringBuffer sb = new StringBuffer("\"");
+		for ( int i = 0; i < s.length(); i++ ) {
+			char c = s.charAt(i);
+			switch ( c ) {
+				case '"':  sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\t': sb.append("\\t"); break;
+				default:
+					if ( c < 0x20 ) {
+						String hex = Integer.toHexString(c);
+						sb.append("\\u0000".substring(0, 6 - hex.length())).append(hex);
+					}
+					else
+						sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	/** The result of a benchmark. */
+	public static final class Result {
+		final Benchmark benchmark;
+		/** time per run in each measured iteration, ns */
+		double[] scores;
+		String error;
+
+		Result(Benchmark benchmark) {
+			this.benchmark = benchmark;
+		}
+
+		/** Gets the benchmark. */
+		public Benchmark getBenchmark() {
+			return benchmark;
+		}
+
+		/** Gets the error message; null if the benchmark ran OK. */
+		public String getError() {
+			return error;
+		}
+
+		/** Gets the average time per run, in nanoseconds. */
+		public double getScore() {
+			if ( scores == null )
+				return Double.NaN;
+			double sum = 0;
+			for ( int i = 0; i < scores.length; i++ )
+				sum += scores[i];
+			return sum / scores.length;
+		}
+
+		/** Gets the standard deviation of the iteration scores. */
+		public double getStdev() {
+			if ( scores == null )
+				return Double.NaN;
+			if ( scores.length < 2 )
+				return 0;
+			double mean = getScore();
+			double sum = 0;
+			for ( int i = 0; i < scores.length; i++ )
+				sum += (scores[i] - mean) * (scores[i] - mean);
+			return Math.sqrt(sum / (scores.length - 1));
+		}
+
+		/** Gets the minimum iteration score. */
+		public double getMin() {
+			double min = Double.NaN;
+			for ( int i = 0; scores != null && i < scores.length; i++ )
+				if ( !(min <= scores[i]) )
+					min = scores[i];
+			return min;
+		}
+
+		/** Gets the maximum iteration score. */
+		public double getMax() {
+			double max = Double.NaN;
+			for ( int i = 0; scores != null && i < scores.length; i++ )
+				if ( !(max >= scores[i]) )
+					max = scores[i];
+			return max;
+		}
+
+		/** Gets the number of elements processed per second. */
+		public double getElementsPerSecond() {
+			return benchmark.getElements() * 1e9 / getScore();
+		}
+
+		/** Gets a one-line summary. */
+		public String getSummary() {
+			if ( error != null )
+				return "ERROR: " +error;
+			return _format(getScore())+ " +- " +_format(getStdev())+ " ns/op  ("
+				+_format(getElementsPerSecond())+ " elements/s)";
+		}
+
+		private static String _format(double d) {
+			if ( d >= 100 )
+				return String.valueOf(Math.round(d));
+			return String.valueOf(Math.round(d * 1000) / 1000.0);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package bench;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ * Runs the SAMS benchmarks and writes the results as JSON.
+ * <p>
+ * Usage: java bench.Main [output.json]
+ * <p>
+ * The configuration is taken from system properties (so it can be given
+ * with -D to the master build, "ant bench -Dbench.filter=Smooth"):
+ * <ul>
+ *	<li> bench.output: the JSON file, if not given as argument
+ *	     (default bench-results.json)
+ *	<li> bench.filter: comma-separated strings; only the benchmarks whose
+ *	     name contains one of them are run (default all)
+ *	<li> bench.sigs: numbers of spectra for sigoper and envifile
+ *	     (default 1,1000,50000)
+ *	<li> bench.bands: numbers of bands (default 200,2151)
+ *	<li> bench.maxvalues: combinations of spectra and bands with more
+ *	     values are skipped (default 20000000)
+ *	<li> bench.dbsizes: numbers of spectra of the generated databases
+ *	     (default 1000)
+ *	<li> bench.operdir: directory with scripted operations (default none)
+ *	<li> bench.warmup, bench.iterations: number of warmup and measured
+ *	     iterations (default 2, 5)
+ *	<li> bench.time: minimum duration of an iteration, in milliseconds
+ *	     (default 1000)
+ * </ul>
+ *
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+public class Main {
+	public static void main(String[] args) throws Exception {
+		String output = args.length > 0 ? args[0] : System.getProperty("bench.output", "bench-results.json");
+		int[] num_sigs = _getInts("bench.sigs", "1,1000,50000");
+		int[] bands = _getInts("bench.bands", "200,2151");
+		long max_values = Long.parseLong(System.getProperty("bench.maxvalues", "20000000").trim());
+		int[] db_sizes = _getInts("bench.dbsizes", "1000");
+		String operdir = System.getProperty("bench.operdir");
+
+		Harness harness = new Harness();
+		harness.setFilter(System.getProperty("bench.filter"));
+		harness.setIterations(
+			_getInts("bench.warmup", "2")[0],
+			_getInts("bench.iterations", "5")[0]
+		);
+		harness.setIterationMillis(_getInts("bench.time", "1000")[0]);
+
+		SigoperBenchmarks.addTo(harness, operdir, num_sigs, bands, max_values);
+		SamsDbBenchmarks.addTo(harness, db_sizes);
+		SpecfileBenchmarks.addTo(harness, bands);
+		EnviBenchmarks.addTo(harness, num_sigs, bands, max_values);
+
+		PrintWriter log = new PrintWriter(System.out, true);
+		log.println("Java " +System.getProperty("java.version")+ ", "
+			+Runtime.getRuntime().availableProcessors()+ " processors, "
+			+harness.getNumBenchmarks()+ " benchmarks"
+		);
+		try {
+			harness.run(log);
+		}
+		finally {
+			SamsDbBenchmarks.cleanUp();
+			SpecfileBenchmarks.cleanUp();
+		}
+
+		Writer w = new BufferedWriter(new FileWriter(output));
+		try {
+			harness.writeJson(w);
+		}
+		finally {
+			w.close();
+		}
+		log.println("Results written to " +output);
+	}
+
+	/** Gets a comma-separated list of integers from a system property. */
+	private static int[] _getInts(String property, String default_value) {
+		String value = System.getProperty(property, default_value);
+		StringTokenizer st = new StringTokenizer(value, ", ");
+		int[] ints = new int[st.countTokens()];
+		for ( int i = 0; i < ints.length; i++ )
+			ints[i] = Integer.parseInt(st.nextToken());
+		return ints;
+	}
+}
@@ -0,0 +1,168 @@
+package bench;
+
+import samscore.ISamsDb;
+import samscore.SamsDbGenerator;
+import sig.Signature;
+import fileutils.Files;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ * Benchmarks for the database: getSignature (with and without the
+ * signature cache), setSignature, selectSpectrums and getGroupingBy on
+ * generated databases.
+ * <p>
+ * A database of each requested size is created on first use in a
+ * temporary directory by SamsDbGenerator, and removed by cleanUp. Its
+ * spectra are spread over 10 groups of 10 subgroups, with attributes
+ * "site" (10 values), "species" (50 values) and "plot" (one per 100
+ * spectra).
+ *
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+public final class SamsDbBenchmarks {
+	/** Fixtures created so far, Fixture. */
+	private static final List fixtures = new ArrayList();
+
+	private SamsDbBenchmarks() {}
+
+	/**
+	 * Adds the benchmarks to a harness.
+	 *
+	 * @param harness  The harness.
+	 * @param db_sizes Numbers of spectra of the databases.
+	 */
+	public static void addTo(Harness harness, int[] db_sizes) {
+		for ( int d = 0; d < db_sizes.length; d++ ) {
+			final Fixture fixture = new Fixture(db_sizes[d]);
+
+			// with no cache, and with the default cache on a working set of
+			// 100 spectra, as when going back and forth through a selection:
+			harness.add(new DbBenchmark("samscore.getSignature", fixture) {
+				int next;
+				String capacity;
+				public void setUp() throws Exception {
+					super.setUp();
+					capacity = fixture.db.getSignatureCacheStatistics().getProperty("capacity");
+					fixture.db.setSignatureCacheCapacity(0);
+				}
+				public Object run() throws Exception {
+					next = (next + 7919) % fixture.paths.length;
+					return fixture.db.getSignature(fixture.paths[next]);
+				}
+				public void tearDown() {
+					fixture.db.setSignatureCacheCapacity(Long.parseLong(capacity));
+				}
+			}.setParam("cache", "off"));
+
+			harness.add(new DbBenchmark("samscore.getSignature", fixture) {
+				int next;
+				public Object run() throws Exception {
+					next = (next + 7919) % Math.min(100, fixture.paths.length);
+					return fixture.db.getSignature(fixture.paths[next]);
+				}
+			}.setParam("cache", "on"));
+
+			harness.add(new DbBenchmark("samscore.setSignature", fixture) {
+				int next;
+				public Object run() throws Exception {
+					next = (next + 7919) % fixture.paths.length;
+					fixture.db.setSignature(fixture.paths[next], fixture.sig);
+					return fixture.sig;
+				}
+			});
+
+			harness.add(new DbBenchmark("samscore.selectSpectrums", fixture) {
+				ISamsDb.ICondition condition;
+				ISamsDb.IOrder order;
+				public void setUp() throws Exception {
+					super.setUp();
+					condition = fixture.db.createCondition("site == 'site3' || species.startsWith('species1')");
+					order = fixture.db.createOrder("species : name");
+				}
+				public Object run() throws Exception {
+					Object last = null;
+					for ( Iterator it = fixture.db.selectSpectrums(condition, order); it.hasNext(); )
+						last = it.next();
+					return last;
+				}
+			}.setParam("condition", "site == 'site3' || species.startsWith('species1')")
+			 .setParam("order", "species : name"));
+
+			harness.add(new DbBenchmark("samscore.getGroupingBy", fixture) {
+				public Object run() throws Exception {
+					return fixture.db.getGroupingBy(new String[] { "site", "species" });
+				}
+			}.setParam("attributes", "site, species"));
+
+			harness.add(new DbBenchmark("samscore.getGroupingBy", fixture) {
+				public Object run() throws Exception {
+					return fixture.db.getGroupingBy(new String[] { "location" });
+				}
+			}.setParam("attributes", "location"));
+		}
+	}
+
+	/** Removes the databases created. */
+	public static void cleanUp() {
+		synchronized ( fixtures ) {
+			for ( Iterator it = fixtures.iterator(); it.hasNext(); ) {
+				Fixture fixture = (Fixture) it.next();
+				Files.deleteDirectory(fixture.dir.getPath());
+			}
+			fixtures.clear();
+		}
+	}
+
+	/** A benchmark on a database, created on first use. */
+	abstract static class DbBenchmark extends Benchmark {
+		final Fixture fixture;
+
+		DbBenchmark(String name, Fixture fixture) {
+			super(name);
+			this.fixture = fixture;
+			setParam("spectra", new Integer(fixture.num_spectra));
+		}
+
+		public void setUp() throws Exception {
+			fixture.create();
+		}
+	}
+
+	/** A generated database. */
+	static final class Fixture {
+		final int num_spectra;
+		File dir;
+		ISamsDb db;
+		String[] paths;
+		Signature sig;
+
+		Fixture(int num_spectra) {
+			this.num_spectra = num_spectra;
+		}
+
+		void create() throws Exception {
+			if ( db != null )
+				return;
+			dir = Data.createTempDirectory("samsbench");
+			synchronized ( fixtures ) {
+				fixtures.add(this);
+			}
+			SamsDbGenerator generator = new SamsDbGenerator();
+			generator.setNumSpectra(num_spectra);
+			generator.setAttributes(
+				new String[] { "site", "species", "plot" },
+				new int[] { 10, 50, num_spectra / 100 }
+			);
+			db = generator.generate(new File(dir, "db").getPath());
+
+			List list = new ArrayList();
+			for ( Iterator it = db.getAllPaths(); it.hasNext(); )
+				list.add(it.next());
+			paths = (String[]) list.toArray(new String[list.size()]);
+			sig = Data.createSignatures(1, 2151, 0)[0];
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package bench;
+
+import sig.Signature;
+import sigoper.*;
+
+import java.util.*;
+
+/**
+ * Benchmarks for the signature operations: each operation known to
+ * SignatureOperationManager (the compiled ones, plus any scripted ones in
+ * the given directory) on a number of synthetic spectra of a number of
+ * bands. Operations use their default parameter values; parameters with
+ * no default value are given one from DEFAULT_VALUES, by name.
+ * <p>
+ * Single and binary operations are applied to each spectrum; a
+ * multi-signature operation is applied once to all of them. Binary
+ * operations take a reference suited to them: FWHM bands for "FWHM based
+ * resampling", an irradiance spectrum for "Reflectance to radiance", and
+ * another spectrum on the same grid otherwise.
+ *
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+public final class SigoperBenchmarks {
+	/** Values for parameters with no default value: name, value, ... */
+	static final String[] DEFAULT_VALUES = {
+		"from",          "500",
+		"to",            "2000",
+		"desired_point", "1000",
+	};
+
+	private SigoperBenchmarks() {}
+
+	/** Gets the parameter values of an operation for the benchmarks. */
+	static Object[] getParameterValues(IOperation op) {
+		Object[] values = OpUtil.getParameterValues(op);
+		if ( values == null )
+			return null;
+		IOperation.IParameterInfo parInfo = op.getParameterInfo();
+		for ( int i = 0; i < values.length; i++ ) {
+			if ( !"".equals(values[i]) )
+				continue;
+			for ( int k = 0; k < DEFAULT_VALUES.length; k += 2 ) {
+				if ( DEFAULT_VALUES[k].equals(parInfo.getName(i)) )
+					values[i] = DEFAULT_VALUES[k + 1];
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Adds the benchmarks to a harness.
+	 *
+	 * @param harness    The harness.
+	 * @param operdir    Directory with scripted operations; null for none.
+	 * @param num_sigs   Numbers of spectra.
+	 * @param bands      Numbers of bands.
+	 * @param max_values Combinations with more than this number of values
+	 *                   (spectra times bands) are skipped.
+	 */
+	public static void addTo(Harness harness, String operdir, int[] num_sigs, int[] bands, long max_values) {
+		SignatureOperationManager.init(operdir);
+		for ( Iterator it = SignatureOperationManager.getOperationNames().iterator(); it.hasNext(); ) {
+			String opername = (String) it.next();
+			if ( opername == null )
+				continue;   // separator
+			IOperation op = SignatureOperationManager.getSignatureOperation(opername);
+			for ( int s = 0; s < num_sigs.length; s++ ) {
+				for ( int b = 0; b < bands.length; b++ ) {
+					if ( (long) num_sigs[s] * bands[b] > max_values )
+						continue;
+					harness.add(new OperationBenchmark(op, num_sigs[s], bands[b]));
+				}
+			}
+		}
+	}
+
+	/** Applies an operation to a set of spectra. */
+	static final class OperationBenchmark extends Benchmark {
+		final IOperation op;
+		final int num_sigs;
+		final int bands;
+
+		Object params;
+		Signature[] sigs;
+		Signature reference;
+
+		OperationBenchmark(IOperation op, int num_sigs, int bands) {
+			super("sigoper." +op.getName().replace(' ', '_'));
+			this.op = op;
+			this.num_sigs = num_sigs;
+			this.bands = bands;
+			setParam("sigs", new Integer(num_sigs));
+			setParam("bands", new Integer(bands));
+			setElements(num_sigs);
+		}
+
+		public void setUp() throws Exception {
+			params = op.parseParameters(getParameterValues(op));
+			sigs = Data.createSignatures(num_sigs, bands, 1);
+			if ( op.getName().equals("FWHM based resampling") )
+				reference = Data.createFWHMReference();
+			else if ( op.getName().equals("Reflectance to radiance") )
+				reference = Data.createIrradiance(bands);
+			else
+				reference = Data.createSignatures(1, bands, 2)[0];
+		}
+
+		public Object run() throws Exception {
+			if ( op instanceof IMultiSignatureOperation )
+				return ((IMultiSignatureOperation) op).operate(sigs, params);
+
+			Signature res = null;
+			for ( int i = 0; i < sigs.length; i++ ) {
+				if ( op instanceof IBinarySignatureOperation )
+					res = ((IBinarySignatureOperation) op).operate(sigs[i], reference, params);
+				else
+					res = ((ISingleSignatureOperation) op).operate(sigs[i], params);
+			}
+			return res;
+		}
+
+		public void tearDown() {
+			sigs = null;
+			reference = null;
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package bench;
+
+import samscore.SamsDbGenerator;
+import sig.Signature;
+import specfile.*;
+import fileutils.Files;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ * Benchmarks for the spectrum file parsers: for each file type, parsing
+ * the contents from memory, and opening a file with automatic format
+ * recognition. The contents are generated by SamsDbGenerator from a
+ * synthetic spectrum.
+ *
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+public final class SpecfileBenchmarks {
+	/** File types, as known to SpectrumFileManager. */
+	static final String[] TYPES = { "ASD", "ASDb", "GER", "CSV", "Only-Reflectance", };
+
+	/** Temporary directories created so far, File. */
+	private static final List dirs = new ArrayList();
+
+	private SpecfileBenchmarks() {}
+
+	/**
+	 * Adds the benchmarks to a harness.
+	 *
+	 * @param harness The harness.
+	 * @param bands   Numbers of bands.
+	 */
+	public static void addTo(Harness harness, int[] bands) {
+		for ( int b = 0; b < bands.length; b++ ) {
+			for ( int t = 0; t < TYPES.length; t++ ) {
+				final String type = TYPES[t];
+				final int nbands = bands[b];
+				if ( type.equals("Only-Reflectance") && nbands != 2151 )
+					continue;   // the reader assumes 350, 351, ...
+
+				harness.add(new Benchmark("specfile.parse") {
+					byte[] contents;
+					public void setUp() throws Exception {
+						contents = SamsDbGenerator.getSourceContents(type, _createSignature(nbands));
+					}
+					public Object run() throws Exception {
+						return SpectrumFileManager.openSpectrumFile(contents, "spectrum" +SamsDbGenerator.getExtension(type), type);
+					}
+					public void tearDown() {
+						contents = null;
+					}
+				}.setParam("type", type).setParam("bands", new Integer(nbands)));
+
+				harness.add(new Benchmark("specfile.recognize") {
+					String filename;
+					public void setUp() throws Exception {
+						File dir = Data.createTempDirectory("samsbench");
+						synchronized ( dirs ) {
+							dirs.add(dir);
+						}
+						File file = new File(dir, "spectrum" +SamsDbGenerator.getExtension(type));
+						OutputStream out = new FileOutputStream(file);
+						try {
+							out.write(SamsDbGenerator.getSourceContents(type, _createSignature(nbands)));
+						}
+						finally {
+							out.close();
+						}
+						filename = file.getPath();
+					}
+					public Object run() throws Exception {
+						return SpectrumFileManager.openSpectrumFile(filename, null);
+					}
+				}.setParam("type", type).setParam("bands", new Integer(nbands)));
+			}
+		}
+	}
+
+	/** Removes the temporary files created. */
+	public static void cleanUp() {
+		synchronized ( dirs ) {
+			for ( Iterator it = dirs.iterator(); it.hasNext(); )
+				Files.deleteDirectory(((File) it.next()).getPath());
+			dirs.clear();
+		}
+	}
+
+	private static Signature _createSignature(int bands) {
+		return Data.createSignatures(1, bands, 3)[0];
+	}
+}
@@ -12,6 +12,29 @@ import java.util.*;
  * @version $Id$
  */
 public final class BinaryExporter {
+	/** Provides the signatures to be exported, one at a time, so they
+	 * do not need to be all in memory. */
+	public interface ISignatureSource {
+		/** Gets the number of signatures. */
+		public int size();
+		
+		/** Gets the next signature. */
+		public Signature next() throws Exception;
+	}
+	
+	/** A source for signatures already in memory. */
+	private static ISignatureSource _createSource(final Signature[] sigs) {
+		return new ISignatureSource() {
+			int next = 0;
+			public int size() {
+				return sigs.length;
+			}
+			public Signature next() {
+				return sigs[next++];
+			}
+		};
+	}
+	
 	/**
 	 * Exports a list of signatures to Standard Envi format.
 	 *
@@ -28,19 +51,39 @@ public final class BinaryExporter {
 		String filename,
 		String header_description,
 		EnviDataType type
+	) throws IOException, Exception {
+		exportBIP(_createSource(sigs), filename, header_description, type);
+	}
+	
+	/**
+	 * Exports signatures to Standard Envi format.
+	 *
+	 * @param source  Provides the signatures to be exported.
+	 * @param filename Destination file name. Also a header file, with
+	 *                 name filename + ".hdr", will be written.
+	 * @param header_description
+	 *                 To be included in the header file.
+	 * @param type
+	 *             The data type
+	 */
+	public static void exportBIP(
+		ISignatureSource source,
+		String filename,
+		String header_description,
+		EnviDataType type
 	) throws IOException, Exception {
 		String header_filename = filename + ".hdr";
 		
-		int size = sigs.length;
+		int size = source.size();
 		double sqrt_size = Math.sqrt(size);
 		int lines = (int) sqrt_size;
 		int samples = (int) Math.ceil((float) size / lines);
 		
 		int total_size = lines * samples; // could be > size
 		
-		DataOutputStream dos = null;
+		FileOutputStream stream = null;
 		try {
-			Signature sig = sigs[0];
+			Signature sig = source.next();
 			int bands = sig.getSize();
 			
 			EnviStandardFile.Header header = new EnviStandardFile.Header();
@@ -55,41 +98,39 @@ public final class BinaryExporter {
 			
 			header.wavelengths = new float[bands];
 			for ( int i = 0; i < bands; i++ ) {
-				Signature.Datapoint p = sig.getDatapoint(i);
-				header.wavelengths[i] = (float) p.x;
+				header.wavelengths[i] = (float) sig.getX(i);
 			}
 			
 			EnviStandardFile.writeHeader(header, header_filename);
 			
 			// now, write the binary file:
 			File file = new File(filename);
-			dos = new DataOutputStream(
-				new BufferedOutputStream(
-					new FileOutputStream(file), 100*1024
-				)
+			stream = new FileOutputStream(file);
+			ChannelValueWriter writer = new ChannelValueWriter(
+				stream.getChannel(), EnviCodec.get(type, header.byte_order), bands
 			);
+			double[] values = new double[bands];
 			for ( int i = 0; i < size; i++ ) {
-				sig = sigs[i];
+				if ( i > 0 )
+					sig = source.next();
 				int nbands = sig.getSize();
 				if ( nbands != bands )
 					throw new Exception("Different number of bands!");
 
-				for ( int k = 0; k < bands; k++ ) {
-					Signature.Datapoint p = sig.getDatapoint(k);
-					type.write(p.y, dos);
-				}
+				sig.copyYsInto(values);
+				writer.write(values, bands);
 			}
 			
 			// pad with zeros to complete image:			
-			for ( int i = size; i < total_size; i++ ) {
-				for ( int k = 0; k < bands; k++ ) {
-					type.write(0, dos);
-				}
-			}
+			java.util.Arrays.fill(values, 0);
+			for ( int i = size; i < total_size; i++ )
+				writer.write(values, bands);
+			
+			writer.flush();
 		}
 		finally {
-			if ( dos != null )
-				try { dos.close(); } catch (Exception ex ) {}
+			if ( stream != null )
+				try { stream.close(); } catch (Exception ex ) {}
 		}
 	}
 	
@@ -115,14 +156,36 @@ public final class BinaryExporter {
 		String filename,
 		String header_description,
 		EnviDataType type
+	) throws IOException, Exception {
+		exportToEnviSpectralLibrary(sig_names, _createSource(sigs), filename, header_description, type);
+	}
+	
+	/**
+	 * Exports signatures to a Envi Spectral Library.
+	 *
+	 * @param sig_names  Names of the signatures, one per signature.
+	 * @param source  Provides the signatures to be exported.
+	 * @param filename Destination file name. Also a header file, with
+	 *                 name filename + ".hdr", will be written.
+	 * @param header_description
+	 *                 To be included in the header file.
+	 * @param type
+	 *             The data type
+	 */
+	public static void exportToEnviSpectralLibrary(
+		String[] sig_names,
+		ISignatureSource source,
+		String filename,
+		String header_description,
+		EnviDataType type
 	) throws IOException, Exception {
 		String header_filename = filename + ".hdr";
 		
-		int lines = sigs.length;
-		DataOutputStream dos = null;
+		int lines = source.size();
+		FileOutputStream stream = null;
 		
 		try {
-			Signature sig = sigs[0];
+			Signature sig = source.next();
 			int samples = sig.getSize();
 			int bands = 1; 
 			
@@ -142,35 +205,33 @@ public final class BinaryExporter {
 			
 			header.wavelengths = new float[samples];
 			for ( int i = 0; i < samples; i++ ) {
-				Signature.Datapoint p = sig.getDatapoint(i);
-				header.wavelengths[i] = (float) p.x;
+				header.wavelengths[i] = (float) sig.getX(i);
 			}
 			
 			EnviStandardFile.writeHeader(header, header_filename);
 			
 			// now, write the binary file:
 			File file = new File(filename).getAbsoluteFile();
-			dos = new DataOutputStream(
-				new BufferedOutputStream(
-					new FileOutputStream(file), 100*1024
-				)
+			stream = new FileOutputStream(file);
+			ChannelValueWriter writer = new ChannelValueWriter(
+				stream.getChannel(), EnviCodec.get(type, header.byte_order), samples
 			);
-
+			double[] values = new double[samples];
 			for ( int i = 0; i < lines; i++ ) {
-				sig = sigs[i];
+				if ( i > 0 )
+					sig = source.next();
 				int nbands = sig.getSize();
 				if ( nbands != samples )
 					throw new Exception("Different number of bands!");
 
-				for ( int k = 0; k < samples; k++ ) {
-					Signature.Datapoint p = sig.getDatapoint(k);
-					type.write(p.y, dos);
-				}
+				sig.copyYsInto(values);
+				writer.write(values, samples);
 			}
+			writer.flush();
 		}
 		finally {
-			if ( dos != null )
-				try { dos.close(); } catch (Exception ex ) {}
+			if ( stream != null )
+				try { stream.close(); } catch (Exception ex ) {}
 		}
 	}
 	
@@ -0,0 +1,67 @@
+package envifile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes vectors of values to a file channel, encoded by a codec.
+ * Values are encoded into a few reused direct buffers, which are
+ * written together with a gathering write when all are full.
+ *
+ * @author Carlos Rueda
+ * @version $Id$
+ */
+final class ChannelValueWriter {
+	/** Size of each buffer, at least. */
+	private static final int BUFFER_SIZE = 64*1024;
+
+	/** Number of buffers written together. */
+	private static final int NUM_BUFFERS = 4;
+
+	private final FileChannel channel;
+	private final EnviCodec codec;
+	private final ByteBuffer[] buffers;
+	private int current;
+
+	/**
+	 * @param channel Destination channel.
+	 * @param codec   Codec to encode the values.
+	 * @param max_length Maximum length of the vectors to be written.
+	 */
+	ChannelValueWriter(FileChannel channel, EnviCodec codec, int max_length) {
+		this.channel = channel;
+		this.codec = codec;
+		int size = Math.max(BUFFER_SIZE, max_length * codec.size());
+		buffers = new ByteBuffer[NUM_BUFFERS];
+		for ( int i = 0; i < buffers.length; i++ )
+			buffers[i] = ByteBuffer.allocateDirect(size).order(codec.getByteOrder());
+		current = 0;
+	}
+
+	/** Writes a vector of values. */
+	void write(double[] values, int length) throws IOException {
+		if ( buffers[current].remaining() < length * codec.size() ) {
+			if ( ++current == buffers.length )
+				flush();
+		}
+		codec.encode(values, 0, length, buffers[current]);
+	}
+
+	/** Writes all pending values. */
+	void flush() throws IOException {
+		int used = Math.min(current + 1, buffers.length);
+		for ( int i = 0; i < used; i++ )
+			buffers[i].flip();
+		long remaining;
+		do {
+			channel.write(buffers, 0, used);
+			remaining = 0;
+			for ( int i = 0; i < used; i++ )
+				remaining += buffers[i].remaining();
+		} while ( remaining > 0 );
+		for ( int i = 0; i < buffers.length; i++ )
+			buffers[i].clear();
+		current = 0;
+	}
+}
@@ -0,0 +1,171 @@
+package envifile;
+
+import java.io.IOException;
+import java.io.DataInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Encoding and decoding of values of an Envi data type in a given
+ * byte order.
+ * Codecs are immutable and can be used concurrently; buffers, of course,
+ * cannot be shared among threads.
+ * Use get() to obtain the codec for a (type, byte order).
+ *
+ * @author Carlos Rueda
+ * @version $Id$
+ */
+public final class EnviCodec {
+	/** codecs[i][0] and codecs[i][1] are the little and big endian codecs
+	  * of the type EnviDataType.list.get(i) */
+	private static final EnviCodec[][] codecs;
+
+	static {
+		codecs = new EnviCodec[EnviDataType.list.size()][2];
+		for ( int i = 0; i < codecs.length; i++ ) {
+			EnviDataType type = (EnviDataType) EnviDataType.list.get(i);
+			codecs[i][0] = new EnviCodec(type, 0);
+			codecs[i][1] = new EnviCodec(type, 1);
+		}
+	}
+
+	/** returns the codec for a type and a byte order.
+	  * @param type The data type.
+	  * @param byte_order As in Envi headers: 0=little endian; 1=big endian
+	  */
+	public static EnviCodec get(EnviDataType type, int byte_order) {
+		int index = EnviDataType.list.indexOf(type);
+		if ( index < 0 )
+			throw new IllegalArgumentException(type+ ": unknown type");
+		if ( byte_order != 0 && byte_order != 1 )
+			throw new IllegalArgumentException(byte_order+ ": invalid byte order");
+		return codecs[index][byte_order];
+	}
+
+	/** returns the codec for a type and a byte order. */
+	public static EnviCodec get(EnviDataType type, ByteOrder order) {
+		return get(type, order == ByteOrder.BIG_ENDIAN ? 1 : 0);
+	}
+
+	private final EnviDataType type;
+	private final int byte_order;
+	private final ByteOrder order;
+
+	private EnviCodec(EnviDataType type, int byte_order) {
+		this.type = type;
+		this.byte_order = byte_order;
+		this.order = byte_order == 1 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+	}
+
+	/** returns the data type of this codec */
+	public EnviDataType getType() {
+		return type;
+	}
+
+	/** returns the byte order as in Envi headers: 0=little endian; 1=big endian */
+	public int getByteOrderCode() {
+		return byte_order;
+	}
+
+	/** returns the byte order of this codec */
+	public ByteOrder getByteOrder() {
+		return order;
+	}
+
+	/** returns the size in bytes of a value */
+	public int size() {
+		return type.size();
+	}
+
+	/** reads a value from an input stream.
+	  * @param dis The input stream.
+	  */
+	public double read(DataInputStream dis)
+	throws IOException {
+		return type.read(dis, byte_order);
+	}
+
+	/** decodes a value at a given position of a buffer.
+	  * @param buffer The buffer; its position is not changed.
+	  * @param index  Byte position of the value.
+	  */
+	public double decode(ByteBuffer buffer, int index) {
+		ByteOrder saved = buffer.order();
+		buffer.order(order);
+		try {
+			return type.read(buffer, index);
+		}
+		finally {
+			buffer.order(saved);
+		}
+	}
+
+	/** decodes values from a buffer, at its current position, which is
+	  * advanced by length * size() bytes.
+	  * @param buffer The source buffer.
+	  * @param values The destination.
+	  * @param offset Index of the first value to decode.
+	  * @param length Number of values to decode.
+	  */
+	public void decode(ByteBuffer buffer, double[] values, int offset, int length) {
+		ByteOrder saved = buffer.order();
+		buffer.order(order);
+		try {
+			type.decode(buffer, values, offset, length);
+		}
+		finally {
+			buffer.order(saved);
+		}
+	}
+
+	/** decodes values from a buffer, at its current position.
+	  * Same as decode(ByteBuffer, double[], int, int).
+	  */
+	public void decode(ByteBuffer buffer, float[] values, int offset, int length) {
+		ByteOrder saved = buffer.order();
+		buffer.order(order);
+		try {
+			type.decode(buffer, values, offset, length);
+		}
+		finally {
+			buffer.order(saved);
+		}
+	}
+
+	/** encodes values into a buffer, at its current position, which is
+	  * advanced by length * size() bytes.
+	  * Conversion is done as in EnviDataType.write(double, DataOutputStream).
+	  * @param values The values.
+	  * @param offset Index of the first value to encode.
+	  * @param length Number of values to encode.
+	  * @param buffer The destination buffer.
+	  */
+	public void encode(double[] values, int offset, int length, ByteBuffer buffer) {
+		ByteOrder saved = buffer.order();
+		buffer.order(order);
+		try {
+			type.encode(values, offset, length, buffer);
+		}
+		finally {
+			buffer.order(saved);
+		}
+	}
+
+	/** encodes values into a buffer, at its current position.
+	  * Same as encode(double[], int, int, ByteBuffer).
+	  */
+	public void encode(float[] values, int offset, int length, ByteBuffer buffer) {
+		ByteOrder saved = buffer.order();
+		buffer.order(order);
+		try {
+			type.encode(values, offset, length, buffer);
+		}
+		finally {
+			buffer.order(saved);
+		}
+	}
+
+	public String toString() {
+		return type+ (byte_order == 1 ? " (big endian)" : " (little endian)");
+	}
+}
@@ -6,6 +6,7 @@ import java.util.Iterator;
 import java.io.IOException;
 import java.io.DataOutputStream;
 import java.io.DataInputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Some of the Envi data types.
@@ -69,23 +70,76 @@ public abstract class EnviDataType {
 	public abstract void write(double val, DataOutputStream dos)
 	throws IOException;
 	
+	/** reads a value from an input stream, using the byte order
+	  * set in this type.
+	  * @param dis The input stream.
+	  * @deprecated Use {@link EnviCodec#read(DataInputStream)}
+	  */
+	public double read(DataInputStream dis)
+	throws IOException {
+		return read(dis, byte_order);
+	}
+	
 	/** reads a value from an input stream.
 	  * @param dis The input stream.
+	  * @param byte_order 0=little endian; 1=big endian
 	  */
-	public abstract double read(DataInputStream dis)
+	abstract double read(DataInputStream dis, int byte_order)
 	throws IOException;
 	
+	/** reads a value from a buffer at a given position.
+	  * The byte order of the buffer is used, not the one set
+	  * in this type.
+	  * @param buffer The buffer; its position is not changed.
+	  * @param index  Byte position of the value.
+	  */
+	public abstract double read(ByteBuffer buffer, int index);
+	
+	/** encodes values into a buffer, at its current position.
+	  * Conversion is done as in write(double, DataOutputStream), and
+	  * the byte order of the buffer is used, not the one set in this type.
+	  * @param values The values.
+	  * @param offset Index of the first value to encode.
+	  * @param length Number of values to encode.
+	  * @param buffer The destination buffer, with at least length * size()
+	  *               bytes remaining.
+	  */
+	public abstract void encode(double[] values, int offset, int length, ByteBuffer buffer);
+	
+	/** encodes values into a buffer, at its current position.
+	  * Same as encode(double[], int, int, ByteBuffer).
+	  */
+	public abstract void encode(float[] values, int offset, int length, ByteBuffer buffer);
+	
+	/** decodes values from a buffer, at its current position.
+	  * The byte order of the buffer is used, not the one set
+	  * in this type.
+	  * @param buffer The source buffer, with at least length * size()
+	  *               bytes remaining.
+	  * @param values The destination.
+	  * @param offset Index of the first value to decode.
+	  * @param length Number of values to decode.
+	  */
+	public abstract void decode(ByteBuffer buffer, double[] values, int offset, int length);
+	
+	/** decodes values from a buffer, at its current position.
+	  * Same as decode(ByteBuffer, double[], int, int).
+	  */
+	public abstract void decode(ByteBuffer buffer, float[] values, int offset, int length);
+	
 	/** returns a mnemonic name of this type */
 	public abstract String toString();
 	
 	/** sets the byte order.
+	  * Note that this changes the shared instance of this type.
 	  * @param byte_order 0=little endian; 1=big endian
+	  * @deprecated Use {@link EnviCodec#get(EnviDataType, int)}
 	  */
 	public void setByteOrder(int byte_order) {
 		this.byte_order = byte_order;
 	}
 	
-	protected short _readInt16(DataInputStream dis)
+	protected static short _readInt16(DataInputStream dis, int byte_order)
 	throws IOException {
 		if ( byte_order == 1 ) {
 			return dis.readShort();
@@ -97,7 +151,7 @@ public abstract class EnviDataType {
 		}
 	}
 	
-	protected int _readUInt16(DataInputStream dis)
+	protected static int _readUInt16(DataInputStream dis, int byte_order)
 	throws IOException {
 		if ( byte_order == 1 ) {
 			return dis.readUnsignedShort();
@@ -109,7 +163,7 @@ public abstract class EnviDataType {
 		}
 	}
 	
-	protected int _readInt32(DataInputStream dis)
+	protected static int _readInt32(DataInputStream dis, int byte_order)
 	throws IOException {
 		if ( byte_order == 1 ) {
 			return dis.readInt();
@@ -123,40 +177,40 @@ public abstract class EnviDataType {
 		}
 	}
 	
-	protected long _readUInt32(DataInputStream dis)
+	protected static long _readUInt32(DataInputStream dis, int byte_order)
 	throws IOException {
-		return 0xFFFFFFFFL & _readInt32(dis);
+		return 0xFFFFFFFFL & _readInt32(dis, byte_order);
 	}
 	
-	protected long _readInt64(DataInputStream dis)
+	protected static long _readInt64(DataInputStream dis, int byte_order)
 	throws IOException {
 		if ( byte_order == 1 ) {
 			return dis.readLong();
 		}
 		else {
-			long c0 = _readUInt32(dis);
-			long c1 = _readUInt32(dis);
+			long c0 = _readUInt32(dis, byte_order);
+			long c1 = _readUInt32(dis, byte_order);
 			return (c1 << 32) |  c0 ;
 		}
 	}
 	
-	protected float readFloat(DataInputStream dis)
+	protected static float readFloat(DataInputStream dis, int byte_order)
 	throws IOException {
 		if ( byte_order == 1 ) {
 			return dis.readFloat();
 		}
 		else {
-			return Float.intBitsToFloat(_readInt32(dis));
+			return Float.intBitsToFloat(_readInt32(dis, byte_order));
 		}
 	}
 
-	protected double readDouble(DataInputStream dis)
+	protected static double readDouble(DataInputStream dis, int byte_order)
 	throws IOException {
 		if ( byte_order == 1 ) {
 			return dis.readDouble();
 		}
 		else {
-			return Double.longBitsToDouble(_readInt64(dis));
+			return Double.longBitsToDouble(_readInt64(dis, byte_order));
 		}
 	}
 	
@@ -173,10 +227,34 @@ public abstract class EnviDataType {
 			dos.writeByte(v);
 		}
 		
-		public double read(DataInputStream dis)
+		double read(DataInputStream dis, int byte_order)
 		throws IOException {
 			return (double) dis.readUnsignedByte();
 		}
+		
+		public double read(ByteBuffer buffer, int index) {
+			return (double) (buffer.get(index) & 0xFF);
+		}
+		
+		public void encode(double[] values, int offset, int length, ByteBuffer buffer) {
+			for ( int i = offset; i < offset + length; i++ )
+				buffer.put((byte) Math.round(values[i]));
+		}
+		
+		public void encode(float[] values, int offset, int length, ByteBuffer buffer) {
+			for ( int i = offset; i < offset + length; i++ )
+				buffer.put((byte) Math.round(values[i]));
+		}
+		
+		public void decode(ByteBuffer buffer, double[] values, int offset, int length) {
+			for ( int i = offset; i < offset + length; i++ )
+				values[i] = (double) (buffer.get() & 0xFF);
+		}
+		
+		public void decode(ByteBuffer buffer, float[] values, int offset, int length) {
+			for ( int i = offset; i < offset + length; i++ )
+				values[i] = (float) (buffer.get() & 0xFF);
+		}
 	}
 	private static class INT16 extends EnviDataType {
 		public String toString() { return "Int16"; }
@@ -189,9 +267,33 @@ public abstract class EnviDataType {
 			dos.writeShort(v);
 		}
 		
-		public double read(DataInputStream dis)
+		double read(DataInputStream dis, int byte_order)
 		throws IOException {
-			return (double) _readInt16(dis);
+			return (double) _readInt16(dis, byte_order);
+		}
+		
+		public double read(ByteBuffer buffer, int index) {
+			return (double) buffer.getShort(index);
+		}
+		
+		public void encode(double[] values, int offset, int length, ByteBuffer buffer) {
+			for ( int i = offset; i < offset + length; i++ )
+				buffer.putShort((short) Math.round(values[i]));
+		}
+		
+		public void encode(float[] values, int offset, int length, ByteBuffer buffer) {
+			for ( int i = offset; i < offset + length; i++ )
+				buffer.putShort((short) Math.round(values[i]));
+		}
+		
+		public void decode(ByteBuffer buffer, double[] values, int offset, int length) {
+			for ( int i = offset; i < offset + length; i++ )
+				values[i] = (double) buffer.getShort();
+		}
+		
+		public void decode(ByteBuffer buffer, float[] values, int offset, int length) {
+			for ( int i = offset; i < offset + length; i++ )
+				values[i] = (float) buffer.getShort();
 		}
 	}
 	private static class INT32 extends EnviDataType {
@@ -205,9 +307,33 @@ public abstract class EnviDataType {
 			dos.writeInt(v);
 		}
 		
-		public double read(DataInputStream dis)
+		double read(DataInputStream dis, int byte_order)
 		throws IOException {
-			return (double) _readInt32(dis);
+			return (double) _readInt32(dis, byte_order);
+		}
+		
+		public double read(ByteBuffer buffer, int index) {
+			return (double) buffer.getInt(index);
+		}
+		
+		public void encode(double[] values, int offset, int length, ByteBuffer buffer) {
+			for ( int i = offset; i < offset + length; i++ )
+				buffer.putInt((int) Math.round(values[i]));
+		}
+		
+		public void encode(float[] values, int offset, int length, ByteBuffer buffer) {
+			for ( int i = offset; i < offset + length; i++ )
+				buffer.putInt((int) Math.round(values[i]));
+		}
+		
+		public void decode(ByteBuffer buffer, double[] values, int offset, int length) {
+			for ( int i = offset; i < offset + length; i++ )
+				values[i] = (double) buffer.getInt();
+		}
+		
+		public void decode(ByteBuffer buffer, float[] values, int offset, int length) {
+			for ( int i = offset; i < offset + length; i++ )
+				values[i] = (float) buffer.getInt();
 		}
 	}
 	private static class FLOAT32 extends EnviDataType {
@@ -221,9 +347,33 @@ public abstract class EnviDataType {
 			dos.writeFloat(v);
 		}
 		
-		public double read(DataInputStream dis)
+		double read(DataInputStream dis, int byte_order)
 		throws IOException {
-			return (double) readFloat(dis);
+			return (double) readFloat(dis, byte_order);
+		}
+		
+		public double read(ByteBuffer buffer, int index) {
+			return (double) buffer.getFloat(index);
+		}
+		
+		public void encode(double[] values, int offset, int length, ByteBuffer buffer) {
+			for ( int i = offset; i < offset + length; i++ )
+				buffer.putFloat((float) values[i]);
+		}
+		
+		public void encode(float[] values, int offset, int length, ByteBuffer buffer) {
+			for ( int i = offset; i < offset + length; i++ )
+				buffer.putFloat(values[i]);
+		}
+		
+		public void decode(ByteBuffer buffer, double[] values, int offset, int length) {
+			for ( int i = offset; i < offset + length; i++ )
+				values[i] = (double) buffer.getFloat();
+		}
+		
+		public void decode(ByteBuffer buffer, float[] values, int offset, int length) {
+			for ( int i = offset; i < offset + length; i++ )
+				values[i] = buffer.getFloat();
 		}
 	}
 	private static class FLOAT64 extends EnviDataType {
@@ -236,9 +386,33 @@ public abstract class EnviDataType {
 			dos.writeDouble(val);
 		}
 		
-		public double read(DataInputStream dis)
+		double read(DataInputStream dis, int byte_order)
 		throws IOException {
-			return (double) readDouble(dis);
+			return (double) readDouble(dis, byte_order);
+		}
+		
+		public double read(ByteBuffer buffer, int index) {
+			return buffer.getDouble(index);
+		}
+		
+		public void encode(double[] values, int offset, int length, ByteBuffer buffer) {
+			for ( int i = offset; i < offset + length; i++ )
+				buffer.putDouble(values[i]);
+		}
+		
+		public void encode(float[] values, int offset, int length, ByteBuffer buffer) {
+			for ( int i = offset; i < offset + length; i++ )
+				buffer.putDouble(values[i]);
+		}
+		
+		public void decode(ByteBuffer buffer, double[] values, int offset, int length) {
+			for ( int i = offset; i < offset + length; i++ )
+				values[i] = buffer.getDouble();
+		}
+		
+		public void decode(ByteBuffer buffer, float[] values, int offset, int length) {
+			for ( int i = offset; i < offset + length; i++ )
+				values[i] = (float) buffer.getDouble();
 		}
 	}
 	private static class UINT16 extends EnviDataType {
@@ -252,9 +426,33 @@ public abstract class EnviDataType {
 			dos.writeShort(v);
 		}
 		
-		public double read(DataInputStream dis)
+		double read(DataInputStream dis, int byte_order)
 		throws IOException {
-			return (double) _readUInt16(dis);
+			return (double) _readUInt16(dis, byte_order);
+		}
+		
+		public double read(ByteBuffer buffer, int index) {
+			return (double) (buffer.getShort(index) & 0xFFFF);
+		}
+		
+		public void encode(double[] values, int offset, int length, ByteBuffer buffer) {
+			for ( int i = offset; i < offset + length; i++ )
+				buffer.putShort((short) Math.round(values[i]));
+		}
+		
+		public void encode(float[] values, int offset, int length, ByteBuffer buffer) {
+			for ( int i = offset; i < offset + length; i++ )
+				buffer.putShort((short) Math.round(values[i]));
+		}
+		
+		public void decode(ByteBuffer buffer, double[] values, int offset, int length) {
+			for ( int i = offset; i < offset + length; i++ )
+				values[i] = (double) (buffer.getShort() & 0xFFFF);
+		}
+		
+		public void decode(ByteBuffer buffer, float[] values, int offset, int length) {
+			for ( int i = offset; i < offset + length; i++ )
+				values[i] = (float) (buffer.getShort() & 0xFFFF);
 		}
 	}
 	private static class UINT32 extends EnviDataType {
@@ -268,9 +466,33 @@ public abstract class EnviDataType {
 			dos.writeInt(v);
 		}
 		
-		public double read(DataInputStream dis)
+		double read(DataInputStream dis, int byte_order)
 		throws IOException {
-			return (double) _readUInt32(dis);
+			return (double) _readUInt32(dis, byte_order);
+		}
+		
+		public double read(ByteBuffer buffer, int index) {
+			return (double) (0xFFFFFFFFL & buffer.getInt(index));
+		}
+		
+		public void encode(double[] values, int offset, int length, ByteBuffer buffer) {
+			for ( int i = offset; i < offset + length; i++ )
+				buffer.putInt((int) Math.round(values[i]));
+		}
+		
+		public void encode(float[] values, int offset, int length, ByteBuffer buffer) {
+			for ( int i = offset; i < offset + length; i++ )
+				buffer.putInt((int) Math.round(values[i]));
+		}
+		
+		public void decode(ByteBuffer buffer, double[] values, int offset, int length) {
+			for ( int i = offset; i < offset + length; i++ )
+				values[i] = (double) (0xFFFFFFFFL & buffer.getInt());
+		}
+		
+		public void decode(ByteBuffer buffer, float[] values, int offset, int length) {
+			for ( int i = offset; i < offset + length; i++ )
+				values[i] = (float) (0xFFFFFFFFL & buffer.getInt());
 		}
 	}
 	
@@ -288,9 +510,8 @@ public abstract class EnviDataType {
 
 		int data_type;
 		while ( dis.available() > 0 && (data_type = dis.readByte()) > 0 ) {
-			EnviDataType type = EnviDataType.get(data_type);
-			type.setByteOrder(byte_order);
-			System.out.println(type.read(dis)+ " " +type);
+			EnviCodec codec = EnviCodec.get(EnviDataType.get(data_type), byte_order);
+			System.out.println(codec.read(dis)+ " " +codec);
 		}
 		dis.close();
 	}
@@ -30,58 +30,36 @@ public final class EnviFileManager {
 		int line,
 		int pixel
 	) throws FileNotFoundException, InvalidEnviFormatException, IOException {
-		EnviStandardFile.Header header = EnviStandardFile.readHeader(filename);
-		
-		// check that the given (line,pixel) is valid:
-		if ( header.x_start <= pixel && pixel < header.x_start + header.samples
-		&&   header.y_start <= line  && line  < header.y_start + header.lines ) {
-			// OK
-		}
-		else {
-			throw new InvalidEnviFormatException(
-				"(" +line+ "," +pixel+ ") invalid"
-			);
-		}
-
-		EnviDataType type = EnviDataType.get(header.data_type);		
-		if ( type == null ) {
-			throw new InvalidEnviFormatException(
-				"SAMS does not support ENVI data type " +header.data_type+ " yet."
-			);
-		}
-		
-		if ( ! header.interleave.equalsIgnoreCase("bip") ) {
-			throw new InvalidEnviFormatException(
-				"SAMS only supports BIP interleave"
-			);
-		}
-
-		type.setByteOrder(header.byte_order);
-		
-		// translate point according to (x_start, y_start):
-		line -= header.y_start;
-		pixel -= header.x_start;
-		
-		// open the binary file:			
-		DataInputStream dis = new DataInputStream(new FileInputStream(filename));
+		return getSignatures(filename, new int[] { line }, new int[] { pixel })[0];
+	}
 
+	/**
+	 * Gets the signatures for several (line,pixel) locations from a file.
+	 * The file is opened only once. The resulting signatures are sorted.
+	 *
+	 * @param filename The Envi file name.
+	 * @param lines Lines of the desired locations.
+	 * @param pixels Columns of the desired locations.
+	 *
+	 * @return The signatures, in the same order as the locations.
+	 *
+	 * @throws FileNotFoundException
+	 * @throws InvalidEnviFormatException
+	 * @throws IOException
+	 *
+	 * @see EnviImage
+	 */
+	public static Signature[] getSignatures(
+		String filename,
+		int[] lines,
+		int[] pixels
+	) throws FileNotFoundException, InvalidEnviFormatException, IOException {
+		EnviImage image = new EnviImage(filename);
 		try {
-			// skip to point (line,pixel):
-			int skip = (line * header.samples + pixel) * header.bands * type.size();
-			dis.skipBytes(skip);
-			
-			// read the signature;
-			Signature sig = new Signature();
-			for ( int k = 0; k < header.bands; k++ ) {
-				double data = type.read(dis);
-				sig.addDatapoint(header.wavelengths[k], data);
-			}
-			
-			sig.sort();
-			return sig;
+			return image.getSignatures(lines, pixels);
 		}
 		finally {
-			dis.close();
+			image.close();
 		}
 	}
 
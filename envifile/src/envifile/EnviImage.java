@@ -0,0 +1,341 @@
+package envifile;
+
+import sig.Signature;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An ENVI Standard image opened for the extraction of signatures.
+ * The header is read once and the data file is memory-mapped, so
+ * many pixels can be extracted efficiently.
+ * BIP, BIL and BSQ interleaves are supported, in either byte order.
+ * <p>
+ * Locations are given as (line,pixel) in image coordinates, that is,
+ * translated according to the "x start" and "y start" header values.
+ * The resulting signatures are sorted.
+ *
+ * @author Carlos Rueda
+ * @version $Id$
+ */
+public class EnviImage {
+	private static final int BIP = 0;
+	private static final int BIL = 1;
+	private static final int BSQ = 2;
+
+	/** Maximum size of each mapped segment. */
+	private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+	private String filename;
+	private EnviStandardFile.Header header;
+	private EnviDataType type;
+	private EnviCodec codec;
+	private int interleave;
+
+	private RandomAccessFile file;
+
+	/** The data file is mapped in segments of segmentSize bytes, a
+	 * multiple of the type size, so no value crosses a segment. */
+	private ByteBuffer[] segments;
+	private long segmentSize;
+
+	/** Band indexes sorted by wavelength, so signatures are created sorted. */
+	private int[] bandOrder;
+
+	/**
+	 * Opens an ENVI Standard image.
+	 *
+	 * @param filename The Envi file name. The header is filename + ".hdr".
+	 *
+	 * @throws FileNotFoundException
+	 * @throws InvalidEnviFormatException
+	 * @throws IOException
+	 */
+	public EnviImage(String filename)
+	throws FileNotFoundException, InvalidEnviFormatException, IOException {
+		this.filename = filename;
+		header = EnviStandardFile.readHeader(filename);
+
+		type = EnviDataType.get(header.data_type);
+		if ( type == null ) {
+			throw new InvalidEnviFormatException(
+				"SAMS does not support ENVI data type " +header.data_type+ " yet."
+			);
+		}
+
+		String il = header.interleave == null ? "" : header.interleave.trim();
+		if ( il.equalsIgnoreCase("bip") )
+			interleave = BIP;
+		else if ( il.equalsIgnoreCase("bil") )
+			interleave = BIL;
+		else if ( il.equalsIgnoreCase("bsq") )
+			interleave = BSQ;
+		else {
+			throw new InvalidEnviFormatException(
+				header.interleave+ ": interleave not supported"
+			);
+		}
+
+		if ( header.byte_order != 0 && header.byte_order != 1 ) {
+			throw new InvalidEnviFormatException(
+				header.byte_order+ ": invalid byte order"
+			);
+		}
+		codec = EnviCodec.get(type, header.byte_order);
+
+		long dataSize = (long) header.samples * header.lines * header.bands * type.size();
+		file = new RandomAccessFile(filename, "r");
+		try {
+			if ( file.length() < header.header_offset + dataSize ) {
+				throw new InvalidEnviFormatException(
+					filename+ ": file too short for the dimensions in header"
+				);
+			}
+			FileChannel channel = file.getChannel();
+			segmentSize = MAX_SEGMENT_SIZE - MAX_SEGMENT_SIZE % type.size();
+			int num_segments = (int) ((dataSize + segmentSize - 1) / segmentSize);
+			segments = new ByteBuffer[num_segments];
+			for ( int i = 0; i < num_segments; i++ ) {
+				long offset = i * segmentSize;
+				long size = Math.min(segmentSize, dataSize - offset);
+				MappedByteBuffer segment = channel.map(
+					FileChannel.MapMode.READ_ONLY, header.header_offset + offset, size
+				);
+				segment.order(codec.getByteOrder());
+				segments[i] = segment;
+			}
+		}
+		catch ( IOException ex ) {
+			file.close();
+			throw ex;
+		}
+
+		bandOrder = _getBandOrder(header.wavelengths);
+	}
+
+	/** Gets band indexes in increasing wavelength order; stable. */
+	private static int[] _getBandOrder(float[] wavelengths) {
+		int[] order = new int[wavelengths.length];
+		for ( int i = 0; i < order.length; i++ ) {
+			// insertion sort: bands usually come in order
+			int k = i;
+			while ( k > 0 && wavelengths[order[k-1]] > wavelengths[i] ) {
+				order[k] = order[k-1];
+				k--;
+			}
+			order[k] = i;
+		}
+		return order;
+	}
+
+	/** Gets the header of this image. */
+	public EnviStandardFile.Header getHeader() {
+		return header;
+	}
+
+	/** Gets the number of samples (pixels per line). */
+	public int getSamples() {
+		return header.samples;
+	}
+
+	/** Gets the number of lines. */
+	public int getLines() {
+		return header.lines;
+	}
+
+	/** Gets the number of bands. */
+	public int getBands() {
+		return header.bands;
+	}
+
+	/** Gets the data type. */
+	public EnviDataType getDataType() {
+		return type;
+	}
+
+	/** Releases the resources associated to this image. */
+	public void close() throws IOException {
+		segments = null;
+		file.close();
+	}
+
+	/** Gets the index of a value in the data file, in units of the type size. */
+	private long _index(int line, int pixel, int band) {
+		long samples = header.samples;
+		long bands = header.bands;
+		switch ( interleave ) {
+			case BIP: return (line * samples + pixel) * bands + band;
+			case BIL: return (line * bands + band) * samples + pixel;
+			default:  return (band * (long) header.lines + line) * samples + pixel;
+		}
+	}
+
+	/**
+	 * Decodes consecutive values, starting at the given index (in units
+	 * of the type size), with one bulk decode per segment spanned.
+	 */
+	private void _decode(long index, double[] values, int offset, int length) {
+		int size = type.size();
+		while ( length > 0 ) {
+			long pos = index * size;
+			int segment = (int) (pos / segmentSize);
+			int start = (int) (pos - segment * segmentSize);
+			int count = (int) Math.min(length, (segmentSize - start) / size);
+			ByteBuffer buffer = segments[segment].duplicate();
+			buffer.position(start);
+			codec.decode(buffer, values, offset, count);
+			index += count;
+			offset += count;
+			length -= count;
+		}
+	}
+
+	/** Checks a (line,pixel) in image coordinates. */
+	private void _check(int line, int pixel) throws InvalidEnviFormatException {
+		if ( header.x_start <= pixel && pixel < header.x_start + header.samples
+		&&   header.y_start <= line  && line  < header.y_start + header.lines ) {
+			// OK
+		}
+		else {
+			throw new InvalidEnviFormatException(
+				"(" +line+ "," +pixel+ ") invalid"
+			);
+		}
+	}
+
+	/**
+	 * Reads the values of consecutive pixels in a line.
+	 * Each contiguous run in the data file (the spectrum of a pixel in BIP;
+	 * the pixels of a band in BIL and BSQ) is decoded in bulk.
+	 *
+	 * @param line   Line, relative to the data file.
+	 * @param pixel  First pixel, relative to the data file.
+	 * @param values Destination: values[i][band] for pixel + i.
+	 */
+	private void _readRun(int line, int pixel, double[][] values) {
+		int count = values.length;
+		int bands = header.bands;
+		if ( interleave == BIP ) {
+			long index = _index(line, pixel, 0);
+			for ( int i = 0; i < count; i++ ) {
+				_decode(index, values[i], 0, bands);
+				index += bands;
+			}
+		}
+		else {
+			double[] run = new double[count];
+			for ( int k = 0; k < bands; k++ ) {
+				_decode(_index(line, pixel, k), run, 0, count);
+				for ( int i = 0; i < count; i++ )
+					values[i][k] = run[i];
+			}
+		}
+	}
+
+	/** Creates a sorted signature from the values of the bands. */
+	private Signature _createSignature(double[] values) {
+		Signature sig = new Signature(null, values.length);
+		for ( int i = 0; i < bandOrder.length; i++ ) {
+			int k = bandOrder[i];
+			sig.addDatapoint(header.wavelengths[k], values[k]);
+		}
+		return sig;
+	}
+
+	private Signature[] _createSignatures(double[][] values) {
+		Signature[] sigs = new Signature[values.length];
+		for ( int i = 0; i < values.length; i++ )
+			sigs[i] = _createSignature(values[i]);
+		return sigs;
+	}
+
+	/**
+	 * Gets the signature at a given location.
+	 *
+	 * @param line Line of the desired location.
+	 * @param pixel Column of the desired location.
+	 *
+	 * @return The signature.
+	 *
+	 * @throws InvalidEnviFormatException If the location is invalid.
+	 */
+	public Signature getSignature(int line, int pixel)
+	throws InvalidEnviFormatException {
+		return getSignatures(new int[] { line }, new int[] { pixel })[0];
+	}
+
+	/**
+	 * Gets the signatures at several locations.
+	 *
+	 * @param lines Lines of the desired locations.
+	 * @param pixels Columns of the desired locations.
+	 *
+	 * @return The signatures, in the same order as the locations.
+	 *
+	 * @throws InvalidEnviFormatException If any location is invalid.
+	 */
+	public Signature[] getSignatures(int[] lines, int[] pixels)
+	throws InvalidEnviFormatException {
+		if ( lines.length != pixels.length )
+			throw new IllegalArgumentException("lines and pixels must have the same length");
+		for ( int i = 0; i < lines.length; i++ )
+			_check(lines[i], pixels[i]);
+
+		double[][] values = new double[lines.length][header.bands];
+		double[][] run = new double[1][];
+		for ( int i = 0; i < lines.length; i++ ) {
+			run[0] = values[i];
+			_readRun(lines[i] - header.y_start, pixels[i] - header.x_start, run);
+		}
+		return _createSignatures(values);
+	}
+
+	/**
+	 * Gets the signatures in a rectangular region of interest.
+	 *
+	 * @param line First line of the region.
+	 * @param pixel First column of the region.
+	 * @param numLines Number of lines in the region.
+	 * @param numPixels Number of columns in the region.
+	 *
+	 * @return The signatures, by line, then by column.
+	 *
+	 * @throws InvalidEnviFormatException If the region is not in the image.
+	 */
+	public Signature[] getRegion(int line, int pixel, int numLines, int numPixels)
+	throws InvalidEnviFormatException {
+		if ( numLines <= 0 || numPixels <= 0 )
+			return new Signature[0];
+		_check(line, pixel);
+		_check(line + numLines - 1, pixel + numPixels - 1);
+
+		Signature[] sigs = new Signature[numLines * numPixels];
+		double[][] values = new double[numPixels][header.bands];
+		for ( int l = 0; l < numLines; l++ ) {
+			_readRun(line + l - header.y_start, pixel - header.x_start, values);
+			for ( int i = 0; i < numPixels; i++ )
+				sigs[l * numPixels + i] = _createSignature(values[i]);
+		}
+		return sigs;
+	}
+
+	/**
+	 * Gets the signatures in a complete line.
+	 *
+	 * @param line The line.
+	 *
+	 * @return The signatures, by column.
+	 *
+	 * @throws InvalidEnviFormatException If the line is invalid.
+	 */
+	public Signature[] getLine(int line)
+	throws InvalidEnviFormatException {
+		return getRegion(line, header.x_start, 1, header.samples);
+	}
+
+	public String toString() {
+		return filename;
+	}
+}
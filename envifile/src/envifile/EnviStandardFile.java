@@ -23,6 +23,7 @@ public class EnviStandardFile {
 		public int data_type;
 		public String interleave;
 		public int byte_order;
+		public int header_offset;
 		public int x_start;
 		public int y_start;
 		public float[] wavelengths;
@@ -45,6 +46,8 @@ public class EnviStandardFile {
 				file_type = (String) map.get("file_type");
 				spectra_names = (String[]) map.get("spectra_names");
 				byte_order = Integer.parseInt((String) map.get("byte order"));
+				if ( map.get("header offset") != null )
+					header_offset = Integer.parseInt((String) map.get("header offset"));
 				if ( map.get("x start") != null )
 					x_start = Integer.parseInt((String) map.get("x start"));
 				if ( map.get("y start") != null )
@@ -85,7 +88,7 @@ public class EnviStandardFile {
 			"samples = " +header.samples+ "\n" +
 			"lines   = " +header.lines+ "\n" +
 			"bands   = " +header.bands+ "\n" +
-			"header offset = 0\n" +
+			"header offset = " +header.header_offset+ "\n" +
 			"file type = " +(header.file_type == null ? "ENVI Standard" : header.file_type)+ "\n" +
 			"data type = " +header.data_type+ "\n" +
 			"interleave = " +header.interleave+ "\n" +
@@ -0,0 +1,205 @@
+package samscore;
+
+import samscore.ISamsDb.IClipboard.IObserver;
+import sig.Signature;
+import sigoper.*;
+
+import java.util.*;
+
+/**
+ * Applies a single-signature (or binary, with a reference signature)
+ * operation to a list of spectra. Several worker threads read, operate
+ * and write the signatures concurrently.
+ * <p>
+ * Results either replace the original signatures (in-place, the
+ * default), or are added as new spectra named after the original ones
+ * plus a suffix, under a target location.
+ * <p>
+ * The operation parameters are parsed once, and the resulting object
+ * is shared by all the workers.
+ * <p>
+ * Progress is reported to an observer, whose elementFinished is called
+ * with the path of each written result, and can stop the task by
+ * returning true. The observer is called from the worker threads, one
+ * call at a time.
+ *
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+public class BatchOperation {
+	final ISamsDb db;
+	final IOperation op;
+	final List paths;
+
+	Object params;
+	Signature reference_sig;
+	String suffix;
+	String target_location;
+	int num_workers = Runtime.getRuntime().availableProcessors();
+	IObserver obs;
+
+	/** Index of the next path to be processed. */
+	int next;
+
+	/** Number of results written. */
+	int processed;
+
+	/** Set to stop the workers. */
+	boolean stopped;
+
+	/** First error, if any. */
+	Exception error;
+
+	/** Resulting paths, in the order of the given paths. */
+	String[] result_paths;
+
+	/**
+	 * Creates a batch operation.
+	 *
+	 * @param db    The database.
+	 * @param op    An ISingleSignatureOperation, or an IBinarySignatureOperation
+	 *              (see setReference).
+	 * @param paths The paths of the spectra to be operated.
+	 */
+	public BatchOperation(ISamsDb db, IOperation op, List paths) {
+		if ( !(op instanceof ISingleSignatureOperation)
+		&&   !(op instanceof IBinarySignatureOperation) ) {
+			throw new IllegalArgumentException(
+				op.getName()+ ": not a single-signature or binary operation"
+			);
+		}
+		this.db = db;
+		this.op = op;
+		this.paths = paths;
+	}
+
+	/** Sets the parameters, as returned by op.parseParameters. By default,
+	 * the current parameter values of the operation, parsed at execution. */
+	public void setParameters(Object params) {
+		this.params = params;
+	}
+
+	/** Sets the reference signature, the second argument for a binary operation. */
+	public void setReference(Signature reference_sig) {
+		this.reference_sig = reference_sig;
+	}
+
+	/** Sets the results to be added as new spectra.
+	 * @param suffix Appended to the name of each original spectrum.
+	 * @param target_location Location for the new spectra.
+	 */
+	public void setNewSpectra(String suffix, String target_location) {
+		this.suffix = suffix;
+		this.target_location = target_location;
+	}
+
+	/** Sets the number of worker threads. By default, the number of
+	 * available processors. */
+	public void setNumWorkers(int num_workers) {
+		this.num_workers = Math.max(1, num_workers);
+	}
+
+	/** Sets the observer of the task. */
+	public void setObserver(IObserver obs) {
+		this.obs = obs;
+	}
+
+	/**
+	 * Executes the operation on all the given spectra.
+	 * If an error occurs, no more spectra are processed and the error is
+	 * thrown after the workers finish; the results already written are
+	 * kept.
+	 *
+	 * @return The resulting paths, in the order of the given paths; null
+	 *         entries for spectra not processed because of a stop request.
+	 */
+	public String[] execute() throws Exception {
+		final Object params = this.params != null ? this.params : OpUtil.parseParameters(op);
+		next = 0;
+		processed = 0;
+		stopped = false;
+		error = null;
+		result_paths = new String[paths.size()];
+
+		if ( obs != null )
+			obs.startTask(paths.size());
+
+		Thread[] workers = new Thread[Math.min(num_workers, paths.size())];
+		for ( int w = 0; w < workers.length; w++ ) {
+			workers[w] = new Thread("BatchOperation-" +w) {
+				public void run() {
+					try {
+						int i;
+						while ( (i = _nextIndex()) >= 0 )
+							_process(i, params);
+					}
+					catch(Exception ex) {
+						_stop(ex);
+					}
+				}
+			};
+			workers[w].start();
+		}
+		boolean interrupted = false;
+		for ( int w = 0; w < workers.length; w++ ) {
+			while ( workers[w].isAlive() ) {
+				try {
+					workers[w].join();
+				}
+				catch(InterruptedException ex) {
+					// stop, but wait for the workers anyway
+					interrupted = true;
+					_stop(null);
+				}
+			}
+		}
+		if ( interrupted )
+			Thread.currentThread().interrupt();
+
+		if ( obs != null )
+			obs.endTask(processed);
+		if ( error != null )
+			throw error;
+		return result_paths;
+	}
+
+	private synchronized int _nextIndex() {
+		if ( stopped || next >= paths.size() )
+			return -1;
+		return next++;
+	}
+
+	private synchronized void _stop(Exception ex) {
+		if ( error == null )
+			error = ex;
+		stopped = true;
+	}
+
+	/** Reads, operates and writes the i-th spectrum. */
+	private void _process(int i, Object params) throws Exception {
+		String path = (String) paths.get(i);
+		Signature sig = db.getSignature(path);
+		Signature sig_res;
+		if ( op instanceof IBinarySignatureOperation )
+			sig_res = ((IBinarySignatureOperation) op).operate(sig, reference_sig, params);
+		else
+			sig_res = ((ISingleSignatureOperation) op).operate(sig, params);
+
+		String path_res;
+		if ( suffix != null ) {
+			String name = path.substring(path.lastIndexOf('/') + 1);
+			path_res = db.addSpectrum(target_location+ "/" +name + suffix, sig_res);
+		}
+		else {
+			db.setSignature(path, sig_res);
+			path_res = path;
+		}
+
+		synchronized ( this ) {
+			result_paths[i] = path_res;
+			processed++;
+			if ( obs != null && obs.elementFinished(processed, path_res, true) )
+				stopped = true;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package samscore;
+
+import java.util.*;
+
+/**
+ * A FIFO queue of limited capacity to pass elements between producer
+ * and consumer threads.
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+final class BoundedQueue {
+	private final LinkedList elements = new LinkedList();
+	private final int capacity;
+	private boolean closed;
+
+	/** Creates a queue accepting up to the given number of elements. */
+	BoundedQueue(int capacity) {
+		if ( capacity <= 0 )
+			throw new IllegalArgumentException("capacity must be positive");
+		this.capacity = capacity;
+	}
+
+	/** Adds an element, waiting while the queue is full.
+	 * @return false if the queue has been closed; the element is
+	 *	not added in that case. */
+	synchronized boolean put(Object obj) throws InterruptedException {
+		while ( elements.size() >= capacity && !closed )
+			wait();
+		if ( closed )
+			return false;
+		elements.addLast(obj);
+		notifyAll();
+		return true;
+	}
+
+	/** Removes the first element, waiting while the queue is empty.
+	 * @return null if the queue is empty and closed. */
+	synchronized Object take() throws InterruptedException {
+		while ( elements.size() == 0 && !closed )
+			wait();
+		if ( elements.size() == 0 )
+			return null;
+		notifyAll();
+		return elements.removeFirst();
+	}
+
+	/** Removes all available elements, waiting while the queue is empty.
+	 * @return an empty list if the queue is empty and closed. */
+	synchronized List takeAll() throws InterruptedException {
+		while ( elements.size() == 0 && !closed )
+			wait();
+		List list = new ArrayList(elements);
+		elements.clear();
+		notifyAll();
+		return list;
+	}
+
+	/** Closes this queue: no more elements are accepted.
+	 * @param discard true to also discard the elements not yet taken. */
+	synchronized void close(boolean discard) {
+		closed = true;
+		if ( discard )
+			elements.clear();
+		notifyAll();
+	}
+}
@@ -30,6 +30,10 @@ public interface ISamsDb {
 	/** Gets all elements */
 	public Iterator getAllPaths();
 	
+	/** Rebuilds the internal catalog of elements from the files in this
+	 * database. Only needed if the files were modified externally. */
+	public void reindex() throws Exception;
+	
 	/** Creates a condition specification to be used by selectSpectrums. */
 	public ICondition createCondition(String text) throws Exception;
 
@@ -60,7 +64,10 @@ public interface ISamsDb {
 	 */
 	public String renameSpectrum(String oldPath, String newPath) throws Exception;
 
-	/** Gets a signature 
+	/** Gets a signature.
+	 * Recently read signatures are kept in a cache (see
+	 * setSignatureCacheCapacity); the returned signature is always a new
+	 * copy that the caller may modify.
 	 * @throw  Exception if signature not found or cannot be read in.
 	 */
 	public Signature getSignature(String path) throws Exception;
@@ -68,12 +75,57 @@ public interface ISamsDb {
 	/** Sets a signature */
 	public void setSignature(String path, Signature sig) throws Exception;
 	
+	/** Sets the maximum total number of datapoints of the signatures kept
+	 * in the cache of getSignature; 0 to disable it. */
+	public void setSignatureCacheCapacity(long datapoints);
+	
+	/** Gets the statistics of the signature cache: capacity, datapoints,
+	 * entries, hits, and misses. */
+	public Properties getSignatureCacheStatistics();
+	
+	/** Gets the names of the available formats to store signatures. */
+	public String[] getSignatureFormatNames();
+	
+	/** Gets the name of the format used to store signatures. */
+	public String getSignatureFormat();
+	
+	/** Sets the format used to store signatures from now on.
+	 * Signatures already stored are still readable; use
+	 * SamsDbManager.convertSignatures to rewrite them.
+	 * This setting is made persistent by save().
+	 * @throw  Exception if the format name is not recognized.
+	 */
+	public void setSignatureFormat(String formatName) throws Exception;
+	
+	/** Gets the names of the available stores for signatures. */
+	public String[] getSignatureStoreNames();
+	
+	/** Gets the name of the store where signatures are kept. */
+	public String getSignatureStore();
+	
+	/** Moves all signatures to the given store, which is used from now on.
+	 * This setting is saved immediately.
+	 * @throw  Exception if the store name is not recognized.
+	 */
+	public void setSignatureStore(String storeName) throws Exception;
+	
 	/** gets a sub-grouping by getLocation(). */
 	public INode getGroupingUnderLocation(String path) throws Exception;
 
 	/** gets a grouping structure according to attribute values. */
 	public INode getGroupingBy(String[] attrNames) throws Exception;
 	
+	/** Registers a grouping that is kept up to date by this database as
+	 * elements are added, removed, renamed, or their attributes changed.
+	 * Call IGrouping.unregister() when no longer needed. */
+	public IGrouping registerGrouping(IOrder order) throws Exception;
+	
+	/** Adds a listener of changes on the elements of this database. */
+	public void addChangeListener(IChangeListener lis);
+	
+	/** Removes a listener of changes. */
+	public void removeChangeListener(IChangeListener lis);
+	
 	/**
 	 * Gets the general properties associated to this database. 
 	 * A client may use this to store its own properties related to
@@ -152,6 +204,66 @@ public interface ISamsDb {
 		public String toString();	
 	}
 	
+	/** Listener of changes on the elements of a database.
+	 * Notifications are made in the thread performing the change. */
+	public interface IChangeListener {
+		/** An element has been added. */
+		public void spectrumAdded(String path);
+		
+		/** An element has been removed. */
+		public void spectrumRemoved(String path);
+		
+		/** An element has been renamed. */
+		public void spectrumMoved(String oldPath, String newPath);
+		
+		/** The attribute values of an element have been saved. */
+		public void attributesChanged(String path);
+		
+		/** The elements have been reloaded; any of them may have changed. */
+		public void reindexed();
+	}
+	
+	/** A grouping structure maintained incrementally by the database.
+	 * Each element is in the group given by the values of the order
+	 * expressions, each value as a directory named "'value'". */
+	public interface IGrouping {
+		/** Gets the order specification of this grouping. */
+		public IOrder getOrder();
+		
+		/** Gets the root of the grouping structure, whose files are named
+		 * by the paths of the elements. Synchronize on this object while
+		 * traversing the structure. */
+		public INode getRoot();
+		
+		/** Gets the names of the nested groups containing an element;
+		 * null if the element is not in this grouping. */
+		public String[] getGroupNames(String path);
+		
+		/** Adds a listener of changes in this grouping. */
+		public void addListener(IListener lis);
+		
+		/** Removes a listener. */
+		public void removeListener(IListener lis);
+		
+		/** Stops maintaining this grouping. */
+		public void unregister();
+		
+		/** Listener of changes in a grouping.
+		 * Notifications are made in the thread performing the change. */
+		public interface IListener {
+			/** An element has been added to a group. Groups not existing
+			 * before are created in the structure. */
+			public void elementAdded(IGrouping grouping, String[] groupNames, String path);
+			
+			/** An element has been removed from a group. Groups left empty
+			 * are removed from the structure. */
+			public void elementRemoved(IGrouping grouping, String[] groupNames, String path);
+			
+			/** The whole structure has been rebuilt. */
+			public void groupingReset(IGrouping grouping);
+		}
+	}
+	
 	/** Returns the associated clipboard. */
 	public IClipboard getClipboard();
 	
@@ -6,7 +6,7 @@ import samscore.ISamsDb.IMetadataDef.IAttributeDef;
 import envifile.EnviDataType;
 import specfile.ISpectrumFile;
 import sig.Signature;
-import sigoper.OpUtil;
+import sigoper.*;
 import fileutils.Files;
 import sfsys.Shell;
 import sfsys.ISfsys;
@@ -27,6 +27,9 @@ public class Interpreter {
 	
 	Shell current_grouping_shell;
 	
+	/** The grouping being navigated by current_grouping_shell, if not by location. */
+	IGrouping current_grouping;
+	
 	public Interpreter(SamsDbManager dbman, Reader r, Writer w) {
 		this.dbman = dbman;
 		if ( r instanceof BufferedReader )
@@ -55,6 +58,15 @@ public class Interpreter {
 		pw.println("saved");
 	}
 	
+	public void reindex() throws Exception {
+		ISamsDb db = dbman.getDatabase();
+		db.reindex();
+		int count = 0;
+		for ( Iterator it = db.getAllPaths(); it.hasNext(); it.next() )
+			count++;
+		pw.println(count+ " spectra indexed");
+	}
+	
 	public void metadata() {
 		ISamsDb.IMetadataDef mddef = dbman.getDatabase().getMetadata();
 		pw.println("  Name / Default value");
@@ -158,8 +170,7 @@ public class Interpreter {
 		ISamsDb db = dbman.getDatabase();
 		Signature sig = db.getSignature(path);
 		for ( int i = 0; i < Math.min(10, sig.getSize()); i++ ) {
-			Signature.Datapoint p = sig.getDatapoint(i);
-			pw.println("     " +p.x+ " , " +p.y);
+			pw.println("     " +sig.getX(i)+ " , " +sig.getY(i));
 		}
 	}
 	
@@ -216,10 +227,236 @@ public class Interpreter {
 			pw.println(format+ ": unrecognized export format. Use one of ascii, envi, envilib");
 	}
 	
+	/**
+	 * compute &lt;operation&gt; &lt;result-path&gt; [&lt;condition&gt;]
+	 * Applies a multi-signature operation to the spectra satisfying the
+	 * condition (all if not given), and adds the result.
+	 * Underscores in the operation name stand for spaces.
+	 */
+	public void compute(String[] args) throws Exception {
+		if ( args.length < 3 ) {
+			pw.println("compute <operation> <result-path> [<condition>]");
+			return;
+		}
+		String opername = args[1].replace('_', ' ');
+		String result_path = args[2];
+		String condition_text = args.length >= 4 ? args[3] : null;
+		
+		IOperation op = Sams.getSignatureOperation(opername);
+		if ( !(op instanceof IMultiSignatureOperation) ) {
+			pw.println(opername+ ": not a multi-signature operation");
+			return;
+		}
+		
+		ISamsDb db = dbman.getDatabase();
+		ICondition condition = condition_text == null ? null : db.createCondition(condition_text);
+		Iterator it = db.selectSpectrums(condition, null);
+		int count = 0;
+		Signature sig;
+		if ( op instanceof IStreamingMultiSignatureOperation ) {
+			// signatures are passed one at a time:
+			IStreamingMultiSignatureOperation.IAccumulator acc =
+				((IStreamingMultiSignatureOperation) op).createAccumulator();
+			for ( ; it.hasNext(); count++ )
+				acc.add(_getSignatureToOperate(db, (ISpectrum) it.next()));
+			sig = acc.getResult();
+		}
+		else {
+			List sigs = new ArrayList();
+			for ( ; it.hasNext(); count++ )
+				sigs.add(_getSignatureToOperate(db, (ISpectrum) it.next()));
+			sig = ((IMultiSignatureOperation) op).operate(
+				(Signature[]) sigs.toArray(new Signature[sigs.size()])
+			);
+		}
+		result_path = db.addSpectrum(result_path, sig);
+		save();
+		pw.println(count+ " signatures operated. Result: " +result_path);
+	}
+	
+	/**
+	 * apply &lt;operation&gt; [&lt;condition&gt; [&lt;suffix&gt; &lt;target-location&gt;]]
+	 * Applies a single-signature operation to the spectra satisfying the
+	 * condition (all if not given, or if given as "-"), in place, or
+	 * creating new spectra if a suffix and target location are given.
+	 * Underscores in the operation name stand for spaces.
+	 */
+	public void apply(String[] args) throws Exception {
+		if ( args.length < 2 ) {
+			pw.println("apply <operation> [<condition> [<suffix> <target-location>]]");
+			return;
+		}
+		String opername = args[1].replace('_', ' ');
+		String condition_text = args.length >= 3 && !args[2].equals("-") ? args[2] : null;
+		
+		IOperation op = Sams.getSignatureOperation(opername);
+		if ( !(op instanceof ISingleSignatureOperation) ) {
+			pw.println(opername+ ": not a single-signature operation");
+			return;
+		}
+		
+		ISamsDb db = dbman.getDatabase();
+		ICondition condition = condition_text == null ? null : db.createCondition(condition_text);
+		List paths = new ArrayList();
+		for ( Iterator it = db.selectSpectrums(condition, null); it.hasNext(); )
+			paths.add(((ISpectrum) it.next()).getPath());
+		
+		BatchOperation batch = new BatchOperation(db, op, paths);
+		if ( args.length >= 5 )
+			batch.setNewSpectra(args[3], args[4]);
+		batch.setObserver(new IClipboard.IObserver() {
+			public void startTask(int total) {
+				pw.println(total+ " spectra to be processed");
+			}
+			public boolean elementFinished(int index, String path, boolean isSpectrum) {
+				if ( index % 1000 == 0 )
+					pw.println("  " +index+ " processed");
+				return false;
+			}
+			public void endTask(int processed) {
+				pw.println(processed+ " spectra processed");
+			}
+		});
+		batch.execute();
+		save();
+	}
+	
+	/**
+	 * pipeline &lt;name&gt; &lt;step&gt;...
+	 * Defines a pipeline and adds it to the operations (also saving it
+	 * with the scripted operations), so it can be run by name with apply,
+	 * or with compute if the last step is a multi-signature operation.
+	 * Each step is an operation name followed by optional ",param=value"
+	 * settings, eg., Crop,from=400,to=2400.
+	 * Underscores in the names stand for spaces.
+	 */
+	public void pipeline(String[] args) throws Exception {
+		if ( args.length < 3 ) {
+			pw.println("pipeline <name> <step>...");
+			return;
+		}
+		String name = args[1].replace('_', ' ');
+		Pipeline pipeline = new Pipeline(name, "Pipeline");
+		for ( int k = 2; k < args.length; k++ ) {
+			StringTokenizer st = new StringTokenizer(args[k], ",");
+			String opername = st.nextToken().replace('_', ' ');
+			IOperation op = Sams.getSignatureOperation(opername);
+			if ( op == null ) {
+				pw.println(opername+ ": operation not found");
+				return;
+			}
+			Object[] values = OpUtil.getParameterValues(op);
+			while ( st.hasMoreTokens() ) {
+				String setting = st.nextToken();
+				int eq = setting.indexOf('=');
+				String parname = eq < 0 ? setting : setting.substring(0, eq);
+				int par = _getParameterIndex(op, parname);
+				if ( eq < 0 || par < 0 ) {
+					pw.println(opername+ ": invalid parameter setting: " +setting);
+					return;
+				}
+				String value = setting.substring(eq + 1);
+				if ( values[par] instanceof Boolean )
+					values[par] = Boolean.valueOf(value);
+				else
+					values[par] = value;
+			}
+			if ( op instanceof IMultiSignatureOperation && k == args.length - 1 )
+				pipeline.setTerminal((IMultiSignatureOperation) op, values);
+			else if ( op instanceof ISingleSignatureOperation )
+				pipeline.addStep((ISingleSignatureOperation) op, values);
+			else {
+				pw.println(opername+ ": only single-signature operations, and a final multi-signature operation, are allowed");
+				return;
+			}
+		}
+		SignatureOperationManager.addPipeline(pipeline);
+		pw.println("pipeline '" +name+ "' added: " +pipeline.getNumSteps()+ " step(s)"
+			+ (pipeline.getTerminal() != null ? " + " +pipeline.getTerminal().getName() : "")
+		);
+	}
+	
+	/** Gets the index of a parameter of an operation; -1 if not found. */
+	private int _getParameterIndex(IOperation op, String parname) {
+		IOperation.IParameterInfo parInfo = op.getParameterInfo();
+		if ( parInfo != null ) {
+			for ( int i = 0; i < parInfo.getNumParameters(); i++ ) {
+				if ( parInfo.getName(i).equals(parname) )
+					return i;
+			}
+		}
+		return -1;
+	}
+	
+	/** Gets the signature of a spectrum, identified by the spectrum name. */
+	private Signature _getSignatureToOperate(ISamsDb db, ISpectrum s) throws Exception {
+		String path = s.getPath();
+		Signature sig = db.getSignature(path);
+		if ( sig.getUserObject() == null )
+			sig.setUserObject(path.substring(path.lastIndexOf('/') + 1));
+		return sig;
+	}
+	
+	public void sigformat(String[] args) throws Exception {
+		ISamsDb db = dbman.getDatabase();
+		if ( args.length == 1 ) {
+			String[] names = db.getSignatureFormatNames();
+			pw.print("Signature format: '" +db.getSignatureFormat()+ "'.  Available:");
+			for ( int i = 0; i < names.length; i++ )
+				pw.print(" " +names[i]);
+			pw.println();
+			return;
+		}
+		dbman.convertSignatures(args[1]);
+	}
+	
+	public void sigstore(String[] args) throws Exception {
+		ISamsDb db = dbman.getDatabase();
+		if ( args.length > 1 ) {
+			db.setSignatureStore(args[1]);
+			pw.println("signatures moved to '" +db.getSignatureStore()+ "' store");
+			return;
+		}
+		String[] names = db.getSignatureStoreNames();
+		pw.print("Signature store: '" +db.getSignatureStore()+ "'.  Available:");
+		for ( int i = 0; i < names.length; i++ )
+			pw.print(" " +names[i]);
+		pw.println();
+	}
+	
+	public void sigcache(String[] args) throws Exception {
+		ISamsDb db = dbman.getDatabase();
+		if ( args.length > 1 )
+			db.setSignatureCacheCapacity(Long.parseLong(args[1]));
+		Properties stats = db.getSignatureCacheStatistics();
+		long hits = Long.parseLong(stats.getProperty("hits"));
+		long misses = Long.parseLong(stats.getProperty("misses"));
+		pw.println("Signature cache: " +stats.getProperty("entries")+ " entries, " +
+			stats.getProperty("datapoints")+ " of " +stats.getProperty("capacity")+ " datapoints; " +
+			hits+ " hits, " +misses+ " misses" +
+			(hits + misses > 0 ? " (" +(100 * hits / (hits + misses))+ "% hits)" : "")
+		);
+	}
+	
 	public void grouping(String[] args) throws Exception {
 		String[] attrNames = new String[args.length - 1];
 		System.arraycopy(args, 1, attrNames, 0, attrNames.length);
-		INode dir = dbman.getDatabase().getGroupingBy(attrNames);
+		ISamsDb db = dbman.getDatabase();
+		if ( current_grouping != null ) {
+			current_grouping.unregister();
+			current_grouping = null;
+		}
+		INode dir;
+		if ( attrNames.length == 1 && attrNames[0].equals("location") )
+			dir = db.getGroupingUnderLocation("/");
+		else {
+			// kept up to date by the database as the spectra change:
+			StringBuffer sb = new StringBuffer();
+			for ( int i = 0; i < attrNames.length; i++ )
+				sb.append(attrNames[i]+ ":");
+			current_grouping = db.registerGrouping(db.createOrder(sb.toString()));
+			dir = current_grouping.getRoot();
+		}
 		if ( current_grouping_shell == null )
 			current_grouping_shell = new Shell(dir, br, pw);
 		else
@@ -250,6 +487,22 @@ public class Interpreter {
 			pw.println("clipboard: unrecognized command");
 	}
 	
+	/** Runs a workload script on the database; see Workload. */
+	public void workload(String[] args) throws Exception {
+		if ( args.length < 2 ) {
+			pw.println("workload <scriptfile>");
+			return;
+		}
+		Workload workload = new Workload(dbman.getDatabase());
+		Reader r = new FileReader(args[1]);
+		try {
+			workload.run(r, pw);
+		}
+		finally {
+			r.close();
+		}
+	}
+	
 	protected boolean process(String[] args) throws Exception {
 		if ( args[0].equals("info") )
 			info();
@@ -257,6 +510,8 @@ public class Interpreter {
 			save();
 		else if ( args[0].equals("metadata") )
 			metadata();
+		else if ( args[0].equals("reindex") )
+			reindex();
 		else if ( args[0].equals("addattr") )
 			addattr(args);
 		else if ( args[0].equals("addspec") )
@@ -281,6 +536,12 @@ public class Interpreter {
 			importdir(args);
 		else if ( args[0].equals("export") )
 			export(args);
+		else if ( args[0].equals("compute") )
+			compute(args);
+		else if ( args[0].equals("apply") )
+			apply(args);
+		else if ( args[0].equals("pipeline") )
+			pipeline(args);
 		else if ( args[0].equals("grouping") )
 			grouping(args);
 		else if ( args[0].equals("grp") )
@@ -289,6 +550,14 @@ public class Interpreter {
 			gc();
 		else if ( args[0].equals("clipboard") )
 			clipboard(args);
+		else if ( args[0].equals("sigformat") )
+			sigformat(args);
+		else if ( args[0].equals("sigstore") )
+			sigstore(args);
+		else if ( args[0].equals("sigcache") )
+			sigcache(args);
+		else if ( args[0].equals("workload") )
+			workload(args);
 		else
 			return false;
 		
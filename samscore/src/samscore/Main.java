@@ -35,14 +35,70 @@ public class Main {
 				dbman.setDatabase(db);
 			return true;
 		}
+		else if ( toks[0].equals("gendb") ) {
+			if ( toks.length < 3 ) {
+				pw.println("gendb <dirname> <num_spectra> [<bands> [<fanout>,... [<attr>:<cardinality>,...]]]");
+				return true;
+			}
+			SamsDbGenerator generator = _createGenerator(toks, 2, 3);
+			if ( toks.length > 4 )
+				generator.setLocationFanouts(_parseInts(toks[4]));
+			if ( toks.length > 5 ) {
+				String[] attrs = toks[5].split(",");
+				String[] names = new String[attrs.length];
+				int[] cardinalities = new int[attrs.length];
+				for ( int i = 0; i < attrs.length; i++ ) {
+					int colon = attrs[i].indexOf(':');
+					if ( colon < 0 )
+						throw new Exception(attrs[i]+ ": expecting <attr>:<cardinality>");
+					names[i] = attrs[i].substring(0, colon);
+					cardinalities[i] = Integer.parseInt(attrs[i].substring(colon + 1));
+				}
+				generator.setAttributes(names, cardinalities);
+			}
+			ISamsDb db = generator.generate(toks[1]);
+			dbman = new SamsDbManager(db, pw);
+			if ( interpreter == null )
+				interpreter = new Interpreter(dbman, br, pw);
+			else
+				dbman.setDatabase(db);
+			return true;
+		}
+		else if ( toks[0].equals("gensrc") ) {
+			if ( toks.length < 4 ) {
+				pw.println("gensrc <dirname> <filetype> <count> [<bands>]");
+				return true;
+			}
+			_createGenerator(toks, 3, 4).generateSourceFiles(toks[1], toks[2]);
+			return true;
+		}
 		else if ( dbman == null ) {
-			pw.println("Only 'open', 'create'  available when no dtabase");
+			pw.println("Only 'open', 'create', 'gendb', 'gensrc' available when no dtabase");
 			return true;
 		}
 		else
 			return interpreter.process(toks);
 	}
 	
+	/** Creates a generator with the number of spectra and bands given
+	 * at those positions of the command, if present. */
+	private static SamsDbGenerator _createGenerator(String[] toks, int num_spectra_pos, int bands_pos) {
+		SamsDbGenerator generator = new SamsDbGenerator();
+		generator.setLog(pw);
+		generator.setNumSpectra(Integer.parseInt(toks[num_spectra_pos]));
+		if ( toks.length > bands_pos )
+			generator.setBands(Integer.parseInt(toks[bands_pos]));
+		return generator;
+	}
+	
+	private static int[] _parseInts(String list) {
+		String[] parts = list.split(",");
+		int[] values = new int[parts.length];
+		for ( int i = 0; i < parts.length; i++ )
+			values[i] = Integer.parseInt(parts[i]);
+		return values;
+	}
+	
 	static void handleException(Exception ex) {
 		pw.println("Exception: " +ex.getMessage());
 		ex.printStackTrace();
@@ -3,6 +3,7 @@ package samscore;
 import samscore.impl.SamsDbFactory;
 import sig.Signature;
 import sigoper.SignatureOperationManager;
+import sigoper.IOperation;
 import specfile.*;
 import envifile.EnviFileManager;
 import envifile.InvalidEnviFormatException;
@@ -49,6 +50,11 @@ public class Sams {
 		return SignatureOperationManager.getOperationNames();
 	}
 	
+	/** Gets a signature operation; null if not found. */
+	public static IOperation getSignatureOperation(String name) {
+		return SignatureOperationManager.getSignatureOperation(name);
+	}
+	
 	/**
 	 * Gets the signatures contained in an ASCII file.
 	 * <ul>
@@ -137,6 +143,24 @@ public class Sams {
 	throws FileNotFoundException, InvalidEnviFormatException, IOException {
 		return EnviFileManager.getSignature(filename, line, pixel);
 	}
+
+	/**
+	 * Gets the signatures for several (line,pixel) locations from an Envi
+	 * Standard file, which is opened only once.
+	 *
+	 * @param filename The Envi file name.
+	 * @param lines Lines of the desired locations.
+	 * @param pixels Columns of the desired locations.
+	 * @return The signatures, in the same order as the locations.
+	 *
+	 * @throws FileNotFoundException
+	 * @throws InvalidEnviFormatException
+	 * @throws IOException
+	 */
+	public static Signature[] getSignaturesFromEnviFile(String filename, int[] lines, int[] pixels)
+	throws FileNotFoundException, InvalidEnviFormatException, IOException {
+		return EnviFileManager.getSignatures(filename, lines, pixels);
+	}
 	
 	private Sams() {}
 }
@@ -0,0 +1,264 @@
+package samscore;
+
+import sig.Signature;
+
+import java.util.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Generates synthetic databases, and spectrum files for importation, to
+ * reproduce the scale of real databases without real data.
+ * <p>
+ * Spectra are defined on evenly spaced wavelengths in [350, 2500] nm (so
+ * 2151 bands give the 1 nm spacing of an ASD spectrometer), with a
+ * vegetation-like shape: low visible reflectance, a red edge around
+ * 720 nm, water absorptions around 1450 and 1940 nm, and some noise.
+ * <p>
+ * In a generated database, spectrum i is placed at
+ * /imported/g&lt;a&gt;/g&lt;b&gt;/.../s&lt;i&gt;, with one level per location
+ * fanout, the leaf groups taken in turn. Each attribute with cardinality
+ * c gets a value &lt;attribute&gt;&lt;k&gt; with k in [0, c). The content only
+ * depends on the seed.
+ *
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+public class SamsDbGenerator {
+	/** First wavelength. */
+	public static final double FIRST_WAVELENGTH = 350;
+
+	/** Last wavelength. */
+	public static final double LAST_WAVELENGTH = 2500;
+
+	/** File types for which source files can be generated. */
+	public static final String[] SOURCE_FILETYPES = { "ASD", "ASDb", "GER", "CSV", };
+
+	int num_spectra = 1000;
+	int bands = 2151;
+	int[] fanouts = { 10, 10 };
+	/** attribute name -&gt; Integer cardinality */
+	Map attributes = new LinkedHashMap();
+	long seed = 1;
+	PrintWriter log;
+
+	/** Creates a generator with the default settings: 1000 spectra of
+	 * 2151 bands, location fanouts 10,10, and attributes "site" (20
+	 * values), "species" (200) and "campaign" (5). */
+	public SamsDbGenerator() {
+		attributes.put("site", new Integer(20));
+		attributes.put("species", new Integer(200));
+		attributes.put("campaign", new Integer(5));
+	}
+
+	/** Sets the number of spectra. */
+	public void setNumSpectra(int num_spectra) {
+		this.num_spectra = num_spectra;
+	}
+
+	/** Sets the number of bands of each spectrum (at least 2). */
+	public void setBands(int bands) {
+		if ( bands < 2 )
+			throw new IllegalArgumentException("at least 2 bands are required");
+		this.bands = bands;
+	}
+
+	/** Sets the number of subgroups at each level of the location tree;
+	 * an empty array to put all spectra directly under /imported. */
+	public void setLocationFanouts(int[] fanouts) {
+		this.fanouts = (int[]) fanouts.clone();
+	}
+
+	/** Sets the attributes and their cardinalities, removing the
+	 * previous ones.
+	 * @param names         Attribute names.
+	 * @param cardinalities Number of distinct values of each attribute.
+	 */
+	public void setAttributes(String[] names, int[] cardinalities) {
+		attributes.clear();
+		for ( int i = 0; i < names.length; i++ )
+			attributes.put(names[i], new Integer(Math.max(1, cardinalities[i])));
+	}
+
+	/** Sets the seed for the generated content. */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/** Sets where to report progress; null for none. */
+	public void setLog(Writer w) {
+		if ( w == null || w instanceof PrintWriter )
+			log = (PrintWriter) w;
+		else
+			log = new PrintWriter(w, true);
+	}
+
+	/**
+	 * Creates a database with the current settings.
+	 *
+	 * @param dirname The database directory, which must not exist.
+	 * @return The database.
+	 */
+	public ISamsDb generate(String dirname) throws Exception {
+		ISamsDb db = Sams.create(dirname);
+		String[] attrNames = (String[]) attributes.keySet().toArray(new String[attributes.size()]);
+		int[] cardinalities = new int[attrNames.length];
+		for ( int a = 0; a < attrNames.length; a++ ) {
+			db.getMetadata().add(attrNames[a], "");
+			cardinalities[a] = ((Integer) attributes.get(attrNames[a])).intValue();
+		}
+		db.save();
+
+		double[] wls = getWavelengths(bands);
+		int leaves = 1;
+		for ( int l = 0; l < fanouts.length; l++ )
+			leaves *= Math.max(1, fanouts[l]);
+
+		long start = System.currentTimeMillis();
+		for ( int i = 0; i < num_spectra; i++ ) {
+			// a generator per spectrum, so the content of each one only
+			// depends on the seed and its index:
+			Random rnd = new Random(seed * 1000003 + i);
+			String path = db.addSpectrum(_getLocation(i % leaves)+ "/s" +i, createSignature(wls, rnd));
+			ISamsDb.ISpectrum s = db.getSpectrum(path);
+			for ( int a = 0; a < attrNames.length; a++ )
+				s.setString(attrNames[a], attrNames[a] + rnd.nextInt(cardinalities[a]));
+			s.save();
+			if ( log != null && (i + 1) % 10000 == 0 )
+				log.println("  " +(i + 1)+ " spectra generated");
+		}
+		db.save();
+		if ( log != null ) {
+			log.println(num_spectra+ " spectra generated in "
+				+(System.currentTimeMillis() - start)+ " ms"
+			);
+		}
+		return db;
+	}
+
+	/** Gets the location of a leaf group. */
+	private String _getLocation(int leaf) {
+		StringBuffer sb = new StringBuffer();
+		for ( int l = fanouts.length - 1; l >= 0; l-- ) {
+			int fanout = Math.max(1, fanouts[l]);
+			sb.insert(0, "/g" +(leaf % fanout));
+			leaf /= fanout;
+		}
+		return "/imported" +sb;
+	}
+
+	/**
+	 * Writes spectrum files for importation, with the current number of
+	 * spectra and bands, named s&lt;i&gt; with the usual extension of the
+	 * file type.
+	 *
+	 * @param dirname  The directory, created if necessary.
+	 * @param filetype One of SOURCE_FILETYPES.
+	 */
+	public void generateSourceFiles(String dirname, String filetype) throws Exception {
+		if ( !Arrays.asList(SOURCE_FILETYPES).contains(filetype) )
+			throw new Exception(filetype+ ": unsupported file type. Use one of " +Arrays.asList(SOURCE_FILETYPES));
+		File dir = new File(dirname);
+		if ( !dir.isDirectory() && !dir.mkdirs() )
+			throw new Exception(dirname+ ": Cannot create directory");
+		double[] wls = getWavelengths(bands);
+		for ( int i = 0; i < num_spectra; i++ ) {
+			Random rnd = new Random(seed * 1000003 + i);
+			File file = new File(dir, "s" +i + getExtension(filetype));
+			OutputStream out = new FileOutputStream(file);
+			try {
+				out.write(getSourceContents(filetype, createSignature(wls, rnd)));
+			}
+			finally {
+				out.close();
+			}
+		}
+		if ( log != null )
+			log.println(num_spectra+ " '" +filetype+ "' files written to " +dirname);
+	}
+
+	/** Gets the wavelengths for a number of bands (at least 2). */
+	public static double[] getWavelengths(int bands) {
+		double[] wls = new double[bands];
+		double step = (LAST_WAVELENGTH - FIRST_WAVELENGTH) / (bands - 1);
+		for ( int i = 0; i < bands; i++ )
+			wls[i] = FIRST_WAVELENGTH + i * step;
+		return wls;
+	}
+
+	/** Creates a reflectance spectrum. */
+	public static Signature createSignature(double[] wls, Random rnd) {
+		double scale = 0.7 + 0.6 * rnd.nextDouble();
+		double edge = 700 + 40 * rnd.nextDouble();
+		double water = 0.5 + 0.5 * rnd.nextDouble();
+		Signature sig = new Signature(null, wls.length);
+		for ( int i = 0; i < wls.length; i++ ) {
+			double w = wls[i];
+			double y = 0.05 + 0.4 / (1 + Math.exp(-(w - edge) / 15));
+			y -= water * 0.2 * Math.exp(-(w - 1450) * (w - 1450) / (2 * 40 * 40));
+			y -= water * 0.3 * Math.exp(-(w - 1940) * (w - 1940) / (2 * 50 * 50));
+			y = y * scale + 0.003 * rnd.nextGaussian();
+			sig.addDatapoint(w, Math.max(0.001, y));
+		}
+		return sig;
+	}
+
+	/** Gets the usual file extension for a file type. */
+	public static String getExtension(String filetype) {
+		if ( filetype.equals("ASDb") )
+			return ".asd";
+		if ( filetype.equals("GER") )
+			return ".sig";
+		if ( filetype.equals("CSV") )
+			return ".csv";
+		return ".txt";
+	}
+
+	/**
+	 * Gets the contents of a spectrum file for a signature.
+	 *
+	 * @param filetype One of SOURCE_FILETYPES, or "Only-Reflectance".
+	 * @param sig      The signature; for ASDb and Only-Reflectance, it
+	 *                 should be evenly spaced, from 350 nm for the latter.
+	 */
+	public static byte[] getSourceContents(String filetype, Signature sig) {
+		int size = sig.getSize();
+		if ( filetype.equals("ASDb") ) {
+			// header, with the fields read by ASDBinaryFileHeader, and floats:
+			int data_offset = 484;
+			ByteBuffer buffer = ByteBuffer.allocate(data_offset + 4 * size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.put(0, (byte) 'A').put(1, (byte) 'S').put(2, (byte) 'D');
+			buffer.put(186, (byte) 1);             // reflectance
+			buffer.putFloat(191, (float) sig.getX(0));
+			buffer.putFloat(195, (float) ((sig.getX(size - 1) - sig.getX(0)) / (size - 1)));
+			buffer.put(199, (byte) 0);             // float format
+			buffer.putShort(204, (short) size);
+			for ( int i = 0; i < size; i++ )
+				buffer.putFloat(data_offset + 4 * i, (float) sig.getY(i));
+			return buffer.array();
+		}
+
+		StringWriter sw = new StringWriter();
+		PrintWriter pw = new PrintWriter(sw);
+		if ( filetype.equals("GER") )
+			pw.println("///GER SIGNATUR FILE///");
+		else if ( filetype.equals("ASD") )
+			pw.println("Wavelength\tReflectance");
+		for ( int i = 0; i < size; i++ ) {
+			double x = sig.getX(i);
+			double y = sig.getY(i);
+			if ( filetype.equals("GER") )
+				pw.println(x+ " " +(y * 1000)+ " " +1000.0);
+			else if ( filetype.equals("CSV") )
+				pw.println(x+ "," +y);
+			else if ( filetype.equals("Only-Reflectance") )
+				pw.println(y);
+			else
+				pw.println(x+ "\t" +y);
+		}
+		pw.flush();
+		return sw.toString().getBytes();
+	}
+}
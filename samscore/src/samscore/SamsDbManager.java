@@ -60,6 +60,22 @@ public class SamsDbManager {
 		mddef.add(attrName, defaultValue);
 	}
 	
+	/** Sets the format to store signatures and rewrites all signatures
+	 * in the database in that format. Returns the number of signatures
+	 * converted. */
+	public int convertSignatures(String formatName) throws Exception {
+		db.setSignatureFormat(formatName);
+		db.save();
+		int converted = 0;
+		for ( Iterator it = db.getAllPaths(); it.hasNext(); ) {
+			String path = (String) it.next();
+			db.setSignature(path, db.getSignature(path));
+			converted++;
+		}
+		println(converted+ " signatures converted to '" +db.getSignatureFormat()+ "' format");
+		return converted;
+	}
+	
 	public String importFile(String filename, String filetype, String groupPath) throws Exception {
 		ISpectrumFile sf = Sams.readSignatureFile(filename, filetype);
 		sig.Signature sig = sf.getSignature();
@@ -96,7 +112,15 @@ public class SamsDbManager {
 		return new DirectoryImporter(dirname, recurse, tryfiletype, groupPath, lis);
 	}
 	
+	/**
+	 * Imports the files in a directory through a pipeline: a walker thread
+	 * lists the files, a pool of worker threads parse them, and the calling
+	 * thread adds the signatures to the database and notifies the listener.
+	 */
 	public class DirectoryImporter {
+		/** Capacity of the queues between the stages of the pipeline. */
+		static final int QUEUE_CAPACITY = 256;
+		
 		final String dirname;
 		final boolean recurse;
 		final String tryfiletype;
@@ -105,6 +129,19 @@ public class SamsDbManager {
 		int estimated_files;
 		int file_number;
 		
+		boolean ordered = true;
+		int num_workers = Runtime.getRuntime().availableProcessors();
+		
+		/** Relative names of the files to be imported, once scanned
+		 * by getEstimatedFiles. */
+		List filenames;
+		
+		/** Number of files delivered to the listener, for ordered delivery. */
+		int delivered;
+		
+		/** Set when the importation finishes, normally or not. */
+		boolean finished;
+		
 		public DirectoryImporter(
 			String dirname, boolean recurse, String tryfiletype, 
 			String groupPath,
@@ -117,9 +154,35 @@ public class SamsDbManager {
 			this.lis = lis;
 		}
 		
-		/** gets a estimated number of files to be scanned. */
+		/** Sets whether the listener is notified in the order the files
+		 * are found in the directory (the default), or as soon as each
+		 * file is processed. */
+		public void setOrdered(boolean ordered) {
+			this.ordered = ordered;
+		}
+		
+		/** Sets the number of threads parsing files. By default, the
+		 * number of available processors. */
+		public void setNumWorkers(int num_workers) {
+			this.num_workers = Math.max(1, num_workers);
+		}
+		
+		/** gets a estimated number of files to be scanned. 
+		 * The list of files is kept so importFiles does not scan the
+		 * directory again. */
 		public int getEstimatedFiles() throws Exception {
-			estimated_files = 0;
+			final List list = new ArrayList();
+			_traverse(new Files.IFileVisitor() {
+				public void visit(String relative_filename) {
+					list.add(relative_filename);
+				}
+			});
+			filenames = list;
+			estimated_files = filenames.size();
+			return estimated_files;
+		}
+		
+		private void _traverse(Files.IFileVisitor visitor) {
 			File dirfile = new File(dirname);
 			Files.traverse(
 				dirfile,
@@ -128,43 +191,160 @@ public class SamsDbManager {
 				false,	//boolean inc_dirs,
 				true,	//boolean inc_files,
 				recurse ? Integer.MAX_VALUE : 1,	//int level,
-				new Files.IFileVisitor() {
-					public void visit(String relative_filename) {
-						estimated_files++;
-					}
-				}
+				visitor
 			);
-			return estimated_files;
 		}
 		
 		public void importFiles() throws Exception {
 			file_number = 0;
-			File dirfile = new File(dirname);
-			Files.traverse(
-				dirfile,
-				false,	//boolean absolute,
-				false,	//boolean parent,
-				false,	//boolean inc_dirs,
-				true,	//boolean inc_files,
-				recurse ? Integer.MAX_VALUE : 1,	//int level,
-				new Files.IFileVisitor() {
-					public void visit(String relative_filename) {
-						String filename = dirname+ "/" +relative_filename;
+			delivered = 0;
+			finished = false;
+			final BoundedQueue toParse = new BoundedQueue(QUEUE_CAPACITY);
+			final BoundedQueue parsed = new BoundedQueue(QUEUE_CAPACITY);
+			
+			Thread walker = new Thread("DirectoryImporter-walker") {
+				public void run() {
+					Files.IFileVisitor visitor = new Files.IFileVisitor() {
+						int seq = 0;
+						public void visit(String relative_filename) {
+							try {
+								if ( _waitWindow(seq) )
+									toParse.put(new ImportItem(seq++, relative_filename));
+							}
+							catch(InterruptedException ex) {
+								toParse.close(true);
+							}
+						}
+					};
+					try {
+						if ( filenames != null ) {
+							for ( Iterator it = filenames.iterator(); it.hasNext(); )
+								visitor.visit((String) it.next());
+						}
+						else
+							_traverse(visitor);
+					}
+					finally {
+						toParse.close(false);
+					}
+				}
+			};
+			
+			final int[] running = { num_workers };
+			Thread[] workers = new Thread[num_workers];
+			for ( int w = 0; w < workers.length; w++ ) {
+				workers[w] = new Thread("DirectoryImporter-" +w) {
+					public void run() {
 						try {
-							ISpectrumFile sf = Sams.readSignatureFile(filename, tryfiletype);
-							lis.importing(++file_number, relative_filename, sf.getFormatName());
-							sig.Signature sig = sf.getSignature();
-							String path = groupPath+ "/" +relative_filename;
-							db.addSpectrum(path, sig);
+							ImportItem item;
+							while ( (item = (ImportItem) toParse.take()) != null ) {
+								_parse(item);
+								if ( !parsed.put(item) )
+									break;
+							}
+						}
+						catch(InterruptedException ex) {
+							// just finish.
 						}
-						catch(Exception ex) {
-							lis.importing(++file_number, relative_filename, null);
+						finally {
+							synchronized ( running ) {
+								if ( --running[0] == 0 )
+									parsed.close(false);
+							}
 						}
 					}
+				};
+			}
+			
+			walker.start();
+			for ( int w = 0; w < workers.length; w++ )
+				workers[w].start();
+			
+			try {
+				// items waiting for their turn in ordered delivery: seq -> ImportItem
+				Map pending = new HashMap();
+				List batch;
+				while ( (batch = parsed.takeAll()).size() > 0 ) {
+					for ( Iterator it = batch.iterator(); it.hasNext(); ) {
+						ImportItem item = (ImportItem) it.next();
+						if ( !ordered ) {
+							_write(item);
+							continue;
+						}
+						pending.put(new Integer(item.seq), item);
+						while ( (item = (ImportItem) pending.remove(new Integer(delivered))) != null )
+							_write(item);
+					}
 				}
-			);
+			}
+			finally {
+				synchronized ( this ) {
+					finished = true;
+					notifyAll();
+				}
+				toParse.close(true);
+				parsed.close(true);
+				walker.join();
+				for ( int w = 0; w < workers.length; w++ )
+					workers[w].join();
+			}
 			db.save();
 		}
+		
+		/** In ordered delivery, waits until the given item is close
+		 * enough to the last delivered one, so a slow file does not make
+		 * the following ones accumulate indefinitely.
+		 * @return false if the importation has finished. */
+		private synchronized boolean _waitWindow(int seq) throws InterruptedException {
+			while ( ordered && !finished && seq - delivered >= 2 * QUEUE_CAPACITY )
+				wait();
+			return !finished;
+		}
+		
+		/** Reads the signature of a file. In a worker thread. */
+		private void _parse(ImportItem item) {
+			String filename = dirname+ "/" +item.relative_filename;
+			try {
+				ISpectrumFile sf = Sams.readSignatureFile(filename, tryfiletype);
+				item.sig = sf.getSignature();
+				item.filetype = sf.getFormatName();
+			}
+			catch(Exception ex) {
+				item.sig = null;
+			}
+		}
+		
+		/** Adds a parsed signature to the database and notifies the listener. */
+		private void _write(ImportItem item) {
+			if ( item.sig != null ) {
+				try {
+					db.addSpectrum(groupPath+ "/" +item.relative_filename, item.sig);
+				}
+				catch(Exception ex) {
+					item.filetype = null;
+				}
+			}
+			lis.importing(++file_number, item.relative_filename, item.filetype);
+			synchronized ( this ) {
+				delivered++;
+				notifyAll();
+			}
+		}
+	}
+	
+	/** A file going through the DirectoryImporter pipeline. */
+	static class ImportItem {
+		final int seq;
+		final String relative_filename;
+		Signature sig;
+		
+		/** null if not recognized. */
+		String filetype;
+		
+		ImportItem(int seq, String relative_filename) {
+			this.seq = seq;
+			this.relative_filename = relative_filename;
+		}
 	}
 
 	public interface ExportListener {
@@ -194,17 +374,15 @@ public class SamsDbManager {
 			out.println();
 			int size = OpUtil.minSize(sigs);
 			for ( int i = 0; i < size; i++ ) {
-				Signature.Datapoint dp = sigs[0].getDatapoint(i);
-				out.print(dp.x+ ", " +dp.y);
-				double x = dp.x;			
+				double x = sigs[0].getX(i);
+				out.print(x+ ", " +sigs[0].getY(i));
 				for ( int k = 1; k < sigs.length; k++ ) {
-					dp = sigs[k].getDatapoint(i);
-					if ( !OpUtil.equalAbscissas(dp.x, x) ) {
+					if ( !OpUtil.equalAbscissas(sigs[k].getX(i), x) ) {
 						throw new DomainException(
 							"Signatures are not defined on the same abscissas!"
 						);
 					}
-					out.print(", " +dp.y);
+					out.print(", " +sigs[k].getY(i));
 				}
 				out.println();
 			}
@@ -228,18 +406,29 @@ public class SamsDbManager {
 		if ( lis == null )
 			lis = defaultExportListener;
 		
-		Signature[] sigs = new Signature[paths.size()];
-		for ( int i = 0; i < sigs.length; i++ ) {
-			String path = (String) paths.get(i);
-			sigs[i] = db.getSignature(path);
-			lis.exporting(i+1, path);
-		}
-
 		String header_description = 
 			"  SAMS2 " +Sams.getVersion()+ " - Spectral Management and Analysis System\n" +
-			"  " +sigs.length+ " signatures exported on " +(new java.util.Date())
+			"  " +paths.size()+ " signatures exported on " +(new java.util.Date())
 		;
-		BinaryExporter.exportBIP(sigs, filename, header_description, type);
+		BinaryExporter.exportBIP(_createSignatureSource(paths, lis), filename, header_description, type);
+	}
+	
+	/** Creates a source that reads the signatures as they are exported. */
+	private BinaryExporter.ISignatureSource _createSignatureSource(
+		final List paths, final ExportListener lis
+	) {
+		return new BinaryExporter.ISignatureSource() {
+			int next = 0;
+			public int size() {
+				return paths.size();
+			}
+			public Signature next() throws Exception {
+				String path = (String) paths.get(next++);
+				Signature sig = db.getSignature(path);
+				lis.exporting(next, path);
+				return sig;
+			}
+		};
 	}
 
 	/** exports elements to an envi spectral library. */
@@ -254,21 +443,15 @@ public class SamsDbManager {
 		}
 		if ( lis == null )
 			lis = defaultExportListener;
-		final ExportListener elis = lis;
 		
-		String[] sig_names = new String[paths.size()];
-		Signature[] sigs = new Signature[paths.size()];
-		for ( int i = 0; i < sigs.length; i++ ) {
-			String path = (String) paths.get(i);
-			sig_names[i] = path;
-			sigs[i] = db.getSignature(path);
-			lis.exporting(i+1, path);
-		}
+		String[] sig_names = (String[]) paths.toArray(new String[paths.size()]);
 		
 		String header_description = 
 			"  SAMS2 " +Sams.getVersion()+ " - Spectral Management and Analysis System\n" +
-			"  " +sigs.length+ " signatures exported on " +(new java.util.Date())
+			"  " +sig_names.length+ " signatures exported on " +(new java.util.Date())
 		;
-		BinaryExporter.exportToEnviSpectralLibrary(sig_names, sigs, filename, header_description, type); 
+		BinaryExporter.exportToEnviSpectralLibrary(
+			sig_names, _createSignatureSource(paths, lis), filename, header_description, type
+		); 
 	}
 }
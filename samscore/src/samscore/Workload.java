@@ -0,0 +1,375 @@
+package samscore;
+
+import samscore.ISamsDb.*;
+import sig.Signature;
+import sigoper.*;
+import envifile.EnviDataType;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ * Runs a scripted workload on a database, and reports the latency and
+ * throughput of each phase.
+ * <p>
+ * The script has one phase per line; empty lines and lines starting with
+ * '#' are ignored. Arguments are separated by spaces; an argument
+ * containing spaces is given in double quotes. The phases are:
+ * <pre>
+ *	repeat &lt;n&gt;
+ *		number of iterations of the following phases (default 5)
+ *	import &lt;dir&gt; [&lt;filetype&gt; [&lt;group&gt;]]
+ *		imports the files under dir (recursively) into a new subgroup
+ *		of group (default /imported/workload), which is deleted after
+ *		each iteration; "-" for automatic recognition
+ *	filter &lt;condition&gt;
+ *		selects the spectra satisfying the condition
+ *	sort &lt;order&gt; [&lt;condition&gt;]
+ *		selects and sorts
+ *	group &lt;attribute&gt;[,&lt;attribute&gt;...]
+ *		gets the grouping by the attributes
+ *	read [&lt;condition&gt;]
+ *		reads the signatures of the selected spectra
+ *	compute &lt;operation&gt; [&lt;condition&gt;]
+ *		applies the operation (current parameters) to the signatures of
+ *		the selected spectra, with no results written
+ *	export ascii|envi|envilib &lt;filename&gt; [&lt;condition&gt;]
+ *		exports the selected spectra
+ * </pre>
+ * Underscores in operation names stand for spaces. The latencies are
+ * those of the iterations of each phase; the throughput is the number of
+ * elements (files or spectra) processed per second.
+ *
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+public class Workload {
+	private static final String HEADER =
+		"phase                                     iter  elements       p50       p90       p99       max  elements/s";
+
+	ISamsDb db;
+	SamsDbManager dbman;
+	int iterations = 5;
+	List results = new ArrayList();
+
+	/** Creates a workload on a database. */
+	public Workload(ISamsDb db) {
+		this.db = db;
+		dbman = new SamsDbManager(db, null);
+	}
+
+	/**
+	 * Runs a script.
+	 *
+	 * @param r   The script.
+	 * @param log Where to report each phase as it finishes, as with
+	 *            report(PrintWriter); null for none.
+	 * @return The results of the phases, Result objects.
+	 */
+	public List run(Reader r, PrintWriter log) throws Exception {
+		BufferedReader br = new BufferedReader(r);
+		String line;
+		int lineno = 0;
+		if ( log != null )
+			log.println(HEADER);
+		while ( (line = br.readLine()) != null ) {
+			lineno++;
+			line = line.trim();
+			if ( line.length() == 0 || line.startsWith("#") )
+				continue;
+			String[] args = _split(line);
+			try {
+				if ( args[0].equals("repeat") )
+					iterations = Math.max(1, Integer.parseInt(args[1]));
+				else {
+					Result result = runPhase(args);
+					if ( log != null )
+						log.println(result);
+				}
+			}
+			catch(Exception ex) {
+				throw new Exception("line " +lineno+ ": " +line+ ": " +ex.getMessage());
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Runs a phase for the current number of iterations.
+	 *
+	 * @param args The phase name and its arguments.
+	 * @return The result, also kept in the list of results.
+	 */
+	public Result runPhase(String[] args) throws Exception {
+		Result result = new Result(args, iterations);
+		String phase = args[0];
+		for ( int i = 0; i < iterations; i++ ) {
+			long start = System.currentTimeMillis();
+			int elements;
+			String import_group = null;
+			if ( phase.equals("import") ) {
+				import_group = _arg(args, 3, "/imported/workload")+ "/" +(i+1);
+				elements = _import(_arg(args, 1, null), _arg(args, 2, null), import_group);
+			}
+			else if ( phase.equals("filter") )
+				elements = _select(_arg(args, 1, null), null).size();
+			else if ( phase.equals("sort") )
+				elements = _select(_arg(args, 2, null), _arg(args, 1, "")).size();
+			else if ( phase.equals("group") )
+				elements = _group(args[1]);
+			else if ( phase.equals("read") )
+				elements = _read(_arg(args, 1, null));
+			else if ( phase.equals("compute") )
+				elements = _compute(args[1], _arg(args, 2, null));
+			else if ( phase.equals("export") )
+				elements = _export(args[1], args[2], _arg(args, 3, null));
+			else
+				throw new Exception(phase+ ": unrecognized phase");
+			result.latencies[i] = System.currentTimeMillis() - start;
+			result.elements += elements;
+			// so every iteration imports into the same database contents:
+			if ( import_group != null )
+				db.getClipboard().deleteGroups(Collections.singletonList(import_group));
+		}
+		results.add(result);
+		return result;
+	}
+
+	/** Gets the results of the phases run so far. */
+	public List getResults() {
+		return results;
+	}
+
+	private static String _arg(String[] args, int i, String default_value) {
+		return i < args.length && !args[i].equals("-") ? args[i] : default_value;
+	}
+
+	private int _import(String dirname, String filetype, String group) throws Exception {
+		if ( dirname == null )
+			throw new Exception("import: missing directory");
+		final int[] imported = { 0 };
+		dbman.importDirectory(dirname, true, filetype, group, new SamsDbManager.ImportDirectoryListener() {
+			public void importing(int file_number, String relative_filename, String filetype) {
+				if ( filetype != null )
+					imported[0]++;
+			}
+		});
+		return imported[0];
+	}
+
+	private List _select(String condition_text, String order_text) throws Exception {
+		ICondition condition = condition_text == null ? null : db.createCondition(condition_text);
+		IOrder order = order_text == null ? null : db.createOrder(order_text);
+		List list = new ArrayList();
+		for ( Iterator it = db.selectSpectrums(condition, order); it.hasNext(); )
+			list.add(it.next());
+		return list;
+	}
+
+	private List _selectPaths(String condition_text) throws Exception {
+		List paths = new ArrayList();
+		for ( Iterator it = _select(condition_text, null).iterator(); it.hasNext(); )
+			paths.add(((ISpectrum) it.next()).getPath());
+		return paths;
+	}
+
+	private int _group(String attrs) throws Exception {
+		StringTokenizer st = new StringTokenizer(attrs, ",");
+		String[] attrNames = new String[st.countTokens()];
+		for ( int i = 0; i < attrNames.length; i++ )
+			attrNames[i] = st.nextToken().trim();
+		return _countFiles(db.getGroupingBy(attrNames));
+	}
+
+	private static int _countFiles(sfsys.ISfsys.INode dir) {
+		int count = 0;
+		for ( Iterator it = dir.getChildren().iterator(); it.hasNext(); ) {
+			sfsys.ISfsys.INode node = (sfsys.ISfsys.INode) it.next();
+			count += node.isDirectory() ? _countFiles(node) : 1;
+		}
+		return count;
+	}
+
+	private int _read(String condition_text) throws Exception {
+		List paths = _selectPaths(condition_text);
+		for ( Iterator it = paths.iterator(); it.hasNext(); )
+			db.getSignature((String) it.next());
+		return paths.size();
+	}
+
+	private int _compute(String opername, String condition_text) throws Exception {
+		opername = opername.replace('_', ' ');
+		IOperation op = Sams.getSignatureOperation(opername);
+		if ( op == null )
+			throw new Exception(opername+ ": operation not found");
+		if ( op instanceof IBinarySignatureOperation )
+			throw new Exception(opername+ ": binary operations not supported");
+		Object params = OpUtil.parseParameters(op);
+
+		List paths = _selectPaths(condition_text);
+		if ( op instanceof IStreamingMultiSignatureOperation ) {
+			IStreamingMultiSignatureOperation.IAccumulator acc =
+				((IStreamingMultiSignatureOperation) op).createAccumulator(params);
+			for ( Iterator it = paths.iterator(); it.hasNext(); )
+				acc.add(db.getSignature((String) it.next()));
+			acc.getResult();
+		}
+		else if ( op instanceof IMultiSignatureOperation ) {
+			Signature[] sigs = new Signature[paths.size()];
+			for ( int i = 0; i < sigs.length; i++ )
+				sigs[i] = db.getSignature((String) paths.get(i));
+			((IMultiSignatureOperation) op).operate(sigs, params);
+		}
+		else {
+			ISingleSignatureOperation sop = (ISingleSignatureOperation) op;
+			for ( Iterator it = paths.iterator(); it.hasNext(); )
+				sop.operate(db.getSignature((String) it.next()), params);
+		}
+		return paths.size();
+	}
+
+	private int _export(String format, String filename, String condition_text) throws Exception {
+		List paths = _selectPaths(condition_text);
+		SamsDbManager.ExportListener lis = new SamsDbManager.ExportListener() {
+			public void exporting(int file_number, String relative_filename) {
+			}
+		};
+		if ( format.equals("ascii") )
+			dbman.exportAscii(paths, filename, lis);
+		else if ( format.equals("envi") )
+			dbman.exportEnvi(paths, filename, lis, EnviDataType.FLOAT32);
+		else if ( format.equals("envilib") )
+			dbman.exportEnviLibrary(paths, filename, lis, EnviDataType.FLOAT32);
+		else
+			throw new Exception(format+ ": unrecognized export format. Use one of ascii, envi, envilib");
+		return paths.size();
+	}
+
+	/** Splits a line by spaces, except within double quotes. */
+	private static String[] _split(String line) {
+		List toks = new ArrayList();
+		StringBuffer tok = null;
+		boolean quoted = false;
+		for ( int i = 0; i < line.length(); i++ ) {
+			char c = line.charAt(i);
+			if ( c == '"' ) {
+				quoted = !quoted;
+				if ( tok == null )
+					tok = new StringBuffer();
+			}
+			else if ( !quoted && Character.isWhitespace(c) ) {
+				if ( tok != null )
+					toks.add(tok.toString());
+				tok = null;
+			}
+			else {
+				if ( tok == null )
+					tok = new StringBuffer();
+				tok.append(c);
+			}
+		}
+		if ( tok != null )
+			toks.add(tok.toString());
+		return (String[]) toks.toArray(new String[toks.size()]);
+	}
+
+	/**
+	 * Writes a report of the results: one line per phase with the number
+	 * of iterations, elements per iteration, latency percentiles and
+	 * maximum (ms), and throughput (elements/s).
+	 */
+	public void report(PrintWriter pw) {
+		pw.println(HEADER);
+		for ( Iterator it = results.iterator(); it.hasNext(); )
+			pw.println(it.next());
+		pw.flush();
+	}
+
+	/** The result of a phase. */
+	public static class Result {
+		final String phase;
+		/** of each iteration, in ms */
+		final long[] latencies;
+		/** in all iterations */
+		long elements;
+
+		Result(String[] args, int iterations) {
+			StringBuffer sb = new StringBuffer();
+			for ( int i = 0; i < args.length; i++ ) {
+				if ( i > 0 )
+					sb.append(' ');
+				sb.append(args[i].indexOf(' ') >= 0 ? "\"" +args[i]+ "\"" : args[i]);
+			}
+			phase = sb.toString();
+			latencies = new long[iterations];
+		}
+
+		/** Gets the phase, as given in the script. */
+		public String getPhase() {
+			return phase;
+		}
+
+		/** Gets the number of iterations. */
+		public int getIterations() {
+			return latencies.length;
+		}
+
+		/** Gets the average number of elements processed per iteration. */
+		public long getElementsPerIteration() {
+			return elements / latencies.length;
+		}
+
+		/**
+		 * Gets a percentile of the latencies, by the nearest-rank method.
+		 *
+		 * @param p In (0, 100].
+		 * @return The latency, in ms.
+		 */
+		public long getPercentile(double p) {
+			long[] sorted = (long[]) latencies.clone();
+			Arrays.sort(sorted);
+			int rank = (int) Math.ceil(p / 100 * sorted.length);
+			return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+		}
+
+		/** Gets the total time of all iterations, in ms. */
+		public long getTotalTime() {
+			long total = 0;
+			for ( int i = 0; i < latencies.length; i++ )
+				total += latencies[i];
+			return total;
+		}
+
+		/** Gets the number of elements processed per second; 0 if no time was measured. */
+		public double getThroughput() {
+			long total = getTotalTime();
+			return total == 0 ? 0 : elements * 1000.0 / total;
+		}
+
+		/** Returns a line of the report. */
+		public String toString() {
+			String name = phase.length() > 40 ? phase.substring(0, 37)+ "..." : phase;
+			return _pad(name, -40)
+				+_pad(String.valueOf(getIterations()), 6)
+				+_pad(String.valueOf(getElementsPerIteration()), 10)
+				+_pad(String.valueOf(getPercentile(50)), 10)
+				+_pad(String.valueOf(getPercentile(90)), 10)
+				+_pad(String.valueOf(getPercentile(99)), 10)
+				+_pad(String.valueOf(getPercentile(100)), 10)
+				+_pad(getTotalTime() == 0 ? "n/a" : String.valueOf(Math.round(getThroughput())), 12)
+			;
+		}
+
+		/** Pads to the right if width &gt; 0, to the left otherwise. */
+		private static String _pad(String s, int width) {
+			StringBuffer sb = new StringBuffer(s);
+			while ( sb.length() < Math.abs(width) ) {
+				if ( width > 0 )
+					sb.insert(0, ' ');
+				else
+					sb.append(' ');
+			}
+			return sb.toString();
+		}
+	}
+}
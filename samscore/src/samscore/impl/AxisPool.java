@@ -0,0 +1,131 @@
+package samscore.impl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * Pool of abscissa arrays shared by binary signature files.
+ * <p>
+ * Each axis is kept in a file named after its 64-bit fingerprint
+ * under the pool directory, and is only added to the pool the second
+ * time it is seen, so spectra with unique abscissas do not produce
+ * extra files. Axes are never removed: they are small and, being
+ * content-addressed, a stale one is harmless.
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+class AxisPool {
+	/** Returned by share() when the axis is to be kept inline. */
+	static final long NO_AXIS = 0;
+
+	private static final byte[] MAGIC = { 'S','A','M','S','B','A','X','S' };
+	private static final String AXIS_SUFFIX = ".axis";
+
+	/** Axes with fewer points are always kept inline. */
+	private static final int MIN_SHARED_SIZE = 2;
+
+	private File dir;
+
+	/** Mapping: Long id -> double[] */
+	private Map axes = new HashMap();
+
+	/** Ids of axes seen once but not yet in the pool. */
+	private Set seen = new HashSet();
+
+	/** Creates a pool on the given directory, which is created on demand. */
+	AxisPool(File dir) {
+		this.dir = dir;
+	}
+
+	static String idToString(long id) {
+		String hex = Long.toHexString(id);
+		return "0000000000000000".substring(hex.length()) + hex;
+	}
+
+	static long fingerprint(double[] xs) {
+		// 64-bit FNV-1a over the size and the bits of each value
+		long h = 0xcbf29ce484222325L;
+		h = (h ^ xs.length) * 0x100000001b3L;
+		for ( int i = 0; i < xs.length; i++ ) {
+			long bits = Double.doubleToLongBits(xs[i]);
+			for ( int k = 0; k < 64; k += 8 )
+				h = (h ^ ((bits >>> k) & 0xff)) * 0x100000001b3L;
+		}
+		return h == NO_AXIS ? 1 : h;
+	}
+
+	/** Gets the id under which the given axis is shared, adding it to the
+	 * pool if appropriate; NO_AXIS if the axis is to be kept inline. */
+	synchronized long share(double[] xs) throws Exception {
+		if ( xs.length < MIN_SHARED_SIZE )
+			return NO_AXIS;
+		long id = fingerprint(xs);
+		double[] pooled = get(id);
+		if ( pooled != null )
+			return Arrays.equals(pooled, xs) ? id : NO_AXIS;
+
+		Long key = new Long(id);
+		if ( seen.add(key) )
+			return NO_AXIS;   // first time
+
+		_write(id, xs);
+		seen.remove(key);
+		axes.put(key, xs.clone());
+		return id;
+	}
+
+	/** Gets a shared axis; null if not in this pool.
+	 * The returned array must not be modified. */
+	synchronized double[] get(long id) throws Exception {
+		Long key = new Long(id);
+		double[] xs = (double[]) axes.get(key);
+		if ( xs == null ) {
+			xs = _read(id);
+			if ( xs != null )
+				axes.put(key, xs);
+		}
+		return xs;
+	}
+
+	private File _getFile(long id) {
+		return new File(dir, idToString(id) + AXIS_SUFFIX);
+	}
+
+	private double[] _read(long id) throws Exception {
+		File file = _getFile(id);
+		if ( !file.exists() )
+			return null;
+		ByteBuffer bb = ByteBuffer.wrap(SamsDb.readFile(file)).order(ByteOrder.LITTLE_ENDIAN);
+		if ( !BinarySignatureFormat.hasMagic(bb, MAGIC) )
+			throw new Exception(file+ ": Not an axis file");
+		bb.position(MAGIC.length);
+		double[] xs = new double[bb.getInt()];
+		bb.getInt();  // reserved
+		bb.asDoubleBuffer().get(xs);
+		return xs;
+	}
+
+	private void _write(long id, double[] xs) throws Exception {
+		if ( !dir.exists() && !dir.mkdirs() )
+			throw new Exception("Cannot make directory: " +dir);
+		byte[] contents = new byte[MAGIC.length + 8 + 8 * xs.length];
+		ByteBuffer bb = ByteBuffer.wrap(contents).order(ByteOrder.LITTLE_ENDIAN);
+		bb.put(MAGIC);
+		bb.putInt(xs.length);
+		bb.putInt(0);
+		for ( int i = 0; i < xs.length; i++ )
+			bb.putDouble(xs[i]);
+
+		// write under a temporary name so no signature can refer to an
+		// incomplete axis:
+		File file = _getFile(id);
+		File tmp = new File(dir, file.getName() + ".tmp");
+		SamsDb.writeFile(tmp, contents);
+		if ( !tmp.renameTo(file) ) {
+			tmp.delete();
+			throw new Exception("Cannot create axis file: " +file);
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package samscore.impl;
+
+import sig.Signature;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * Binary format for signature files.
+ * <p>
+ * Layout (all numbers little-endian):
+ * <pre>
+ *   bytes 0-7     magic "SAMSBSIG"
+ *   int           version (1)
+ *   int           flags: FLAG_SHARED_AXIS, FLAG_INFOS
+ *   int           number of points n
+ *   int           reserved (0)
+ *   long          axis id, if FLAG_SHARED_AXIS; else n doubles: abscissas
+ *   n doubles     ordinates
+ *   if FLAG_INFOS:
+ *     int         number of infos m
+ *     m times:    int point index, int byte length, UTF-8 bytes
+ * </pre>
+ * Abscissas that are written more than once (typically, all spectra from
+ * the same instrument) are kept only once in the given AxisPool and
+ * referenced by id from each signature file.
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+class BinarySignatureFormat extends SignatureFormat {
+	private static final byte[] MAGIC = { 'S','A','M','S','B','S','I','G' };
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 24;
+
+	private static final int FLAG_SHARED_AXIS = 1;
+	private static final int FLAG_INFOS = 2;
+
+	private AxisPool axisPool;
+
+	/** Creates the binary format.
+	 * @param axisPool Where shared abscissas are kept. */
+	BinarySignatureFormat(AxisPool axisPool) {
+		this.axisPool = axisPool;
+	}
+
+	String getName() {
+		return BINARY;
+	}
+
+	boolean recognizes(ByteBuffer contents) {
+		return hasMagic(contents, MAGIC);
+	}
+
+	/** Tells if the remaining bytes of the buffer start with the given magic. */
+	static boolean hasMagic(ByteBuffer contents, byte[] magic) {
+		if ( contents.remaining() < magic.length )
+			return false;
+		int pos = contents.position();
+		for ( int i = 0; i < magic.length; i++ ) {
+			if ( contents.get(pos + i) != magic[i] )
+				return false;
+		}
+		return true;
+	}
+
+	Signature decode(ByteBuffer contents) throws Exception {
+		if ( !recognizes(contents) || contents.remaining() < HEADER_SIZE )
+			throw new Exception("Not a binary signature");
+		ByteBuffer bb = contents.slice().order(ByteOrder.LITTLE_ENDIAN);
+		bb.position(MAGIC.length);
+		int version = bb.getInt();
+		if ( version != VERSION )
+			throw new Exception("Unsupported binary signature version: " +version);
+		int flags = bb.getInt();
+		int size = bb.getInt();
+		bb.getInt();  // reserved
+
+		double[] xs;
+		if ( (flags & FLAG_SHARED_AXIS) != 0 ) {
+			long axisId = bb.getLong();
+			xs = axisPool.get(axisId);
+			if ( xs == null || xs.length != size )
+				throw new Exception("Missing or invalid shared axis: " +AxisPool.idToString(axisId));
+		}
+		else {
+			xs = new double[size];
+			bb.asDoubleBuffer().get(xs);
+			bb.position(bb.position() + 8 * size);
+		}
+		double[] ys = new double[size];
+		bb.asDoubleBuffer().get(ys);
+		bb.position(bb.position() + 8 * size);
+
+		Signature sig = new Signature(null, size);
+		for ( int i = 0; i < size; i++ )
+			sig.addDatapoint(xs[i], ys[i]);
+
+		if ( (flags & FLAG_INFOS) != 0 ) {
+			int count = bb.getInt();
+			for ( int k = 0; k < count; k++ ) {
+				int index = bb.getInt();
+				byte[] bytes = new byte[bb.getInt()];
+				bb.get(bytes);
+				sig.setObject(index, new String(bytes, "UTF-8"));
+			}
+		}
+		return sig;
+	}
+
+	byte[] encode(Signature sig) throws Exception {
+		int size = sig.getSize();
+		double[] xs = sig.getXs();
+		long axisId = axisPool.share(xs);
+
+		// infos are kept as strings, as in the text format:
+		List infos = null;
+		int infosBytes = 0;
+		for ( int i = 0; i < size; i++ ) {
+			Object obj = sig.getObject(i);
+			if ( obj == null )
+				continue;
+			if ( infos == null )
+				infos = new ArrayList();
+			byte[] bytes = obj.toString().getBytes("UTF-8");
+			infos.add(new Object[] { new Integer(i), bytes });
+			infosBytes += 8 + bytes.length;
+		}
+
+		int flags = 0;
+		int length = HEADER_SIZE + 8 * size;
+		if ( axisId != AxisPool.NO_AXIS ) {
+			flags |= FLAG_SHARED_AXIS;
+			length += 8;
+		}
+		else {
+			length += 8 * size;
+		}
+		if ( infos != null ) {
+			flags |= FLAG_INFOS;
+			length += 4 + infosBytes;
+		}
+
+		byte[] contents = new byte[length];
+		ByteBuffer bb = ByteBuffer.wrap(contents).order(ByteOrder.LITTLE_ENDIAN);
+		bb.put(MAGIC);
+		bb.putInt(VERSION);
+		bb.putInt(flags);
+		bb.putInt(size);
+		bb.putInt(0);
+		if ( axisId != AxisPool.NO_AXIS ) {
+			bb.putLong(axisId);
+		}
+		else {
+			for ( int i = 0; i < size; i++ )
+				bb.putDouble(xs[i]);
+		}
+		for ( int i = 0; i < size; i++ )
+			bb.putDouble(sig.getY(i));
+		if ( infos != null ) {
+			bb.putInt(infos.size());
+			for ( Iterator it = infos.iterator(); it.hasNext(); ) {
+				Object[] info = (Object[]) it.next();
+				byte[] bytes = (byte[]) info[1];
+				bb.putInt(((Integer) info[0]).intValue());
+				bb.putInt(bytes.length);
+				bb.put(bytes);
+			}
+		}
+		assert !bb.hasRemaining();
+		return contents;
+	}
+}
@@ -0,0 +1,796 @@
+package samscore.impl;
+
+import samscore.ISamsDb.ISpectrum;
+
+import java.util.*;
+
+/**
+ * Compiles condition and order expressions into trees of nodes that are
+ * evaluated directly on the attribute values of a spectrum.
+ * <p>
+ * Supported: string, integer, floating point and boolean literals (single
+ * quotes are taken as double quotes, as in the interpreted evaluator);
+ * the attributes (including "name" and "location"), whose values are
+ * strings; the operators ?:, ||, &&, !, ==, !=, &lt;, &lt;=, &gt;, &gt;=,
+ * +, -, *, /, %; the String methods listed in STRING_METHODS; and
+ * Integer.parseInt, Double.parseDouble, Float.parseFloat and String.valueOf.
+ * Strings are compared with == and != by value.
+ * <p>
+ * Anything else makes compile() throw UnsupportedException, so the
+ * caller can fall back to the interpreted evaluator.
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+class ExpressionCompiler {
+	static final Class BOOLEAN = Boolean.class;
+	static final Class INT = Integer.class;
+	static final Class DOUBLE = Double.class;
+	static final Class STRING = String.class;
+
+	/** Thrown when an expression cannot be compiled. */
+	static class UnsupportedException extends Exception {
+		UnsupportedException(String msg) {
+			super(msg);
+		}
+	}
+
+	/** A compiled expression. */
+	static final class Expression {
+		private Node root;
+		private String[] attrNames;
+		private String src;
+
+		private Expression(Node root, String[] attrNames, String src) {
+			this.root = root;
+			this.attrNames = attrNames;
+			this.src = src;
+		}
+
+		/** Gets the type of the values of this expression:
+		 * BOOLEAN, INT, DOUBLE or STRING. */
+		Class getType() {
+			return root.type;
+		}
+
+		/** Gets the names of the attributes this expression depends on.
+		 * The values given to eval* must correspond to these names. */
+		String[] getAttributeNames() {
+			return attrNames;
+		}
+
+		/** Gets the values of the attributes of a spectrum needed by
+		 * this expression. */
+		String[] getValues(ISpectrum s) {
+			String[] values = new String[attrNames.length];
+			for ( int i = 0; i < attrNames.length; i++ )
+				values[i] = s.getString(attrNames[i]);
+			return values;
+		}
+
+		boolean evalBoolean(String[] values) {
+			return root.evalBoolean(values);
+		}
+
+		String evalString(String[] values) {
+			return root.evalString(values);
+		}
+
+		Object eval(String[] values) {
+			return root.eval(values);
+		}
+
+		public String toString() {
+			return src;
+		}
+	}
+
+	/** Names of the attributes that can be referenced. */
+	private Set validNames;
+
+	// state during compilation:
+	private String src;
+	private int pos;
+	private int tokType;
+	private String tokText;
+	private List usedNames;
+
+	private static final int T_EOF = 0;
+	private static final int T_IDENT = 1;
+	private static final int T_STRING = 2;
+	private static final int T_INT = 3;
+	private static final int T_DOUBLE = 4;
+	private static final int T_OP = 5;
+
+	/** Creates a compiler for expressions on the given attributes.
+	 * @param validNames Names of the attributes that can be referenced. */
+	ExpressionCompiler(Collection validNames) {
+		this.validNames = new HashSet(validNames);
+	}
+
+	/** Compiles an expression. */
+	Expression compile(String source) throws UnsupportedException {
+		src = source.replace('\'', '"');
+		pos = 0;
+		usedNames = new ArrayList();
+		_next();
+		Node root = _parseExpression();
+		if ( tokType != T_EOF )
+			throw new UnsupportedException("Unexpected: " +tokText);
+		String[] attrNames = (String[]) usedNames.toArray(new String[usedNames.size()]);
+		return new Expression(root, attrNames, source);
+	}
+
+	////////////////////////////////////////////////////////////////////
+	// Lexer
+
+	private void _next() throws UnsupportedException {
+		while ( pos < src.length() && Character.isWhitespace(src.charAt(pos)) )
+			pos++;
+		if ( pos >= src.length() ) {
+			tokType = T_EOF;
+			tokText = "<end>";
+			return;
+		}
+		char c = src.charAt(pos);
+		int start = pos;
+		if ( Character.isJavaIdentifierStart(c) ) {
+			while ( pos < src.length() && Character.isJavaIdentifierPart(src.charAt(pos)) )
+				pos++;
+			tokType = T_IDENT;
+			tokText = src.substring(start, pos);
+		}
+		else if ( Character.isDigit(c) || (c == '.' && pos + 1 < src.length() && Character.isDigit(src.charAt(pos + 1))) ) {
+			boolean is_double = false;
+			while ( pos < src.length() && Character.isDigit(src.charAt(pos)) )
+				pos++;
+			if ( pos < src.length() && src.charAt(pos) == '.' ) {
+				is_double = true;
+				pos++;
+				while ( pos < src.length() && Character.isDigit(src.charAt(pos)) )
+					pos++;
+			}
+			if ( pos < src.length() && (src.charAt(pos) == 'e' || src.charAt(pos) == 'E') ) {
+				is_double = true;
+				pos++;
+				if ( pos < src.length() && (src.charAt(pos) == '+' || src.charAt(pos) == '-') )
+					pos++;
+				while ( pos < src.length() && Character.isDigit(src.charAt(pos)) )
+					pos++;
+			}
+			tokText = src.substring(start, pos);
+			if ( pos < src.length() && "dDfF".indexOf(src.charAt(pos)) >= 0 ) {
+				is_double = true;
+				pos++;
+			}
+			else if ( pos < src.length() && Character.isJavaIdentifierPart(src.charAt(pos)) )
+				throw new UnsupportedException("Unsupported number: " +src.substring(start));
+			tokType = is_double ? T_DOUBLE : T_INT;
+		}
+		else if ( c == '"' ) {
+			StringBuffer sb = new StringBuffer();
+			pos++;
+			while ( true ) {
+				if ( pos >= src.length() )
+					throw new UnsupportedException("Unterminated string");
+				c = src.charAt(pos++);
+				if ( c == '"' )
+					break;
+				if ( c == '\\' ) {
+					if ( pos >= src.length() )
+						throw new UnsupportedException("Unterminated string");
+					c = src.charAt(pos++);
+					switch ( c ) {
+						case 'n': c = '\n'; break;
+						case 't': c = '\t'; break;
+						case 'r': c = '\r'; break;
+						case '"': case '\\': break;
+						default: throw new UnsupportedException("Unsupported escape: \\" +c);
+					}
+				}
+				sb.append(c);
+			}
+			tokType = T_STRING;
+			tokText = sb.toString();
+		}
+		else {
+			String[] ops = { "||", "&&", "==", "!=", "<=", ">=",
+				"<", ">", "!", "+", "-", "*", "/", "%", "(", ")", ".", ",", "?", ":" };
+			for ( int i = 0; i < ops.length; i++ ) {
+				if ( src.startsWith(ops[i], pos) ) {
+					pos += ops[i].length();
+					tokType = T_OP;
+					tokText = ops[i];
+					return;
+				}
+			}
+			throw new UnsupportedException("Unsupported character: " +c);
+		}
+	}
+
+	private boolean _isOp(String op) {
+		return tokType == T_OP && tokText.equals(op);
+	}
+
+	private void _expectOp(String op) throws UnsupportedException {
+		if ( !_isOp(op) )
+			throw new UnsupportedException("Expected '" +op+ "' but found: " +tokText);
+		_next();
+	}
+
+	////////////////////////////////////////////////////////////////////
+	// Parser
+
+	private Node _parseExpression() throws UnsupportedException {
+		Node cond = _parseOr();
+		if ( !_isOp("?") )
+			return cond;
+		_next();
+		Node a = _parseExpression();
+		_expectOp(":");
+		Node b = _parseExpression();
+		_checkType(cond, BOOLEAN, "?:");
+		return new Conditional(cond, a, b);
+	}
+
+	private Node _parseOr() throws UnsupportedException {
+		Node left = _parseAnd();
+		while ( _isOp("||") ) {
+			_next();
+			Node right = _parseAnd();
+			_checkType(left, BOOLEAN, "||");
+			_checkType(right, BOOLEAN, "||");
+			left = new Logical(true, left, right);
+		}
+		return left;
+	}
+
+	private Node _parseAnd() throws UnsupportedException {
+		Node left = _parseEquality();
+		while ( _isOp("&&") ) {
+			_next();
+			Node right = _parseEquality();
+			_checkType(left, BOOLEAN, "&&");
+			_checkType(right, BOOLEAN, "&&");
+			left = new Logical(false, left, right);
+		}
+		return left;
+	}
+
+	private Node _parseEquality() throws UnsupportedException {
+		Node left = _parseRelational();
+		while ( _isOp("==") || _isOp("!=") ) {
+			String op = tokText;
+			_next();
+			left = new Comparison(op, left, _parseRelational());
+		}
+		return left;
+	}
+
+	private Node _parseRelational() throws UnsupportedException {
+		Node left = _parseAdditive();
+		while ( _isOp("<") || _isOp("<=") || _isOp(">") || _isOp(">=") ) {
+			String op = tokText;
+			_next();
+			Node right = _parseAdditive();
+			if ( !_isNumeric(left) || !_isNumeric(right) )
+				throw new UnsupportedException("Operator " +op+ " requires numbers");
+			left = new Comparison(op, left, right);
+		}
+		return left;
+	}
+
+	private Node _parseAdditive() throws UnsupportedException {
+		Node left = _parseMultiplicative();
+		while ( _isOp("+") || _isOp("-") ) {
+			char op = tokText.charAt(0);
+			_next();
+			Node right = _parseMultiplicative();
+			if ( op == '+' && (left.type == STRING || right.type == STRING) )
+				left = new Concat(left, right);
+			else
+				left = new Arithmetic(op, left, right);
+		}
+		return left;
+	}
+
+	private Node _parseMultiplicative() throws UnsupportedException {
+		Node left = _parseUnary();
+		while ( _isOp("*") || _isOp("/") || _isOp("%") ) {
+			char op = tokText.charAt(0);
+			_next();
+			left = new Arithmetic(op, left, _parseUnary());
+		}
+		return left;
+	}
+
+	private Node _parseUnary() throws UnsupportedException {
+		if ( _isOp("!") ) {
+			_next();
+			Node operand = _parseUnary();
+			_checkType(operand, BOOLEAN, "!");
+			return new Not(operand);
+		}
+		if ( _isOp("-") ) {
+			_next();
+			return new Arithmetic('-', new Literal(new Integer(0)), _parseUnary());
+		}
+		if ( _isOp("+") ) {
+			_next();
+			Node operand = _parseUnary();
+			if ( !_isNumeric(operand) )
+				throw new UnsupportedException("Unary + requires a number");
+			return operand;
+		}
+		return _parsePostfix();
+	}
+
+	private Node _parsePostfix() throws UnsupportedException {
+		Node node = _parsePrimary();
+		while ( _isOp(".") ) {
+			_next();
+			if ( tokType != T_IDENT )
+				throw new UnsupportedException("Expected method name: " +tokText);
+			String method = tokText;
+			_next();
+			Node[] args = _parseArguments();
+			if ( node.type != STRING )
+				throw new UnsupportedException(method+ ": Only methods on strings are supported");
+			node = new StringMethod(method, node, args);
+		}
+		return node;
+	}
+
+	private Node[] _parseArguments() throws UnsupportedException {
+		_expectOp("(");
+		List args = new ArrayList();
+		if ( !_isOp(")") ) {
+			args.add(_parseExpression());
+			while ( _isOp(",") ) {
+				_next();
+				args.add(_parseExpression());
+			}
+		}
+		_expectOp(")");
+		return (Node[]) args.toArray(new Node[args.size()]);
+	}
+
+	private Node _parsePrimary() throws UnsupportedException {
+		if ( _isOp("(") ) {
+			_next();
+			Node node = _parseExpression();
+			_expectOp(")");
+			return node;
+		}
+		Node node;
+		switch ( tokType ) {
+			case T_STRING:
+				node = new Literal(tokText);
+				_next();
+				return node;
+			case T_INT:
+				try {
+					node = new Literal(new Integer(Integer.parseInt(tokText)));
+				}
+				catch ( NumberFormatException ex ) {
+					throw new UnsupportedException("Integer out of range: " +tokText);
+				}
+				_next();
+				return node;
+			case T_DOUBLE:
+				node = new Literal(new Double(Double.parseDouble(tokText)));
+				_next();
+				return node;
+			case T_IDENT:
+				String ident = tokText;
+				_next();
+				if ( ident.equals("true") || ident.equals("false") )
+					return new Literal(Boolean.valueOf(ident));
+				if ( _isOp(".") && !validNames.contains(ident) ) {
+					// static method:
+					_next();
+					if ( tokType != T_IDENT )
+						throw new UnsupportedException("Expected method name: " +tokText);
+					String method = tokText;
+					_next();
+					return new StaticMethod(ident+ "." +method, _parseArguments());
+				}
+				if ( !validNames.contains(ident) )
+					throw new UnsupportedException(ident+ ": Undefined attribute");
+				int index = usedNames.indexOf(ident);
+				if ( index < 0 ) {
+					index = usedNames.size();
+					usedNames.add(ident);
+				}
+				return new Attribute(index);
+			default:
+				throw new UnsupportedException("Unexpected: " +tokText);
+		}
+	}
+
+	private static boolean _isNumeric(Node node) {
+		return node.type == INT || node.type == DOUBLE;
+	}
+
+	private static void _checkType(Node node, Class type, String op)
+	throws UnsupportedException {
+		if ( node.type != type )
+			throw new UnsupportedException(op+ ": Operand must be " +type.getName());
+	}
+
+	////////////////////////////////////////////////////////////////////
+	// Nodes
+
+	/** A node in a compiled expression. Each node implements the
+	 * eval* method corresponding to its type. */
+	abstract static class Node {
+		final Class type;
+
+		Node(Class type) {
+			this.type = type;
+		}
+
+		boolean evalBoolean(String[] v) {
+			throw new IllegalStateException("not a boolean");
+		}
+
+		int evalInt(String[] v) {
+			throw new IllegalStateException("not an integer");
+		}
+
+		double evalDouble(String[] v) {
+			return evalInt(v);
+		}
+
+		String evalString(String[] v) {
+			if ( type == BOOLEAN )
+				return String.valueOf(evalBoolean(v));
+			else if ( type == INT )
+				return String.valueOf(evalInt(v));
+			else
+				return String.valueOf(evalDouble(v));
+		}
+
+		Object eval(String[] v) {
+			if ( type == BOOLEAN )
+				return Boolean.valueOf(evalBoolean(v));
+			else if ( type == INT )
+				return new Integer(evalInt(v));
+			else if ( type == DOUBLE )
+				return new Double(evalDouble(v));
+			else
+				return evalString(v);
+		}
+	}
+
+	static final class Literal extends Node {
+		private Object value;
+
+		Literal(Object value) {
+			super(value.getClass());
+			this.value = value;
+		}
+		boolean evalBoolean(String[] v) {
+			return ((Boolean) value).booleanValue();
+		}
+		int evalInt(String[] v) {
+			return ((Integer) value).intValue();
+		}
+		double evalDouble(String[] v) {
+			return ((Number) value).doubleValue();
+		}
+		String evalString(String[] v) {
+			return value.toString();
+		}
+	}
+
+	static final class Attribute extends Node {
+		private int index;
+
+		Attribute(int index) {
+			super(STRING);
+			this.index = index;
+		}
+		String evalString(String[] v) {
+			return v[index];
+		}
+	}
+
+	static final class Not extends Node {
+		private Node operand;
+
+		Not(Node operand) {
+			super(BOOLEAN);
+			this.operand = operand;
+		}
+		boolean evalBoolean(String[] v) {
+			return !operand.evalBoolean(v);
+		}
+	}
+
+	static final class Logical extends Node {
+		private boolean or;
+		private Node left, right;
+
+		Logical(boolean or, Node left, Node right) {
+			super(BOOLEAN);
+			this.or = or;
+			this.left = left;
+			this.right = right;
+		}
+		boolean evalBoolean(String[] v) {
+			if ( or )
+				return left.evalBoolean(v) || right.evalBoolean(v);
+			else
+				return left.evalBoolean(v) && right.evalBoolean(v);
+		}
+	}
+
+	static final class Conditional extends Node {
+		private Node cond, a, b;
+
+		Conditional(Node cond, Node a, Node b) throws UnsupportedException {
+			super(_resultType(a, b));
+			this.cond = cond;
+			this.a = a;
+			this.b = b;
+		}
+		private static Class _resultType(Node a, Node b) throws UnsupportedException {
+			if ( a.type == b.type )
+				return a.type;
+			if ( _isNumeric(a) && _isNumeric(b) )
+				return DOUBLE;
+			throw new UnsupportedException("?: Incompatible operands");
+		}
+		boolean evalBoolean(String[] v) {
+			return cond.evalBoolean(v) ? a.evalBoolean(v) : b.evalBoolean(v);
+		}
+		int evalInt(String[] v) {
+			return cond.evalBoolean(v) ? a.evalInt(v) : b.evalInt(v);
+		}
+		double evalDouble(String[] v) {
+			return cond.evalBoolean(v) ? a.evalDouble(v) : b.evalDouble(v);
+		}
+		String evalString(String[] v) {
+			if ( type != STRING )
+				return super.evalString(v);
+			return cond.evalBoolean(v) ? a.evalString(v) : b.evalString(v);
+		}
+	}
+
+	static final class Comparison extends Node {
+		private String op;
+		private Node left, right;
+		private Class operandType;
+
+		Comparison(String op, Node left, Node right) throws UnsupportedException {
+			super(BOOLEAN);
+			this.op = op;
+			this.left = left;
+			this.right = right;
+			if ( _isNumeric(left) && _isNumeric(right) )
+				operandType = left.type == INT && right.type == INT ? INT : DOUBLE;
+			else if ( left.type == right.type )
+				operandType = left.type;
+			else
+				throw new UnsupportedException(op+ ": Incompatible operands");
+		}
+		boolean evalBoolean(String[] v) {
+			int c;
+			if ( operandType == INT ) {
+				int a = left.evalInt(v);
+				int b = right.evalInt(v);
+				c = a < b ? -1 : a == b ? 0 : 1;
+			}
+			else if ( operandType == DOUBLE ) {
+				double a = left.evalDouble(v);
+				double b = right.evalDouble(v);
+				if ( a != a || b != b )   // NaN: only != holds
+					return op.equals("!=");
+				c = a < b ? -1 : a == b ? 0 : 1;
+			}
+			else if ( operandType == BOOLEAN ) {
+				c = left.evalBoolean(v) == right.evalBoolean(v) ? 0 : 1;
+			}
+			else {
+				String a = left.evalString(v);
+				String b = right.evalString(v);
+				c = a == null ? (b == null ? 0 : 1) : a.equals(b) ? 0 : 1;
+			}
+			if ( op.equals("==") )
+				return c == 0;
+			else if ( op.equals("!=") )
+				return c != 0;
+			else if ( op.equals("<") )
+				return c < 0;
+			else if ( op.equals("<=") )
+				return c <= 0;
+			else if ( op.equals(">") )
+				return c > 0;
+			else
+				return c >= 0;
+		}
+	}
+
+	static final class Arithmetic extends Node {
+		private char op;
+		private Node left, right;
+
+		Arithmetic(char op, Node left, Node right) throws UnsupportedException {
+			super(left.type == INT && right.type == INT ? INT : DOUBLE);
+			if ( !_isNumeric(left) || !_isNumeric(right) )
+				throw new UnsupportedException(op+ ": Operands must be numbers");
+			this.op = op;
+			this.left = left;
+			this.right = right;
+		}
+		int evalInt(String[] v) {
+			int a = left.evalInt(v);
+			int b = right.evalInt(v);
+			switch ( op ) {
+				case '+': return a + b;
+				case '-': return a - b;
+				case '*': return a * b;
+				case '/': return a / b;
+				default:  return a % b;
+			}
+		}
+		double evalDouble(String[] v) {
+			if ( type == INT )
+				return evalInt(v);
+			double a = left.evalDouble(v);
+			double b = right.evalDouble(v);
+			switch ( op ) {
+				case '+': return a + b;
+				case '-': return a - b;
+				case '*': return a * b;
+				case '/': return a / b;
+				default:  return a % b;
+			}
+		}
+	}
+
+	static final class Concat extends Node {
+		private Node left, right;
+
+		Concat(Node left, Node right) {
+			super(STRING);
+			this.left = left;
+			this.right = right;
+		}
+		String evalString(String[] v) {
+			return left.evalString(v) + right.evalString(v);
+		}
+	}
+
+	/** Supported String methods: name, argument types, result type. */
+	private static final Object[][] STRING_METHODS = {
+		{ "equals",              new Class[] { STRING },      BOOLEAN },
+		{ "equalsIgnoreCase",    new Class[] { STRING },      BOOLEAN },
+		{ "startsWith",          new Class[] { STRING },      BOOLEAN },
+		{ "endsWith",            new Class[] { STRING },      BOOLEAN },
+		{ "matches",             new Class[] { STRING },      BOOLEAN },
+		{ "indexOf",             new Class[] { STRING },      INT },
+		{ "lastIndexOf",         new Class[] { STRING },      INT },
+		{ "compareTo",           new Class[] { STRING },      INT },
+		{ "compareToIgnoreCase", new Class[] { STRING },      INT },
+		{ "length",              new Class[] { },             INT },
+		{ "substring",           new Class[] { INT },         STRING },
+		{ "substring",           new Class[] { INT, INT },    STRING },
+		{ "trim",                new Class[] { },             STRING },
+		{ "toLowerCase",         new Class[] { },             STRING },
+		{ "toUpperCase",         new Class[] { },             STRING },
+	};
+
+	static final class StringMethod extends Node {
+		private String method;
+		private Node target;
+		private Node[] args;
+
+		StringMethod(String method, Node target, Node[] args) throws UnsupportedException {
+			super(_resultType(method, args));
+			this.method = method.intern();
+			this.target = target;
+			this.args = args;
+		}
+		private static Class _resultType(String method, Node[] args) throws UnsupportedException {
+			for ( int i = 0; i < STRING_METHODS.length; i++ ) {
+				if ( !STRING_METHODS[i][0].equals(method) )
+					continue;
+				Class[] arg_types = (Class[]) STRING_METHODS[i][1];
+				if ( arg_types.length != args.length )
+					continue;
+				boolean ok = true;
+				for ( int k = 0; k < args.length; k++ )
+					ok = ok && args[k].type == arg_types[k];
+				if ( ok )
+					return (Class) STRING_METHODS[i][2];
+			}
+			throw new UnsupportedException(method+ ": Unsupported method");
+		}
+		private String _target(String[] v) {
+			String s = target.evalString(v);
+			if ( s == null )
+				throw new NullPointerException(method+ ": null value");
+			return s;
+		}
+		boolean evalBoolean(String[] v) {
+			String s = _target(v);
+			String a = args[0].evalString(v);
+			if ( method == "equals" )
+				return s.equals(a);
+			else if ( method == "equalsIgnoreCase" )
+				return s.equalsIgnoreCase(a);
+			else if ( method == "startsWith" )
+				return s.startsWith(a);
+			else if ( method == "endsWith" )
+				return s.endsWith(a);
+			else
+				return s.matches(a);
+		}
+		int evalInt(String[] v) {
+			String s = _target(v);
+			if ( method == "length" )
+				return s.length();
+			String a = args[0].evalString(v);
+			if ( method == "indexOf" )
+				return s.indexOf(a);
+			else if ( method == "lastIndexOf" )
+				return s.lastIndexOf(a);
+			else if ( method == "compareTo" )
+				return s.compareTo(a);
+			else
+				return s.compareToIgnoreCase(a);
+		}
+		String evalString(String[] v) {
+			String s = _target(v);
+			if ( method == "substring" ) {
+				if ( args.length == 1 )
+					return s.substring(args[0].evalInt(v));
+				else
+					return s.substring(args[0].evalInt(v), args[1].evalInt(v));
+			}
+			else if ( method == "trim" )
+				return s.trim();
+			else if ( method == "toLowerCase" )
+				return s.toLowerCase();
+			else
+				return s.toUpperCase();
+		}
+	}
+
+	static final class StaticMethod extends Node {
+		private String method;
+		private Node arg;
+
+		StaticMethod(String method, Node[] args) throws UnsupportedException {
+			super(_resultType(method, args));
+			this.method = method.intern();
+			this.arg = args[0];
+		}
+		private static Class _resultType(String method, Node[] args) throws UnsupportedException {
+			if ( args.length == 1 ) {
+				if ( method.equals("String.valueOf") )
+					return STRING;
+				if ( args[0].type == STRING ) {
+					if ( method.equals("Integer.parseInt") )
+						return INT;
+					if ( method.equals("Double.parseDouble") || method.equals("Float.parseFloat") )
+						return DOUBLE;
+				}
+			}
+			throw new UnsupportedException(method+ ": Unsupported method");
+		}
+		int evalInt(String[] v) {
+			return Integer.parseInt(arg.evalString(v));
+		}
+		double evalDouble(String[] v) {
+			if ( method == "Float.parseFloat" )
+				return Float.parseFloat(arg.evalString(v));
+			else
+				return Double.parseDouble(arg.evalString(v));
+		}
+		String evalString(String[] v) {
+			return arg.evalString(v);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package samscore.impl;
+
+import sfsys.ISfsys;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * The original store: one signature file per spectrum under the
+ * location directory.
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+class FileSignatureStore extends SignatureStore {
+	private File locationDir;
+
+	FileSignatureStore(File locationDir) {
+		this.locationDir = locationDir;
+	}
+
+	String getName() {
+		return FILES;
+	}
+
+	private File _getFile(String path) {
+		return new File(locationDir, path + SamsDb.SIG_SUFFIX);
+	}
+
+	boolean exists(String path) {
+		return _getFile(path).exists();
+	}
+
+	ByteBuffer read(String path) throws Exception {
+		File file = _getFile(path);
+		if ( !file.exists() )
+			return null;
+		return ByteBuffer.wrap(SamsDb.readFile(file));
+	}
+
+	void write(String path, byte[] contents) throws Exception {
+		File file = _getFile(path);
+		File parent = file.getParentFile();
+		if ( !parent.exists() && !parent.mkdirs() )
+			throw new Exception("Cannot make directory for: " +file.getAbsolutePath());
+		SamsDb.writeFile(file, contents);
+	}
+
+	void delete(String path) throws Exception {
+		File file = _getFile(path);
+		if ( file.exists() )
+			file.delete();
+	}
+
+	void rename(String oldPath, String newPath) throws Exception {
+		File oldfile = _getFile(oldPath);
+		if ( oldfile.exists() ) {
+			File newfile = _getFile(newPath);
+			if ( !oldfile.renameTo(newfile) )
+				throw new Exception("Cannot rename signature: " +oldfile+ " -> " +newfile);
+		}
+	}
+
+	ISfsys.IFileSource getFileSource() {
+		return null;
+	}
+
+	void save() throws Exception {
+		// nothing to do: each signature is written immediately.
+	}
+
+	void remove(List paths) throws Exception {
+		for ( Iterator it = paths.iterator(); it.hasNext(); )
+			delete((String) it.next());
+	}
+}
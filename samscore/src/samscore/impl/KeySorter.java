@@ -0,0 +1,148 @@
+package samscore.impl;
+
+/**
+ * Stable sort of elements by precomputed keys (tuples of strings),
+ * done in several threads for large inputs.
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+final class KeySorter {
+	/** Inputs smaller than this are processed in the calling thread. */
+	static final int PARALLEL_THRESHOLD = 8192;
+
+	/** A task on a range of indexes. */
+	interface RangeTask {
+		/** Processes the indexes in [from, to). */
+		public void run(int from, int to) throws Exception;
+	}
+
+	/** Gets the number of threads to process n elements. */
+	static int getNumThreads(int n) {
+		if ( n < PARALLEL_THRESHOLD )
+			return 1;
+		int threads = Runtime.getRuntime().availableProcessors();
+		return Math.max(1, Math.min(threads, n / (PARALLEL_THRESHOLD / 2)));
+	}
+
+	/** Runs a task on [0, n), split in contiguous ranges processed by
+	 * different threads if n is large enough.
+	 * The first exception thrown by a task, if any, is rethrown. */
+	static void forEachRange(int n, final RangeTask task) throws Exception {
+		int num_threads = getNumThreads(n);
+		if ( num_threads == 1 ) {
+			task.run(0, n);
+			return;
+		}
+		final Exception[] error = new Exception[1];
+		Thread[] threads = new Thread[num_threads];
+		for ( int t = 0; t < num_threads; t++ ) {
+			final int from = (int) ((long) n * t / num_threads);
+			final int to = (int) ((long) n * (t + 1) / num_threads);
+			threads[t] = new Thread("KeySorter-" +t) {
+				public void run() {
+					try {
+						task.run(from, to);
+					}
+					catch ( Exception ex ) {
+						synchronized ( error ) {
+							if ( error[0] == null )
+								error[0] = ex;
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for ( int t = 0; t < num_threads; t++ )
+			threads[t].join();
+		if ( error[0] != null )
+			throw error[0];
+	}
+
+	/** Compares two keys level by level. */
+	static int compare(String[] k1, String[] k2) {
+		for ( int i = 0; i < k1.length; i++ ) {
+			int c = k1[i].compareTo(k2[i]);
+			if ( c != 0 )
+				return c;
+		}
+		return 0;
+	}
+
+	/** Gets the permutation that sorts the given keys; stable. */
+	static int[] sort(final String[][] keys) throws Exception {
+		final int n = keys.length;
+		final int[] perm = new int[n];
+		for ( int i = 0; i < n; i++ )
+			perm[i] = i;
+		final int[] aux = (int[]) perm.clone();
+
+		int num_threads = getNumThreads(n);
+		if ( num_threads == 1 ) {
+			_mergeSort(keys, aux, perm, 0, n);
+			return perm;
+		}
+
+		// sort chunks in parallel:
+		final int[] bounds = new int[num_threads + 1];
+		for ( int t = 0; t <= num_threads; t++ )
+			bounds[t] = (int) ((long) n * t / num_threads);
+		forEachRange(num_threads, new RangeTask() {
+			public void run(int from, int to) {
+				for ( int t = from; t < to; t++ )
+					_mergeSort(keys, aux, perm, bounds[t], bounds[t + 1]);
+			}
+		});
+
+		// then merge sorted chunks pairwise:
+		int[] src = perm;
+		int[] dest = aux;
+		for ( int width = 1; width < num_threads; width *= 2 ) {
+			for ( int t = 0; t < num_threads; t += 2 * width ) {
+				int low = bounds[t];
+				int mid = bounds[Math.min(t + width, num_threads)];
+				int high = bounds[Math.min(t + 2 * width, num_threads)];
+				_merge(keys, src, dest, low, mid, high);
+			}
+			int[] tmp = src;
+			src = dest;
+			dest = tmp;
+		}
+		return src;
+	}
+
+	/** Stable merge sort of dest[low,high); src is a copy of dest. */
+	private static void _mergeSort(String[][] keys, int[] src, int[] dest, int low, int high) {
+		int length = high - low;
+		if ( length < 7 ) {
+			// insertion sort on smallest arrays
+			for ( int i = low; i < high; i++ ) {
+				for ( int j = i; j > low && compare(keys[dest[j-1]], keys[dest[j]]) > 0; j-- ) {
+					int t = dest[j];
+					dest[j] = dest[j-1];
+					dest[j-1] = t;
+				}
+			}
+			return;
+		}
+		int mid = (low + high) >>> 1;
+		_mergeSort(keys, dest, src, low, mid);
+		_mergeSort(keys, dest, src, mid, high);
+
+		if ( compare(keys[src[mid-1]], keys[src[mid]]) <= 0 ) {
+			System.arraycopy(src, low, dest, low, length);
+			return;
+		}
+		_merge(keys, src, dest, low, mid, high);
+	}
+
+	/** Merges the sorted src[low,mid) and src[mid,high) into dest. */
+	private static void _merge(String[][] keys, int[] src, int[] dest, int low, int mid, int high) {
+		for ( int i = low, p = low, q = mid; i < high; i++ ) {
+			if ( q >= high || p < mid && compare(keys[src[p]], keys[src[q]]) <= 0 )
+				dest[i] = src[p++];
+			else
+				dest[i] = src[q++];
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package samscore.impl;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * In-memory catalog of the spectra in a database: path -> attribute
+ * values as stored in the .md file of each spectrum.
+ * <p>
+ * The catalog is persisted in a single index file protected by a
+ * checksum. The index file is removed as soon as the catalog is
+ * modified, and written again by save(); so, if the database is not
+ * properly saved, the catalog is rebuilt from the .md files the next
+ * time the database is opened.
+ * <p>
+ * Paths are kept in the order given by the location grouping, that is,
+ * in each group, subgroups first, then spectra, each sorted by name.
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+class MetadataCatalog {
+	private static final byte[] MAGIC = { 'S','A','M','S','M','I','D','X' };
+	private static final int VERSION = 1;
+
+	/** Orders paths as the location grouping does. */
+	static final Comparator PATH_COMPARATOR = new Comparator() {
+		public int compare(Object o1, Object o2) {
+			String p1 = (String) o1;
+			String p2 = (String) o2;
+			int i1 = 1, i2 = 1;   // skip leading '/'
+			while ( true ) {
+				int e1 = p1.indexOf('/', i1);
+				int e2 = p2.indexOf('/', i2);
+				boolean dir1 = e1 >= 0;
+				boolean dir2 = e2 >= 0;
+				String name1 = dir1 ? p1.substring(i1, e1) : p1.substring(i1);
+				String name2 = dir2 ? p2.substring(i2, e2) : p2.substring(i2);
+				if ( dir1 ^ dir2 )
+					return dir1 ? -1 : 1;
+				int c = name1.compareTo(name2);
+				if ( c != 0 || !dir1 )
+					return c;
+				i1 = e1 + 1;
+				i2 = e2 + 1;
+			}
+		}
+	};
+
+	private File indexFile;
+
+	/** Mapping: path -> Properties */
+	private SortedMap entries;
+
+	private boolean dirty;
+
+	/** Creates an empty catalog persisted in the given file. */
+	MetadataCatalog(File indexFile) {
+		this.indexFile = indexFile;
+		entries = new TreeMap(PATH_COMPARATOR);
+	}
+
+	/** Loads the catalog from its index file.
+	 * @return false if the file is missing, invalid, or its checksum
+	 *	does not match; the catalog is left empty in that case. */
+	synchronized boolean load() {
+		entries.clear();
+		dirty = false;
+		if ( !indexFile.exists() )
+			return false;
+		try {
+			byte[] contents = SamsDb.readFile(indexFile);
+			if ( contents.length < MAGIC.length + 8 )
+				return false;
+			int data_length = contents.length - 8;
+			CRC32 crc = new CRC32();
+			crc.update(contents, 0, data_length);
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(contents));
+			in.skipBytes(data_length);
+			if ( in.readLong() != crc.getValue() )
+				return false;
+
+			in = new DataInputStream(new ByteArrayInputStream(contents, 0, data_length));
+			byte[] magic = new byte[MAGIC.length];
+			in.readFully(magic);
+			if ( !Arrays.equals(magic, MAGIC) || in.readInt() != VERSION )
+				return false;
+			int count = in.readInt();
+			for ( int i = 0; i < count; i++ ) {
+				String path = in.readUTF();
+				Properties attrValues = new Properties();
+				int num_attrs = in.readInt();
+				for ( int k = 0; k < num_attrs; k++ ) {
+					String name = in.readUTF().intern();
+					attrValues.setProperty(name, in.readUTF());
+				}
+				entries.put(path, attrValues);
+			}
+			return true;
+		}
+		catch ( Exception ex ) {
+			entries.clear();
+			return false;
+		}
+	}
+
+	/** Writes the index file if the catalog has been modified. */
+	synchronized void save() throws Exception {
+		if ( !dirty && indexFile.exists() )
+			return;
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bos);
+		out.write(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(entries.size());
+		for ( Iterator it = entries.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry entry = (Map.Entry) it.next();
+			out.writeUTF((String) entry.getKey());
+			Properties attrValues = (Properties) entry.getValue();
+			out.writeInt(attrValues.size());
+			for ( Iterator it2 = attrValues.entrySet().iterator(); it2.hasNext(); ) {
+				Map.Entry attr = (Map.Entry) it2.next();
+				out.writeUTF((String) attr.getKey());
+				out.writeUTF((String) attr.getValue());
+			}
+		}
+		out.flush();
+		CRC32 crc = new CRC32();
+		crc.update(bos.toByteArray());
+		out.writeLong(crc.getValue());
+		out.flush();
+		SamsDb.writeFile(indexFile, bos.toByteArray());
+		dirty = false;
+	}
+
+	/** Marks the catalog as modified, invalidating the index file. */
+	private void _modified() {
+		if ( !dirty ) {
+			dirty = true;
+			if ( indexFile.exists() )
+				indexFile.delete();
+		}
+	}
+
+	/** Removes all entries. */
+	synchronized void clear() {
+		entries.clear();
+		_modified();
+	}
+
+	/** Tells if the path is in the catalog. */
+	synchronized boolean contains(String path) {
+		return entries.containsKey(path);
+	}
+
+	/** Gets a copy of the attribute values of a spectrum; an empty set
+	 * if the path is not in the catalog. */
+	synchronized Properties get(String path) {
+		Properties attrValues = new Properties();
+		Properties values = (Properties) entries.get(path);
+		if ( values != null )
+			attrValues.putAll(values);
+		return attrValues;
+	}
+
+	/** Gets an attribute value of a spectrum; null if not set. */
+	synchronized String getValue(String path, String attrName) {
+		Properties values = (Properties) entries.get(path);
+		return values == null ? null : values.getProperty(attrName);
+	}
+
+	/** Sets (a copy of) the attribute values of a spectrum, adding
+	 * the path if not in the catalog. */
+	synchronized void put(String path, Properties attrValues) {
+		Properties values = new Properties();
+		values.putAll(attrValues);
+		entries.put(path, values);
+		_modified();
+	}
+
+	/** Adds a path with no attribute values if not in the catalog.
+	 * @return true if the path was added. */
+	synchronized boolean add(String path) {
+		if ( entries.containsKey(path) )
+			return false;
+		entries.put(path, new Properties());
+		_modified();
+		return true;
+	}
+
+	/** @return true if the path was in the catalog. */
+	synchronized boolean remove(String path) {
+		if ( entries.remove(path) == null )
+			return false;
+		_modified();
+		return true;
+	}
+
+	/** @return true if the old path was in the catalog. */
+	synchronized boolean rename(String oldPath, String newPath) {
+		Properties values = (Properties) entries.remove(oldPath);
+		if ( values == null )
+			return false;
+		entries.put(newPath, values);
+		_modified();
+		return true;
+	}
+
+	/** Gets the paths in the catalog, in order. */
+	synchronized List getPaths() {
+		return new ArrayList(entries.keySet());
+	}
+
+	synchronized int size() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,442 @@
+package samscore.impl;
+
+import sfsys.ISfsys;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * A store that packs all signatures of a database in a single archive
+ * file, which is memory-mapped so signatures are decoded directly from
+ * the mapped buffer.
+ * <p>
+ * Files in the database directory:
+ * <ul>
+ *	<li> signatures.idx: index: path, offset and length of each signature
+ *		in the archive, and the generation of the archive.
+ *	<li> signatures.&lt;generation&gt;.pack: the archive, the signature
+ *		contents one after the other, sorted by path.
+ *	<li> signatures.jnl: journal of the modifications since the archive
+ *		was written. It is replayed when the store is opened and compacted
+ *		into a new archive generation by save() once it has grown beyond
+ *		a fraction of the archive size.
+ * </ul>
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+class PackedSignatureStore extends SignatureStore {
+	private static final byte[] INDEX_MAGIC = { 'S','A','M','S','P','I','D','X' };
+	private static final byte[] JOURNAL_MAGIC = { 'S','A','M','S','P','J','N','L' };
+	private static final int VERSION = 1;
+	private static final int JOURNAL_HEADER_SIZE = 8 + 4 + 8;
+
+	private static final String INDEX_FILENAME = "signatures.idx";
+	private static final String JOURNAL_FILENAME = "signatures.jnl";
+	private static final String PACK_PREFIX = "signatures.";
+	private static final String PACK_SUFFIX = ".pack";
+
+	/** The archive is mapped in segments of this size; no signature
+	 * crosses a segment boundary. */
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+	/** The journal is not compacted while smaller than this. */
+	private static final long MIN_COMPACT_SIZE = 4L << 20;
+
+	private static final byte OP_WRITE = 1;
+	private static final byte OP_DELETE = 2;
+	private static final byte OP_RENAME = 3;
+
+	/** Location of a signature in the archive or in the journal. */
+	private static final class Entry {
+		long offset;
+		int length;
+		boolean inJournal;
+
+		Entry(long offset, int length, boolean inJournal) {
+			this.offset = offset;
+			this.length = length;
+			this.inJournal = inJournal;
+		}
+	}
+
+	private File dir;
+	private long generation;
+	private MappedByteBuffer[] segments;
+	private long packSize;
+
+	/** Mapping: path -> Entry */
+	private Map entries;
+
+	/** Mapping: group path -> SortedSet of signature names */
+	private Map groups;
+
+	/** The journal; null until something is written. */
+	private RandomAccessFile journal;
+	private int journalRecords;
+
+	private ISfsys.IFileSource fileSource = new ISfsys.IFileSource() {
+		public List getFileNames(String path) {
+			synchronized ( PackedSignatureStore.this ) {
+				Set names = (Set) groups.get(path);
+				return names == null ? new ArrayList() : new ArrayList(names);
+			}
+		}
+	};
+
+	/** Opens the store kept in the given directory; it is empty if
+	 * the directory contains no store files. */
+	PackedSignatureStore(File dir) throws Exception {
+		this.dir = dir;
+		entries = new HashMap();
+		groups = new HashMap();
+		segments = new MappedByteBuffer[0];
+		_loadIndex();
+		_mapPack();
+		_deleteStalePacks();
+		_replayJournal();
+	}
+
+	String getName() {
+		return PACKED;
+	}
+
+	private File _getPackFile(long gen) {
+		return new File(dir, PACK_PREFIX + gen + PACK_SUFFIX);
+	}
+
+	private void _loadIndex() throws Exception {
+		File file = new File(dir, INDEX_FILENAME);
+		if ( !file.exists() )
+			return;
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			byte[] magic = new byte[INDEX_MAGIC.length];
+			in.readFully(magic);
+			if ( !Arrays.equals(magic, INDEX_MAGIC) )
+				throw new Exception(file+ ": Not a signature index");
+			int version = in.readInt();
+			if ( version != VERSION )
+				throw new Exception(file+ ": Unsupported version: " +version);
+			generation = in.readLong();
+			int count = in.readInt();
+			for ( int i = 0; i < count; i++ ) {
+				String path = in.readUTF();
+				long offset = in.readLong();
+				int length = in.readInt();
+				_put(path, new Entry(offset, length, false));
+			}
+		}
+		finally {
+			if ( in != null )
+				try{ in.close(); }catch ( Exception ex ){}
+		}
+	}
+
+	private void _mapPack() throws Exception {
+		File file = _getPackFile(generation);
+		if ( !file.exists() ) {
+			if ( entries.size() > 0 )
+				throw new Exception(file+ ": Signature archive not found");
+			segments = new MappedByteBuffer[0];
+			packSize = 0;
+			return;
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			packSize = channel.size();
+			int num_segments = (int) ((packSize + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+			segments = new MappedByteBuffer[num_segments];
+			for ( int i = 0; i < num_segments; i++ ) {
+				long start = (long) i << SEGMENT_BITS;
+				long size = Math.min(SEGMENT_SIZE, packSize - start);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+			}
+		}
+		finally {
+			// the mappings remain valid after closing:
+			try{ raf.close(); }catch ( Exception ex ){}
+		}
+	}
+
+	/** Removes archives left by an interrupted compaction, or that
+	 * could not be deleted while mapped. */
+	private void _deleteStalePacks() {
+		String current = _getPackFile(generation).getName();
+		File[] files = dir.listFiles();
+		for ( int i = 0; files != null && i < files.length; i++ ) {
+			String name = files[i].getName();
+			if ( name.startsWith(PACK_PREFIX) && name.endsWith(PACK_SUFFIX)
+			&&   !name.equals(current) )
+				files[i].delete();
+		}
+	}
+
+	private void _replayJournal() throws Exception {
+		File file = new File(dir, JOURNAL_FILENAME);
+		if ( !file.exists() )
+			return;
+		journal = new RandomAccessFile(file, "rw");
+		long good = 0;
+		try {
+			byte[] magic = new byte[JOURNAL_MAGIC.length];
+			journal.readFully(magic);
+			if ( !Arrays.equals(magic, JOURNAL_MAGIC) )
+				throw new Exception(file+ ": Not a signature journal");
+			int version = journal.readInt();
+			long gen = journal.readLong();
+			if ( version != VERSION || gen != generation ) {
+				// journal already compacted into the current archive
+				_resetJournal();
+				return;
+			}
+			good = journal.getFilePointer();
+			while ( good < journal.length() ) {
+				byte op = journal.readByte();
+				String path = journal.readUTF();
+				if ( op == OP_WRITE ) {
+					int length = journal.readInt();
+					long offset = journal.getFilePointer();
+					if ( offset + length > journal.length() )
+						break;  // incomplete record
+					journal.seek(offset + length);
+					_put(path, new Entry(offset, length, true));
+				}
+				else if ( op == OP_DELETE ) {
+					_remove(path);
+				}
+				else if ( op == OP_RENAME ) {
+					_rename(path, journal.readUTF());
+				}
+				else {
+					break;  // corrupted record
+				}
+				good = journal.getFilePointer();
+				journalRecords++;
+			}
+		}
+		catch ( EOFException ex ) {
+			// incomplete record
+		}
+		if ( good < JOURNAL_HEADER_SIZE )
+			_resetJournal();
+		else if ( good < journal.length() )
+			journal.setLength(good);   // discard incomplete record
+	}
+
+	private void _resetJournal() throws Exception {
+		if ( journal == null )
+			journal = new RandomAccessFile(new File(dir, JOURNAL_FILENAME), "rw");
+		journal.setLength(0);
+		journal.write(JOURNAL_MAGIC);
+		journal.writeInt(VERSION);
+		journal.writeLong(generation);
+		journalRecords = 0;
+	}
+
+	private static String _getGroupPath(String path) {
+		int idx = path.lastIndexOf('/');
+		return idx <= 0 ? "/" : path.substring(0, idx);
+	}
+
+	private void _put(String path, Entry entry) {
+		if ( entries.put(path, entry) == null ) {
+			String group_path = _getGroupPath(path);
+			Set names = (Set) groups.get(group_path);
+			if ( names == null ) {
+				names = new TreeSet();
+				groups.put(group_path, names);
+			}
+			names.add(path.substring(path.lastIndexOf('/') + 1));
+		}
+	}
+
+	private Entry _remove(String path) {
+		Entry entry = (Entry) entries.remove(path);
+		if ( entry != null ) {
+			String group_path = _getGroupPath(path);
+			Set names = (Set) groups.get(group_path);
+			names.remove(path.substring(path.lastIndexOf('/') + 1));
+			if ( names.size() == 0 )
+				groups.remove(group_path);
+		}
+		return entry;
+	}
+
+	private boolean _rename(String oldPath, String newPath) {
+		Entry entry = _remove(oldPath);
+		if ( entry == null )
+			return false;
+		_remove(newPath);
+		_put(newPath, entry);
+		return true;
+	}
+
+	/** Appends a record to the journal.
+	 * @return Offset of the contents in the journal. */
+	private long _append(byte op, String path, String newPath, byte[] contents)
+	throws Exception {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bos);
+		out.writeByte(op);
+		out.writeUTF(path);
+		if ( newPath != null )
+			out.writeUTF(newPath);
+		if ( contents != null ) {
+			out.writeInt(contents.length);
+			out.write(contents);
+		}
+		out.flush();
+		byte[] record = bos.toByteArray();
+
+		if ( journal == null )
+			_resetJournal();
+		long pos = journal.length();
+		journal.seek(pos);
+		journal.write(record);
+		journalRecords++;
+		return pos + record.length - (contents == null ? 0 : contents.length);
+	}
+
+	synchronized boolean exists(String path) {
+		return entries.containsKey(path);
+	}
+
+	synchronized ByteBuffer read(String path) throws Exception {
+		Entry entry = (Entry) entries.get(path);
+		if ( entry == null )
+			return null;
+		if ( entry.inJournal ) {
+			byte[] contents = new byte[entry.length];
+			journal.seek(entry.offset);
+			journal.readFully(contents);
+			return ByteBuffer.wrap(contents);
+		}
+		ByteBuffer bb = segments[(int) (entry.offset >>> SEGMENT_BITS)].duplicate();
+		int pos = (int) (entry.offset & (SEGMENT_SIZE - 1));
+		bb.limit(pos + entry.length);
+		bb.position(pos);
+		return bb.slice();
+	}
+
+	synchronized void write(String path, byte[] contents) throws Exception {
+		long offset = _append(OP_WRITE, path, null, contents);
+		_remove(path);
+		_put(path, new Entry(offset, contents.length, true));
+	}
+
+	synchronized void delete(String path) throws Exception {
+		if ( entries.containsKey(path) ) {
+			_append(OP_DELETE, path, null, null);
+			_remove(path);
+		}
+	}
+
+	synchronized void rename(String oldPath, String newPath) throws Exception {
+		if ( entries.containsKey(oldPath) ) {
+			_append(OP_RENAME, oldPath, newPath, null);
+			_rename(oldPath, newPath);
+		}
+	}
+
+	ISfsys.IFileSource getFileSource() {
+		return fileSource;
+	}
+
+	/** Compacts the journal if it has grown beyond a fraction of the
+	 * archive size. */
+	synchronized void save() throws Exception {
+		if ( journalRecords > 0
+		&&   journal.length() >= Math.max(MIN_COMPACT_SIZE, packSize / 4) )
+			compact();
+	}
+
+	/** Writes a new archive generation with all current signatures and
+	 * empties the journal. */
+	synchronized void compact() throws Exception {
+		long new_generation = generation + 1;
+		File new_pack = _getPackFile(new_generation);
+		List paths = new ArrayList(entries.keySet());
+		Collections.sort(paths);
+		long[] offsets = new long[paths.size()];
+		int[] lengths = new int[paths.size()];
+
+		FileOutputStream fos = new FileOutputStream(new_pack);
+		try {
+			FileChannel channel = fos.getChannel();
+			long pos = 0;
+			for ( int i = 0; i < paths.size(); i++ ) {
+				ByteBuffer bb = read((String) paths.get(i));
+				int length = bb.remaining();
+				long in_segment = pos & (SEGMENT_SIZE - 1);
+				if ( in_segment > 0 && in_segment + length > SEGMENT_SIZE )
+					pos += SEGMENT_SIZE - in_segment;   // start next segment
+				offsets[i] = pos;
+				lengths[i] = length;
+				while ( bb.hasRemaining() )
+					pos += channel.write(bb, pos);
+			}
+		}
+		finally {
+			try{ fos.close(); }catch ( Exception ex ){}
+		}
+
+		File index = new File(dir, INDEX_FILENAME);
+		File tmp = new File(dir, INDEX_FILENAME+ ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			out.write(INDEX_MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(new_generation);
+			out.writeInt(paths.size());
+			for ( int i = 0; i < paths.size(); i++ ) {
+				out.writeUTF((String) paths.get(i));
+				out.writeLong(offsets[i]);
+				out.writeInt(lengths[i]);
+			}
+		}
+		finally {
+			try{ out.close(); }catch ( Exception ex ){}
+		}
+		if ( !tmp.renameTo(index) ) {
+			// some platforms do not replace an existing file:
+			index.delete();
+			if ( !tmp.renameTo(index) )
+				throw new Exception("Cannot write signature index: " +index);
+		}
+
+		// from here, the new generation is the current one.
+		File old_pack = _getPackFile(generation);
+		generation = new_generation;
+		for ( int i = 0; i < paths.size(); i++ )
+			entries.put(paths.get(i), new Entry(offsets[i], lengths[i], false));
+		_resetJournal();
+		_mapPack();
+		if ( old_pack.exists() && !old_pack.delete() )
+			old_pack.deleteOnExit();   // still mapped
+	}
+
+	synchronized void remove(List paths) throws Exception {
+		if ( journal != null ) {
+			try{ journal.close(); }catch ( Exception ex ){}
+			journal = null;
+		}
+		entries.clear();
+		groups.clear();
+		segments = new MappedByteBuffer[0];
+		File[] files = {
+			new File(dir, INDEX_FILENAME),
+			new File(dir, JOURNAL_FILENAME),
+			_getPackFile(generation),
+		};
+		for ( int i = 0; i < files.length; i++ ) {
+			if ( files[i].exists() && !files[i].delete() )
+				files[i].deleteOnExit();   // still mapped
+		}
+	}
+}
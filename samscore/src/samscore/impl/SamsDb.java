@@ -9,6 +9,7 @@ import sfsys.Sfsys;
 import fileutils.Files;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /** 
@@ -18,7 +19,7 @@ import java.util.*;
  *	<li> Never use a path ending with '/'
  *	<li> Previous returned ISfsys.INode objects are not automatically updated
  *		after a modification (say, addSpectrum); you have to retrieve them
- *		again (e.g getGroupingBy) NOTE: TO BE REVISED	 
+ *		again (e.g getGroupingBy), or use registerGrouping.
  * </ul>
  * @author Carlos A. Rueda
  * @version $Id$ 
@@ -28,8 +29,13 @@ class SamsDb implements ISamsDb {
 	private static final String G_IMPORTED = "imported";
 	private static final String G_COMPUTED = "computed";
 	
+	private static final String PROP_SIGFORMAT = PROP_PREFIX+ ".sigformat";
+	private static final String PROP_SIGSTORE = PROP_PREFIX+ ".sigstore";
+	
 	private static final String infoFilename = "info.sams";
 	private static final String locationDirName = "location";
+	private static final String axesDirName = "axes";
+	private static final String catalogFilename = "metadata.idx";
 
 	/** Each signature file is given this path suffix. */
 	static final String SIG_SUFFIX = ".sig";
@@ -67,6 +73,29 @@ class SamsDb implements ISamsDb {
 	/** my associated clipboard. */
 	private Clipboard clipboard;
 	
+	private SignatureFormat textFormat;
+	private SignatureFormat binaryFormat;
+	
+	/** Format for signatures being written. */
+	private SignatureFormat sigFormat;
+	
+	/** Where signatures are kept. */
+	private SignatureStore sigStore;
+	
+	/** The spectra in this database and their attribute values. */
+	private MetadataCatalog catalog;
+	
+	/** Filesystem on the location directory, reused while the signature
+	 * store is the same, as it keeps the directory listings. */
+	private ISfsys locationSfsys;
+	private SignatureStore locationSfsysStore;
+	
+	/** Recently read signatures. */
+	private SignatureCache sigCache = new SignatureCache(SignatureCache.DEFAULT_CAPACITY);
+	
+	/** Listeners of changes, IChangeListener, including registered groupings. */
+	private List changeListeners = new ArrayList();
+	
 
 	private SamsDb(File baseDir, boolean create) throws Exception {
 		this.baseDir = baseDir;
@@ -74,6 +103,10 @@ class SamsDb implements ISamsDb {
 		infoProps = new Properties();
 		attrDefList = new ArrayList();	// basic metadata definition: 
 		mddef = new MetadataDef();
+		textFormat = new TextSignatureFormat();
+		binaryFormat = new BinarySignatureFormat(new AxisPool(new File(baseDir, axesDirName)));
+		sigFormat = textFormat;
+		catalog = new MetadataCatalog(new File(baseDir, catalogFilename));
 		
 		if ( create ) {
 			if ( !locationDir.mkdirs() )
@@ -83,6 +116,7 @@ class SamsDb implements ISamsDb {
 			new File(locationDir, G_COMPUTED).mkdirs();
 			
 			attrDefList.add(new AttributeDef("status", "good"));
+			sigStore = _createSignatureStore(null);
 			save();
 		}
 		else {
@@ -140,12 +174,45 @@ class SamsDb implements ISamsDb {
 		_setAttrDefPropsFromList();
 		File infoFile = new File(baseDir, infoFilename);
 		_storeProperties(infoFile, infoProps, "# SAMS Database properties. DO NOT EDIT!"); 
+		sigStore.save();
+		catalog.save();
 	}
 
 	private void load() throws Exception {
 		File infoFile = new File(baseDir, infoFilename);
 		_loadProperties(infoFile, infoProps);
 		_getAttrDefPropsToList();
+		sigFormat = _getSignatureFormat(infoProps.getProperty(PROP_SIGFORMAT));
+		sigStore = _createSignatureStore(infoProps.getProperty(PROP_SIGSTORE));
+		if ( !catalog.load() ) {
+			_rebuildCatalog();
+			catalog.save();
+		}
+	}
+	
+	/** Rebuilds the catalog from the signatures and .md files. */
+	private void _rebuildCatalog() throws Exception {
+		catalog.clear();
+		List paths = new ArrayList();
+		_populatePaths(paths, _getLocationSfsys().getRoot());
+		for ( Iterator it = paths.iterator(); it.hasNext(); ) {
+			String path = (String) it.next();
+			Properties attrValues = new Properties();
+			_loadSpectrumMetadata(path, attrValues);
+			catalog.put(path, attrValues);
+		}
+	}
+	
+	public void reindex() throws Exception {
+		sigCache.clear();   // files may have changed outside of this database
+		synchronized ( this ) {
+			locationSfsys = null;   // all directories listed again
+		}
+		_rebuildCatalog();
+		catalog.save();
+		IChangeListener[] lis = _getChangeListeners();
+		for ( int i = 0; i < lis.length; i++ )
+			lis[i].reindexed();
 	}
 
 	public String getInfo() {
@@ -154,7 +221,25 @@ class SamsDb implements ISamsDb {
 	
 	/** gets the grouping by getLocation()". */
 	private INode _getGroupingLocation() throws Exception {
-		return Sfsys.createDir(locationDir.getPath(), SIG_SUFFIX, true).getRoot();
+		return _getLocationSfsys().getRoot();
+	}
+	
+	/** Gets the filesystem reflecting the groups under the location
+	 * directory and the signatures in each group. */
+	private synchronized ISfsys _getLocationSfsys() throws Exception {
+		if ( locationSfsys == null || locationSfsysStore != sigStore ) {
+			locationSfsys = _createLocationSfsys();
+			locationSfsysStore = sigStore;
+		}
+		return locationSfsys;
+	}
+	
+	private ISfsys _createLocationSfsys() throws Exception {
+		ISfsys.IFileSource fileSource = sigStore.getFileSource();
+		if ( fileSource != null )
+			return Sfsys.createDir(locationDir.getPath(), fileSource);
+		else
+			return Sfsys.createDir(locationDir.getPath(), SIG_SUFFIX, true);
 	}
 	
 	public INode getGroupingUnderLocation(String subpath) throws Exception {
@@ -172,6 +257,35 @@ class SamsDb implements ISamsDb {
 		return dir;
 	}
 
+	public IGrouping registerGrouping(IOrder order) throws Exception {
+		Grouping grouping = new Grouping((Order) order);
+		// changes are held until the structure is complete:
+		synchronized ( grouping ) {
+			addChangeListener(grouping);
+			grouping._build();
+		}
+		return grouping;
+	}
+	
+	public void addChangeListener(IChangeListener lis) {
+		synchronized ( changeListeners ) {
+			if ( !changeListeners.contains(lis) )
+				changeListeners.add(lis);
+		}
+	}
+	
+	public void removeChangeListener(IChangeListener lis) {
+		synchronized ( changeListeners ) {
+			changeListeners.remove(lis);
+		}
+	}
+	
+	private IChangeListener[] _getChangeListeners() {
+		synchronized ( changeListeners ) {
+			return (IChangeListener[]) changeListeners.toArray(new IChangeListener[changeListeners.size()]);
+		}
+	}
+	
 	private INode _makeGroupingBy(String[] attrNames) throws Exception {
 		ISfsys fs = Sfsys.createMem();
 		for ( Iterator it = getAllPaths(); it.hasNext(); ) {
@@ -201,15 +315,7 @@ class SamsDb implements ISamsDb {
 	}
 	
 	public Iterator getAllPaths() {
-		List paths = new ArrayList();
-		try {
-			ISfsys fs = Sfsys.createDir(locationDir.getPath(), SIG_SUFFIX, true);
-			_populatePaths(paths, fs.getRoot());
-		}
-		catch(Exception ex) {
-			throw new Error("Unexpected exception: " +ex.getMessage());
-		}
-		return paths.iterator();
+		return catalog.getPaths().iterator();
 	}
 	
 	private void _populatePaths(List paths, INode dir) {
@@ -251,7 +357,7 @@ class SamsDb implements ISamsDb {
  
  		// second, order:
 		if ( orderBy != null )
-			Collections.sort(result, (Comparator) orderBy);
+			result = ((Order) orderBy).sort(result);
 
 		return result.iterator();
 	}
@@ -267,75 +373,174 @@ class SamsDb implements ISamsDb {
 	
 	public void deleteSpectrum(String path) throws Exception {
 		path = _normalizePath(path);
-		String[] exts = { SIG_SUFFIX, MD_SUFFIX };
-		for ( int i = 0; i < exts.length; i++ ) {
-			String ext = exts[i];
-			File file = new File(locationDir, path + ext);
-			if ( file.exists() )
-				file.delete();
+		try {
+			sigStore.delete(path);
+		}
+		finally {
+			sigCache.remove(path);
+		}
+		File file = new File(locationDir, path + MD_SUFFIX);
+		if ( file.exists() )
+			file.delete();
+		if ( catalog.remove(path) ) {
+			IChangeListener[] lis = _getChangeListeners();
+			for ( int i = 0; i < lis.length; i++ )
+				lis[i].spectrumRemoved(path);
 		}
 	}
 	
 	public Signature getSignature(String path) throws Exception {
-		File file = new File(locationDir, normalizePathSignature(path));
-		if ( !file.exists() )
+		String npath = _normalizePath(path);
+		Signature sig = sigCache.get(npath);
+		if ( sig != null )
+			return sig;
+		
+		// taken before reading, so contents replaced meanwhile are not cached:
+		long stamp = sigCache.getStamp();
+		ByteBuffer contents = sigStore.read(npath);
+		if ( contents == null )
 			throw new Exception(path+ ": Signature not found");
 
-		BufferedReader stream = null;
 		try {
-			stream = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
-			Signature sig = new Signature();
-			String line;
-			while ( (line = stream.readLine()) != null ) {
-				StringTokenizer st = new StringTokenizer(line, " ,\t");
-				try {
-					double x = Double.parseDouble(st.nextToken());
-					double y = Double.parseDouble(st.nextToken());
-					String info = null;
-					try {
-						info = st.nextToken();
-					}
-					catch ( NoSuchElementException ex ) {
-						// ignore
-					}
-					sig.addDatapoint(x, y, info);
-				}
-				catch ( NoSuchElementException ex ) {
-					// ignore
-				}
-			}
-			
-			return sig;
+			// recognize the format of each signature regardless of the current setting:
+			SignatureFormat format = binaryFormat.recognizes(contents) ? binaryFormat : textFormat;
+			sig = format.decode(contents);
 		}
 		catch ( Exception ex ) {
 			throw new Exception(ex.getClass().getName()+ " : " +ex.getMessage());
 		}
-		finally {
-			if ( stream != null )
-				try{ stream.close(); }catch ( Exception ex ){}
-		}
+		sigCache.put(npath, sig, stamp);
+		return sig;
 	}
 
 	public void setSignature(String path, Signature sig) throws Exception {
-		File file = new File(locationDir, normalizePathSignature(path));
-		File parent = file.getParentFile();
-		if ( !parent.exists() && !parent.mkdirs() )
-			throw new Exception("Cannot make directory for: " +file.getAbsolutePath());
-		PrintWriter stream = null;
+		path = _normalizePath(path);
+		// the group directory is needed whatever the store:
+		File parent = new File(locationDir, path).getParentFile();
+		// (mkdirs may fail because of a concurrent creation of the directory)
+		if ( !parent.exists() && !parent.mkdirs() && !parent.isDirectory() )
+			throw new Exception("Cannot make directory for: " +path);
+		boolean added;
 		try {
-			stream = new PrintWriter(new FileOutputStream(file));
-			int size = sig.getSize();
-			for ( int i = 0; i < size; i++ ) {
-				Signature.Datapoint p = sig.getDatapoint(i);
-				stream.print(p.x+ " , " +p.y);
-				if ( p.obj != null )
-					stream.print(" , " +p.obj);
-				stream.println();
-			}
+			sigStore.write(path, sigFormat.encode(sig));
+			added = catalog.add(path);
 		}
 		catch ( Exception ex ) {
 			throw new Exception(ex.getClass().getName()+ " : " +ex.getMessage());
 		}
+		finally {
+			// after the write, so a concurrent read of the old contents is not cached:
+			sigCache.remove(path);
+		}
+		if ( added ) {
+			IChangeListener[] lis = _getChangeListeners();
+			for ( int i = 0; i < lis.length; i++ )
+				lis[i].spectrumAdded(path);
+		}
+	}
+	
+	public String[] getSignatureFormatNames() {
+		return new String[] { textFormat.getName(), binaryFormat.getName() };
+	}
+	
+	public String getSignatureFormat() {
+		return sigFormat.getName();
+	}
+	
+	public void setSignatureFormat(String formatName) throws Exception {
+		sigFormat = _getSignatureFormat(formatName);
+		infoProps.setProperty(PROP_SIGFORMAT, sigFormat.getName());
+	}
+	
+	public void setSignatureCacheCapacity(long datapoints) {
+		sigCache.setCapacity(datapoints);
+	}
+	
+	public Properties getSignatureCacheStatistics() {
+		return sigCache.getStatistics();
+	}
+	
+	public String[] getSignatureStoreNames() {
+		return new String[] { SignatureStore.FILES, SignatureStore.PACKED };
+	}
+	
+	public String getSignatureStore() {
+		return sigStore.getName();
+	}
+	
+	public void setSignatureStore(String storeName) throws Exception {
+		if ( storeName.equals(sigStore.getName()) )
+			return;
+		SignatureStore newStore = _createSignatureStore(storeName);
+		List paths = new ArrayList();
+		for ( Iterator it = getAllPaths(); it.hasNext(); ) {
+			String path = (String) it.next();
+			ByteBuffer contents = sigStore.read(path);
+			byte[] bytes = new byte[contents.remaining()];
+			contents.get(bytes);
+			newStore.write(path, bytes);
+			paths.add(path);
+		}
+		if ( newStore instanceof PackedSignatureStore )
+			((PackedSignatureStore) newStore).compact();
+		newStore.save();
+		
+		SignatureStore oldStore = sigStore;
+		sigStore = newStore;
+		infoProps.setProperty(PROP_SIGSTORE, sigStore.getName());
+		save();
+		oldStore.remove(paths);
+	}
+	
+	private SignatureStore _createSignatureStore(String storeName) throws Exception {
+		if ( storeName == null || storeName.equals(SignatureStore.FILES) )
+			return new FileSignatureStore(locationDir);
+		else if ( storeName.equals(SignatureStore.PACKED) )
+			return new PackedSignatureStore(baseDir);
+		else
+			throw new Exception(storeName+ ": Unrecognized signature store");
+	}
+	
+	private SignatureFormat _getSignatureFormat(String formatName) throws Exception {
+		if ( formatName == null || formatName.equals(textFormat.getName()) )
+			return textFormat;
+		else if ( formatName.equals(binaryFormat.getName()) )
+			return binaryFormat;
+		else
+			throw new Exception(formatName+ ": Unrecognized signature format");
+	}
+	
+	/** Reads the complete contents of a file. */
+	static byte[] readFile(File file) throws Exception {
+		InputStream stream = null;
+		try {
+			stream = new FileInputStream(file);
+			long length = file.length();
+			if ( length > Integer.MAX_VALUE )
+				throw new Exception(file+ ": File too big");
+			byte[] contents = new byte[(int) length];
+			int offset = 0;
+			while ( offset < contents.length ) {
+				int read = stream.read(contents, offset, contents.length - offset);
+				if ( read < 0 )
+					throw new EOFException(file.getPath());
+				offset += read;
+			}
+			return contents;
+		}
+		finally {
+			if ( stream != null )
+				try{ stream.close(); }catch ( Exception ex ){}
+		}
+	}
+	
+	/** Writes the complete contents of a file. */
+	static void writeFile(File file, byte[] contents) throws Exception {
+		OutputStream stream = null;
+		try {
+			stream = new FileOutputStream(file);
+			stream.write(contents);
+		}
 		finally {
 			if ( stream != null )
 				try{ stream.close(); }catch ( Exception ex ){}
@@ -381,14 +586,24 @@ class SamsDb implements ISamsDb {
 	
 	private void _storeSpectrumMetadata(String path, Properties attrValues)
 	throws Exception {
-		File file = new File(locationDir, normalizePathMetadata(path));
+		path = _normalizePath(path);
+		boolean cataloged = catalog.contains(path);
+		if ( cataloged )
+			catalog.put(path, attrValues);
+		File file = new File(locationDir, path + MD_SUFFIX);
 		if ( attrValues.size() == 0 ) {
 			// no values to store.
 			if ( file.exists() )
 				file.delete();
-			return;
 		}
-		_storeProperties(file, attrValues, "#Signature metadata");
+		else
+			_storeProperties(file, attrValues, "#Signature metadata");
+		
+		if ( cataloged ) {
+			IChangeListener[] lis = _getChangeListeners();
+			for ( int i = 0; i < lis.length; i++ )
+				lis[i].attributesChanged(path);
+		}
 	}
 	
 	private boolean _loadSpectrumMetadata(String path, Properties attrValues)
@@ -403,15 +618,24 @@ class SamsDb implements ISamsDb {
 		if ( oldPath.equals(newPath) )
 			return null;   // no renaming neccesary.
 		
-		String[] exts = { SIG_SUFFIX, MD_SUFFIX };
-		for ( int i = 0; i < exts.length; i++ ) {
-			String ext = exts[i];
-			File oldfile = new File(locationDir, oldPath + ext);
-			if ( oldfile.exists() ) {
-				File newfile = new File(locationDir, newPath + ext);
-				if ( !oldfile.renameTo(newfile) )
-					throw new Exception("Cannot rename signature: " +oldfile+ " -> " +newfile);
-			}
+		try {
+			sigStore.rename(oldPath, newPath);
+		}
+		finally {
+			sigCache.remove(oldPath);
+			sigCache.remove(newPath);
+		}
+		boolean cataloged = catalog.rename(oldPath, newPath);
+		File oldfile = new File(locationDir, oldPath + MD_SUFFIX);
+		if ( oldfile.exists() ) {
+			File newfile = new File(locationDir, newPath + MD_SUFFIX);
+			if ( !oldfile.renameTo(newfile) )
+				throw new Exception("Cannot rename signature: " +oldfile+ " -> " +newfile);
+		}
+		if ( cataloged ) {
+			IChangeListener[] lis = _getChangeListeners();
+			for ( int i = 0; i < lis.length; i++ )
+				lis[i].spectrumMoved(oldPath, newPath);
 		}
 		return newPath;
 	}
@@ -428,8 +652,7 @@ class SamsDb implements ISamsDb {
 			int index = path.lastIndexOf("/") + 1;
 			location = path.substring(0, index);
 			name = path.substring(index);
-			attrValues = new Properties();
-			_loadSpectrumMetadata(path, attrValues);
+			attrValues = catalog.get(_normalizePath(path));
 		}
 		
 		public String getLocation() {
@@ -509,16 +732,13 @@ class SamsDb implements ISamsDb {
 			attrDefList.remove(attribute);
 			
 			// update all spectrum elements:
-			Properties attrValues = new Properties();
 			for ( Iterator it = getAllPaths(); it.hasNext(); ) {
 				String path = (String) it.next();
-				attrValues.clear();
 				try {
-					if ( _loadSpectrumMetadata(path, attrValues) ) {
-						if ( attrValues.getProperty(attrName) != null ) {
-							attrValues.remove(attrName);
-							_storeSpectrumMetadata(path, attrValues);
-						}
+					if ( catalog.getValue(path, attrName) != null ) {
+						Properties attrValues = catalog.get(path);
+						attrValues.remove(attrName);
+						_storeSpectrumMetadata(path, attrValues);
 					}
 				}
 				catch(Exception ex) {
@@ -723,12 +943,43 @@ class SamsDb implements ISamsDb {
 		}
 	}
 
+	/** Creates a compiler for expressions on the attributes of this database. */
+	private ExpressionCompiler _createCompiler() {
+		List names = new ArrayList();
+		names.add("name");
+		names.add("location");
+		for ( Iterator iter = attrDefList.iterator(); iter.hasNext(); ) {
+			IAttributeDef def = (IAttributeDef) iter.next();
+			names.add(def.getName());
+		}
+		return new ExpressionCompiler(names);
+	}
+	
+	/** Compiles an expression; null if not supported by the compiler,
+	 * in which case the interpreted Evaluator is to be used. */
+	private ExpressionCompiler.Expression _compile(String src) {
+		try {
+			return _createCompiler().compile(src);
+		}
+		catch(ExpressionCompiler.UnsupportedException ex) {
+			return null;
+		}
+	}
+
 	class Condition implements ICondition {
+		/** The compiled condition; null if interpreted. */
+		ExpressionCompiler.Expression compiled;
 		Evaluator evaluator;
 
 		Condition(String cond_text) throws Exception {
 			cond_text = cond_text.trim();
-			if ( cond_text.length() > 0 ) {
+			if ( cond_text.length() > 0 )
+				compiled = _compile(cond_text);
+			if ( compiled != null ) {
+				if ( ExpressionCompiler.BOOLEAN != compiled.getType() )
+					throw new Exception("Expression is not a valid condition");
+			}
+			else if ( cond_text.length() > 0 ) {
 				evaluator = new Evaluator();
 				Class type = evaluator.setSource(cond_text).getReturnType();
 				if ( Boolean.class != type )
@@ -737,11 +988,22 @@ class SamsDb implements ISamsDb {
 		}
 
 		public String toString() {
+			if ( compiled != null )
+				return compiled.toString();
 			return evaluator == null ? "true" : evaluator.toString();
 		}
 		
 		/** Determines if a spectrum satisfies this condition. */
 		boolean accepts(ISpectrum s) throws Exception {
+			if ( compiled != null ) {
+				try {
+					return compiled.evalBoolean(compiled.getValues(s));
+				}
+				catch(RuntimeException ex) {
+					System.err.println(ex.getMessage());
+					return false;
+				}
+			}
 			if ( evaluator == null )
 				return true;
 			Boolean bool = null;
@@ -761,8 +1023,11 @@ class SamsDb implements ISamsDb {
 	/** Implementation of IOrder. */
 	class Order implements IOrder, Comparator {
 		String src;
-		Evaluator evaluator1, evaluator2;
+		Evaluator evaluator1;
 		String[] orderByExpressions;  // the list of expressions
+		
+		/** The compiled expressions; null if interpreted. */
+		ExpressionCompiler.Expression[] compiled;
 
 		Order(String ord_text) throws Exception {
 			ord_text = ord_text.trim();
@@ -775,6 +1040,17 @@ class SamsDb implements ISamsDb {
 				for ( int i = 0; i < orderByExpressions.length; i++ )
 					src += orderByExpressions[i].trim()+ " : ";
 
+				compiled = new ExpressionCompiler.Expression[orderByExpressions.length];
+				for ( int i = 0; compiled != null && i < orderByExpressions.length; i++ ) {
+					compiled[i] = _compile(orderByExpressions[i]);
+					if ( compiled[i] == null )
+						compiled = null;
+					else if ( ExpressionCompiler.STRING != compiled[i].getType() )
+						throw new Exception(orderByExpressions[i]+ ": result type must be a string (" +compiled[i].getType()+ ")");
+				}
+				if ( compiled != null )
+					return;
+
 				evaluator1 = new Evaluator();
 				for ( int i = 0; i < orderByExpressions.length; i++ ) {
 					Class type = evaluator1.setSource(orderByExpressions[i]).getReturnType();
@@ -784,7 +1060,6 @@ class SamsDb implements ISamsDb {
 						throw new Exception(evaluator1.getSource()+ ": result type must be a string (" +type+ ")");
 					orderByExpressions[i] = evaluator1.getSource();
 				}
-				evaluator2 = new Evaluator();
 			}
 		}
 
@@ -792,41 +1067,88 @@ class SamsDb implements ISamsDb {
 			return src;
 		}
 		
-		public int compare(Object o1, Object o2) {
-			if ( orderByExpressions != null ) {
-				ISpectrum s1 = (ISpectrum) o1;
-				ISpectrum s2 = (ISpectrum) o2;
-				try {
-					evaluator1.bind(s1);
-					evaluator2.bind(s2);
-					for ( int i = 0; i < orderByExpressions.length; i++ ) {
-						String str1 = (String) evaluator1.setValidSource(orderByExpressions[i]).eval();
-						String str2 = (String) evaluator2.setValidSource(orderByExpressions[i]).eval();
-						int c = str1.compareTo(str2);
-						if ( c != 0 )
-							return c;
-					}
+		/** Gets the sort key of a spectrum: the value of each order
+		 * expression. */
+		String[] _getKey(ISpectrum s) throws Exception {
+			String[] key = new String[orderByExpressions.length];
+			if ( compiled != null ) {
+				for ( int i = 0; i < compiled.length; i++ )
+					key[i] = compiled[i].evalString(compiled[i].getValues(s));
+			}
+			else {
+				synchronized ( evaluator1 ) {
+					evaluator1.bind(s);
+					for ( int i = 0; i < orderByExpressions.length; i++ )
+						key[i] = (String) evaluator1.setValidSource(orderByExpressions[i]).eval();
 				}
-				catch(Exception ex) {
-					System.err.println("Order.compare error:" +ex.getMessage());
+			}
+			return key;
+		}
+		
+		/** Like _getKey, but a spectrum whose key cannot be evaluated
+		 * is given an empty key, after reporting the error. */
+		String[] _getSortKey(ISpectrum s) {
+			try {
+				String[] key = _getKey(s);
+				for ( int i = 0; i < key.length; i++ ) {
+					if ( key[i] == null )
+						key[i] = "";
 				}
+				return key;
+			}
+			catch(Exception ex) {
+				System.err.println("Order error: " +s.getPath()+ ": " +ex.getMessage());
+				String[] key = new String[orderByExpressions.length];
+				Arrays.fill(key, "");
+				return key;
 			}
-			return 0;
+		}
+		
+		/** Sorts a list of spectra according to this order.
+		 * Each expression is evaluated only once per spectrum; large lists
+		 * are processed in several threads. Returns a new list. */
+		List sort(List spectra) throws Exception {
+			if ( orderByExpressions == null )
+				return new ArrayList(spectra);
+			final ISpectrum[] elems = (ISpectrum[]) spectra.toArray(new ISpectrum[spectra.size()]);
+			final String[][] keys = new String[elems.length][];
+			KeySorter.RangeTask extraction = new KeySorter.RangeTask() {
+				public void run(int from, int to) {
+					for ( int i = from; i < to; i++ )
+						keys[i] = _getSortKey(elems[i]);
+				}
+			};
+			if ( compiled != null )
+				KeySorter.forEachRange(elems.length, extraction);
+			else
+				extraction.run(0, elems.length);   // interpreter is not reentrant
+			
+			int[] perm = KeySorter.sort(keys);
+			List result = new ArrayList(elems.length);
+			for ( int i = 0; i < perm.length; i++ )
+				result.add(elems[perm[i]]);
+			return result;
+		}
+		
+		/** Compares two spectra. Note that sort() is much more efficient
+		 * than using this comparator for sorting. */
+		public int compare(Object o1, Object o2) {
+			if ( orderByExpressions == null )
+				return 0;
+			return KeySorter.compare(_getSortKey((ISpectrum) o1), _getSortKey((ISpectrum) o2));
 		}
 		
 		public INode getGroupingBy() throws Exception {
 			ISfsys fs = Sfsys.createMem();
 			for ( Iterator it = getAllPaths(); it.hasNext(); ) {
 				String path = (String) it.next();
-				ISpectrum s = getSpectrum(path);
-				evaluator1.bind(s);
+				String[] key = _getKey(getSpectrum(path));
 				ISfsys.INode base = fs.getRoot();
-				for ( int i = 0; i < orderByExpressions.length; i++ ) {
-					String str = (String) evaluator1.setValidSource(orderByExpressions[i]).eval();
+				for ( int i = 0; i < key.length; i++ ) {
 					String attrVal;
 					// assign attrVal depending on type:
 					if ( true )  // true: only string is supported now
-						attrVal = "'" +str+ "'";
+						attrVal = "'" +key[i]+ "'";
 					//else other types... PENDING FEATURE
 					
 					ISfsys.INode val_dir = base.getChild(attrVal);
@@ -841,6 +1163,162 @@ class SamsDb implements ISamsDb {
 	
 	}
 
+	/** Implementation of IGrouping. */
+	class Grouping implements IGrouping, IChangeListener {
+		Order order;
+		ISfsys fs;
+		
+		/** Mapping: path -> String[] group names */
+		Map members;
+		
+		/** IGrouping.IListener's */
+		List listeners = new ArrayList();
+		
+		Grouping(Order order) throws Exception {
+			this.order = order;
+			fs = Sfsys.createMem();
+		}
+		
+		public IOrder getOrder() {
+			return order;
+		}
+		
+		public synchronized INode getRoot() {
+			return fs.getRoot();
+		}
+		
+		public synchronized String[] getGroupNames(String path) {
+			String[] groupNames = (String[]) members.get(path);
+			return groupNames == null ? null : (String[]) groupNames.clone();
+		}
+		
+		public void addListener(IListener lis) {
+			synchronized ( listeners ) {
+				if ( !listeners.contains(lis) )
+					listeners.add(lis);
+			}
+		}
+		
+		public void removeListener(IListener lis) {
+			synchronized ( listeners ) {
+				listeners.remove(lis);
+			}
+		}
+		
+		private IListener[] _getListeners() {
+			synchronized ( listeners ) {
+				return (IListener[]) listeners.toArray(new IListener[listeners.size()]);
+			}
+		}
+		
+		public void unregister() {
+			removeChangeListener(this);
+		}
+		
+		/** (Re)builds the structure from all elements.
+		 * The root node is preserved. */
+		synchronized void _build() {
+			INode root = fs.getRoot();
+			INode[] children = (INode[]) root.getChildren().toArray(new INode[0]);
+			for ( int i = 0; i < children.length; i++ )
+				root.removeChild(children[i].getName());
+			members = new HashMap();
+			for ( Iterator it = getAllPaths(); it.hasNext(); ) {
+				String path = (String) it.next();
+				String[] groupNames = _getGroupNames(path);
+				if ( groupNames != null )
+					_add(path, groupNames);
+			}
+		}
+		
+		/** Gets the names of the groups for an element; null if its key
+		 * cannot be evaluated. */
+		private String[] _getGroupNames(String path) {
+			if ( order.orderByExpressions == null )
+				return new String[0];
+			try {
+				String[] key = order._getKey(getSpectrum(path));
+				for ( int i = 0; i < key.length; i++ )
+					key[i] = "'" +key[i]+ "'";
+				return key;
+			}
+			catch(Exception ex) {
+				System.err.println("Grouping error: " +path+ ": " +ex.getMessage());
+				return null;
+			}
+		}
+		
+		private void _add(String path, String[] groupNames) {
+			INode base = fs.getRoot();
+			for ( int i = 0; i < groupNames.length; i++ ) {
+				INode val_dir = base.getChild(groupNames[i]);
+				if ( val_dir == null )
+					val_dir = base.createDirectory(groupNames[i]);
+				base = val_dir;
+			}
+			base.createFile(path);
+			members.put(path, groupNames);
+		}
+		
+		private void _remove(String path, String[] groupNames) {
+			members.remove(path);
+			INode[] dirs = new INode[groupNames.length + 1];
+			dirs[0] = fs.getRoot();
+			for ( int i = 0; i < groupNames.length; i++ )
+				dirs[i+1] = dirs[i].getChild(groupNames[i]);
+			dirs[groupNames.length].removeChild(path);
+			// remove groups left empty:
+			for ( int i = groupNames.length; i > 0 && dirs[i].getChildren().size() == 0; i-- )
+				dirs[i-1].removeChild(groupNames[i-1]);
+		}
+		
+		/** Updates the group of an element, possibly renamed.
+		 * @param oldPath Path before the change; null if new.
+		 * @param newPath Path after the change; null if removed. */
+		private synchronized void _update(String oldPath, String newPath) {
+			String[] oldNames = oldPath == null ? null : (String[]) members.get(oldPath);
+			String[] newNames = newPath == null ? null : _getGroupNames(newPath);
+			if ( oldNames != null && newNames != null
+			&&   oldPath.equals(newPath) && Arrays.equals(oldNames, newNames) )
+				return;  // group not changed.
+			
+			IListener[] lis = _getListeners();
+			if ( oldNames != null ) {
+				_remove(oldPath, oldNames);
+				for ( int i = 0; i < lis.length; i++ )
+					lis[i].elementRemoved(this, oldNames, oldPath);
+			}
+			if ( newNames != null ) {
+				_add(newPath, newNames);
+				for ( int i = 0; i < lis.length; i++ )
+					lis[i].elementAdded(this, newNames, newPath);
+			}
+		}
+		
+		public void spectrumAdded(String path) {
+			_update(path, path);
+		}
+		
+		public void spectrumRemoved(String path) {
+			_update(path, null);
+		}
+		
+		public void spectrumMoved(String oldPath, String newPath) {
+			_update(oldPath, newPath);
+		}
+		
+		public void attributesChanged(String path) {
+			_update(path, path);
+		}
+		
+		public synchronized void reindexed() {
+			_build();
+			IListener[] lis = _getListeners();
+			for ( int i = 0; i < lis.length; i++ )
+				lis[i].groupingReset(this);
+		}
+	}
+	
 	public IClipboard getClipboard() {
 		return clipboard;
 	}
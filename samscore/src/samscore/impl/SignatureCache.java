@@ -0,0 +1,110 @@
+package samscore.impl;
+
+import sig.Signature;
+
+import java.util.*;
+
+/**
+ * Cache of decoded signatures, keyed by normalized path, with the least
+ * recently used ones evicted when the total number of datapoints would
+ * exceed the capacity.
+ * <p>
+ * Signatures are copied in and out, so callers may freely modify the
+ * signatures they put or get. A signature read from the store is only
+ * put if no entry was removed since the read started (see getStamp), so a
+ * concurrent write is never shadowed by the old contents.
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+class SignatureCache {
+	/** Default capacity, in datapoints: a few hundred full-range spectra. */
+	static final long DEFAULT_CAPACITY = 2000000;
+
+	private long capacity;
+
+	/** Mapping: String path -> Signature, in access order. */
+	private LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+
+	/** Datapoints in the cached signatures. */
+	private long datapoints;
+
+	/** Incremented each time an entry is removed. */
+	private long stamp;
+
+	private long hits;
+	private long misses;
+
+	/** Creates a cache with the given capacity in datapoints. */
+	SignatureCache(long capacity) {
+		this.capacity = capacity;
+	}
+
+	/** Gets a copy of a cached signature; null if not in the cache. */
+	synchronized Signature get(String path) {
+		Signature sig = (Signature) entries.get(path);
+		if ( sig == null ) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return (Signature) sig.clone();
+	}
+
+	/** Gets the current stamp, to be given to put. */
+	synchronized long getStamp() {
+		return stamp;
+	}
+
+	/**
+	 * Puts a copy of a signature, if it fits and no entry has been removed
+	 * since the stamp was obtained.
+	 */
+	synchronized void put(String path, Signature sig, long stamp) {
+		if ( stamp != this.stamp || sig.getSize() > capacity )
+			return;
+		Signature old = (Signature) entries.put(path, sig.clone());
+		if ( old != null )
+			datapoints -= old.getSize();
+		datapoints += sig.getSize();
+		_evict();
+	}
+
+	/** Removes the signature of a path, if cached. */
+	synchronized void remove(String path) {
+		Signature old = (Signature) entries.remove(path);
+		if ( old != null )
+			datapoints -= old.getSize();
+		stamp++;
+	}
+
+	/** Removes all signatures. */
+	synchronized void clear() {
+		entries.clear();
+		datapoints = 0;
+		stamp++;
+	}
+
+	/** Sets the capacity in datapoints, evicting as needed; 0 disables the cache. */
+	synchronized void setCapacity(long capacity) {
+		this.capacity = Math.max(0, capacity);
+		_evict();
+	}
+
+	/** Gets: capacity, datapoints, entries, hits, misses. */
+	synchronized Properties getStatistics() {
+		Properties props = new Properties();
+		props.setProperty("capacity", String.valueOf(capacity));
+		props.setProperty("datapoints", String.valueOf(datapoints));
+		props.setProperty("entries", String.valueOf(entries.size()));
+		props.setProperty("hits", String.valueOf(hits));
+		props.setProperty("misses", String.valueOf(misses));
+		return props;
+	}
+
+	private void _evict() {
+		for ( Iterator it = entries.values().iterator(); datapoints > capacity && it.hasNext(); ) {
+			datapoints -= ((Signature) it.next()).getSize();
+			it.remove();
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package samscore.impl;
+
+import sig.Signature;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encoding of the signature files in a SAMS database.
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+abstract class SignatureFormat {
+	/** Name of the text format: one "x , y [, info]" line per point. */
+	static final String TEXT = "text";
+
+	/** Name of the binary format. See BinarySignatureFormat. */
+	static final String BINARY = "binary";
+
+	/** Gets the name of this format. */
+	abstract String getName();
+
+	/** Tells if the given contents are in this format.
+	 * The position of the buffer is not changed. */
+	abstract boolean recognizes(ByteBuffer contents);
+
+	/** Decodes a signature from the contents of a signature file, which
+	 * are the remaining bytes of the buffer. The position of the buffer
+	 * is not changed. */
+	abstract Signature decode(ByteBuffer contents) throws Exception;
+
+	/** Encodes a signature as the complete contents of a signature file. */
+	abstract byte[] encode(Signature sig) throws Exception;
+
+	public String toString() {
+		return getName();
+	}
+}
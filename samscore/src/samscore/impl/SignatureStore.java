@@ -0,0 +1,52 @@
+package samscore.impl;
+
+import sfsys.ISfsys;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Storage of the encoded signatures of a database.
+ * All paths given to a store are normalized paths without suffix.
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+abstract class SignatureStore {
+	/** Name of the store keeping one signature file per spectrum. */
+	static final String FILES = "files";
+
+	/** Name of the store keeping all signatures in a single archive.
+	 * See PackedSignatureStore. */
+	static final String PACKED = "packed";
+
+	/** Gets the name of this store. */
+	abstract String getName();
+
+	/** Tells if there is a signature stored under the given path. */
+	abstract boolean exists(String path);
+
+	/** Gets the contents stored under a path; null if not found.
+	 * The returned buffer may be a read-only view on the store. */
+	abstract ByteBuffer read(String path) throws Exception;
+
+	/** Stores the contents under a path, replacing any previous contents. */
+	abstract void write(String path, byte[] contents) throws Exception;
+
+	/** Removes a signature; nothing is done if not found. */
+	abstract void delete(String path) throws Exception;
+
+	/** Moves a signature to a new path. */
+	abstract void rename(String oldPath, String newPath) throws Exception;
+
+	/** Gets the source for the names of the signatures in each group;
+	 * null if these are given by the signature files under the
+	 * location directory. */
+	abstract ISfsys.IFileSource getFileSource();
+
+	/** Makes the current contents persistent. */
+	abstract void save() throws Exception;
+
+	/** Removes this store from disk, including the given signatures,
+	 * which are all the signatures in the store. */
+	abstract void remove(List paths) throws Exception;
+}
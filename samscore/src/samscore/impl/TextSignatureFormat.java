@@ -0,0 +1,68 @@
+package samscore.impl;
+
+import sig.Signature;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * The original text format for signature files: each point
+ * is written in a line "x , y [, info]".
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+class TextSignatureFormat extends SignatureFormat {
+	private static final String EOL = System.getProperty("line.separator");
+
+	String getName() {
+		return TEXT;
+	}
+
+	/** Any contents not recognized by other format is taken as text. */
+	boolean recognizes(ByteBuffer contents) {
+		return true;
+	}
+
+	Signature decode(ByteBuffer contents) throws Exception {
+		byte[] bytes = new byte[contents.remaining()];
+		contents.duplicate().get(bytes);
+		BufferedReader stream = new BufferedReader(new InputStreamReader(
+			new ByteArrayInputStream(bytes))
+		);
+		Signature sig = new Signature();
+		String line;
+		while ( (line = stream.readLine()) != null ) {
+			StringTokenizer st = new StringTokenizer(line, " ,\t");
+			try {
+				double x = Double.parseDouble(st.nextToken());
+				double y = Double.parseDouble(st.nextToken());
+				String info = null;
+				try {
+					info = st.nextToken();
+				}
+				catch ( NoSuchElementException ex ) {
+					// ignore
+				}
+				sig.addDatapoint(x, y, info);
+			}
+			catch ( NoSuchElementException ex ) {
+				// ignore
+			}
+		}
+		return sig;
+	}
+
+	byte[] encode(Signature sig) throws Exception {
+		int size = sig.getSize();
+		StringBuffer sb = new StringBuffer(size * 32);
+		for ( int i = 0; i < size; i++ ) {
+			sb.append(sig.getX(i)).append(" , ").append(sig.getY(i));
+			Object obj = sig.getObject(i);
+			if ( obj != null )
+				sb.append(" , ").append(obj);
+			sb.append(EOL);
+		}
+		return sb.toString().getBytes();
+	}
+}
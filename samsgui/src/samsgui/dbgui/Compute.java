@@ -7,6 +7,8 @@ import samsgui.BaseDialog;
 
 import samscore.ISamsDb;
 import samscore.ISamsDb.ISpectrum;
+import samscore.ISamsDb.IClipboard;
+import samscore.BatchOperation;
 import samscore.Sams;
 import sig.Signature;
 import sigoper.*;
@@ -247,12 +249,8 @@ public class Compute {
 							progressBar.setString(null); //display % string
 
 							try {	
-								Signature[] sigs = getSignatures();
-								
 								// a)
-								task_message.append("\nComputing...");
-								progressBar.setValue(progressBar.getMaximum() -2);
-								Signature sig = sigOper.operate(sigs);
+								Signature sig = compute();
 								String path = grp_loc+ "/" +resultname;
 								
 								// b)
@@ -301,20 +299,42 @@ public class Compute {
 			form.setVisible(true);
 		}
 		
+		/** Computes the result. If the operation allows it, the signatures
+		  * are passed one at a time, so they are not all kept in memory. */
+		Signature compute() throws Exception {
+			if ( !(sigOper instanceof IStreamingMultiSignatureOperation) ) {
+				Signature[] sigs = getSignatures();
+				task_message.append("\nComputing...");
+				progressBar.setValue(progressBar.getMaximum() -2);
+				return sigOper.operate(sigs);
+			}
+			
+			IStreamingMultiSignatureOperation.IAccumulator acc =
+				((IStreamingMultiSignatureOperation) sigOper).createAccumulator();
+			for ( int i = 0; i < spectraPaths.size(); i++ )
+				acc.add(getSignature(i));
+			task_message.append("\nComputing...");
+			progressBar.setValue(progressBar.getMaximum() -2);
+			return acc.getResult();
+		}
+		
 		Signature[] getSignatures() throws Exception {
 			Signature[] sigs = new Signature[spectraPaths.size()];
-			for ( int i = 0; i < spectraPaths.size(); i++ ) {
-				String path = (String) spectraPaths.get(i);
-				task_message.append("processing " +path+ "\n");
-				progressBar.setValue(i+1);
-				Signature sig = dbgui.getDatabase().getSignature(path);
-				if ( sig.getUserObject() == null )
-					sig.setUserObject(path.substring(path.lastIndexOf('/') + 1));
-				sigs[i] = sig;
-			}
+			for ( int i = 0; i < spectraPaths.size(); i++ )
+				sigs[i] = getSignature(i);
 			return sigs;
 		}
 		
+		Signature getSignature(int i) throws Exception {
+			String path = (String) spectraPaths.get(i);
+			task_message.append("processing " +path+ "\n");
+			progressBar.setValue(i+1);
+			Signature sig = dbgui.getDatabase().getSignature(path);
+			if ( sig.getUserObject() == null )
+				sig.setUserObject(path.substring(path.lastIndexOf('/') + 1));
+			return sig;
+		}
+		
 	}
 	
 	class SingleForm extends BaseForm {
@@ -412,6 +432,14 @@ public class Compute {
 				
 				int successful;
 				
+				/** Set when the dialog is closed, to stop the task. */
+				volatile boolean cancelled;
+				
+				public void close() {
+					cancelled = true;
+					super.close();
+				}
+				
 				public boolean preAccept() {
 					if ( task_isDone )
 						return true;
@@ -435,7 +463,6 @@ public class Compute {
 								public void run() {
 									f_resultname.setEditable(false);
 									btnAccept.setEnabled(false);
-									btnCancel.setEnabled(false);
 									progressBar.setEnabled(true);
 									taskOutput.setEnabled(true);
 								}
@@ -446,33 +473,26 @@ public class Compute {
 							progressBar.setString(null); //display % string
 
 							try {	
-								for ( int i = 0; i < spectraPaths.size(); i++ ) {
-									String path = (String) spectraPaths.get(i);
-									task_message.append("processing " +path+ "\n");
-									progressBar.setValue(i+1);
-									Signature sig = dbgui.getDatabase().getSignature(path);
-									Signature sig_res;
-									if ( sigOper instanceof IBinarySignatureOperation )
-										sig_res = ((IBinarySignatureOperation) sigOper).operate(sig, reference_sig);
-									else
-										sig_res = ((ISingleSignatureOperation) sigOper).operate(sig);
-									
-									if ( r_create.isSelected() ) {
-										String prefix = path.substring(path.lastIndexOf('/') + 1);
-										String resultname = f_resultname.getText();
-										String grp_loc = (String) cb_targetGroup.getSelectedItem();
-										MyNode grp_node = dbgui.getTree().findLocationNode(grp_loc, false);
-										String path_res = grp_loc+ "/" + prefix + resultname;
-										
-										task_message.append("Adding result " +path_res+ "\n");
-										path_res = db.addSpectrum(path_res, sig_res);
-										ISpectrum s = db.getSpectrum(path_res);
-										dbgui.getTree().addChild(grp_node, s.getName(), true, false);
+								BatchOperation batch = new BatchOperation(db, sigOper, spectraPaths);
+								batch.setReference(reference_sig);
+								if ( r_create.isSelected() ) {
+									String grp_loc = (String) cb_targetGroup.getSelectedItem();
+									batch.setNewSpectra(f_resultname.getText(), grp_loc);
+								}
+								batch.setObserver(new IClipboard.IObserver() {
+									public void startTask(int total) {}
+									public boolean elementFinished(int index, String path, boolean isSpectrum) {
+										task_message.append("processed " +path+ "\n");
+										progressBar.setValue(index);
+										if ( r_create.isSelected() )
+											dbgui.getTree().insertNode(path, isSpectrum);
+										return cancelled;
 									}
-									else {
-										db.setSignature(path, sig_res);
+									public void endTask(int processed) {
+										task_message.append(processed+ " signature(s) processed\n");
 									}
-								}
+								});
+								batch.execute();
 
 								// update GUI
 								Controller.doUpdate(new Runnable() {
@@ -315,10 +315,8 @@ public class Plot extends JPanel {
 		ptplot.addLegend(currentDataset, legend);
 		selected.put(legend, new Integer(currentDataset));
 		int size = sig.getSize();
-		Signature.Datapoint point;
 		for ( int i = 0; i < size; i++ ) {
-			point = sig.getDatapoint(i);
-			ptplot.addPoint(currentDataset, point.x, point.y, true);
+			ptplot.addPoint(currentDataset, sig.getX(i), sig.getY(i), true);
 		}
 		currentDataset++;
 		
@@ -81,16 +81,16 @@ public abstract class SignatureTable extends JPanel {
 		}
 	
 		public Object getValueAt(int row, int col) {
-			Signature.Datapoint dp = sig.getDatapoint(row);
 			String val = "??";
 			if ( col == 0 )
 				val = String.valueOf(row+1);
 			else if ( col == 1 )
-				val = String.valueOf(dp.x);
+				val = String.valueOf(sig.getX(row));
 			else if ( col == 2 )
-				val = String.valueOf(dp.y);
+				val = String.valueOf(sig.getY(row));
 			else if ( col == 3 ) {
-				val = dp.obj == null ? "" : ((String) dp.obj);
+				Object obj = sig.getObject(row);
+				val = obj == null ? "" : ((String) obj);
 			}
 			return val;
 		}
@@ -100,14 +100,13 @@ public abstract class SignatureTable extends JPanel {
 		}
 	
 		public void setValueAt(Object val, int row, int col) {
-			Signature.Datapoint dp = sig.getDatapoint(row);
 			if ( 1 <= col && col <= 2 ) {
 				try {
 					double d = Double.parseDouble((String) val);
 					if ( col == 1 )
-						dp.x = d;
+						sig.setX(row, d);
 					else if ( col == 2 )
-						dp.y = d;
+						sig.setY(row, d);
 				}
 				catch(NumberFormatException ex) {
 					return; // ignore
@@ -117,7 +116,7 @@ public abstract class SignatureTable extends JPanel {
 				String info = ((String) val).trim();
 				if ( info.length() == 0 )
 					info = null;
-				dp.obj = info;
+				sig.setObject(row, info);
 			}
 			modified();
 		}
@@ -41,6 +41,9 @@ public class Tree extends JPanel {
 	protected DefaultTreeCellRenderer tcr;
 	protected MyNode focusedNode = null;	
 	
+	/** Mapping: grouping node -> IGrouping maintained by the database. */
+	protected Map groupings = new HashMap();
+	
 	public Tree(DbGui dbgui) {
 		super(new BorderLayout());
 		this.dbgui = dbgui;
@@ -93,6 +96,14 @@ public class Tree extends JPanel {
 	}
 	
 	public void resetInfo() {
+		// live groupings belong to the previous database:
+		for ( int i = rootNode.getChildCount() - 1; i >= 0; i-- ) {
+			MyNode gby_node = (MyNode) rootNode.getChildAt(i);
+			if ( gby_node != locationNode ) {
+				_unregisterGrouping(gby_node);
+				rootNode.remove(i);
+			}
+		}
 		locationNode.removeAllChildren();
 		ISamsDb db = dbgui.getDatabase();
 		if ( db != null ) {
@@ -106,7 +117,9 @@ public class Tree extends JPanel {
 		treeModel.reload();
 	}		
 		
-	/** Refreshes all non-location groupings. */
+	/** Refreshes all non-location groupings.
+	 * Note that these are already updated as the database changes; this
+	 * just rebuilds the nodes from the groupings kept by the database. */
 	public void updateReadOnlyGroupings() {
 		ISamsDb db = dbgui.getDatabase();
 		if ( db == null )
@@ -115,17 +128,18 @@ public class Tree extends JPanel {
 		for ( int i = 0; i < rootNode.getChildCount(); i++ ) {
 			MyNode gby_node = (MyNode) rootNode.getChildAt(i);
 			if ( !gby_node.getName().equals("location:") ) {
-				gby_node.removeAllChildren();
 				try {
-					IOrder orderBy = db.createOrder(gby_node.getName());
-					createGroupNode(gby_node, orderBy.getGroupingBy());
+					IGrouping grouping = (IGrouping) groupings.get(gby_node);
+					if ( grouping == null )
+						_registerGrouping(gby_node, db.createOrder(gby_node.getName()));
+					else
+						_resetGroupingNode(gby_node, grouping);
 				}
 				catch(Exception ex) {
 					ex.printStackTrace();  // shouldn't happen
 				}
 			}
 		}
-		treeModel.reload();
 	}		
 	
 	public void updateReadOnlyGroupingBy(IOrder groupBy) {
@@ -148,13 +162,9 @@ public class Tree extends JPanel {
 			treeModel.insertNodeInto(gby_node, rootNode, rootNode.getChildCount());
 			gby_node.setParent(rootNode);
 		}
-		else {
-			gby_node.removeAllChildren();
-			treeModel.reload();
-		}
 		
 		try {
-			createGroupNode(gby_node, groupBy.getGroupingBy());
+			_registerGrouping(gby_node, groupBy);
 		}
 		catch(Exception ex) {
 			ex.printStackTrace();  // shouldn't happen
@@ -166,6 +176,33 @@ public class Tree extends JPanel {
 		}
 	}		
 	
+	/** Associates a grouping node with a new live grouping in the database. */
+	private void _registerGrouping(MyNode gby_node, IOrder groupBy) throws Exception {
+		_unregisterGrouping(gby_node);
+		IGrouping grouping = dbgui.getDatabase().registerGrouping(groupBy);
+		// changes are held while the listener is set up:
+		synchronized ( grouping ) {
+			grouping.addListener(new GroupingUpdater(gby_node));
+			groupings.put(gby_node, grouping);
+			_resetGroupingNode(gby_node, grouping);
+		}
+	}
+	
+	private void _unregisterGrouping(MyNode gby_node) {
+		IGrouping grouping = (IGrouping) groupings.remove(gby_node);
+		if ( grouping != null )
+			grouping.unregister();
+	}
+	
+	/** Rebuilds the children of a grouping node. */
+	private void _resetGroupingNode(MyNode gby_node, IGrouping grouping) {
+		gby_node.removeAllChildren();
+		synchronized ( grouping ) {
+			createGroupNode(gby_node, grouping.getRoot());
+		}
+		treeModel.nodeStructureChanged(gby_node);
+	}
+	
 	/** gets the paths to groups under location, including "/" */	
 	public List getLocationGroups() {
 		List loc_groups = new ArrayList();
@@ -261,6 +298,7 @@ public class Tree extends JPanel {
 	
 	/** Unconditionally removes a node. */
 	public void removeNode(MyNode node) {
+		_unregisterGrouping(node);
 		treeModel.removeNodeFromParent(node);
 	}
 	
@@ -395,6 +433,66 @@ public class Tree extends JPanel {
 		jtree.scrollPathToVisible(new TreePath(node.getPath()));
 	}
 
+	/** Applies the changes in a grouping to its node.
+	 * Changes are notified in the thread modifying the database, so they
+	 * are applied in the event dispatching thread, in the same order. */
+	class GroupingUpdater implements IGrouping.IListener {
+		MyNode gby_node;
+		
+		GroupingUpdater(MyNode gby_node) {
+			this.gby_node = gby_node;
+		}
+		
+		/** tells if the grouping is still associated to the node. */
+		private boolean _isCurrent(IGrouping grouping) {
+			return groupings.get(gby_node) == grouping;
+		}
+		
+		public void elementAdded(final IGrouping grouping, final String[] groupNames, final String path) {
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					if ( !_isCurrent(grouping) )
+						return;
+					MyNode parent = gby_node;
+					for ( int i = 0; i < groupNames.length; i++ )
+						parent = addChild(parent, groupNames[i], false, false);
+					addChild(parent, path, true, false);
+				}
+			});
+		}
+		
+		public void elementRemoved(final IGrouping grouping, final String[] groupNames, final String path) {
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					if ( !_isCurrent(grouping) )
+						return;
+					MyNode[] nodes = new MyNode[groupNames.length + 1];
+					nodes[0] = gby_node;
+					for ( int i = 0; i < groupNames.length; i++ ) {
+						nodes[i+1] = findChildNode(nodes[i], groupNames[i], false);
+						if ( nodes[i+1] == null )
+							return;
+					}
+					MyNode node = findChildNode(nodes[groupNames.length], path, true);
+					if ( node != null )
+						treeModel.removeNodeFromParent(node);
+					// remove groups left empty:
+					for ( int i = groupNames.length; i > 0 && nodes[i].getChildCount() == 0; i-- )
+						treeModel.removeNodeFromParent(nodes[i]);
+				}
+			});
+		}
+		
+		public void groupingReset(final IGrouping grouping) {
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					if ( _isCurrent(grouping) )
+						_resetGroupingNode(gby_node, grouping);
+				}
+			});
+		}
+	}
+
 	class MyRenderer extends DefaultTreeCellRenderer  {
 		Font normalFont = null;
 		Font boldFont = null;
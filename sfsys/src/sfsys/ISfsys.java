@@ -41,6 +41,10 @@ public interface ISfsys {
 		
 		/** Optional operation */
 		public INode createLink(String name, String path);
+		
+		/** Optional operation: removes a child.
+		 * @return the removed node; null if there is no such child. */
+		public INode removeChild(String name);
 
 		// when isFile:
 		public void setObject(Object obj);
@@ -55,5 +59,13 @@ public interface ISfsys {
 	public interface IVisitor {
 		public Object visit(INode n, Object obj);
 	}
+	
+	/** Provides the names of the files in a directory-based filesystem
+	 * when these are not given by the actual files in the directories. */
+	public interface IFileSource {
+		/** Gets the names of the files in a directory; never null.
+		 * @param path Path of the directory, "/" for the root. */
+		public java.util.List getFileNames(String path);
+	}
 }
 
@@ -16,6 +16,13 @@ public class Sfsys {
 		return sfsys.impl.DirSfsys.createSfsys(dirname, fileExt, hideFileExt);
 	}
 
+	/** Creates a directory-based fs with root in that directory, whose
+	 * directories are the actual subdirectories but whose files are
+	 * given by the source. */
+	public static ISfsys createDir(String dirname, ISfsys.IFileSource fileSource) throws Exception {
+		return sfsys.impl.DirSfsys.createSfsys(dirname, fileSource);
+	}
+
 	/** Creates an empty memory-based ISfsys. */
 	public static ISfsys createMem() throws Exception {
 		return sfsys.impl.MemSfsys.createSfsys();
@@ -8,13 +8,38 @@ import java.io.*;
 /**
  * An implementation of a filesystem that reflects the structure
  * of an underlying physical directory.
+ * <p>
+ * The listing of each directory is kept, and reused while the
+ * modification time of the directory does not change, so a long-lived
+ * instance does not read the whole tree again on each traversal. As the
+ * resolution of modification times may be coarse, a listing is only
+ * reused if it was taken some time after the last modification.
+ * Files given by an IFileSource are always asked to the source.
+ * Nodes are kept and reused while they are present.
  * @author Carlos A. Rueda
  * @version $Id$
  */
 public class DirSfsys implements ISfsys {
+	/** A listing is reused only if taken at least this long (ms) after
+	 * the last modification of the directory. */
+	static final long MTIME_RESOLUTION = 2000;
+	
+	/** Directories first, then by name. */
+	static final Comparator NODE_ORDER = new Comparator() {
+		public int compare(Object o1, Object o2){
+			INode n1 = (INode) o1;
+			INode n2 = (INode) o2;
+			if ( n1.isFile() ^ n2.isFile() )
+				return n1.isFile() ? 1 : -1;
+			else
+				return n1.getName().compareTo(n2.getName());
+		}
+	};
+	
 	File basedir;
 	String fileExt;
 	boolean hideFileExt;
+	IFileSource fileSource;
 	INode root;
 	NodeMan nodeMan;
 	
@@ -45,6 +70,12 @@ public class DirSfsys implements ISfsys {
 		return new DirSfsys(dirname, fileExt, hideFileExt);
     }
 
+    public static ISfsys createSfsys(String dirname, IFileSource fileSource) throws Exception {
+		DirSfsys fs = new DirSfsys(dirname, null, false);
+		fs.fileSource = fileSource;
+		return fs;
+    }
+
     public void save(String filename) throws java.io.IOException {
 		throw new UnsupportedOperationException();
 	}
@@ -54,7 +85,10 @@ public class DirSfsys implements ISfsys {
 		Map dirs = new HashMap();
 		Map files = new HashMap();
 		
-		INode getDirectory(String path) {
+		/** Mapping: directory path -> Listing */
+		Map listings = new HashMap();
+		
+		synchronized INode getDirectory(String path) {
 			path = normalizePath(path);
 			INode dir = (INode) dirs.get(path);
 			if ( dir == null ) {
@@ -64,7 +98,7 @@ public class DirSfsys implements ISfsys {
 			return dir;
 		}
 
-		INode getFile(String path) {
+		synchronized INode getFile(String path) {
 			path = normalizePath(path);
 			INode file = (INode) files.get(path);
 			if ( file == null ) {
@@ -74,6 +108,91 @@ public class DirSfsys implements ISfsys {
 			return file;
 		}
 
+		/**
+		 * Gets the listing of a directory, reading it again only if the
+		 * directory has been modified since the kept one was taken. Nodes
+		 * no longer present are forgotten.
+		 */
+		synchronized Listing getListing(NDirectory dir) {
+			String path = dir.getPath();
+			File absfile = dir.getAbsoluteFile();
+			long mtime = absfile.lastModified();
+			Listing listing = (Listing) listings.get(path);
+			if ( listing != null && mtime != 0 && mtime == listing.mtime
+			&&   listing.listed - listing.mtime >= MTIME_RESOLUTION )
+				return listing;
+			
+			Listing new_listing = new Listing(dir, absfile, mtime);
+			listings.put(path, new_listing);
+			if ( listing != null ) {
+				for ( Iterator iter = listing.byName.values().iterator(); iter.hasNext(); ) {
+					INode node = (INode) iter.next();
+					if ( new_listing.byName.get(node.getName()) != node )
+						_forget(node);
+				}
+			}
+			return new_listing;
+		}
+		
+		private void _forget(INode node) {
+			String path = node.getPath();
+			if ( node.isDirectory() ) {
+				dirs.remove(path);
+				Listing listing = (Listing) listings.remove(path);
+				if ( listing != null ) {
+					for ( Iterator iter = listing.byName.values().iterator(); iter.hasNext(); )
+						_forget((INode) iter.next());
+				}
+			}
+			else
+				files.remove(path);
+		}
+		
+		/** The contents of a directory at some point. */
+		final class Listing {
+			/** Modification time of the directory when listed. */
+			final long mtime;
+			
+			/** When listed. */
+			final long listed;
+			
+			/** Subdirectories, then files (none if fileSource), sorted by name. */
+			final INode[] children;
+			
+			/** Mapping: name -> node; a directory hides a file with the same name. */
+			final Map byName = new HashMap();
+			
+			Listing(NDirectory dir, File absfile, long mtime) {
+				this.mtime = mtime;
+				listed = System.currentTimeMillis();
+				List list = new ArrayList();
+				File[] a = absfile.listFiles();
+				if ( a == null )
+					System.err.println("unable to get list for " +absfile);
+				else {
+					for ( int i = 0; i < a.length; i++ ) {
+						File f = a[i];
+						String subpath = dir.getPath()+ "/" +f.getName();
+						// one check per entry; with a file source, only
+						// directories are taken:
+						if ( f.isDirectory() )
+							list.add(getDirectory(subpath));
+						else if ( fileSource == null ) {
+							if ( fileExt == null || f.getName().endsWith(fileExt) ) {
+								if ( hideFileExt )
+									subpath = subpath.substring(0, subpath.length() - fileExt.length());
+								list.add(getFile(subpath));
+							}
+						}
+					}
+				}
+				children = (INode[]) list.toArray(new INode[list.size()]);
+				Arrays.sort(children, NODE_ORDER);
+				for ( int i = children.length - 1; i >= 0; i-- )
+					byName.put(children[i].getName(), children[i]);
+			}
+		}
+		
 		abstract class Node implements INode {
 			private String path;
 			
@@ -145,6 +264,9 @@ public class DirSfsys implements ISfsys {
 			public INode createLink(String name, String path) {
 				throw new UnsupportedOperationException();
 			}
+			public INode removeChild(String name) {
+				throw new UnsupportedOperationException();
+			}
 			public void setObject(Object obj) {
 				throw new UnsupportedOperationException();
 			}
@@ -190,39 +312,17 @@ public class DirSfsys implements ISfsys {
 			}
 			
 			public List getChildren() {
-				File absfile = getAbsoluteFile();
-				List children = new ArrayList();
-				File[] a = absfile.listFiles();
-				if ( a == null ) {
-					System.err.println("unable to get list for " +absfile);
-					return children;
-				}
-				for ( int i = 0; i < a.length; i++ ) {
-					File f = a[i];
-					String subpath = getPath()+ "/" +f.getName();
-					if ( f.isDirectory() ) {
-						INode dir = getDirectory(subpath);
-						children.add(dir);
-					}
-					else if ( f.isFile() ) {
-						if ( fileExt == null || f.getName().endsWith(fileExt) ) {
-							if ( hideFileExt )
-								subpath = subpath.substring(0, subpath.length() - fileExt.length());
-							INode file = getFile(subpath);
-							children.add(file);
-						}
+				INode[] listed = getListing(this).children;
+				List children = new ArrayList(Arrays.asList(listed));
+				if ( fileSource != null ) {
+					List files = new ArrayList();
+					for ( Iterator iter = fileSource.getFileNames(getPath()).iterator(); iter.hasNext(); ) {
+						String name = (String) iter.next();
+						files.add(getFile(getPath()+ "/" +name));
 					}
+					Collections.sort(files, NODE_ORDER);
+					children.addAll(files);
 				}
-				Collections.sort(children, new Comparator() {
-					public int compare(Object o1, Object o2){
-						INode n1 = (INode) o1;
-						INode n2 = (INode) o2;
-						if ( n1.isFile() ^ n2.isFile() )
-							return n1.isFile() ? 1 : -1;
-						else
-							return n1.getName().compareTo(n2.getName());
-					}
-				});
 				return children;
 			}
 	
@@ -232,16 +332,31 @@ public class DirSfsys implements ISfsys {
 			
 			
 			public INode getChild(String name) {
-				for ( Iterator iter = getChildren().iterator(); iter.hasNext(); ) {
-					INode node = (INode) iter.next();
-					if ( name.equals(node.getName()) )
-						return node;
-				}
-				return null;
+				INode node = (INode) getListing(this).byName.get(name);
+				if ( node == null && fileSource != null
+				&&   fileSource.getFileNames(getPath()).contains(name) )
+					node = getFile(getPath()+ "/" +name);
+				return node;
 			}
 	
+			/** Finds a node through the kept listings, one lookup per path
+			 * element; if not found this way (say, because of "." or ".."
+			 * elements, or a different letter case), through the file
+			 * system. */
 			public INode findNode(String path) {
 				path = normalizePath(path);
+				INode node = path.startsWith("/") ? getRoot() : this;
+				for ( StringTokenizer st = new StringTokenizer(path, "/"); node != null && st.hasMoreTokens(); ) {
+					String name = st.nextToken();
+					if ( name.equals(".") || name.equals("..") || !node.isDirectory() )
+						node = null;
+					else
+						node = node.getChild(name);
+				}
+				return node != null ? node : _findFile(path);
+			}
+	
+			private INode _findFile(String path) {
 				INode from = this;
 				if ( path.startsWith("/") )
 					from = getRoot();
@@ -250,8 +365,15 @@ public class DirSfsys implements ISfsys {
 				path = from.getPath()+ "/" +path;
 				path = path.replaceAll("/+", "/");
 				File file = new File(basedir, path);
-				if ( !file.exists() )
+				if ( !file.exists() ) {
+					if ( fileSource != null ) {
+						int idx = path.lastIndexOf('/');
+						String parent_path = idx == 0 ? "/" : path.substring(0, idx);
+						if ( fileSource.getFileNames(parent_path).contains(path.substring(idx + 1)) )
+							return getFile(path);
+					}
 					return null;
+				}
 				
 				try {
 					file = file.getCanonicalFile();
@@ -296,10 +418,7 @@ public class DirSfsys implements ISfsys {
 	
 	/** Normalizes a path, that is, replaces "\\" and ":" for "/". */
 	static String normalizePath(String path) {
-		path = path.replace('\\', '/');
-		path = path.replace(':', '/');
-		path = path.replaceAll("/+", "/");
-		return path;
+		return MemSfsys.normalizePath(path);
 	}
 }
 
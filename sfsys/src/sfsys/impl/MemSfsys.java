@@ -86,7 +86,10 @@ public class MemSfsys implements ISfsys {
 		}
 		
 		public void setName(String name) {
+			String oldName = this.name;
 			this.name = name;
+			if ( parent instanceof NDirectory && !name.equals(oldName) )
+				((NDirectory) parent).reindex();
 		}
 	
 		public String getName() {
@@ -126,6 +129,9 @@ public class MemSfsys implements ISfsys {
 		public INode createLink(String name, String path) {
 			throw new UnsupportedOperationException();
 		}
+		public INode removeChild(String name) {
+			throw new UnsupportedOperationException();
+		}
 		public void setObject(Object obj) {
 			throw new UnsupportedOperationException();
 		}
@@ -141,11 +147,19 @@ public class MemSfsys implements ISfsys {
 	}	
 	
 	class NDirectory extends Node {
+		/** The children in insertion order. */
 		private List children;
 		
+		/** Mapping: name -> first child with that name, for getChild. */
+		private Map index;
+		
+		/** Whether two children have ever had the same name. */
+		private boolean duplicates;
+		
 		NDirectory(String name) {
 			super(name);
 			children = new ArrayList();
+			index = new HashMap();
 		}
 	
 		public boolean isDirectory() {
@@ -155,8 +169,22 @@ public class MemSfsys implements ISfsys {
 		private INode add(INode node) {
 			children.add(node);
 			((Node) node).setParent(this);
+			if ( index.containsKey(node.getName()) )
+				duplicates = true;   // the first one is kept
+			else
+				index.put(node.getName(), node);
 			return node;
 		}
+		
+		/** Rebuilds the index from the children. */
+		void reindex() {
+			index.clear();
+			for ( int i = children.size() - 1; i >= 0; i-- ) {
+				INode node = (INode) children.get(i);
+				if ( index.put(node.getName(), node) != null )
+					duplicates = true;
+			}
+		}
 
 		public INode createDirectory(String name) {
 			return add(new NDirectory(name));
@@ -170,7 +198,20 @@ public class MemSfsys implements ISfsys {
 			path = normalizePath(path);
 			return add(new NLink(name, path));
 		}
+		
+		public INode removeChild(String name) {
+			INode node = (INode) index.remove(name);
+			if ( node != null ) {
+				children.remove(node);
+				((Node) node).setParent(null);
+				if ( duplicates )
+					reindex();   // so another child with the name is found
+			}
+			return node;
+		}
 	
+		/** Gets the children in insertion order. The list must not be
+		 * modified directly; use the create and remove methods. */
 		public List getChildren() {
 			return children;
 		}
@@ -184,37 +225,30 @@ public class MemSfsys implements ISfsys {
 		}
 		
 		public INode getChild(String name) {
-			for ( Iterator iter = children.iterator(); iter.hasNext(); ) {
-				INode node = (INode) iter.next();
-				if ( name.equals(node.getName()) )
-					return node;
-			}
-			return null;
+			return (INode) index.get(name);
 		}
 		
 		public INode findNode(String path) {
 			path = normalizePath(path);
-			INode from = this;
-			if ( path.startsWith("/") )
-				from = getRoot();
-			
-			path = path.replaceAll("^/+", "");
-			path = path.replaceAll("/+$", "") + "/";
-			String[] apath = path.split("/+");
-			INode dir = from;
-			INode node = dir;
-			for ( int i = 0; i < apath.length; i++ ) {
-				node = dir.getChild(apath[i]);
+			INode node = path.startsWith("/") ? getRoot() : this;
+			// one lookup per path element:
+			int len = path.length();
+			int start = 0;
+			while ( true ) {
+				while ( start < len && path.charAt(start) == '/' )
+					start++;
+				if ( start == len )
+					return node;
+				int end = path.indexOf('/', start);
+				if ( end < 0 )
+					end = len;
+				if ( !node.isDirectory() )
+					return null;
+				node = node.getChild(path.substring(start, end));
 				if ( node == null )
 					return null;
-				
-				if ( i < apath.length - 1 ) {
-					if ( !node.isDirectory() )
-						return null;
-					dir = node;
-				}
+				start = end;
 			}
-			return node;
 		}
 			
 	}	
@@ -367,12 +401,26 @@ public class MemSfsys implements ISfsys {
 		}
 	}
 	
-	/** Normalizes a path, that is, replaces "\\" and ":" for "/". */
+	/** Normalizes a path, that is, replaces "\\" and ":" for "/",
+	 * and each sequence of "/" for a single one. */
 	static String normalizePath(String path) {
-		path = path.replace('\\', '/');
-		path = path.replace(':', '/');
-		path = path.replaceAll("/+", "/");
-		return path;
+		StringBuffer sb = null;
+		int len = path.length();
+		for ( int i = 0; i < len; i++ ) {
+			char ch = path.charAt(i);
+			if ( ch == '\\' || ch == ':' )
+				ch = '/';
+			boolean skip = ch == '/' && i > 0 && _isSeparator(path.charAt(i - 1));
+			if ( sb == null && (skip || ch != path.charAt(i)) )
+				sb = new StringBuffer(len).append(path.substring(0, i));
+			if ( sb != null && !skip )
+				sb.append(ch);
+		}
+		return sb == null ? path : sb.toString();
+	}
+	
+	private static boolean _isSeparator(char ch) {
+		return ch == '/' || ch == '\\' || ch == ':';
 	}
 }
 
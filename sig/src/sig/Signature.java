@@ -2,26 +2,60 @@ package sig;
 
 import java.util.*;
 
-/** 
+/**
  * A signature is a collection of datapoints.
+ * <p>
+ * Abscissas and ordinates are kept in growable primitive arrays;
+ * per-point client objects are kept in a side array that is only
+ * allocated when some point is actually given an object.
+ * The Datapoint based methods are kept for compatibility; new code
+ * should preferably use the primitive accessors.
  * @author Carlos A. Rueda
- * @version $Id$ 
+ * @version $Id$
  */
 public final class Signature {
-	private List datapoints;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private double[] xs;
+	private double[] ys;
+	/** Per-point client objects; null while no point has an object. */
+	private Object[] objs;
+	private int size;
 	private Object obj;
 
+	/** Layout of the abscissas; see getLayout. */
+	private volatile int layout = LAYOUT_UNKNOWN;
+	/** Step of the abscissas, if the layout is LAYOUT_UNIFORM. */
+	private double step;
+
+	private static final int LAYOUT_UNKNOWN = 0;
+	private static final int LAYOUT_UNSORTED = 1;
+	private static final int LAYOUT_SORTED = 2;
+	private static final int LAYOUT_UNIFORM = 3;
+
+	/** Relative tolerance to consider a step uniform. */
+	private static final double UNIFORM_TOLERANCE = 1.0e-9;
+
+	/** Creates an empty signature with a given initial capacity.*/
+	public Signature(Object obj, int capacity) {
+		this.obj = obj;
+		if ( capacity < 1 )
+			capacity = 1;
+		xs = new double[capacity];
+		ys = new double[capacity];
+		size = 0;
+	}
+
 	/** Creates an empty signature.*/
 	public Signature(Object obj) {
-		this.obj = obj;
-		datapoints = new ArrayList();
+		this(obj, INITIAL_CAPACITY);
 	}
 
 	/** Creates an empty signature.*/
 	public Signature() {
 		this(null);
 	}
-	
+
 	/** Gets the client object of this signature. */
 	public Object getUserObject() {
 		return obj;
@@ -32,35 +66,203 @@ public final class Signature {
 		this.obj = obj;
 	}
 
-	/** Adds a datapoint.*/
+	private void ensureCapacity(int capacity) {
+		if ( capacity <= xs.length )
+			return;
+		int new_capacity = Math.max(capacity, xs.length * 2);
+		double[] new_xs = new double[new_capacity];
+		double[] new_ys = new double[new_capacity];
+		System.arraycopy(xs, 0, new_xs, 0, size);
+		System.arraycopy(ys, 0, new_ys, 0, size);
+		xs = new_xs;
+		ys = new_ys;
+		if ( objs != null ) {
+			Object[] new_objs = new Object[new_capacity];
+			System.arraycopy(objs, 0, new_objs, 0, size);
+			objs = new_objs;
+		}
+	}
+
+	private void checkIndex(int index) {
+		if ( index < 0 || index >= size )
+			throw new IndexOutOfBoundsException("Index: " +index+ ", Size: " +size);
+	}
+
+	/** Adds a datapoint.
+	 * The returned object is a copy; use setDatapoint to modify the point.
+	 */
 	public Datapoint addDatapoint(double x, double y, Object obj) {
-		Datapoint p = new Datapoint(x, y, obj);
-		datapoints.add(p);
-		return p;
+		add(x, y, obj);
+		return new Datapoint(x, y, obj);
 	}
-	/** Adds a datapoint.*/
+	/** Adds a datapoint.
+	 * The returned object is a copy; use setDatapoint to modify the point.
+	 */
 	public Datapoint addDatapoint(double x, double y) {
 		return addDatapoint(x, y, null);
 	}
 
+	private void add(double x, double y, Object obj) {
+		layout = LAYOUT_UNKNOWN;
+		ensureCapacity(size + 1);
+		xs[size] = x;
+		ys[size] = y;
+		if ( obj != null ) {
+			if ( objs == null )
+				objs = new Object[xs.length];
+			objs[size] = obj;
+		}
+		size++;
+	}
+
 	/** Gets the number of datapoints in this signature. */
 	public int getSize() {
-		return datapoints.size();
+		return size;
 	}
 
-	/** Gets a datapoint in this signature. */
+	/** Gets a datapoint in this signature.
+	 * The returned object is a copy of the point; changes to it
+	 * are not reflected in this signature. See setDatapoint.
+	 */
 	public Datapoint getDatapoint(int index) {
-		return (Datapoint) datapoints.get(index);
+		checkIndex(index);
+		return new Datapoint(xs[index], ys[index], objs == null ? null : objs[index]);
+	}
+
+	/** Gets the abscissa of a point in this signature. */
+	public double getX(int index) {
+		checkIndex(index);
+		return xs[index];
+	}
+
+	/** Gets the ordinate of a point in this signature. */
+	public double getY(int index) {
+		checkIndex(index);
+		return ys[index];
+	}
+
+	/** Gets the client object of a point in this signature. */
+	public Object getObject(int index) {
+		checkIndex(index);
+		return objs == null ? null : objs[index];
+	}
+
+	/** Sets the abscissa and ordinate of a point in this signature. */
+	public void setDatapoint(int index, double x, double y) {
+		checkIndex(index);
+		layout = LAYOUT_UNKNOWN;
+		xs[index] = x;
+		ys[index] = y;
+	}
+
+	/** Sets the abscissa of a point in this signature. */
+	public void setX(int index, double x) {
+		checkIndex(index);
+		layout = LAYOUT_UNKNOWN;
+		xs[index] = x;
+	}
+
+	/** Sets the ordinate of a point in this signature. */
+	public void setY(int index, double y) {
+		checkIndex(index);
+		ys[index] = y;
+	}
+
+	/** Sets the client object of a point in this signature. */
+	public void setObject(int index, Object obj) {
+		checkIndex(index);
+		if ( objs == null ) {
+			if ( obj == null )
+				return;
+			objs = new Object[xs.length];
+		}
+		objs[index] = obj;
+	}
+
+	/** Tells if the abscissas are in ascending order (equal consecutive
+	 * values allowed) and none of them is NaN.
+	 * The result is kept until the abscissas are changed.
+	 */
+	public boolean isSorted() {
+		return getLayout() >= LAYOUT_SORTED;
+	}
+
+	/** Tells if the abscissas are sorted and uniformly spaced, that is,
+	 * x(i) = x(0) + i * getStep(), with getStep() &gt; 0 and at least two
+	 * points. The result is kept until the abscissas are changed.
+	 */
+	public boolean isUniform() {
+		return getLayout() == LAYOUT_UNIFORM;
+	}
+
+	/** Gets the step between consecutive abscissas if isUniform();
+	 * NaN otherwise. */
+	public double getStep() {
+		return getLayout() == LAYOUT_UNIFORM ? step : Double.NaN;
+	}
+
+	private int getLayout() {
+		int l = layout;
+		if ( l == LAYOUT_UNKNOWN ) {
+			l = computeLayout();
+			layout = l;    // step, if any, was set before
+		}
+		return l;
+	}
+
+	private int computeLayout() {
+		for ( int i = 0; i < size; i++ ) {
+			if ( Double.isNaN(xs[i]) || i > 0 && xs[i - 1] > xs[i] )
+				return LAYOUT_UNSORTED;
+		}
+		if ( size < 2 )
+			return LAYOUT_SORTED;
+		double s = (xs[size - 1] - xs[0]) / (size - 1);
+		if ( !(s > 0) || Double.isInfinite(s) )
+			return LAYOUT_SORTED;
+		double tolerance = UNIFORM_TOLERANCE * Math.max(s, Math.abs(xs[0]));
+		for ( int i = 1; i < size - 1; i++ ) {
+			if ( Math.abs(xs[i] - (xs[0] + i * s)) > tolerance )
+				return LAYOUT_SORTED;
+		}
+		step = s;
+		return LAYOUT_UNIFORM;
+	}
+
+	/** Gets a copy of the abscissas in this signature. */
+	public double[] getXs() {
+		double[] a = new double[size];
+		System.arraycopy(xs, 0, a, 0, size);
+		return a;
+	}
+
+	/** Gets a copy of the ordinates in this signature. */
+	public double[] getYs() {
+		double[] a = new double[size];
+		System.arraycopy(ys, 0, a, 0, size);
+		return a;
+	}
+
+	/** Copies the abscissas in this signature into the given array,
+	 * which must have at least getSize() elements. */
+	public void copyXsInto(double[] a) {
+		System.arraycopy(xs, 0, a, 0, size);
+	}
+
+	/** Copies the ordinates in this signature into the given array,
+	 * which must have at least getSize() elements. */
+	public void copyYsInto(double[] a) {
+		System.arraycopy(ys, 0, a, 0, size);
 	}
 
 	/** A point in a signature.*/
 	public static final class Datapoint implements Comparable {
 		/** The abscissa value. */
 		public double x;
-	
+
 		/** The ordinate value.*/
 		public double y;
-	
+
 		/** A client object. */
 		public Object obj;
 
@@ -70,12 +272,12 @@ public final class Signature {
 			this.y = y;
 			this.obj = obj;
 		}
-		
+
 		/** Creates a point. */
 		public Datapoint(double x, double y) {
 			this(x, y, null);
 		}
-		
+
 		public int compareTo(Object o) {
 			Datapoint other = (Datapoint) o;
 			return new Double(this.x).compareTo(new Double(other.x));
@@ -83,18 +285,81 @@ public final class Signature {
 	}
 
 	/** Sorts points such that abscissas are in ascending order.
+	 * The sort is stable.
 	 */
 	public void sort() {
-		Collections.sort(datapoints);
+		int i = 1;
+		while ( i < size && Double.compare(xs[i - 1], xs[i]) <= 0 )
+			i++;
+		if ( i >= size )
+			return;   // already sorted
+
+		int[] perm = new int[size];
+		for ( int k = 0; k < size; k++ )
+			perm[k] = k;
+		mergeSort((int[]) perm.clone(), perm, 0, size);
+
+		double[] new_xs = new double[xs.length];
+		double[] new_ys = new double[ys.length];
+		Object[] new_objs = objs == null ? null : new Object[objs.length];
+		for ( int k = 0; k < size; k++ ) {
+			int p = perm[k];
+			new_xs[k] = xs[p];
+			new_ys[k] = ys[p];
+			if ( new_objs != null )
+				new_objs[k] = objs[p];
+		}
+		xs = new_xs;
+		ys = new_ys;
+		objs = new_objs;
+		layout = LAYOUT_UNKNOWN;
+	}
+
+	/** Stable merge sort of dest[low,high) by abscissa; src is a copy of dest. */
+	private void mergeSort(int[] src, int[] dest, int low, int high) {
+		int length = high - low;
+		if ( length < 7 ) {
+			// insertion sort on smallest arrays
+			for ( int i = low; i < high; i++ ) {
+				for ( int j = i; j > low && Double.compare(xs[dest[j-1]], xs[dest[j]]) > 0; j-- ) {
+					int t = dest[j];
+					dest[j] = dest[j-1];
+					dest[j-1] = t;
+				}
+			}
+			return;
+		}
+		int mid = (low + high) >>> 1;
+		mergeSort(dest, src, low, mid);
+		mergeSort(dest, src, mid, high);
+
+		if ( Double.compare(xs[src[mid-1]], xs[src[mid]]) <= 0 ) {
+			System.arraycopy(src, low, dest, low, length);
+			return;
+		}
+		for ( int i = low, p = low, q = mid; i < high; i++ ) {
+			if ( q >= high || p < mid && Double.compare(xs[src[p]], xs[src[q]]) <= 0 )
+				dest[i] = src[p++];
+			else
+				dest[i] = src[q++];
+		}
 	}
 
-	/** Gets a complete clone of this signature. */
+	/** Gets a complete clone of this signature: points, their client
+	 * objects, the client object of the signature, and the layout if
+	 * already known. */
 	public Object clone() {
-		Signature sig = new Signature();
-		for (int i = 0; i < getSize(); i++) {
-			Datapoint dp = getDatapoint(i);
-			sig.addDatapoint(dp.x, dp.y);
+		Signature sig = new Signature(obj, size);
+		System.arraycopy(xs, 0, sig.xs, 0, size);
+		System.arraycopy(ys, 0, sig.ys, 0, size);
+		if ( objs != null ) {
+			sig.objs = new Object[sig.xs.length];
+			System.arraycopy(objs, 0, sig.objs, 0, size);
 		}
+		sig.size = size;
+		int l = layout;   // read before step; see getLayout
+		sig.step = step;
+		sig.layout = l;
 		return sig;
 	}
 }
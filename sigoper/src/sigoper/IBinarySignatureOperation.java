@@ -10,7 +10,7 @@ import sig.Signature;
 public interface IBinarySignatureOperation extends IOperation
 {
 	/**
-	 * Performs the operation.
+	 * Performs the operation with the current parameter values.
 	 *
 	 * @param sig0 One signature.
 	 * @param sig1 The other signature.
@@ -20,4 +20,16 @@ public interface IBinarySignatureOperation extends IOperation
 	public Signature operate(Signature sig0, Signature sig1)
 	throws OperationException;
 
+	/**
+	 * Performs the operation.
+	 *
+	 * @param sig0   One signature.
+	 * @param sig1   The other signature.
+	 * @param params The parameters, as returned by parseParameters.
+	 * @return       The resulting signature.
+	 * @throws       OperationException If the operation cannot be completed.
+	 */
+	public Signature operate(Signature sig0, Signature sig1, Object params)
+	throws OperationException;
+
 }
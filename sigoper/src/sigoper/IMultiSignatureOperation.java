@@ -10,7 +10,8 @@ import sig.Signature;
  */
 public interface IMultiSignatureOperation extends IOperation {
 	/**
-	 * Makes an operation on multiple signatures.
+	 * Makes an operation on multiple signatures with the current
+	 * parameter values.
 	 *
 	 * Each resulting datapoint may be given the corresponding signature
 	 * client object (if any), as a means to "identify" each
@@ -22,4 +23,15 @@ public interface IMultiSignatureOperation extends IOperation {
 	 */
 	public Signature operate(Signature[] sigs)
 	throws OperationException;
+
+	/**
+	 * Makes an operation on multiple signatures.
+	 *
+	 * @param sigs   The signatures to be operated.
+	 * @param params The parameters, as returned by parseParameters.
+	 * @return       The resulting signature.
+	 * @throws OperationException If the operation cannot be completed.
+	 */
+	public Signature operate(Signature[] sigs, Object params)
+	throws OperationException;
 }
\ No newline at end of file
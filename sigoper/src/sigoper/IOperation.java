@@ -29,6 +29,28 @@ public interface IOperation{
 	 */
 	public IParameterInfo getParameterInfo();
 
+	/**
+	 * Parses parameter values into an immutable object for the operate
+	 * methods that take parameters. Parsing and validation are only done
+	 * here, so the resulting object can be used for any number of calls,
+	 * even concurrently.
+	 * <p>
+	 * Use OpUtil.parseParameters(IOperation) to parse the current values
+	 * in getParameterInfo().
+	 *
+	 * @param values  The parameter values, indexed as in getParameterInfo();
+	 *                null if this operation doesn't require any parameters.
+	 *                For a parameter whose value is a String[], the selected
+	 *                element is given; if the String[] itself is given, its
+	 *                first element is taken.
+	 *
+	 * @return  The parsed parameters; null if this operation doesn't
+	 *          require any parameters.
+	 * @throws OperationException If a value is invalid.
+	 */
+	public Object parseParameters(Object[] values)
+	throws OperationException;
+
 	
 	/**
 	 * Parameter info for an operation.
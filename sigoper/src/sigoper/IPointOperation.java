@@ -0,0 +1,21 @@
+package sigoper;
+
+/**
+ * A single-signature operation that works on each datapoint
+ * independently, possibly removing some of them. Consecutive point
+ * operations in a Pipeline are done in a single pass.
+ * The result of operate(Signature, Object) must be the same as applying
+ * operatePoint to each datapoint, in order, keeping the accepted ones.
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+public interface IPointOperation extends ISingleSignatureOperation {
+	/**
+	 * Operates on a datapoint.
+	 *
+	 * @param point  {x, y}, updated with the resulting datapoint.
+	 * @param params The parameters, as returned by parseParameters.
+	 * @return       true if the datapoint is kept; false if it is removed.
+	 */
+	public boolean operatePoint(double[] point, Object params);
+}
@@ -10,7 +10,7 @@ import sig.Signature;
  */
 public interface ISingleSignatureOperation extends IOperation {
 	/**
-	 * Makes an operation on a signature.
+	 * Makes an operation on a signature with the current parameter values.
 	 *
 	 * @param sig The signature to be operated.
 	 * @return    The resulting signature.
@@ -19,4 +19,15 @@ public interface ISingleSignatureOperation extends IOperation {
 	public Signature operate(Signature sig)
 	throws OperationException;
 
+	/**
+	 * Makes an operation on a signature.
+	 *
+	 * @param sig    The signature to be operated.
+	 * @param params The parameters, as returned by parseParameters.
+	 * @return       The resulting signature.
+	 * @throws OperationException If the operation cannot be completed.
+	 */
+	public Signature operate(Signature sig, Object params)
+	throws OperationException;
+
 }
\ No newline at end of file
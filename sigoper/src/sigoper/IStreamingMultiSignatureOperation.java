@@ -0,0 +1,58 @@
+package sigoper;
+
+import sig.Signature;
+
+/**
+ * A multi-signature operation that can receive the signatures one at a
+ * time, so they do not need to be all in memory.
+ * The result of operate(Signature[], Object) must be the same as adding
+ * the signatures, in the same order, to an accumulator created with the
+ * same parameters.
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+public interface IStreamingMultiSignatureOperation extends IMultiSignatureOperation {
+	/**
+	 * Creates an accumulator for a new computation. The current
+	 * parameter values are taken at this point.
+	 *
+	 * @return A new accumulator.
+	 * @throws OperationException If the parameters are invalid.
+	 */
+	public IAccumulator createAccumulator()
+	throws OperationException;
+
+	/**
+	 * Creates an accumulator for a new computation.
+	 *
+	 * @param params The parameters, as returned by parseParameters.
+	 * @return A new accumulator.
+	 */
+	public IAccumulator createAccumulator(Object params)
+	throws OperationException;
+
+	/**
+	 * Keeps the state of a computation.
+	 */
+	public interface IAccumulator {
+		/**
+		 * Adds a signature to the computation.
+		 * The signature should not be modified afterwards.
+		 *
+		 * @param sig The signature.
+		 * @throws OperationException If the signature cannot be operated.
+		 */
+		public void add(Signature sig)
+		throws OperationException;
+
+		/**
+		 * Gets the result of the computation with the signatures
+		 * added so far. This accumulator should not be used afterwards.
+		 *
+		 * @return The resulting signature.
+		 * @throws OperationException If the operation cannot be completed.
+		 */
+		public Signature getResult()
+		throws OperationException;
+	}
+}
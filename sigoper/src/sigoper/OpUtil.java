@@ -51,17 +51,16 @@ public final class OpUtil {
 	 * @throws DomainException If the signatures are not defined on the same abscissas. 
 	 */
 	public static void checkDomain(Signature sig1, Signature sig2, int max_index ) throws DomainException {
-		Signature.Datapoint dp1, dp2;
 		max_index = Math.min(sig1.getSize(), max_index);
 		max_index = Math.min(sig2.getSize(), max_index);
 
 		for ( int i = 0; i < max_index; i++ ) {
-			dp1 = sig1.getDatapoint(i);
-			dp2 = sig2.getDatapoint(i);
-			if ( !equalAbscissas(dp1.x, dp2.x) ) {
+			double x1 = sig1.getX(i);
+			double x2 = sig2.getX(i);
+			if ( !equalAbscissas(x1, x2) ) {
 				throw new DomainException(
 					"Different abscissa values at index " +i+ ":\n"+ 
-					"    " +dp1.x+ "  vs.  " +dp2.x+ "\n"
+					"    " +x1+ "  vs.  " +x2+ "\n"
 				);
 			}
 		}
@@ -140,9 +139,9 @@ public final class OpUtil {
 		double min = Double.POSITIVE_INFINITY;
 		int size = sig.getSize();
 		for ( int k = 0; k < size; k++ ) {
-			Signature.Datapoint dp = sig.getDatapoint(k);
-			if ( min > dp.y )
-				min = dp.y;
+			double y = sig.getY(k);
+			if ( min > y )
+				min = y;
 		}
 		return min;
 	}
@@ -159,9 +158,9 @@ public final class OpUtil {
 		double max = Double.NEGATIVE_INFINITY;
 		int size = sig.getSize();
 		for ( int k = 0; k < size; k++ ) {
-			Signature.Datapoint dp = sig.getDatapoint(k);
-			if ( max < dp.y )
-				max = dp.y;
+			double y = sig.getY(k);
+			if ( max < y )
+				max = y;
 		}
 		return max;
 	}
@@ -176,26 +175,19 @@ public final class OpUtil {
 	 */
 	public static double valueAt(Signature sig, double at) throws OperationException {
 		int size = sig.getSize();
-		Signature.Datapoint p = null;
-		Signature.Datapoint q = null;
 		
 		// search for index of at:
-		int index;
-		for ( index = 0; index < size; index++ ) {
-			p = sig.getDatapoint(index);
-			if ( at <= p.x )
-				break;
-		}
+		int index = _firstIndexAtOrAfter(sig, at);
 		if ( index == size )
 			throw new OperationException("signature undefined at " +at);
 		
-		if ( equalAbscissas(at, p.x)       // close enough, or ...
+		double px = sig.getX(index);
+		if ( equalAbscissas(at, px)        // close enough, or ...
 		||   index == size - 1  )          // no next to interpolate
-			return p.y;
+			return sig.getY(index);
 		
 		// make interpolation with next point
-		q = sig.getDatapoint(index + 1);
-		return interpolate(p.x, p.y, q.x, q.y, at);
+		return interpolate(px, sig.getY(index), sig.getX(index + 1), sig.getY(index + 1), at);
 	}
 	
 	/**
@@ -220,7 +212,6 @@ public final class OpUtil {
 		indexAt(sig, at);
 		
 		int size = sig.getSize();
-		Signature.Datapoint p = null;      
 
 		// interval of interest:
 		double winsize2 =  winsize/2;		
@@ -238,21 +229,20 @@ public final class OpUtil {
 		if ( sup_idx >= size )
 			sup_idx = size -1;
 		
-		p = sig.getDatapoint(inf_idx);
 		if ( inf_idx == sup_idx )
-			return p.y;
+			return sig.getY(inf_idx);
 		
 		// else: compute average:
-		double sum = p.y;
+		double sum = sig.getY(inf_idx);
 		for ( int i = inf_idx + 1; i <= sup_idx; i++ ) {
-			p = sig.getDatapoint(i);
-			sum += p.y;
+			sum += sig.getY(i);
 		}
 		return sum / (sup_idx - inf_idx + 1);
 	}
 	
 	/**
 	 * Gets the right most index i such that sig[i].x &lt;= at.
+	 * O(log n) if the signature is sorted; O(1) if it is uniform.
 	 * Example:
 	 * <pre>
 	 * 	sig.x = [ 400, 401, 402, 403, 404]
@@ -267,14 +257,15 @@ public final class OpUtil {
 	 */
 	public static int rightMostIndexAt(Signature sig, double at)
 	throws OperationException {
+		if ( _isSearchable(sig, at) )
+			return _upperBound(sig, at) - 1;
+
 		int size = sig.getSize();
-		Signature.Datapoint p = null;
 		
 		// search for index of at:
 		int index;
 		for ( index = 0; index < size; index++ ) {
-			p = sig.getDatapoint(index);
-			if ( p.x > at )
+			if ( sig.getX(index) > at )
 				return index - 1;
 		}
 		return size -1;
@@ -282,6 +273,7 @@ public final class OpUtil {
 	
 	/**
 	 * Gets the left most index i such that sig[i].x >= at.
+	 * O(log n) if the signature is sorted; O(1) if it is uniform.
 	 * Example:
 	 * <pre>
 	 * 	sig.x = [ 400, 401, 402, 403, 404]
@@ -296,14 +288,15 @@ public final class OpUtil {
 	 */
 	public static int leftMostIndexAt(Signature sig, double at) 
 	throws OperationException {
+		if ( _isSearchable(sig, at) )
+			return _lowerBound(sig, at);
+
 		int size = sig.getSize();
-		Signature.Datapoint p = null;
 		
 		// search for index of at:
 		int index;
 		for ( index = size-1; index >= 0; index-- ) {
-			p = sig.getDatapoint(index);
-			if ( p.x < at )
+			if ( sig.getX(index) < at )
 				return index + 1;
 		}
 		return 0;
@@ -311,23 +304,95 @@ public final class OpUtil {
 	
 	/**
 	 * Gets the first index i such that sig[i].x >= at.
+	 * O(log n) if the signature is sorted; O(1) if it is uniform.
 	 *
 	 * @return The index.
 	 *
 	 * @throws OperationException If signature is undefined at the given abscissa.
 	 */
 	public static int indexAt(Signature sig, double at) throws OperationException {
+		int index = _firstIndexAtOrAfter(sig, at);
+		if ( index == sig.getSize() )
+			throw new OperationException("signature undefined at " +at);
+		return index;
+	}
+	
+	/** First index i such that sig[i].x >= at; size if none. */
+	private static int _firstIndexAtOrAfter(Signature sig, double at) {
+		if ( _isSearchable(sig, at) )
+			return _lowerBound(sig, at);
+
 		int size = sig.getSize();
-		Signature.Datapoint p = null;
-		
-		// search for index of at:
 		int index;
 		for ( index = 0; index < size; index++ ) {
-			p = sig.getDatapoint(index);
-			if ( p.x >= at )
-				return index;
+			if ( sig.getX(index) >= at )
+				break;
 		}
-		throw new OperationException("signature undefined at " +at);
+		return index;
+	}
+	
+	/** Tells if the indexes for at can be searched, instead of scanned. */
+	private static boolean _isSearchable(Signature sig, double at) {
+		return !Double.isNaN(at) && sig.isSorted();
+	}
+	
+	/** For a sorted signature, the first index i such that sig[i].x >= at;
+	  * size if none. */
+	private static int _lowerBound(Signature sig, double at) {
+		int size = sig.getSize();
+		if ( sig.isUniform() ) {
+			// direct estimate; then adjusted for rounding errors:
+			int i = _clamp(Math.ceil((at - sig.getX(0)) / sig.getStep()), size);
+			while ( i > 0 && sig.getX(i - 1) >= at )
+				i--;
+			while ( i < size && sig.getX(i) < at )
+				i++;
+			return i;
+		}
+		int low = 0;
+		int high = size;
+		while ( low < high ) {
+			int mid = (low + high) >>> 1;
+			if ( sig.getX(mid) < at )
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+	
+	/** For a sorted signature, the first index i such that sig[i].x > at;
+	  * size if none. */
+	private static int _upperBound(Signature sig, double at) {
+		int size = sig.getSize();
+		if ( sig.isUniform() ) {
+			// direct estimate; then adjusted for rounding errors:
+			int i = _clamp(Math.floor((at - sig.getX(0)) / sig.getStep()) + 1, size);
+			while ( i > 0 && sig.getX(i - 1) > at )
+				i--;
+			while ( i < size && sig.getX(i) <= at )
+				i++;
+			return i;
+		}
+		int low = 0;
+		int high = size;
+		while ( low < high ) {
+			int mid = (low + high) >>> 1;
+			if ( sig.getX(mid) <= at )
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+	
+	/** Clamps an estimated index to [0, size]. */
+	private static int _clamp(double index, int size) {
+		if ( index <= 0 )
+			return 0;
+		if ( index >= size )
+			return size;
+		return (int) index;
 	}
 	
 	/**
@@ -347,12 +412,13 @@ public final class OpUtil {
 		int max_index = -1;
 		
 		// get first value in [from,to]
+		if ( _isSearchable(sig, from) )
+			from_index = Math.max(from_index, _lowerBound(sig, from));
 		for ( int i = from_index; i < size; i++ ) {
-			Signature.Datapoint dp = sig.getDatapoint(i);
-			double x = dp.x;
+			double x = sig.getX(i);
 			if ( from <= x ) {
 				max_index = i;
-				max_val = dp.y;
+				max_val = sig.getY(i);
 				break;
 			}
 		}
@@ -361,11 +427,10 @@ public final class OpUtil {
 
 		// select maximum
 		for ( int i = max_index + 1; i < size; i++ ) {
-			Signature.Datapoint dp = sig.getDatapoint(i);
-			double x = dp.x;
+			double x = sig.getX(i);
 			if ( x > to)
 				break;
-			double y = dp.y;
+			double y = sig.getY(i);
 			if ( max_val < y ) {
 				max_val = y;
 				max_index = i;
@@ -385,12 +450,13 @@ public final class OpUtil {
 		int min_index = -1;
 		
 		// get first value in [from,to]
+		if ( _isSearchable(sig, from) )
+			from_index = Math.max(from_index, _lowerBound(sig, from));
 		for ( int i = from_index; i < size; i++ ) {
-			Signature.Datapoint dp = sig.getDatapoint(i);
-			double x = dp.x;
+			double x = sig.getX(i);
 			if ( from <= x ) {
 				min_index = i;
-				min_val = dp.y;
+				min_val = sig.getY(i);
 				break;
 			}
 		}
@@ -399,11 +465,10 @@ public final class OpUtil {
 
 		// select minimum
 		for ( int i = min_index + 1; i < size; i++ ) {
-			Signature.Datapoint dp = sig.getDatapoint(i);
-			double x = dp.x;
+			double x = sig.getX(i);
 			if ( x > to)
 				break;
-			double y = dp.y;
+			double y = sig.getY(i);
 			if ( min_val > y ) {
 				min_val = y;
 				min_index = i;
@@ -413,6 +478,110 @@ public final class OpUtil {
 		return min_index;
 	}
 
-	// Non-instanceable	
+	/**
+	 * Operates on some signatures with a new accumulator from a
+	 * streaming operation.
+	 *
+	 * @param op    The operation.
+	 * @param sigs  The signatures; may be null.
+	 *
+	 * @return The resulting signature.
+	 */
+	public static Signature operate(IStreamingMultiSignatureOperation op, Signature[] sigs)
+	throws OperationException {
+		return operate(op, sigs, parseParameters(op));
+	}
+
+	/**
+	 * Operates on some signatures with a new accumulator from a
+	 * streaming operation.
+	 *
+	 * @param op     The operation.
+	 * @param sigs   The signatures; may be null.
+	 * @param params The parameters, as returned by op.parseParameters.
+	 *
+	 * @return The resulting signature.
+	 */
+	public static Signature operate(IStreamingMultiSignatureOperation op, Signature[] sigs, Object params)
+	throws OperationException {
+		IStreamingMultiSignatureOperation.IAccumulator acc = op.createAccumulator(params);
+		if ( sigs != null ) {
+			for ( int i = 0; i < sigs.length; i++ )
+				acc.add(sigs[i]);
+		}
+		return acc.getResult();
+	}
+
+	/**
+	 * Gets the current parameter values of an operation.
+	 *
+	 * @param op    The operation.
+	 *
+	 * @return A new array with the values; for a parameter whose value is
+	 *         a String[], the selected element, if any was set.
+	 *         null if the operation doesn't require any parameters.
+	 */
+	public static Object[] getParameterValues(IOperation op) {
+		IOperation.IParameterInfo parInfo = op.getParameterInfo();
+		if ( parInfo == null )
+			return null;
+		if ( parInfo instanceof sigoper.impl.ParInfo )
+			return ((sigoper.impl.ParInfo) parInfo).getValues();
+		Object[] values = new Object[parInfo.getNumParameters()];
+		for ( int i = 0; i < values.length; i++ )
+			values[i] = parInfo.getValue(i);
+		return values;
+	}
+
+	/**
+	 * Parses the current parameter values of an operation.
+	 *
+	 * @param op    The operation.
+	 *
+	 * @return op.parseParameters(getParameterValues(op))
+	 * @throws OperationException If a value is invalid.
+	 */
+	public static Object parseParameters(IOperation op) throws OperationException {
+		return op.parseParameters(getParameterValues(op));
+	}
+
+	/**
+	 * Gets a parameter value as a string; for a String[], its first element.
+	 * Helper for parseParameters implementations.
+	 */
+	public static String getStringParameter(Object[] values, int par) {
+		Object value = values[par];
+		if ( value instanceof String[] )
+			value = ((String[]) value)[0];
+		return value == null ? "" : value.toString().trim();
+	}
+
+	/**
+	 * Gets a parameter value as a double.
+	 * Helper for parseParameters implementations.
+	 *
+	 * @throws OperationException If the value is not a valid number.
+	 */
+	public static double getDoubleParameter(Object[] values, int par) throws OperationException {
+		try {
+			return Double.parseDouble(getStringParameter(values, par));
+		}
+		catch(NumberFormatException ex) {
+			throw new OperationException("Invalid parameters: " +ex.getMessage());
+		}
+	}
+
+	/**
+	 * Gets a parameter value as a boolean: a Boolean, or a string "true".
+	 * Helper for parseParameters implementations.
+	 */
+	public static boolean getBooleanParameter(Object[] values, int par) {
+		Object value = values[par];
+		if ( value instanceof Boolean )
+			return ((Boolean) value).booleanValue();
+		return Boolean.valueOf(getStringParameter(values, par)).booleanValue();
+	}
+
+	// Non-instanceable
 	private OpUtil() {}
 }
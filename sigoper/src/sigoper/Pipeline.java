@@ -0,0 +1,385 @@
+package sigoper;
+
+import sig.Signature;
+
+import java.util.*;
+import java.io.*;
+
+/**
+ * A sequence of single-signature operations, optionally followed by a
+ * terminal multi-signature operation, to be run as one operation.
+ * <p>
+ * Each signature goes through all the steps in memory, with no
+ * intermediate results stored anywhere. Consecutive IPointOperation
+ * steps (scale, crop, units change) are fused in a single pass over the
+ * datapoints.
+ * <p>
+ * The parameters of each step are given when the step is added, and
+ * parsed at that point. See createOperation.
+ * <p>
+ * Pipelines are saved as properties files, usually with extension
+ * ".pipe":
+ * <pre>
+ *	name = Preprocessing
+ *	description = Crop and smooth
+ *	step.0 = Crop
+ *	step.0.from = 400
+ *	step.0.to = 2400
+ *	step.1 = Smooth
+ *	step.1.filter-type = SG:2-5-5
+ *	terminal = Average
+ * </pre>
+ * Operations are referred to by name. Parameters not given take the
+ * current values of the operation.
+ *
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+public final class Pipeline {
+	/** Extension of pipeline files. */
+	public static final String EXTENSION = ".pipe";
+
+	private String name;
+	private String description;
+
+	private List steps = new ArrayList();
+	private List step_values = new ArrayList();
+	private List step_params = new ArrayList();
+
+	private IMultiSignatureOperation terminal;
+	private Object[] terminal_values;
+	private Object terminal_params;
+
+	/** Creates an empty pipeline. */
+	public Pipeline(String name, String description) {
+		this.name = name;
+		this.description = description;
+	}
+
+	/** Gets the name of this pipeline. */
+	public String getName() {
+		return name;
+	}
+
+	/** Gets the description of this pipeline. */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Adds a step.
+	 *
+	 * @param op     The operation.
+	 * @param values Parameter values for op.parseParameters; null to take
+	 *               the current ones.
+	 * @throws OperationException If a step cannot be added after the
+	 *         terminal operation, or if a value is invalid.
+	 */
+	public void addStep(ISingleSignatureOperation op, Object[] values)
+	throws OperationException {
+		if ( terminal != null )
+			throw new OperationException(op.getName()+ ": no steps allowed after the terminal operation");
+		if ( values == null )
+			values = OpUtil.getParameterValues(op);
+		Object params = op.parseParameters(values);
+		steps.add(op);
+		step_values.add(values);
+		step_params.add(params);
+	}
+
+	/**
+	 * Sets the terminal operation.
+	 *
+	 * @param op     The operation.
+	 * @param values Parameter values for op.parseParameters; null to take
+	 *               the current ones.
+	 * @throws OperationException If a value is invalid.
+	 */
+	public void setTerminal(IMultiSignatureOperation op, Object[] values)
+	throws OperationException {
+		if ( values == null )
+			values = OpUtil.getParameterValues(op);
+		terminal_params = op.parseParameters(values);
+		terminal = op;
+		terminal_values = values;
+	}
+
+	/** Gets the number of steps, not including the terminal operation. */
+	public int getNumSteps() {
+		return steps.size();
+	}
+
+	/** Gets the terminal operation; null if none. */
+	public IMultiSignatureOperation getTerminal() {
+		return terminal;
+	}
+
+	/**
+	 * Creates the operation that runs this pipeline with the current steps:
+	 * an ISingleSignatureOperation, or an IStreamingMultiSignatureOperation
+	 * if there is a terminal operation. In the latter case, each signature
+	 * is processed by the steps as it is added to the accumulator.
+	 * The operation has no parameters; changes to this pipeline do not
+	 * affect it.
+	 */
+	public IOperation createOperation() {
+		if ( terminal == null )
+			return new SingleOperation(this);
+		else
+			return new MultiOperation(this);
+	}
+
+	/**
+	 * Saves this pipeline.
+	 *
+	 * @param file The file.
+	 */
+	public void save(File file) throws IOException {
+		Properties props = new Properties();
+		props.setProperty("name", name);
+		if ( description != null )
+			props.setProperty("description", description);
+		for ( int k = 0; k < steps.size(); k++ ) {
+			_put(props, "step." +k,
+				(IOperation) steps.get(k), (Object[]) step_values.get(k)
+			);
+		}
+		if ( terminal != null )
+			_put(props, "terminal", terminal, terminal_values);
+
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			props.store(out, "SAMS pipeline");
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	private static void _put(Properties props, String key, IOperation op, Object[] values) {
+		props.setProperty(key, op.getName());
+		IOperation.IParameterInfo parInfo = op.getParameterInfo();
+		if ( parInfo == null || values == null )
+			return;
+		for ( int i = 0; i < values.length; i++ )
+			props.setProperty(key+ "." +parInfo.getName(i), OpUtil.getStringParameter(values, i));
+	}
+
+	/**
+	 * Loads a pipeline.
+	 *
+	 * @param file       The file.
+	 * @param operations Mapping operation name -&gt; IOperation to resolve
+	 *                   the operations in the pipeline.
+	 *
+	 * @return The pipeline.
+	 * @throws Exception If the file cannot be read, or an operation is not
+	 *         found, or a value is invalid.
+	 */
+	public static Pipeline load(File file, Map operations) throws Exception {
+		Properties props = new Properties();
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			props.load(in);
+		}
+		finally {
+			in.close();
+		}
+
+		String name = props.getProperty("name");
+		if ( name == null ) {
+			name = file.getName();
+			if ( name.endsWith(EXTENSION) )
+				name = name.substring(0, name.length() - EXTENSION.length());
+		}
+		Pipeline pipeline = new Pipeline(name, props.getProperty("description", "Pipeline"));
+
+		for ( int k = 0; props.getProperty("step." +k) != null; k++ ) {
+			IOperation op = _getOperation(props, "step." +k, operations);
+			if ( !(op instanceof ISingleSignatureOperation) )
+				throw new Exception(file+ ": " +op.getName()+ ": not a single-signature operation");
+			pipeline.addStep((ISingleSignatureOperation) op, _getValues(props, "step." +k, op));
+		}
+		if ( props.getProperty("terminal") != null ) {
+			IOperation op = _getOperation(props, "terminal", operations);
+			if ( !(op instanceof IMultiSignatureOperation) )
+				throw new Exception(file+ ": " +op.getName()+ ": not a multi-signature operation");
+			pipeline.setTerminal((IMultiSignatureOperation) op, _getValues(props, "terminal", op));
+		}
+		return pipeline;
+	}
+
+	private static IOperation _getOperation(Properties props, String key, Map operations)
+	throws Exception {
+		String opername = props.getProperty(key).trim();
+		IOperation op = (IOperation) operations.get(opername);
+		if ( op == null )
+			throw new Exception(opername+ ": operation not found");
+		return op;
+	}
+
+	/** Gets the current values of the operation, with those given in props. */
+	private static Object[] _getValues(Properties props, String key, IOperation op) {
+		Object[] values = OpUtil.getParameterValues(op);
+		if ( values == null )
+			return null;
+		IOperation.IParameterInfo parInfo = op.getParameterInfo();
+		for ( int i = 0; i < values.length; i++ ) {
+			String value = props.getProperty(key+ "." +parInfo.getName(i));
+			if ( value == null )
+				continue;
+			value = value.trim();
+			if ( values[i] instanceof Boolean )
+				values[i] = Boolean.valueOf(value);
+			else
+				values[i] = value;
+		}
+		return values;
+	}
+
+	/**
+	 * Base class for the pipeline operations, with the steps taken at
+	 * creation.
+	 */
+	abstract static class PipelineOperation implements IOperation {
+		final String name;
+		final String description;
+		final ISingleSignatureOperation[] steps;
+		final Object[] params;
+
+		PipelineOperation(Pipeline pipeline) {
+			name = pipeline.name;
+			description = pipeline.description;
+			steps = (ISingleSignatureOperation[]) pipeline.steps.toArray(
+				new ISingleSignatureOperation[pipeline.steps.size()]
+			);
+			params = pipeline.step_params.toArray();
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+
+		public IOperation.IParameterInfo getParameterInfo() {
+			return null;
+		}
+
+		public Object parseParameters(Object[] values) {
+			return null;
+		}
+
+		/** Applies the steps to a signature. The result keeps the
+		  * client object of the given signature. */
+		Signature process(Signature sig) throws OperationException {
+			Object obj = sig.getUserObject();
+			int k = 0;
+			while ( k < steps.length ) {
+				if ( steps[k] instanceof IPointOperation ) {
+					int end = k + 1;
+					while ( end < steps.length && steps[end] instanceof IPointOperation )
+						end++;
+					sig = _fuse(sig, k, end);
+					k = end;
+				}
+				else {
+					sig = steps[k].operate(sig, params[k]);
+					k++;
+				}
+			}
+			if ( sig.getUserObject() == null )
+				sig.setUserObject(obj);
+			return sig;
+		}
+
+		/** Applies the point operations steps[from..to-1] in one pass. */
+		private Signature _fuse(Signature sig, int from, int to) {
+			int size = sig.getSize();
+			Signature new_sig = new Signature(null, size);
+			double[] point = new double[2];
+			for ( int i = 0; i < size; i++ ) {
+				point[0] = sig.getX(i);
+				point[1] = sig.getY(i);
+				boolean keep = true;
+				for ( int k = from; keep && k < to; k++ )
+					keep = ((IPointOperation) steps[k]).operatePoint(point, params[k]);
+				if ( keep )
+					new_sig.addDatapoint(point[0], point[1]);
+			}
+			return new_sig;
+		}
+	}
+
+	/** A pipeline with no terminal operation. */
+	static final class SingleOperation extends PipelineOperation
+	implements ISingleSignatureOperation {
+		SingleOperation(Pipeline pipeline) {
+			super(pipeline);
+		}
+
+		public Signature operate(Signature sig) throws OperationException {
+			return process(sig);
+		}
+
+		public Signature operate(Signature sig, Object params) throws OperationException {
+			return process(sig);
+		}
+	}
+
+	/** A pipeline with a terminal operation. */
+	static final class MultiOperation extends PipelineOperation
+	implements IStreamingMultiSignatureOperation {
+		final IMultiSignatureOperation terminal;
+		final Object terminal_params;
+
+		MultiOperation(Pipeline pipeline) {
+			super(pipeline);
+			terminal = pipeline.terminal;
+			terminal_params = pipeline.terminal_params;
+		}
+
+		public Signature operate(Signature[] sigs) throws OperationException {
+			return OpUtil.operate(this, sigs, null);
+		}
+
+		public Signature operate(Signature[] sigs, Object params) throws OperationException {
+			return OpUtil.operate(this, sigs, params);
+		}
+
+		public IAccumulator createAccumulator() throws OperationException {
+			return createAccumulator(null);
+		}
+
+		public IAccumulator createAccumulator(Object params) throws OperationException {
+			if ( terminal instanceof IStreamingMultiSignatureOperation ) {
+				final IAccumulator acc = ((IStreamingMultiSignatureOperation) terminal)
+					.createAccumulator(terminal_params);
+				return new IAccumulator() {
+					public void add(Signature sig) throws OperationException {
+						acc.add(process(sig));
+					}
+					public Signature getResult() throws OperationException {
+						return acc.getResult();
+					}
+				};
+			}
+
+			// the processed signatures are kept for the terminal operation:
+			final List sigs = new ArrayList();
+			return new IAccumulator() {
+				public void add(Signature sig) throws OperationException {
+					sigs.add(process(sig));
+				}
+				public Signature getResult() throws OperationException {
+					return terminal.operate(
+						(Signature[]) sigs.toArray(new Signature[sigs.size()]),
+						terminal_params
+					);
+				}
+			};
+		}
+	}
+}
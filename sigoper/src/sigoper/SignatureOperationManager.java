@@ -29,7 +29,8 @@ public final class SignatureOperationManager {
 	/**
 	 * Initializes the signature operation manager.
 	 *
-	 * Also loads the scripted operations found in a given directory.
+	 * Also loads the scripted operations and the pipelines (*.pipe) found
+	 * in a given directory.
 	 */
 	public static void init(String _scripted_dirname) {
 		scripted_dirname = _scripted_dirname;
@@ -64,6 +65,8 @@ public final class SignatureOperationManager {
 			
 		_loadScriptedOperations();
 		_createMap();
+		_loadPipelines();
+		_createMap();
 	}
 	
 	private static void _createMap() {
@@ -114,8 +117,67 @@ public final class SignatureOperationManager {
 		}
 	}
 	
+	/** Loads the pipelines under the scripted operations directory.
+	  * Operations in a pipeline are resolved against the current map. */
+	private static void _loadPipelines() {
+		if ( scripted_dirname == null )
+			return;
+		
+		File[] list = new File(scripted_dirname).listFiles();
+		if ( list == null )
+			return;
+		
+		for ( int i = 0; i < list.length; i++ ) {
+			File file = list[i];
+			if ( !file.getName().endsWith(Pipeline.EXTENSION) )
+				continue;
+			try {
+				_addPipeline(Pipeline.load(file, codOpers));
+			}
+			catch(Exception ex) {
+				System.out.println(ex.getMessage());
+			}
+		}
+	}
+	
+	/** Adds the operation of a pipeline, replacing any previous pipeline
+	  * with the same name. */
+	private static void _addPipeline(Pipeline pipeline) {
+		IOperation oper = pipeline.createOperation();
+		List[] lists = { multi_opers, single_opers };
+		for ( int i = 0; i < lists.length; i++ ) {
+			for ( Iterator it = lists[i].iterator(); it.hasNext(); ) {
+				IOperation old_oper = (IOperation) it.next();
+				if ( old_oper instanceof Pipeline.PipelineOperation
+				&&   old_oper.getName().equals(oper.getName()) )
+					it.remove();
+			}
+		}
+		if ( oper instanceof IMultiSignatureOperation )
+			multi_opers.add(oper);
+		else
+			single_opers.add(oper);
+		codOpers.put(oper.getName(), oper);
+	}
+	
+	/**
+	 * Adds a pipeline as an operation, which can then be obtained by name.
+	 * The pipeline is also saved in the scripted operations directory,
+	 * if any, so it is loaded again in future sessions.
+	 *
+	 * @param pipeline The pipeline.
+	 */
+	public static void addPipeline(Pipeline pipeline) throws IOException {
+		if ( scripted_dirname != null ) {
+			String filename = pipeline.getName().replace(' ', '_') + Pipeline.EXTENSION;
+			pipeline.save(new File(scripted_dirname, filename));
+		}
+		_addPipeline(pipeline);
+		_createMap();
+	}
+	
 	/** Reloads all scripted operations under directory given in
-	  * initialization.
+	  * initialization, and the pipelines.
 	  */
 	public static void reloadScriptedOperations() {
 		//
@@ -139,13 +201,16 @@ public final class SignatureOperationManager {
 			List new_opers = new_lists[i];
 			for ( Iterator it = old_opers.iterator(); it.hasNext(); ) {
 				IOperation old_oper = (IOperation) it.next();
-				if ( !(old_oper instanceof BshOperation) )
+				if ( !(old_oper instanceof BshOperation)
+				&&   !(old_oper instanceof Pipeline.PipelineOperation) )
 					new_opers.add(old_oper); // keep it
 			}
 		}
 		
 		_loadScriptedOperations();
 		_createMap();
+		_loadPipelines();
+		_createMap();
 	}
 	
 	/**
@@ -181,6 +246,7 @@ public final class SignatureOperationManager {
 		String description;
 		IOperation.IParameterInfo parInfo;
 		
+		/** Shared by all calls, so operate methods are synchronized. */
 		bsh.Interpreter bsh;
 		
 		BshOperation(String scriptname) throws Exception {
@@ -244,11 +310,16 @@ public final class SignatureOperationManager {
 					__parIndex.put(name, new Integer(i));
 				}
 				parInfo = new ParInfo(par_names, par_descriptions, par_values);
-				bsh.set("__par_values", par_values);
 			}
 			
 		}
 		
+		/** The values are just copied; the script parses them when
+		  * operating. They are passed as __par_values in each call. */
+		public Object parseParameters(Object[] values) {
+			return values == null ? null : (Object[]) values.clone();
+		}
+		
 		public IOperation.IParameterInfo getParameterInfo() {
 			return parInfo;
 		}
@@ -270,7 +341,12 @@ public final class SignatureOperationManager {
 		}
 		
 		public Signature operate(Signature sig) throws OperationException {
+			return operate(sig, OpUtil.parseParameters(this));
+		}
+		
+		public synchronized Signature operate(Signature sig, Object params) throws OperationException {
 			try {
+				bsh.set("__par_values", params);
 				bsh.set("sig", sig);
 				return (Signature) bsh.eval("this.operate(sig)");
 			}
@@ -290,7 +366,12 @@ public final class SignatureOperationManager {
 		}
 		
 		public Signature operate(Signature[] sigs) throws OperationException {
+			return operate(sigs, OpUtil.parseParameters(this));
+		}
+		
+		public synchronized Signature operate(Signature[] sigs, Object params) throws OperationException {
 			try {
+				bsh.set("__par_values", params);
 				bsh.set("sigs", sigs);
 				return (Signature) bsh.eval("this.operate(sigs)");
 			}
@@ -310,7 +391,12 @@ public final class SignatureOperationManager {
 		}
 		
 		public Signature operate(Signature sig0, Signature sig1) throws OperationException {
+			return operate(sig0, sig1, OpUtil.parseParameters(this));
+		}
+		
+		public synchronized Signature operate(Signature sig0, Signature sig1, Object params) throws OperationException {
 			try {
+				bsh.set("__par_values", params);
 				bsh.set("sig0", sig0);
 				bsh.set("sig1", sig1);
 				return (Signature) bsh.eval("this.operate(sig0, sig1)");
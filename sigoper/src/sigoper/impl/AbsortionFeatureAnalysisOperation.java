@@ -10,7 +10,7 @@ import java.util.*;
  * @author Carlos A. Rueda
  * @version $Id$ 
  */
-public class AbsortionFeatureAnalysisOperation implements IMultiSignatureOperation
+public class AbsortionFeatureAnalysisOperation implements IStreamingMultiSignatureOperation
 {
 	static final int MAX_1_FROM = 0;
 	static final int MAX_1_TO = 1;
@@ -29,13 +29,13 @@ public class AbsortionFeatureAnalysisOperation implements IMultiSignatureOperati
 		"Second maximum from", 
 		"Second maximum to",
 	};
-	static Object[] par_values = { 
+	static Object[] par_defaults = { 
 		"1050",
 		"1130",
 		"1250",
 		"1310",
 	};
-	static ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_values);
+	private final ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_defaults);
 	
 
 	public IOperation.IParameterInfo getParameterInfo()
@@ -71,34 +71,54 @@ public class AbsortionFeatureAnalysisOperation implements IMultiSignatureOperati
 	public Signature operate(Signature[] sigs)
 	throws OperationException
 	{
-		double max_1_from, max_1_to;
-		double max_2_from, max_2_to;
-		
-		try
-		{
-			max_1_from = Double.parseDouble((String) par_values[MAX_1_FROM]);
-			max_1_to = Double.parseDouble((String) par_values[MAX_1_TO]);
-			max_2_from = Double.parseDouble((String) par_values[MAX_2_FROM]);
-			max_2_to = Double.parseDouble((String) par_values[MAX_2_TO]);
-		}
-		catch(Exception ex)
-		{
-			throw new OperationException("Invalid parameter: " +ex.getMessage());
-		}
-		
-		Signature sig = new Signature();
-		if ( sigs == null || sigs.length == 0 )
-		{
-			return sig;
-		}
-		
-		for ( int i = 0; i < sigs.length; i++ )
+		return OpUtil.operate(this, sigs);
+	}
+
+	public Signature operate(Signature[] sigs, Object params)
+	throws OperationException
+	{
+		return OpUtil.operate(this, sigs, params);
+	}
+
+	/** The parsed parameters. */
+	private static final class Parameters
+	{
+		final double max_1_from, max_1_to;
+		final double max_2_from, max_2_to;
+
+		Parameters(Object[] values)
+		throws OperationException
 		{
-			double cr = compute(sigs[i], max_1_from, max_1_to, max_2_from, max_2_to);
-			sig.addDatapoint(i + 1, cr, sigs[i].getUserObject());
+			max_1_from = OpUtil.getDoubleParameter(values, MAX_1_FROM);
+			max_1_to = OpUtil.getDoubleParameter(values, MAX_1_TO);
+			max_2_from = OpUtil.getDoubleParameter(values, MAX_2_FROM);
+			max_2_to = OpUtil.getDoubleParameter(values, MAX_2_TO);
 		}
+	}
+
+	public Object parseParameters(Object[] values)
+	throws OperationException
+	{
+		return new Parameters(values);
+	}
 
-		return sig;
+	public IStreamingMultiSignatureOperation.IAccumulator createAccumulator()
+	throws OperationException
+	{
+		return createAccumulator(OpUtil.parseParameters(this));
+	}
+
+	public IStreamingMultiSignatureOperation.IAccumulator createAccumulator(Object params)
+	{
+		final Parameters p = (Parameters) params;
+		return new ScalarAccumulator()
+		{
+			double compute(Signature sig)
+			throws OperationException
+			{
+				return AbsortionFeatureAnalysisOperation.compute(sig, p.max_1_from, p.max_1_to, p.max_2_from, p.max_2_to);
+			}
+		};
 	}
 
 	/**
@@ -128,20 +148,15 @@ public class AbsortionFeatureAnalysisOperation implements IMultiSignatureOperati
 		double area = 0;
 		for ( int i = from_index; i < to_index - 1; i++ )
 		{
-			Signature.Datapoint dp0 = sig.getDatapoint(i);
-			Signature.Datapoint dp1 = sig.getDatapoint(i + 1);
-			
-			double w = dp1.x - dp0.x;
+			double w = sig.getX(i + 1) - sig.getX(i);
 			
-			area += w * ( dp0.y + dp1.y ) / 2; 
+			area += w * ( sig.getY(i) + sig.getY(i + 1) ) / 2; 
 		}
 
 //System.out.println("area = " +area);		
 		// compute total area:
-		Signature.Datapoint dp0 = sig.getDatapoint(from_index);
-		Signature.Datapoint dp1 = sig.getDatapoint(to_index - 1);
-		double w = dp1.x - dp0.x;
-		double total_area = w * ( dp0.y + dp1.y ) / 2; 
+		double w = sig.getX(to_index - 1) - sig.getX(from_index);
+		double total_area = w * ( sig.getY(from_index) + sig.getY(to_index - 1) ) / 2; 
 //System.out.println("total_area = " +total_area);
 
 		// final computation:
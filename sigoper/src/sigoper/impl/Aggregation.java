@@ -0,0 +1,272 @@
+package sigoper.impl;
+
+import sigoper.*;
+import sig.Signature;
+
+/**
+ * Per-index statistics of the valid values from a number of signatures:
+ * count, sum, mean, sum of squared deviations from the mean, minimum
+ * and maximum. All of them are computed in a single pass.
+ * NaN and "missing" values are not valid.
+ * <p>
+ * Signatures are added one at a time, and processed in chunks of
+ * limited size: each chunk is traversed on the primitive values,
+ * updating the statistics for a range of indexes; with large chunks,
+ * the index range is split among several threads.
+ * <p>
+ * The number of indexes is the size of the shortest signature added.
+ * The signatures must be defined at the same points; this is checked
+ * against the first signature.
+ *
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+public final class Aggregation
+{
+	/** Maximum number of values in a chunk. */
+	private static final int MAX_CHUNK_VALUES = 4*1024*1024;
+
+	/** Maximum number of signatures in a chunk. */
+	private static final int MAX_CHUNK_SIGNATURES = 4*1024;
+
+	/** Minimum number of values to be processed by each thread. */
+	private static final int MIN_VALUES_PER_THREAD = 256*1024;
+
+	/** Minimum number of indexes to be processed by each thread. */
+	private static final int MIN_INDEXES_PER_THREAD = 64;
+
+	private final double missing_value;
+
+	private Signature first;
+	private int num_sigs;
+	private int size;
+
+	/** the signatures not processed yet */
+	private Signature[] chunk;
+	private int chunk_length;
+
+	private int[] count;
+	private double[] sum;
+	private double[] mean;
+	private double[] m2;
+	private double[] min;
+	private double[] max;
+
+	/**
+	 * Creates an aggregation with no signatures.
+	 *
+	 * @param missing_value Missing value indicator; NaN if none.
+	 */
+	public Aggregation(double missing_value)
+	{
+		this.missing_value = missing_value;
+	}
+
+	/**
+	 * Adds a signature.
+	 *
+	 * @param sig The signature.
+	 * @throws DomainException If the signature is not defined on the
+	 *         same abscissas as the first signature.
+	 */
+	public void add(Signature sig)
+	throws DomainException
+	{
+		if ( first == null )
+		{
+			first = sig;
+			size = sig.getSize();
+			count = new int[size];
+			sum = new double[size];
+			mean = new double[size];
+			m2 = new double[size];
+			min = new double[size];
+			max = new double[size];
+			java.util.Arrays.fill(min, Double.POSITIVE_INFINITY);
+			java.util.Arrays.fill(max, Double.NEGATIVE_INFINITY);
+			int chunk_capacity = MAX_CHUNK_VALUES / Math.max(1, size);
+			chunk = new Signature[Math.max(1, Math.min(MAX_CHUNK_SIGNATURES, chunk_capacity))];
+		}
+		else
+		{
+			size = Math.min(size, sig.getSize());
+			OpUtil.checkDomain(first, sig, size);
+		}
+		num_sigs++;
+		chunk[chunk_length++] = sig;
+		if ( chunk_length == chunk.length )
+			_flush();
+	}
+
+	/** Processes the pending chunk. */
+	private void _flush()
+	{
+		if ( chunk_length == 0 )
+			return;
+
+		long values = (long) chunk_length * size;
+		int num_threads = Runtime.getRuntime().availableProcessors();
+		num_threads = (int) Math.min(num_threads, values / MIN_VALUES_PER_THREAD);
+		num_threads = Math.min(num_threads, size / MIN_INDEXES_PER_THREAD);
+		if ( num_threads <= 1 )
+			_compute(0, size);
+		else
+			_compute(num_threads);
+
+		java.util.Arrays.fill(chunk, 0, chunk_length, null);
+		chunk_length = 0;
+	}
+
+	/** Splits the index range among threads; the calling thread takes
+	  * the first range. */
+	private void _compute(int num_threads)
+	{
+		Thread[] threads = new Thread[num_threads - 1];
+		final Throwable[] error = new Throwable[1];
+		int chunk_size = (size + num_threads - 1) / num_threads;
+		for ( int t = 0; t < threads.length; t++ )
+		{
+			final int from = Math.min(size, (t + 1) * chunk_size);
+			final int to = Math.min(size, from + chunk_size);
+			threads[t] = new Thread("Aggregation-" +t)
+			{
+				public void run()
+				{
+					try
+					{
+						_compute(from, to);
+					}
+					catch(Throwable ex)
+					{
+						synchronized(error)
+						{
+							error[0] = ex;
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+
+		_compute(0, Math.min(size, chunk_size));
+
+		for ( int t = 0; t < threads.length; t++ )
+		{
+			try
+			{
+				threads[t].join();
+			}
+			catch(InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted");
+			}
+		}
+		synchronized(error)
+		{
+			if ( error[0] instanceof RuntimeException )
+				throw (RuntimeException) error[0];
+			if ( error[0] instanceof Error )
+				throw (Error) error[0];
+		}
+	}
+
+	/** Updates the statistics for indexes from..to-1 with the signatures
+	  * in the pending chunk. */
+	private void _compute(int from, int to)
+	{
+		boolean check_missing = !Double.isNaN(missing_value);
+		for ( int k = 0; k < chunk_length; k++ )
+		{
+			Signature sig = chunk[k];
+			for ( int i = from; i < to; i++ )
+			{
+				double y = sig.getY(i);
+				if ( Double.isNaN(y)
+				||   check_missing && Math.abs(missing_value - y) < OpUtil.EPS )
+				{
+					continue;
+				}
+				int n = ++count[i];
+				sum[i] += y;
+				// Welford's update:
+				double d = y - mean[i];
+				mean[i] += d / n;
+				m2[i] += d * (y - mean[i]);
+				if ( min[i] > y )
+					min[i] = y;
+				if ( max[i] < y )
+					max[i] = y;
+			}
+		}
+	}
+
+	/** Gets the number of signatures added. */
+	public int getNumSignatures()
+	{
+		return num_sigs;
+	}
+
+	/** Gets the first signature added; null if none. */
+	public Signature getFirst()
+	{
+		return first;
+	}
+
+	/** Gets the number of indexes. */
+	public int getSize()
+	{
+		return size;
+	}
+
+	/** Gets the number of valid values at an index. */
+	public int getCount(int i)
+	{
+		_flush();
+		return count[i];
+	}
+
+	/** Gets the sum of the valid values at an index; 0 if there are none. */
+	public double getSum(int i)
+	{
+		_flush();
+		return sum[i];
+	}
+
+	/** Gets the average of the valid values at an index;
+	  * the missing value if there are none. */
+	public double getAverage(int i)
+	{
+		_flush();
+		return count[i] > 0 ? sum[i] / count[i] : missing_value;
+	}
+
+	/** Gets the sum of the squared deviations from the average at an index. */
+	public double getSumOfSquaredDeviations(int i)
+	{
+		_flush();
+		return m2[i];
+	}
+
+	/** Gets the minimum valid value at an index;
+	  * the missing value if there are none. */
+	public double getMinimum(int i)
+	{
+		_flush();
+		return count[i] > 0 ? min[i] : missing_value;
+	}
+
+	/** Gets the maximum valid value at an index;
+	  * the missing value if there are none. */
+	public double getMaximum(int i)
+	{
+		_flush();
+		return count[i] > 0 ? max[i] : missing_value;
+	}
+
+	/** Gets the abscissa at an index, taken from the first signature. */
+	public double getX(int i)
+	{
+		return first.getX(i);
+	}
+}
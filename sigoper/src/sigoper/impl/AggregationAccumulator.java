@@ -0,0 +1,74 @@
+package sigoper.impl;
+
+import sigoper.*;
+import sig.Signature;
+
+/**
+ * Accumulator for the operations based on an Aggregation.
+ * <p>Special cases:
+ * <ul>
+ *  <li>If no sigs are given, the result is an empty signature.
+ *  <li>If only one signature is given, this is the result.
+ * </ul>
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+abstract class AggregationAccumulator implements IStreamingMultiSignatureOperation.IAccumulator
+{
+	private final Aggregation agg;
+
+	AggregationAccumulator(double missing_value)
+	{
+		agg = new Aggregation(missing_value);
+	}
+
+	public void add(Signature sig)
+	throws OperationException
+	{
+		agg.add(sig);
+	}
+
+	public Signature getResult()
+	throws OperationException
+	{
+		if ( agg.getNumSignatures() == 0 )
+		{
+			return new Signature();
+		}
+
+		if ( agg.getNumSignatures() == 1 )
+		{
+			return agg.getFirst();
+		}
+
+		int size = agg.getSize();
+		Signature sig = new Signature(null, size);
+		for ( int i = 0; i < size; i++ )
+		{
+			sig.addDatapoint(agg.getX(i), getValue(agg, i));
+		}
+		return sig;
+	}
+
+	/** Gets the resulting value at an index. */
+	abstract double getValue(Aggregation agg, int i);
+
+	/** Parses a missing value parameter; NaN if empty. */
+	static double parseMissingValue(Object par_value)
+	throws OperationException
+	{
+		String mv = OpUtil.getStringParameter(new Object[] { par_value }, 0);
+		if ( mv.length() == 0 )
+		{
+			return Double.NaN;
+		}
+		try
+		{
+			return Double.parseDouble(mv);
+		}
+		catch(Exception ex)
+		{
+			throw new OperationException("Invalid parameter: " +ex.getMessage());
+		}
+	}
+}
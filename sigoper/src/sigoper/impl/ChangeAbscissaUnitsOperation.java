@@ -10,13 +10,13 @@ import java.util.Iterator;
  * @author Carlos A. Rueda
  * @version $Id$ 
  */
-public class ChangeAbscissaUnitsOperation implements ISingleSignatureOperation
+public class ChangeAbscissaUnitsOperation implements IPointOperation
 {
 	static final int CONVERSION_FACTOR = 0;
 	static String[] par_names =        { "convfactor", };
 	static String[] par_descriptions = { "Conversion factor", };
-	static Object[] par_values =       { "0.001",};
-	static ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_values);
+	static Object[] par_defaults =     { "0.001",};
+	private final ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_defaults);
 	
 	public IOperation.IParameterInfo getParameterInfo()
 	{
@@ -34,7 +34,7 @@ public class ChangeAbscissaUnitsOperation implements ISingleSignatureOperation
 	}
 
 	/**
-	 * Performs the operation.
+	 * Performs the operation with the current conversion factor.
 	 *
 	 * @param sig  The signature to be operated.
 	 * @return     The resulting signature.
@@ -42,24 +42,47 @@ public class ChangeAbscissaUnitsOperation implements ISingleSignatureOperation
 	public Signature operate(Signature sig)
 	throws OperationException
 	{
-		double convfactor;
+		return operate(sig, OpUtil.parseParameters(this));
+	}
+
+	/** The conversion factor is parsed into a Double. */
+	public Object parseParameters(Object[] values)
+	throws OperationException
+	{
 		try
 		{
-			convfactor = Double.parseDouble(((String) par_values[CONVERSION_FACTOR]).trim());
+			return new Double(OpUtil.getStringParameter(values, CONVERSION_FACTOR));
 		}
-		catch(Exception ex)
+		catch(NumberFormatException ex)
 		{
 			throw new OperationException("Invalid value for conversion factor: " +ex.getMessage());
 		}
+	}
+
+	/**
+	 * Performs the operation.
+	 *
+	 * @param sig    The signature to be operated.
+	 * @param params The parsed parameters.
+	 * @return       The resulting signature.
+	 */
+	public Signature operate(Signature sig, Object params)
+	{
+		double convfactor = ((Double) params).doubleValue();
 
 		int size = sig.getSize();
-		Signature new_sig = new Signature();
+		Signature new_sig = new Signature(null, size);
 		for ( int i = 0; i < size; i++ )
 		{
-			Signature.Datapoint dp = sig.getDatapoint(i);
-			new_sig.addDatapoint(dp.x * convfactor, dp.y);
+			new_sig.addDatapoint(sig.getX(i) * convfactor, sig.getY(i));
 		}
 
 		return new_sig;
 	}
+
+	public boolean operatePoint(double[] point, Object params)
+	{
+		point[0] *= ((Double) params).doubleValue();
+		return true;
+	}
 }
@@ -46,18 +46,8 @@ public class CorrectionOperation implements ISingleSignatureOperation {
 	
 	static String[] par_names =        { "breakx", "additive", "forward",};
 	static String[] par_descriptions = { "Break point", "Additive correction?", "Apply to the forward?", };
-	static Object[] par_values =       { "975", Boolean.FALSE, Boolean.TRUE, };
-	static boolean additive = false;
-	static boolean forward = true;
-	static ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_values) {
-		public void setValue(int i, Object value) {
-			if ( i == FORWARD )
-				forward = ((Boolean) value).booleanValue();
-			else if ( i == ADDITIVE )
-				additive = ((Boolean) value).booleanValue();
-			super.setValue(i, value);
-		}
-	};
+	static Object[] par_defaults =     { "975", Boolean.FALSE, Boolean.TRUE, };
+	private final ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_defaults);
 	
 	public IOperation.IParameterInfo getParameterInfo() {
 		return parInfo;
@@ -72,12 +62,42 @@ public class CorrectionOperation implements ISingleSignatureOperation {
 	}
 
 	/**
-	 * Jump correction.
+	 * Jump correction with the current parameter values.
 	 *
 	 * @param sig  The signature to be operated.
 	 * @return     The resulting signature.
 	 */
 	public Signature operate(Signature sig)
+	throws OperationException {
+		return operate(sig, OpUtil.parseParameters(this));
+	}
+
+	/** The parsed parameters. */
+	private static final class Parameters {
+		final double breakx;
+		final boolean additive;
+		final boolean forward;
+
+		Parameters(Object[] values) throws OperationException {
+			breakx = OpUtil.getDoubleParameter(values, BREAKX);
+			additive = OpUtil.getBooleanParameter(values, ADDITIVE);
+			forward = OpUtil.getBooleanParameter(values, FORWARD);
+		}
+	}
+
+	public Object parseParameters(Object[] values)
+	throws OperationException {
+		return new Parameters(values);
+	}
+
+	/**
+	 * Jump correction.
+	 *
+	 * @param sig    The signature to be operated.
+	 * @param params The parsed parameters.
+	 * @return       The resulting signature.
+	 */
+	public Signature operate(Signature sig, Object params)
 	throws OperationException {
 	/*
 		Algorithm description
@@ -101,16 +121,10 @@ public class CorrectionOperation implements ISingleSignatureOperation {
 		So the correction will be:
 			correction = q.y - qqy;
 	*/
-		double breakx;
-		try {
-			breakx = Double.parseDouble(((String) par_values[BREAKX]).trim());
-		}
-		catch(Exception ex) {
-			throw new OperationException("Invalid parameters: " +ex.getMessage());
-		}
-System.out.println("breakx=" +breakx);
-System.out.println("forward=" +forward);
-System.out.println("additive=" +additive);
+		Parameters pars = (Parameters) params;
+		double breakx = pars.breakx;
+		boolean additive = pars.additive;
+		boolean forward = pars.forward;
 
 		int size = sig.getSize();
 		int indexx = OpUtil.indexAt(sig, breakx);
@@ -118,29 +132,27 @@ System.out.println("additive=" +additive);
 		if ( indexx - 1 < 0 || indexx + 1 >= size )
 			throw new OperationException("Can't get enough points");
 		
-		Signature.Datapoint o, p, q, r;
+		double ox = sig.getX(indexx - 1), oy = sig.getY(indexx - 1);
+		double px = sig.getX(indexx),     py = sig.getY(indexx);
+		double qx = sig.getX(indexx + 1), qy = sig.getY(indexx + 1);
+		double rx = sig.getX(indexx + 2), ry = sig.getY(indexx + 2);
 		
-		o = sig.getDatapoint(indexx - 1);
-		p = sig.getDatapoint(indexx);
-		q = sig.getDatapoint(indexx + 1);
-		r = sig.getDatapoint(indexx + 2);
+		double t1 = (py - oy) / (px - ox);
+		double t2 = (ry - qy) / (rx - qx);
 		
-		double t1 = (p.y - o.y) / (p.x - o.x);
-		double t2 = (r.y - q.y) / (r.x - q.x);
-		
-		double qqy = (t1 + t2) * (q.x - p.x) / 2  +  p.y;
+		double qqy = (t1 + t2) * (qx - px) / 2  +  py;
 		
 		double correction;
 		if ( additive )
-			correction = q.y - qqy;
+			correction = qy - qqy;
 		else {
-			if ( OpUtil.equalValues(q.y, 0.0) )
-				throw new OperationException("Correction would be infinite. (" +q.y+ ")");
+			if ( OpUtil.equalValues(qy, 0.0) )
+				throw new OperationException("Correction would be infinite. (" +qy+ ")");
 			
-			correction = qqy / q.y;
+			correction = qqy / qy;
 		}
 		
-		Signature new_sig = new Signature();
+		Signature new_sig = new Signature(null, size);
 
 		int fromindex, toindex;
 		
@@ -155,8 +167,7 @@ System.out.println("additive=" +additive);
 		}
 		
 		for ( int i = 0; i < size; i++ ) {
-			p = sig.getDatapoint(i);
-			double y = p.y;
+			double y = sig.getY(i);
 			if ( fromindex <= i && i <= toindex ) {
 				if ( additive )
 					y -= correction;
@@ -164,7 +175,7 @@ System.out.println("additive=" +additive);
 					y *= correction;
 			}
 			
-			new_sig.addDatapoint(p.x, y);
+			new_sig.addDatapoint(sig.getX(i), y);
 		}
 
 		return new_sig;
@@ -10,14 +10,14 @@ import java.util.Iterator;
  * @author Carlos A. Rueda
  * @version $Id$ 
  */
-public class CropOperation implements ISingleSignatureOperation
+public class CropOperation implements IPointOperation
 {
 	static final int FROM = 0;
 	static final int TO = 1;
 	static String[] par_names =        { "from", "to", };
 	static String[] par_descriptions = { "Remove all before wavelength", "Remove all after wavelength", };
-	static Object[] par_values =       { "", "", };
-	static ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_values);
+	static Object[] par_defaults =     { "", "", };
+	private final ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_defaults);
 	
 	public IOperation.IParameterInfo getParameterInfo()
 	{
@@ -35,7 +35,7 @@ public class CropOperation implements ISingleSignatureOperation
 	}
 
 	/**
-	 * Crops a signature.
+	 * Crops a signature with the current range.
 	 *
 	 * @param sig  The signature to be operated.
 	 * @return     The resulting signature.
@@ -43,32 +43,45 @@ public class CropOperation implements ISingleSignatureOperation
 	public Signature operate(Signature sig)
 	throws OperationException
 	{
-		double from, to;
-		try
-		{
-			from = Double.parseDouble(((String) par_values[FROM]).trim());
-			to   = Double.parseDouble(((String) par_values[TO]).trim());
-			if ( from > to )
-			{
-				throw new Exception("Invalid range");
-			}
-		}
-		catch(Exception ex)
-		{
-			throw new OperationException("Invalid parameters: " +ex.getMessage());
-		}
+		return operate(sig, OpUtil.parseParameters(this));
+	}
+
+	/** The range is parsed into a Range. */
+	public Object parseParameters(Object[] values)
+	throws OperationException
+	{
+		return new Range(values, FROM, TO);
+	}
+
+	/**
+	 * Crops a signature.
+	 *
+	 * @param sig    The signature to be operated.
+	 * @param params The parsed parameters.
+	 * @return       The resulting signature.
+	 */
+	public Signature operate(Signature sig, Object params)
+	{
+		double from = ((Range) params).from;
+		double to   = ((Range) params).to;
 
 		int size = sig.getSize();
 		Signature new_sig = new Signature();
 		for ( int i = 0; i < size; i++ )
 		{
-			Signature.Datapoint dp = sig.getDatapoint(i);
-			if ( from <= dp.x && dp.x <= to )
+			double x = sig.getX(i);
+			if ( from <= x && x <= to )
 			{
-				new_sig.addDatapoint(dp.x, dp.y);
+				new_sig.addDatapoint(x, sig.getY(i));
 			}
 		}
 
 		return new_sig;
 	}
+
+	public boolean operatePoint(double[] point, Object params)
+	{
+		Range range = (Range) params;
+		return range.from <= point[0] && point[0] <= range.to;
+	}
 }
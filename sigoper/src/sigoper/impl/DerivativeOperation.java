@@ -6,7 +6,8 @@ import sig.Signature;
 import java.util.Iterator;
 
 /**
- * Gets a derivative of a signature.
+ * Gets a derivative of a signature: the Savitzky-Golay derivative
+ * corresponding to the chosen filter, or a simple finite difference.
  * @author Carlos A. Rueda
  * @version $Id$ 
  */
@@ -16,7 +17,7 @@ public class DerivativeOperation implements ISingleSignatureOperation
 	static final String NO_FILTER = "(Don't smooth)";
 	
 	static String[] par_names =        { "filter-type", };
-	static String[] par_descriptions = { "Smooth first using filter", };
+	static String[] par_descriptions = { "Savitzky-Golay filter", };
 	static String[] filternames = new String[SavitzkyGolayFilter.filters.length + 1];
 	static
 	{
@@ -26,18 +27,8 @@ public class DerivativeOperation implements ISingleSignatureOperation
 		}
 		filternames[filternames.length - 1] = NO_FILTER;
 	}
-	static Object[] par_values =       { filternames, };
-	static String filtername = null;
-	static ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_values)
-	{
-		public void setValue(int i, Object value)
-		{
-			if ( i == FILTER )
-				filtername = (String) value;
-			else
-				super.setValue(i, value);
-		}
-	};
+	static Object[] par_defaults =     { filternames, };
+	private final ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_defaults);
 	
 	public IOperation.IParameterInfo getParameterInfo()
 	{
@@ -56,7 +47,7 @@ public class DerivativeOperation implements ISingleSignatureOperation
 	}
 
 	/**
-	 * Gets a derivative of a signature.
+	 * Gets a derivative of a signature with the current filter.
 	 *
 	 * @param sig  The signature to be operated.
 	 * @return     The resulting signature.
@@ -64,36 +55,56 @@ public class DerivativeOperation implements ISingleSignatureOperation
 	public Signature operate(Signature sig)
 	throws OperationException
 	{
-		SavitzkyGolayFilter filter = null;
-		if ( ! filtername.equals(NO_FILTER) )
+		return operate(sig, OpUtil.parseParameters(this));
+	}
+
+	/**
+	 * The filter is parsed into the SavitzkyGolayFilter for the first
+	 * derivative with the same window and degree, or a String (NO_FILTER)
+	 * if no smoothing is to be done.
+	 */
+	public Object parseParameters(Object[] values)
+	throws OperationException
+	{
+		String filtername = OpUtil.getStringParameter(values, FILTER);
+		if ( filtername.equals(NO_FILTER) )
 		{
-			for ( int i = 0; i < filternames.length; i++ )
-			{
-				if ( filternames[i].equals(filtername) )
-				{
-					filter = SavitzkyGolayFilter.filters[i];
-					break;
-				}
-			}
+			return NO_FILTER;
 		}
-		
-		if ( filter != null )
+		SavitzkyGolayFilter filter = SavitzkyGolayFilter.getFilter(filtername);
+		if ( filter == null )
 		{
-			sig = filter.operate(sig, 0, 9999999);
+			throw new OperationException("Invalid parameters: Unknown filter: " +filtername);
+		}
+		return SavitzkyGolayFilter.getFilter(filter.M, filter.nL, filter.nR, 1);
+	}
+
+	/**
+	 * Gets a derivative of a signature.
+	 *
+	 * @param sig    The signature to be operated.
+	 * @param params The parsed parameters.
+	 * @return       The resulting signature.
+	 */
+	public Signature operate(Signature sig, Object params)
+	throws OperationException
+	{
+		if ( params instanceof SavitzkyGolayFilter )
+		{
+			return ((SavitzkyGolayFilter) params).operate(sig,
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY
+			);
 		}
-		
 		
 		int size = sig.getSize();
-		Signature new_sig = new Signature();
+		Signature new_sig = new Signature(null, size);
 		for ( int i = 0; i < size - 1; i++ )
 		{
-			Signature.Datapoint p = sig.getDatapoint(i);
-			Signature.Datapoint q = sig.getDatapoint(i + 1);
-			double d = (q.y - p.y) / (q.x - p.x);
-			new_sig.addDatapoint(p.x, d);
+			double px = sig.getX(i);
+			double d = (sig.getY(i + 1) - sig.getY(i)) / (sig.getX(i + 1) - px);
+			new_sig.addDatapoint(px, d);
 		}
-		Signature.Datapoint p = sig.getDatapoint(size - 1);
-		new_sig.addDatapoint(p.x, 0.0);
+		new_sig.addDatapoint(sig.getX(size - 1), 0.0);
 
 		return new_sig;
 	}
@@ -10,14 +10,14 @@ import java.util.*;
  * @author Carlos A. Rueda
  * @version $Id$ 
  */
-public class ExtractionMaxOperation implements IMultiSignatureOperation
+public class ExtractionMaxOperation implements IStreamingMultiSignatureOperation
 {
 	static final int FROM = 0;
 	static final int TO = 1;
 	static String[] par_names =        { "from", "to", };
 	static String[] par_descriptions = { "From", "To", };
-	static Object[] par_values =       { "",	"", };
-	static ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_values);
+	static Object[] par_defaults =     { "",	"", };
+	private final ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_defaults);
 	
 	public IOperation.IParameterInfo getParameterInfo()
 	{
@@ -52,36 +52,39 @@ public class ExtractionMaxOperation implements IMultiSignatureOperation
 	public Signature operate(Signature[] sigs)
 	throws OperationException
 	{
-		double from, to;
-		try
+		return OpUtil.operate(this, sigs);
+	}
+
+	public Signature operate(Signature[] sigs, Object params)
+	throws OperationException
+	{
+		return OpUtil.operate(this, sigs, params);
+	}
+
+	/** The range is parsed into a Range. */
+	public Object parseParameters(Object[] values)
+	throws OperationException
+	{
+		return new Range(values, FROM, TO);
+	}
+
+	public IStreamingMultiSignatureOperation.IAccumulator createAccumulator()
+	throws OperationException
+	{
+		return createAccumulator(OpUtil.parseParameters(this));
+	}
+
+	public IStreamingMultiSignatureOperation.IAccumulator createAccumulator(Object params)
+	{
+		final Range range = (Range) params;
+		return new ScalarAccumulator()
 		{
-			from = Double.parseDouble(((String) par_values[FROM]).trim());
-			to   = Double.parseDouble(((String) par_values[TO]).trim());
-			if ( from > to )
+			double compute(Signature sig)
+			throws OperationException
 			{
-				throw new Exception("Invalid range");
+				int max_index = OpUtil.findMaxIndex(sig, 0, range.from, range.to);
+				return sig.getY(max_index);
 			}
-		}
-		catch(Exception ex)
-		{
-			throw new OperationException("Invalid parameters: " +ex.getMessage());
-		}
-		
-		Signature sig = new Signature();
-		if ( sigs == null || sigs.length == 0 )
-		{
-			return sig;
-		}
-		
-		for ( int i = 0; i < sigs.length; i++ )
-		{
-			int max_index = OpUtil.findMaxIndex(sigs[i], 0, from, to);
-			Signature.Datapoint dp = sigs[i].getDatapoint(max_index);
-			double y = dp.y;
-			sig.addDatapoint(i + 1, y, sigs[i].getUserObject());
-		}
-			
-		return sig;
+		};
 	}
 }
-
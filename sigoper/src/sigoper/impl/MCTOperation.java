@@ -29,13 +29,13 @@ public class MCTOperation implements ISingleSignatureOperation
 		"Find minimum from", 
 		"Find minimum to",
 	};
-	static Object[] par_values = { 
+	static Object[] par_defaults = { 
 		"540",
 		"565",
 		"660",
 		"685",
 	};
-	static ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_values);
+	private final ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_defaults);
 	
 
 	public IOperation.IParameterInfo getParameterInfo()
@@ -54,7 +54,7 @@ public class MCTOperation implements ISingleSignatureOperation
 	}
 
 	/**
-	 * Computes the MCT of a signature.
+	 * Computes the MCT of a signature with the current parameter values.
 	 *
 	 * @param sig  The signature to be operated.
 	 * @return     The resulting signature.
@@ -62,22 +62,43 @@ public class MCTOperation implements ISingleSignatureOperation
 	public Signature operate(Signature sig)
 	throws OperationException
 	{
-		double max_from, max_to;
-		double min_from, min_to;
-		
-		try
-		{
-			max_from = Double.parseDouble((String) par_values[MAX_FROM]);
-			max_to = Double.parseDouble((String) par_values[MAX_TO]);
-			min_from = Double.parseDouble((String) par_values[MIN_FROM]);
-			min_to = Double.parseDouble((String) par_values[MIN_TO]);
-		}
-		catch(Exception ex)
+		return operate(sig, OpUtil.parseParameters(this));
+	}
+
+	/** The parsed parameters. */
+	private static final class Parameters
+	{
+		final double max_from, max_to;
+		final double min_from, min_to;
+
+		Parameters(Object[] values)
+		throws OperationException
 		{
-			throw new OperationException("Invalid parameter: " +ex.getMessage());
+			max_from = OpUtil.getDoubleParameter(values, MAX_FROM);
+			max_to = OpUtil.getDoubleParameter(values, MAX_TO);
+			min_from = OpUtil.getDoubleParameter(values, MIN_FROM);
+			min_to = OpUtil.getDoubleParameter(values, MIN_TO);
 		}
-		
-		return mct(sig, max_from, max_to, min_from, min_to);
+	}
+
+	public Object parseParameters(Object[] values)
+	throws OperationException
+	{
+		return new Parameters(values);
+	}
+
+	/**
+	 * Computes the MCT of a signature.
+	 *
+	 * @param sig    The signature to be operated.
+	 * @param params The parsed parameters.
+	 * @return       The resulting signature.
+	 */
+	public Signature operate(Signature sig, Object params)
+	throws OperationException
+	{
+		Parameters p = (Parameters) params;
+		return mct(sig, p.max_from, p.max_to, p.min_from, p.min_to);
 	}
 
 	/**
@@ -100,20 +121,22 @@ public class MCTOperation implements ISingleSignatureOperation
 		int from_index = OpUtil.findMaxIndex(sig, 0, max_from, max_to);
 		int to_index   = OpUtil.findMinIndex(sig, from_index, min_from, min_to);
 		
-		Signature.Datapoint p = sig.getDatapoint(from_index);
-		Signature.Datapoint q = sig.getDatapoint(to_index);
+		double px = sig.getX(from_index);
+		double py = sig.getY(from_index);
+		double qx = sig.getX(to_index);
+		double qy = sig.getY(to_index);
 
-		Signature new_sig = new Signature();
-		new_sig.addDatapoint(p.x, 0.0);
+		Signature new_sig = new Signature(null, to_index - from_index + 1);
+		new_sig.addDatapoint(px, 0.0);
 		for ( int i = from_index + 1; i < to_index ; i++ )
 		{
-			Signature.Datapoint r = sig.getDatapoint(i);
-			double y = OpUtil.interpolate(p.x, p.y, q.x, q.y, r.x);
+			double rx = sig.getX(i);
+			double y = OpUtil.interpolate(px, py, qx, qy, rx);
 			
-			double val = r.y - y;
-			new_sig.addDatapoint(r.x, val);
+			double val = sig.getY(i) - y;
+			new_sig.addDatapoint(rx, val);
 		}
-		new_sig.addDatapoint(q.x, 0.0);
+		new_sig.addDatapoint(qx, 0.0);
 
 		return new_sig;
 	}
@@ -10,7 +10,7 @@ import java.util.*;
  * @author Carlos A. Rueda
  * @version $Id$ 
  */
-public class NDWIOperation implements IMultiSignatureOperation
+public class NDWIOperation implements IStreamingMultiSignatureOperation
 {
 	public IOperation.IParameterInfo getParameterInfo()
 	{
@@ -45,19 +45,35 @@ public class NDWIOperation implements IMultiSignatureOperation
 	public Signature operate(Signature[] sigs)
 	throws OperationException
 	{
-		Signature sig = new Signature();
-		if ( sigs == null || sigs.length == 0 )
-		{
-			return sig;
-		}
-		
-		for ( int i = 0; i < sigs.length; i++ )
+		return OpUtil.operate(this, sigs);
+	}
+
+	public Signature operate(Signature[] sigs, Object params)
+	throws OperationException
+	{
+		return OpUtil.operate(this, sigs, params);
+	}
+
+	public Object parseParameters(Object[] values)
+	{
+		return null;
+	}
+
+	public IStreamingMultiSignatureOperation.IAccumulator createAccumulator()
+	{
+		return createAccumulator(null);
+	}
+
+	public IStreamingMultiSignatureOperation.IAccumulator createAccumulator(Object params)
+	{
+		return new ScalarAccumulator()
 		{
-			double y = ndwi(sigs[i]);
-			sig.addDatapoint(i + 1, y, sigs[i].getUserObject());
-		}
-			
-		return sig;
+			double compute(Signature sig)
+			throws OperationException
+			{
+				return ndwi(sig);
+			}
+		};
 	}
 
 	/**
@@ -19,10 +19,10 @@ public class NormalizeOperation implements IBinarySignatureOperation
 	static String[] par_descriptions = { 
 		"Base wavelength", 
 	};
-	static Object[] par_values = { 
+	static Object[] par_defaults = { 
 		"",
 	};
-	static ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_values);
+	private final ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_defaults);
 	
 	public IOperation.IParameterInfo getParameterInfo()
 	{
@@ -39,34 +39,40 @@ public class NormalizeOperation implements IBinarySignatureOperation
 		return "Normalizes according to the reference signature at a given wavelength";
 	}
 
+	/**
+	 * Computes scale*sig0 with the current base wavelength.
+	 */
+	public Signature operate(Signature sig0, Signature sig1)
+	throws OperationException
+	{
+		return operate(sig0, sig1, OpUtil.parseParameters(this));
+	}
+
+	/** The base wavelength is parsed into a Double. */
+	public Object parseParameters(Object[] values)
+	throws OperationException
+	{
+		return new Double(OpUtil.getDoubleParameter(values, DESIRED_POINT));
+	}
+
 	/**
 	 * Computes scale*sig0, where scale = sig1(x) / sig0(x) and x is the
 	 * base wavelength.
 	 */
-	public Signature operate(Signature sig0, Signature sig1)
+	public Signature operate(Signature sig0, Signature sig1, Object params)
 	throws OperationException
 	{
-		double desired_point;
-		
-		try
-		{
-			desired_point = Double.parseDouble((String) par_values[DESIRED_POINT]);
-		}
-		catch(Exception ex)
-		{
-			throw new OperationException("Invalid parameter: " +ex.getMessage());
-		}
+		double desired_point = ((Double) params).doubleValue();
 
 		double num = OpUtil.valueAt(sig1, desired_point);
 		double den = OpUtil.valueAt(sig0, desired_point);
 		double scale = den != 0.0 ? num/den : 1.0;
 
 		int size = sig0.getSize();
-		Signature new_sig = new Signature();
+		Signature new_sig = new Signature(null, size);
 		for ( int i = 0; i < size; i++ )
 		{
-			Signature.Datapoint dp = sig0.getDatapoint(i);
-			new_sig.addDatapoint(dp.x, dp.y * scale);
+			new_sig.addDatapoint(sig0.getX(i), sig0.getY(i) * scale);
 		}
 		
 		return new_sig;
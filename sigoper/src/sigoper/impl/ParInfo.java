@@ -8,6 +8,12 @@ import java.util.Iterator;
 
 /**
  * A basic parameter info implementation based on arrays.
+ * The given values are copied, so the arrays can be shared as defaults
+ * by several instances.
+ * <p>
+ * A parameter whose value is a String[] is a choice among its elements:
+ * getValue always returns the String[], while the value set is the
+ * selected element, returned by getValues.
  * @author Carlos A. Rueda
  * @version $Id$ 
  */
@@ -16,6 +22,9 @@ public class ParInfo implements IOperation.IParameterInfo
 	String[] par_names; 
 	String[] par_descriptions; 
 	Object[] par_values; 
+	
+	/** the selected elements for choice parameters */
+	Object[] par_choices;
 
 	public ParInfo(
 		String[] par_names, 
@@ -25,7 +34,8 @@ public class ParInfo implements IOperation.IParameterInfo
 	{
 		this.par_names = par_names;
 		this.par_descriptions = par_descriptions;
-		this.par_values = par_values;
+		this.par_values = (Object[]) par_values.clone();
+		this.par_choices = new Object[par_values.length];
 	}
 	
 	public int getNumParameters()
@@ -40,13 +50,30 @@ public class ParInfo implements IOperation.IParameterInfo
 	{
 		return par_descriptions[i];
 	}
-	public Object getValue(int i)
+	public synchronized Object getValue(int i)
 	{
 		return par_values[i];
 	}
-	public void setValue(int i, Object value)
+	public synchronized void setValue(int i, Object value)
 	{
-		par_values[i] = value;
+		if ( par_values[i] instanceof String[] )
+			par_choices[i] = value;
+		else
+			par_values[i] = value;
+	}
+	
+	/**
+	 * Gets a copy of the current values, with the selected element
+	 * for each choice parameter that has been set.
+	 */
+	public synchronized Object[] getValues()
+	{
+		Object[] values = (Object[]) par_values.clone();
+		for ( int i = 0; i < values.length; i++ )
+		{
+			if ( par_choices[i] != null )
+				values[i] = par_choices[i];
+		}
+		return values;
 	}
 }
-
@@ -0,0 +1,33 @@
+package sigoper.impl;
+
+import sigoper.*;
+
+/**
+ * An immutable range of abscissas, parsed from two parameter values.
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+final class Range
+{
+	final double from;
+	final double to;
+
+	/**
+	 * Parses a range.
+	 *
+	 * @param values   The parameter values.
+	 * @param from_par Index of the lower limit.
+	 * @param to_par   Index of the upper limit.
+	 * @throws OperationException If a value is invalid, or from &gt; to.
+	 */
+	Range(Object[] values, int from_par, int to_par)
+	throws OperationException
+	{
+		from = OpUtil.getDoubleParameter(values, from_par);
+		to   = OpUtil.getDoubleParameter(values, to_par);
+		if ( from > to )
+		{
+			throw new OperationException("Invalid parameters: Invalid range");
+		}
+	}
+}
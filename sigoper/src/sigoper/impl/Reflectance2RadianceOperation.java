@@ -10,12 +10,21 @@ import sig.Signature;
  * @version $Id$ 
  */
 public class Reflectance2RadianceOperation implements IBinarySignatureOperation {
-	static ParInfo parInfo = null; // none
+	static final ParInfo parInfo = null; // none
 	
 	public IOperation.IParameterInfo getParameterInfo() {
 		return parInfo;
 	}
 	
+	public Object parseParameters(Object[] values) {
+		return null;
+	}
+	
+	public Signature operate(Signature refl_sig, Signature irrad_sig, Object params)
+	throws OperationException {
+		return operate(refl_sig, irrad_sig);
+	}
+	
 	public String getName() {
 		return "Reflectance to radiance";
 	}
@@ -25,6 +34,9 @@ public class Reflectance2RadianceOperation implements IBinarySignatureOperation
 	}
 
 	/** Performs the Reflectance to radiance operation.
+	  * The irradiance values at the reflectance wavelengths are obtained
+	  * with a ResamplingPlan, shared by all reflectance signatures with the
+	  * same abscissas.
 	  *
 	  * @param refl - The reflectance signature
 	  *
@@ -32,34 +44,72 @@ public class Reflectance2RadianceOperation implements IBinarySignatureOperation
 	  */
 	public Signature operate(Signature refl_sig, Signature irrad_sig)
 	throws OperationException {
-		// create the resulting radiance signature:	
-		Signature new_rad = new Signature();
-		
-		// We will use OpUtil.averagedValueAt; for the required
-		// winsize, we take just the distance between two
+		return _operate(refl_sig, _getIrradianceValues(refl_sig, irrad_sig));
+	}
+
+	/** Performs the Reflectance to radiance operation on a number of
+	  * reflectance signatures. The irradiance values are reused while
+	  * consecutive signatures have the same abscissas.
+	  *
+	  * @param refl_sigs - The reflectance signatures
+	  *
+	  * @param irrad - The irradiance signature.
+	  */
+	public Signature[] operate(Signature[] refl_sigs, Signature irrad_sig)
+	throws OperationException {
+		Signature[] res = new Signature[refl_sigs.length];
+		Signature grid = null;
+		double[] irrad_vals = null;
+		for ( int i = 0; i < refl_sigs.length; i++ ) {
+			if ( grid == null || !_sameAbscissas(grid, refl_sigs[i]) ) {
+				grid = refl_sigs[i];
+				irrad_vals = _getIrradianceValues(grid, irrad_sig);
+			}
+			res[i] = _operate(refl_sigs[i], irrad_vals);
+		}
+		return res;
+	}
+
+	/** Gets the irradiance values at the reflectance wavelengths. */
+	private static double[] _getIrradianceValues(Signature refl_sig, Signature irrad_sig)
+	throws OperationException {
+		// We will use a window averaging as OpUtil.averagedValueAt; for the
+		// required winsize, we take just the distance between two
 		// consecutive samples in refl signature:
-		double x0 = refl_sig.getDatapoint(0).x;
-		double x1 = refl_sig.getDatapoint(1).x;
+		double x0 = refl_sig.getX(0);
+		double x1 = refl_sig.getX(1);
 		double winsize = x1 - x0;
-		
-		// for each datapoint in reflectance:
+		ResamplingPlan plan = ResamplingPlan.getAveragingPlan(irrad_sig, refl_sig, winsize);
+
+		// get the irradiance values by averaging in the windows
+		// centered at the reflectance wavelengths:
+		double[] irrad_vals = new double[plan.getSize()];
+		plan.apply(irrad_sig, irrad_vals);
+		return irrad_vals;
+	}
+
+	private static Signature _operate(Signature refl_sig, double[] irrad_vals) {
+		// create the resulting radiance signature:	
 		int refl_size = refl_sig.getSize();
+		Signature new_rad = new Signature(null, refl_size);
 		for ( int i = 0; i < refl_size; i++ ) {
-			// get the i-th datapoint: 
-			Signature.Datapoint refl_point = refl_sig.getDatapoint(i);
-	
-			// get the irradiance value by averaging in the window
-			// centered at the reflectance wavelength:
-			double irrad_val = OpUtil.averagedValueAt(irrad_sig, refl_point.x, winsize);
-			
 			// apply conversion:
-			double rad = refl_point.y * irrad_val / Math.PI;
-			
-			// and add the new point to resulting radiance:
-			new_rad.addDatapoint(refl_point.x, rad);
+			double rad = refl_sig.getY(i) * irrad_vals[i] / Math.PI;
+			new_rad.addDatapoint(refl_sig.getX(i), rad);
 		}
 	
 		// done. Return the created radiance signature:
 		return new_rad;
 	}
+
+	private static boolean _sameAbscissas(Signature sig1, Signature sig2) {
+		int size = sig1.getSize();
+		if ( size != sig2.getSize() )
+			return false;
+		for ( int i = 0; i < size; i++ ) {
+			if ( sig1.getX(i) != sig2.getX(i) )
+				return false;
+		}
+		return true;
+	}
 }
@@ -0,0 +1,351 @@
+package sigoper.impl;
+
+import sigoper.*;
+import sig.Signature;
+
+import java.util.*;
+
+/**
+ * A precomputed resampling from a source wavelength grid to a set of
+ * target wavelengths. Each resulting value is a weighted sum of the
+ * source values in a window, divided by a normalization factor; the
+ * weights are kept as a sparse matrix (one contiguous window per target).
+ * <p>
+ * A plan only depends on the source abscissas (and on the reference
+ * defining the targets), so it can be applied to any signature sampled on
+ * the same grid. The plans are cached, keyed by the grids, so spectra
+ * sharing a grid and a reference reuse the same plan. Plans are immutable.
+ *
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+public final class ResamplingPlan {
+	/** Maximum number of cached plans. */
+	private static final int MAX_CACHED_PLANS = 32;
+
+	/** Key -> ResamplingPlan, in access order. */
+	private static final Map cache = new LinkedHashMap(16, 0.75f, true) {
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > MAX_CACHED_PLANS;
+		}
+	};
+
+	private final double[] source_xs;
+	private final double[] xs;
+	/** first source index of the window for each target */
+	private final int[] first;
+	/** weights for target b are in [offsets[b], offsets[b+1]) */
+	private final int[] offsets;
+	private final double[] weights;
+	private final double[] norms;
+
+	private ResamplingPlan(double[] source_xs, double[] xs, int[] first,
+	int[] offsets, double[] weights, double[] norms) {
+		this.source_xs = source_xs;
+		this.xs = xs;
+		this.first = first;
+		this.offsets = offsets;
+		this.weights = weights;
+		this.norms = norms;
+	}
+
+	/**
+	 * Gets the plan for a FWHM based resampling: each target is a
+	 * band in the reference signature, given as (wavelength, FWHM), and
+	 * the source values in [w - FWHM, w + FWHM] are weighted by the
+	 * corresponding gaussian function. See FWHMSamplingOperation.
+	 *
+	 * @param sig The signature defining the source grid.
+	 * @param ref The FWHM signature.
+	 * @throws OperationException If sig is undefined at some band.
+	 */
+	public static ResamplingPlan getFWHMPlan(Signature sig, Signature ref)
+	throws OperationException {
+		Key key = new Key("fwhm", sig.getXs(), ref.getXs(), ref.getYs());
+		ResamplingPlan plan = _getCached(key);
+		if ( plan == null ) {
+			plan = _createFWHMPlan(sig, ref);
+			_putCached(key, plan);
+		}
+		return plan;
+	}
+
+	/**
+	 * Gets the plan for a window averaging: each target is an abscissa in
+	 * grid, and the result is the simple average of the source values in
+	 * [x - winsize/2, x + winsize/2], as OpUtil.averagedValueAt.
+	 *
+	 * @param sig     The signature defining the source grid.
+	 * @param grid    The signature defining the target abscissas.
+	 * @param winsize Window size.
+	 * @throws OperationException If sig is undefined at some target.
+	 */
+	public static ResamplingPlan getAveragingPlan(Signature sig, Signature grid, double winsize)
+	throws OperationException {
+		Key key = new Key("avg", sig.getXs(), grid.getXs(), new double[] { winsize });
+		ResamplingPlan plan = _getCached(key);
+		if ( plan == null ) {
+			plan = _createAveragingPlan(sig, grid, winsize);
+			_putCached(key, plan);
+		}
+		return plan;
+	}
+
+	private static ResamplingPlan _getCached(Key key) {
+		synchronized ( cache ) {
+			return (ResamplingPlan) cache.get(key);
+		}
+	}
+
+	private static void _putCached(Key key, ResamplingPlan plan) {
+		synchronized ( cache ) {
+			cache.put(key, plan);
+		}
+	}
+
+	/** Removes all cached plans. */
+	public static void clearCache() {
+		synchronized ( cache ) {
+			cache.clear();
+		}
+	}
+
+	private static ResamplingPlan _createFWHMPlan(Signature sig, Signature ref)
+	throws OperationException {
+		int ref_size = ref.getSize();
+		int sig_size = sig.getSize();
+		Builder builder = new Builder(sig, ref_size);
+
+		for ( int i = 0; i < ref_size; i++ ) {
+			// wavelength at which we want resample sig:
+			double w = ref.getX(i);
+
+			double fwhm = ref.getY(i);
+			double sigma = fwhm / FWHMSamplingOperation.kte;
+
+			// as suggested by P.Z.
+			double winsize2 = fwhm;   // == winsize/2
+
+			// just to check that at least the signature is defined at w
+			OpUtil.indexAt(sig, w);
+
+			// corresponding indices:
+			int inf_idx = OpUtil.rightMostIndexAt(sig, w - winsize2);
+			int sup_idx = OpUtil.leftMostIndexAt(sig, w + winsize2);
+
+			// the following adjustments are OK since we already know
+			// the signature is at least defined at the center abscissa:
+			if ( inf_idx < 0 )
+				inf_idx = 0;
+			if ( sup_idx >= sig_size )
+				sup_idx = sig_size -1;
+
+			builder.startRow(w, inf_idx);
+			double ker_sum = 0.0;
+			for ( int j = inf_idx; j <= sup_idx; j++ ) {
+				double x = sig.getX(j);
+				double spxw2 = (x-w)*(x-w);
+				double sigma2 = sigma*sigma;
+
+				double weight = Math.exp(-spxw2 / (2*sigma2));
+				ker_sum += weight;
+				builder.addWeight(weight);
+			}
+			builder.endRow(ker_sum);
+		}
+		return builder.create();
+	}
+
+	private static ResamplingPlan _createAveragingPlan(Signature sig, Signature grid, double winsize)
+	throws OperationException {
+		int grid_size = grid.getSize();
+		int size = sig.getSize();
+		Builder builder = new Builder(sig, grid_size);
+		double winsize2 = winsize/2;
+
+		for ( int i = 0; i < grid_size; i++ ) {
+			double at = grid.getX(i);
+
+			// as in OpUtil.averagedValueAt:
+			OpUtil.indexAt(sig, at);
+			int inf_idx = OpUtil.rightMostIndexAt(sig, at - winsize2);
+			int sup_idx = OpUtil.leftMostIndexAt(sig, at + winsize2);
+			if ( inf_idx < 0 )
+				inf_idx = 0;
+			if ( sup_idx >= size )
+				sup_idx = size -1;
+			if ( sup_idx < inf_idx )
+				sup_idx = inf_idx;
+
+			builder.startRow(at, inf_idx);
+			for ( int j = inf_idx; j <= sup_idx; j++ )
+				builder.addWeight(1.0);
+			builder.endRow(sup_idx - inf_idx + 1);
+		}
+		return builder.create();
+	}
+
+	/** Gets the number of resulting values. */
+	public int getSize() {
+		return xs.length;
+	}
+
+	/** Gets the number of stored weights. */
+	public int getNumWeights() {
+		return offsets[xs.length];
+	}
+
+	/** Tells if a signature is defined on the source grid of this plan. */
+	public boolean appliesTo(Signature sig) {
+		int size = sig.getSize();
+		if ( size != source_xs.length )
+			return false;
+		for ( int i = 0; i < size; i++ ) {
+			if ( Double.doubleToLongBits(sig.getX(i)) != Double.doubleToLongBits(source_xs[i]) )
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Resamples values given on the source grid.
+	 *
+	 * @param ys  The source values.
+	 * @param out The resulting values; at least getSize() elements.
+	 */
+	public void apply(double[] ys, double[] out) {
+		for ( int b = 0; b < xs.length; b++ ) {
+			double sum = 0.0;
+			int j = first[b];
+			for ( int k = offsets[b]; k < offsets[b + 1]; k++, j++ )
+				sum += weights[k] * ys[j];
+			out[b] = sum / norms[b];
+		}
+	}
+
+	/**
+	 * Resamples a signature.
+	 *
+	 * @param sig The signature, defined on the source grid.
+	 * @return    The resulting signature.
+	 * @throws OperationException If the signature is not defined on the
+	 *         source grid.
+	 */
+	public Signature apply(Signature sig) throws OperationException {
+		double[] out = new double[xs.length];
+		apply(sig, out);
+		Signature new_sig = new Signature(null, xs.length);
+		for ( int b = 0; b < xs.length; b++ )
+			new_sig.addDatapoint(xs[b], out[b]);
+		return new_sig;
+	}
+
+	/**
+	 * Resamples a number of signatures.
+	 *
+	 * @param sigs The signatures, all defined on the source grid.
+	 * @return     The resulting signatures.
+	 * @throws OperationException If a signature is not defined on the
+	 *         source grid.
+	 */
+	public Signature[] apply(Signature[] sigs) throws OperationException {
+		Signature[] res = new Signature[sigs.length];
+		for ( int i = 0; i < sigs.length; i++ )
+			res[i] = apply(sigs[i]);
+		return res;
+	}
+
+	/** Resamples the values of a signature into out. */
+	void apply(Signature sig, double[] out) throws OperationException {
+		if ( !appliesTo(sig) )
+			throw new OperationException("signature not defined on the grid of the resampling plan");
+		double[] ys = new double[source_xs.length];
+		sig.copyYsInto(ys);
+		apply(ys, out);
+	}
+
+	/** Collects the rows of a plan. */
+	private static final class Builder {
+		final double[] source_xs;
+		final double[] xs;
+		final int[] first;
+		final int[] offsets;
+		final double[] norms;
+		double[] weights;
+		int row;
+		int num_weights;
+
+		Builder(Signature sig, int rows) {
+			source_xs = sig.getXs();
+			xs = new double[rows];
+			first = new int[rows];
+			offsets = new int[rows + 1];
+			norms = new double[rows];
+			weights = new double[Math.max(16, rows * 4)];
+		}
+
+		void startRow(double x, int first_index) {
+			xs[row] = x;
+			first[row] = first_index;
+			offsets[row] = num_weights;
+		}
+
+		void addWeight(double weight) {
+			if ( num_weights == weights.length ) {
+				double[] new_weights = new double[weights.length * 2];
+				System.arraycopy(weights, 0, new_weights, 0, num_weights);
+				weights = new_weights;
+			}
+			weights[num_weights++] = weight;
+		}
+
+		void endRow(double norm) {
+			norms[row] = norm;
+			offsets[++row] = num_weights;
+		}
+
+		ResamplingPlan create() {
+			double[] w = new double[num_weights];
+			System.arraycopy(weights, 0, w, 0, num_weights);
+			return new ResamplingPlan(source_xs, xs, first, offsets, w, norms);
+		}
+	}
+
+	/** Cache key: a kind of plan, and the grids it was computed from. */
+	private static final class Key {
+		final String kind;
+		final double[][] grids;
+		final int hash;
+
+		Key(String kind, double[] source, double[] a, double[] b) {
+			this.kind = kind;
+			this.grids = new double[][] { source, a, b };
+			int h = kind.hashCode();
+			for ( int i = 0; i < grids.length; i++ ) {
+				double[] grid = grids[i];
+				for ( int j = 0; j < grid.length; j++ ) {
+					long bits = Double.doubleToLongBits(grid[j]);
+					h = 31 * h + (int) (bits ^ (bits >>> 32));
+				}
+			}
+			hash = h;
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+
+		public boolean equals(Object o) {
+			if ( !(o instanceof Key) )
+				return false;
+			Key other = (Key) o;
+			if ( hash != other.hash || !kind.equals(other.kind) )
+				return false;
+			for ( int i = 0; i < grids.length; i++ ) {
+				if ( !Arrays.equals(grids[i], other.grids[i]) )
+					return false;
+			}
+			return true;
+		}
+	}
+}
@@ -3,11 +3,17 @@ package sigoper.impl;
 import sigoper.*;
 import sig.Signature;
 
-import java.util.Iterator;
+import java.util.*;
 
 /**
  * A Savitzky-Golay filter.
  * Some filter definitions are also available. See 'filters'.
+ * Other filters, including derivative filters, are computed on demand
+ * by least-squares fitting. See getFilter(int,int,int,int).
+ * <p>
+ * Points closer than nL (nR) to the beginning (end) of the signature are
+ * evaluated with a window of the same length shifted into the signature,
+ * that is, with the corresponding asymmetric filter.
  * @author Carlos A. Rueda
  * @version $Id$ 
  */
@@ -16,16 +22,26 @@ public class SavitzkyGolayFilter
 	int M;   // just informative.
 	int nL;
 	int nR;
+	int ld;  // order of the derivative; 0 for smoothing
 	double[] coeffs;
 	
+	/** "M-nL-nR-ld" -> computed SavitzkyGolayFilter */
+	private static final Map computed = new HashMap();
+	
 	/**
 	 * Creates a filter with given parameters and coefficients.
 	 */
 	public SavitzkyGolayFilter(int M, int nL, int nR, double[] coeffs)
+	{
+		this(M, nL, nR, 0, coeffs);
+	}
+
+	private SavitzkyGolayFilter(int M, int nL, int nR, int ld, double[] coeffs)
 	{
 		this.M = M;
 		this.nL = nL;
 		this.nR = nR;
+		this.ld = ld;
 		this.coeffs = coeffs;
 		if ( coeffs.length != nL + 1 + nR )
 		{
@@ -34,15 +50,213 @@ public class SavitzkyGolayFilter
 	}
 
 	/**
-	 * Returns "SG:M-nL-nR"
+	 * Returns "SG:M-nL-nR", or "SG:M-nL-nR-dN" for a derivative filter
+	 * of order N.
 	 */
 	public String toString()
 	{
-		return "SG:" +M+ "-" +nL+ "-" +nR;
+		return "SG:" +M+ "-" +nL+ "-" +nR + (ld > 0 ? "-d" +ld : "");
+	}
+
+	/**
+	 * Gets a filter by name. The name of one of the available filters
+	 * gives that filter; other names in the format returned by toString()
+	 * give the corresponding computed filter.
+	 *
+	 * @param name As returned by toString().
+	 *
+	 * @return The filter; null if the name is not valid.
+	 */
+	public static SavitzkyGolayFilter getFilter(String name)
+	{
+		for ( int i = 0; i < filters.length; i++ )
+		{
+			if ( filters[i].toString().equals(name) )
+			{
+				return filters[i];
+			}
+		}
+		if ( !name.startsWith("SG:") )
+		{
+			return null;
+		}
+		String[] parts = name.substring(3).split("-");
+		if ( parts.length < 3 || parts.length > 4 )
+		{
+			return null;
+		}
+		try
+		{
+			int M = Integer.parseInt(parts[0]);
+			int nL = Integer.parseInt(parts[1]);
+			int nR = Integer.parseInt(parts[2]);
+			int ld = 0;
+			if ( parts.length == 4 )
+			{
+				if ( !parts[3].startsWith("d") )
+				{
+					return null;
+				}
+				ld = Integer.parseInt(parts[3].substring(1));
+			}
+			return getFilter(M, nL, nR, ld);
+		}
+		catch (IllegalArgumentException ex)
+		{
+			// includes NumberFormatException
+			return null;
+		}
+	}
+
+	/**
+	 * Gets a filter fitting a polynomial of degree M to the points in a
+	 * window [i-nL, i+nR], and evaluating its ld-th derivative at i. The
+	 * coefficients assume unit spacing; see operate.
+	 * Filters are computed once and cached.
+	 *
+	 * @param M  Degree of the polynomial.
+	 * @param nL Number of points to the left.
+	 * @param nR Number of points to the right.
+	 * @param ld Order of the derivative; 0 for smoothing.
+	 *
+	 * @return The filter.
+	 * @throws IllegalArgumentException If not 0 &lt;= ld &lt;= M &lt;= nL+nR,
+	 *         or nL or nR are negative.
+	 */
+	public static SavitzkyGolayFilter getFilter(int M, int nL, int nR, int ld)
+	{
+		if ( nL < 0 || nR < 0 || ld < 0 || ld > M || M > nL + nR )
+		{
+			throw new IllegalArgumentException(
+				"Invalid Savitzky-Golay filter: M=" +M+ " nL=" +nL+ " nR=" +nR+ " ld=" +ld
+			);
+		}
+		String key = M+ "-" +nL+ "-" +nR+ "-" +ld;
+		synchronized ( computed )
+		{
+			SavitzkyGolayFilter filter = (SavitzkyGolayFilter) computed.get(key);
+			if ( filter == null )
+			{
+				filter = new SavitzkyGolayFilter(M, nL, nR, ld, _computeCoefficients(M, nL, nR, ld));
+				computed.put(key, filter);
+			}
+			return filter;
+		}
+	}
+
+	/**
+	 * Computes the coefficients as in Numerical Recipes' savgol: the
+	 * ld-th row of (A'A)^-1 A', with A[k][m] = k^m, times ld!.
+	 */
+	private static double[] _computeCoefficients(int M, int nL, int nR, int ld)
+	{
+		int m1 = M + 1;
+
+		// normal equations, augmented with the unit vector e_ld:
+		double[][] a = new double[m1][m1 + 1];
+		for ( int i = 0; i < m1; i++ )
+		{
+			for ( int j = 0; j < m1; j++ )
+			{
+				double sum = 0.0;
+				for ( int k = -nL; k <= nR; k++ )
+				{
+					sum += Math.pow(k, i + j);
+				}
+				a[i][j] = sum;
+			}
+		}
+		a[ld][m1] = 1.0;
+
+		// Gauss-Jordan elimination with partial pivoting:
+		for ( int c = 0; c < m1; c++ )
+		{
+			int pivot = c;
+			for ( int r = c + 1; r < m1; r++ )
+			{
+				if ( Math.abs(a[r][c]) > Math.abs(a[pivot][c]) )
+				{
+					pivot = r;
+				}
+			}
+			double[] tmp = a[c];
+			a[c] = a[pivot];
+			a[pivot] = tmp;
+			for ( int r = 0; r < m1; r++ )
+			{
+				if ( r != c )
+				{
+					double f = a[r][c] / a[c][c];
+					for ( int j = c; j <= m1; j++ )
+					{
+						a[r][j] -= f * a[c][j];
+					}
+				}
+			}
+		}
+
+		double fact = 1.0;
+		for ( int i = 2; i <= ld; i++ )
+		{
+			fact *= i;
+		}
+		double[] coeffs = new double[nL + 1 + nR];
+		for ( int k = -nL; k <= nR; k++ )
+		{
+			double sum = 0.0;
+			for ( int m = 0; m < m1; m++ )
+			{
+				sum += a[m][m1] / a[m][m] * Math.pow(k, m);
+			}
+			coeffs[k + nL] = fact * sum;
+		}
+		return coeffs;
+	}
+
+	/**
+	 * Gets the filter to be applied at index i of a signature of the given
+	 * size: this one if the window fits, or the filter with the window
+	 * shifted into the signature (and possibly shrunk, if the signature is
+	 * shorter than the window).
+	 *
+	 * @return The filter; null if there are not enough points for the
+	 *         derivative.
+	 */
+	private SavitzkyGolayFilter _getFilterAt(int i, int size)
+	{
+		int left = nL;
+		int right = nR;
+		if ( left > i )
+		{
+			right += left - i;
+			left = i;
+		}
+		if ( right > size - 1 - i )
+		{
+			left += right - (size - 1 - i);
+			right = size - 1 - i;
+		}
+		if ( left > i )
+		{
+			left = i;
+		}
+		if ( left == nL && right == nR )
+		{
+			return this;
+		}
+		int m = Math.min(M, left + right);
+		if ( ld > m )
+		{
+			return null;
+		}
+		return getFilter(m, left, right, ld);
 	}
 
 	/**
 	 * Applies this filter on a signature.
+	 * For a derivative filter, the result is scaled by the spacing of the
+	 * abscissas: the step if the signature is uniform, or the average
+	 * spacing in the window otherwise.
 	 *
 	 * @param sig  The signature to be operated.
 	 * @param from From what abscissa to apply
@@ -54,32 +268,127 @@ public class SavitzkyGolayFilter
 	throws OperationException
 	{
 		int size = sig.getSize();
-		Signature new_sig = new Signature();
-		for ( int i = 0; i < size; i++ )
+		double[] ys = new double[size];
+		double[] out = new double[size];
+		return _operate(sig, from, to, ys, out);
+	}
+
+	/**
+	 * Applies this filter on a number of signatures.
+	 *
+	 * @param sigs The signatures to be operated.
+	 * @param from From what abscissa to apply
+	 * @param to   To what abscissa to apply
+	 *
+	 * @return     The resulting signatures.
+	 */
+	public Signature[] operate(Signature[] sigs, double from, double to)
+	throws OperationException
+	{
+		Signature[] res = new Signature[sigs.length];
+		double[] ys = new double[0];
+		double[] out = new double[0];
+		for ( int s = 0; s < sigs.length; s++ )
 		{
-			Signature.Datapoint dp = sig.getDatapoint(i);
-			double y = dp.y;
-			
-			if ( from <= dp.x && dp.x <= to )   // in range to smooth.
+			int size = sigs[s].getSize();
+			if ( ys.length < size )
 			{
-				y = 0.0;
-				int k = 0;
-				for ( int n = i - this.nL; n <= i + this.nR; n++, k++ )
-				{
-					if ( 0 <= n && n < size )
-					{
-						Signature.Datapoint dq = sig.getDatapoint(n);
-						y += this.coeffs[k] * dq.y;
-					}
-				}
+				ys = new double[size];
+				out = new double[size];
+			}
+			res[s] = _operate(sigs[s], from, to, ys, out);
+		}
+		return res;
+	}
+
+	/** Applies this filter with the given work arrays. */
+	private Signature _operate(Signature sig, double from, double to, double[] ys, double[] out)
+	{
+		int size = sig.getSize();
+		double[] xs = sig.getXs();
+		sig.copyYsInto(ys);
+
+		// interior, where the whole window is in the signature:
+		int width = nL + 1 + nR;
+		for ( int i = nL; i < size - nR; i++ )
+		{
+			double y = 0.0;
+			int n = i - nL;
+			for ( int k = 0; k < width; k++, n++ )
+			{
+				y += coeffs[k] * ys[n];
 			}
+			out[i] = y;
+		}
+
+		// edges:
+		int left_end = Math.min(nL, size);
+		for ( int i = 0; i < left_end; i++ )
+		{
+			out[i] = _applyAt(i, size, ys);
+		}
+		for ( int i = Math.max(left_end, size - nR); i < size; i++ )
+		{
+			out[i] = _applyAt(i, size, ys);
+		}
 
-			new_sig.addDatapoint(dp.x, y);
+		if ( ld > 0 )
+		{
+			_scale(sig, xs, out, size);
 		}
 
+		Signature new_sig = new Signature(null, size);
+		for ( int i = 0; i < size; i++ )
+		{
+			double x = xs[i];
+			double y = ys[i];
+			if ( from <= x && x <= to )   // in range to smooth.
+			{
+				y = out[i];
+			}
+			new_sig.addDatapoint(x, y);
+		}
 		return new_sig;
 	}
 
+	/** Applies the corresponding edge filter at index i. */
+	private double _applyAt(int i, int size, double[] ys)
+	{
+		SavitzkyGolayFilter filter = _getFilterAt(i, size);
+		if ( filter == null )
+		{
+			return 0.0;
+		}
+		double y = 0.0;
+		int n = i - filter.nL;
+		for ( int k = 0; k < filter.coeffs.length; k++, n++ )
+		{
+			y += filter.coeffs[k] * ys[n];
+		}
+		return y;
+	}
+
+	/** Scales derivative values by the spacing of the abscissas. */
+	private void _scale(Signature sig, double[] xs, double[] out, int size)
+	{
+		double step = sig.getStep();
+		for ( int i = 0; i < size; i++ )
+		{
+			double h = step;
+			if ( Double.isNaN(h) )
+			{
+				int lo = Math.max(0, i - nL);
+				int hi = Math.min(size - 1, i + nR);
+				if ( hi == lo )
+				{
+					continue;
+				}
+				h = (xs[hi] - xs[lo]) / (hi - lo);
+			}
+			out[i] /= Math.pow(h, ld);
+		}
+	}
+
 
 	/** Available filters: (the format is M-nL-nR)
 	 *		<ul>
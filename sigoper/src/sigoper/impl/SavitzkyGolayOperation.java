@@ -8,9 +8,11 @@ import java.util.Iterator;
 /**
  * Savitzky-Golay smoothing.
  *
+ * The filter is one of the hard-coded filters, or any other filter
+ * given by name as "SG:M-nL-nR". See SavitzkyGolayFilter.
+ *
  * Current limitations:
  * <ul>
- *	<li> Only some hard-coded filters are available. See SavitzkyGolayFilter.
  *	<li> Only one filter can be applied.
  * </ul>
  *
@@ -33,18 +35,8 @@ public class SavitzkyGolayOperation implements ISingleSignatureOperation
 			filternames[i] = SavitzkyGolayFilter.filters[i].toString();
 		}
 	}
-	static Object[] par_values =       { filternames, "0", "9999", };
-	static String filtername = null;
-	static ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_values)
-	{
-		public void setValue(int i, Object value)
-		{
-			if ( i == FILTER )
-				filtername = (String) value;
-			else
-				super.setValue(i, value);
-		}
-	};
+	static Object[] par_defaults =     { filternames, "0", "9999", };
+	private final ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_defaults);
 	
 	public IOperation.IParameterInfo getParameterInfo()
 	{
@@ -62,7 +54,8 @@ public class SavitzkyGolayOperation implements ISingleSignatureOperation
 	}
 
 	/**
-	 * Savitzky-Golay smoothing of a signature.
+	 * Savitzky-Golay smoothing of a signature with the current parameter
+	 * values.
 	 *
 	 * @param sig  The signature to be operated.
 	 * @return     The resulting signature.
@@ -70,33 +63,45 @@ public class SavitzkyGolayOperation implements ISingleSignatureOperation
 	public Signature operate(Signature sig)
 	throws OperationException
 	{
-		SavitzkyGolayFilter filter = null;
-		for ( int i = 0; i < filternames.length; i++ )
-		{
-			if ( filternames[i].equals(filtername) )
-			{
-				filter = SavitzkyGolayFilter.filters[i];
-				break;
-			}
-		}
-		if ( filter == null )
-			throw new RuntimeException("Shouldn't happen!");
-		
-		double from, to;
-		try
+		return operate(sig, OpUtil.parseParameters(this));
+	}
+
+	/** The parsed parameters. */
+	private static final class Parameters
+	{
+		final SavitzkyGolayFilter filter;
+		final Range range;
+
+		Parameters(Object[] values)
+		throws OperationException
 		{
-			from = Double.parseDouble(((String) par_values[FROM]).trim());
-			to   = Double.parseDouble(((String) par_values[TO]).trim());
-			if ( from > to )
+			String filtername = OpUtil.getStringParameter(values, FILTER);
+			filter = SavitzkyGolayFilter.getFilter(filtername);
+			if ( filter == null )
 			{
-				throw new Exception("Invalid range");
+				throw new OperationException("Invalid parameters: Unknown filter: " +filtername);
 			}
+			range = new Range(values, FROM, TO);
 		}
-		catch(Exception ex)
-		{
-			throw new OperationException("Invalid parameters: " +ex.getMessage());
-		}
+	}
+
+	public Object parseParameters(Object[] values)
+	throws OperationException
+	{
+		return new Parameters(values);
+	}
 
-		return filter.operate(sig, from, to);
+	/**
+	 * Savitzky-Golay smoothing of a signature.
+	 *
+	 * @param sig    The signature to be operated.
+	 * @param params The parsed parameters.
+	 * @return       The resulting signature.
+	 */
+	public Signature operate(Signature sig, Object params)
+	throws OperationException
+	{
+		Parameters p = (Parameters) params;
+		return p.filter.operate(sig, p.range.from, p.range.to);
 	}
 }
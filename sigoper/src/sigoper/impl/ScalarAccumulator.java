@@ -0,0 +1,32 @@
+package sigoper.impl;
+
+import sigoper.*;
+import sig.Signature;
+
+/**
+ * Accumulator for the operations computing a value for each signature.
+ * The i-th signature gives the point (i + 1, value) in the result,
+ * with the signature client object (that could be null).
+ * @author Carlos A. Rueda
+ * @version $Id$
+ */
+abstract class ScalarAccumulator implements IStreamingMultiSignatureOperation.IAccumulator
+{
+	private final Signature result = new Signature();
+
+	public void add(Signature sig)
+	throws OperationException
+	{
+		double y = compute(sig);
+		result.addDatapoint(result.getSize() + 1, y, sig.getUserObject());
+	}
+
+	public Signature getResult()
+	{
+		return result;
+	}
+
+	/** Computes the value for a signature. */
+	abstract double compute(Signature sig)
+	throws OperationException;
+}
@@ -10,13 +10,13 @@ import java.util.Iterator;
  * @author Carlos A. Rueda
  * @version $Id$ 
  */
-public class ScaleOperation implements ISingleSignatureOperation
+public class ScaleOperation implements IPointOperation
 {
 	static final int SCALE = 0;
 	static String[] par_names =        { "scale", };
 	static String[] par_descriptions = { "Scale", };
-	static Object[] par_values =       { "1",};
-	static ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_values);
+	static Object[] par_defaults =     { "1",};
+	private final ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_defaults);
 	
 	public IOperation.IParameterInfo getParameterInfo()
 	{
@@ -34,7 +34,7 @@ public class ScaleOperation implements ISingleSignatureOperation
 	}
 
 	/**
-	 * Scales a signature.
+	 * Scales a signature with the current scale.
 	 *
 	 * @param sig  The signature to be operated.
 	 * @return     The resulting signature.
@@ -42,24 +42,47 @@ public class ScaleOperation implements ISingleSignatureOperation
 	public Signature operate(Signature sig)
 	throws OperationException
 	{
-		double scale;
+		return operate(sig, OpUtil.parseParameters(this));
+	}
+
+	/** The scale is parsed into a Double. */
+	public Object parseParameters(Object[] values)
+	throws OperationException
+	{
 		try
 		{
-			scale = Double.parseDouble(((String) par_values[SCALE]).trim());
+			return new Double(OpUtil.getStringParameter(values, SCALE));
 		}
-		catch(Exception ex)
+		catch(NumberFormatException ex)
 		{
 			throw new OperationException("Invalid value for scale: " +ex.getMessage());
 		}
+	}
+
+	/**
+	 * Scales a signature.
+	 *
+	 * @param sig    The signature to be operated.
+	 * @param params The parsed parameters.
+	 * @return       The resulting signature.
+	 */
+	public Signature operate(Signature sig, Object params)
+	{
+		double scale = ((Double) params).doubleValue();
 
 		int size = sig.getSize();
-		Signature new_sig = new Signature();
+		Signature new_sig = new Signature(null, size);
 		for ( int i = 0; i < size; i++ )
 		{
-			Signature.Datapoint dp = sig.getDatapoint(i);
-			new_sig.addDatapoint(dp.x, dp.y * scale);
+			new_sig.addDatapoint(sig.getX(i), sig.getY(i) * scale);
 		}
 
 		return new_sig;
 	}
+
+	public boolean operatePoint(double[] point, Object params)
+	{
+		point[1] *= ((Double) params).doubleValue();
+		return true;
+	}
 }
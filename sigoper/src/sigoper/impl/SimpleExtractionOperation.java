@@ -10,7 +10,7 @@ import java.util.*;
  * @author Carlos A. Rueda
  * @version $Id$ 
  */
-public class SimpleExtractionOperation implements IMultiSignatureOperation
+public class SimpleExtractionOperation implements IStreamingMultiSignatureOperation
 {
 	static final int DESIRED_POINT = 0;
 	static String[] par_names = { 
@@ -19,10 +19,10 @@ public class SimpleExtractionOperation implements IMultiSignatureOperation
 	static String[] par_descriptions = { 
 		"Desired wavelength", 
 	};
-	static Object[] par_values = { 
+	static Object[] par_defaults = { 
 		"",
 	};
-	static ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_values);
+	private final ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_defaults);
 	
 	public IOperation.IParameterInfo getParameterInfo()
 	{
@@ -57,30 +57,38 @@ public class SimpleExtractionOperation implements IMultiSignatureOperation
 	public Signature operate(Signature[] sigs)
 	throws OperationException
 	{
-		double desired_point;
-		
-		try
-		{
-			desired_point = Double.parseDouble((String) par_values[DESIRED_POINT]);
-		}
-		catch(Exception ex)
-		{
-			throw new OperationException("Invalid parameter: " +ex.getMessage());
-		}
-		
-		Signature sig = new Signature();
-		if ( sigs == null || sigs.length == 0 )
-		{
-			return sig;
-		}
-		
-		for ( int i = 0; i < sigs.length; i++ )
+		return OpUtil.operate(this, sigs);
+	}
+
+	public Signature operate(Signature[] sigs, Object params)
+	throws OperationException
+	{
+		return OpUtil.operate(this, sigs, params);
+	}
+
+	/** The desired point is parsed into a Double. */
+	public Object parseParameters(Object[] values)
+	throws OperationException
+	{
+		return new Double(OpUtil.getDoubleParameter(values, DESIRED_POINT));
+	}
+
+	public IStreamingMultiSignatureOperation.IAccumulator createAccumulator()
+	throws OperationException
+	{
+		return createAccumulator(OpUtil.parseParameters(this));
+	}
+
+	public IStreamingMultiSignatureOperation.IAccumulator createAccumulator(Object params)
+	{
+		final double desired_point = ((Double) params).doubleValue();
+		return new ScalarAccumulator()
 		{
-			double y = OpUtil.valueAt(sigs[i], desired_point);
-			sig.addDatapoint(i + 1, y, sigs[i].getUserObject());
-		}
-			
-		return sig;
+			double compute(Signature sig)
+			throws OperationException
+			{
+				return OpUtil.valueAt(sig, desired_point);
+			}
+		};
 	}
 }
-
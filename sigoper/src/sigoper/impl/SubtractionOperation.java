@@ -17,6 +17,17 @@ public class SubtractionOperation implements IBinarySignatureOperation
 		return null;
 	}
 	
+	public Object parseParameters(Object[] values)
+	{
+		return null;
+	}
+	
+	public Signature operate(Signature sig0, Signature sig1, Object params)
+	throws OperationException
+	{
+		return operate(sig0, sig1);
+	}
+	
 	public String getName()
 	{
 		return "Subtraction";
@@ -36,19 +47,19 @@ public class SubtractionOperation implements IBinarySignatureOperation
 		int size0 = sig0.getSize();
 		int size1 = sig1.getSize();
 		int size = Math.min(size0, size1);
-		Signature new_sig = new Signature();
+		Signature new_sig = new Signature(null, size);
 		for ( int i = 0; i < size; i++ )
 		{
-			Signature.Datapoint dp0 = sig0.getDatapoint(i);
-			Signature.Datapoint dp1 = sig1.getDatapoint(i);
-			if ( ! OpUtil.equalAbscissas(dp0.x, dp1.x) )
+			double x0 = sig0.getX(i);
+			double x1 = sig1.getX(i);
+			if ( ! OpUtil.equalAbscissas(x0, x1) )
 			{
 				throw new OperationException("Different abscissas found! At index: " +i+ "\n" +
-					"   " +dp0.x+ " vs. " +dp1.x
+					"   " +x0+ " vs. " +x1
 				);
 			}
-			double res = dp0.y - dp1.y;
-			new_sig.addDatapoint(dp0.x, res);
+			double res = sig0.getY(i) - sig1.getY(i);
+			new_sig.addDatapoint(x0, res);
 		}
 
 		return new_sig;
@@ -11,13 +11,13 @@ import java.util.Iterator;
  * @author Carlos A. Rueda
  * @version $Id$ 
  */
-public class SumOperation implements IMultiSignatureOperation
+public class SumOperation implements IStreamingMultiSignatureOperation
 {
 	static final int MISSING_VALUE_INDEX = 0;
 	static String[] par_names =        { "missing_value", };
 	static String[] par_descriptions = { "Missing value indicator", };
-	static Object[] par_values =       { "0", };
-	static ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_values);
+	static Object[] par_defaults =     { "0", };
+	private final ParInfo parInfo = new ParInfo(par_names, par_descriptions, par_defaults);
 	
 	public IOperation.IParameterInfo getParameterInfo()
 	{
@@ -54,56 +54,37 @@ public class SumOperation implements IMultiSignatureOperation
 	public Signature operate(Signature[] sigs)
 	throws OperationException
 	{
-		double missing_value = Double.NaN;
-		String mv = ((String) par_values[MISSING_VALUE_INDEX]).trim();
-		if ( mv.length() > 0 )
-		{
-			try
-			{
-				missing_value = Double.parseDouble(mv);
-			}
-			catch(Exception ex)
-			{
-				throw new OperationException("Invalid parameter: " +ex.getMessage());
-			}
-		}
-
-		Signature sig = new Signature();
+		return OpUtil.operate(this, sigs);
+	}
 
-		if ( sigs == null || sigs.length == 0 )
-		{
-			return sig;
-		}
+	public Signature operate(Signature[] sigs, Object params)
+	throws OperationException
+	{
+		return OpUtil.operate(this, sigs, params);
+	}
 
-		if ( sigs.length == 1 )
-		{
-			return sigs[0];
-		}
+	/** The missing value is parsed into a Double. */
+	public Object parseParameters(Object[] values)
+	throws OperationException
+	{
+		return new Double(AggregationAccumulator.parseMissingValue(values[MISSING_VALUE_INDEX]));
+	}
 
-		// take the min size and check domains:
-		int size = OpUtil.minSize(sigs);
-		OpUtil.checkDomains(sigs, size);
+	public IStreamingMultiSignatureOperation.IAccumulator createAccumulator()
+	throws OperationException
+	{
+		return createAccumulator(OpUtil.parseParameters(this));
+	}
 
-		IndexIterator ii = new IndexIterator(sigs, 0, missing_value);
-		
-		for ( int i = 0; i < size; i++ )
+	public IStreamingMultiSignatureOperation.IAccumulator createAccumulator(Object params)
+	{
+		final double missing_value = ((Double) params).doubleValue();
+		return new AggregationAccumulator(missing_value)
 		{
-			double sum = 0.0;  
-			
-			// read from the first signature just to take the abscissa for i:
-			Signature.Datapoint dp = sigs[0].getDatapoint(i);
-			double x = dp.x;
-
-			ii.reset(i);
-			while ( ii.hasNext() )
+			double getValue(Aggregation agg, int i)
 			{
-				double y = ii.next();				
-				sum += y;
+				return agg.getSum(i);
 			}
-
-			sig.addDatapoint(x, sum);
-		}
-
-		return sig;
+		};
 	}
 }
@@ -0,0 +1,51 @@
+package specfile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the spectrum files of a given format.
+ * Readers are registered in SpectrumFileManager, which uses probe() to
+ * choose the reader for a file before actually parsing it.
+ *
+ * @see SpectrumFileManager#registerReader(ISpectrumFileReader)
+ *
+ * @author Carlos Rueda
+ * @version $Id$
+ */
+public interface ISpectrumFileReader {
+	/**
+	 * Gets the file type code handled by this reader, eg., "GER".
+	 *
+	 * @return The file type code.
+	 */
+	public String getFileType();
+
+	/**
+	 * Estimates whether some contents are in the format of this reader.
+	 * This should be cheap: no complete parsing is expected.
+	 *
+	 * @param firstBlock The first bytes of the file, from position 0;
+	 *                   may be the complete file. Its position must not
+	 *                   be changed.
+	 * @param name       The file name.
+	 *
+	 * @return A confidence score in [0, 100]; 0 means the contents are
+	 *         certainly not in this format.
+	 */
+	public int probe(ByteBuffer firstBlock, String name);
+
+	/**
+	 * Parses a spectrum file.
+	 *
+	 * @param contents The complete contents of the file.
+	 * @param name     The file name.
+	 *
+	 * @return The ISpectrumFile object.
+	 *
+	 * @throws InvalidSpectrumFormatException
+	 * @throws IOException
+	 */
+	public ISpectrumFile read(byte[] contents, String name)
+	throws InvalidSpectrumFormatException, IOException;
+}
@@ -3,6 +3,8 @@ package specfile;
 import specfile.impl.*;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
 
 /**
  * This class gets ISpectrumFile objects.
@@ -14,6 +16,13 @@ import java.io.*;
  *	<li> Only a column with reflectance values, "Only-Reflectance" (INCOMPLETE)
  * </ul>
  * Call getFileTypes() to get the list of recognized file types.
+ * Other formats can be supported with registerReader().
+ * <p>
+ * With automatic recognition, each registered reader gives a score
+ * on the first block of the file, and the file is parsed by the
+ * readers with the highest scores until one succeeds; among readers
+ * with the same score, the one that recognized the previous file in the
+ * same directory is tried first.
  *
  * @see ISpectrumFile
  *
@@ -21,24 +30,67 @@ import java.io.*;
  * @version $Id$
  */
 public final class SpectrumFileManager {
-	// the list of currently recognized file types:
-	private static final String[] filetypes = 
-		{"GER", "ASD", "ASDb", "CSV", "Only-Reflectance"};
+	/** Number of bytes given to ISpectrumFileReader.probe. */
+	public static final int PROBE_BLOCK_SIZE = 8192;
+	
+	/** Maximum number of directories whose detected type is cached. */
+	private static final int MAX_CACHED_DIRS = 1024;
+	
+	/** The registered readers, ISpectrumFileReader, in order of preference. */
+	private static final List readers = new ArrayList();
+	
+	/** Mapping: directory -> ISpectrumFileReader recognizing the last
+	 * file opened in that directory with automatic recognition. */
+	private static final Map dirReaders = new HashMap();
+	
+	static {
+		registerReader(GERFile.READER);
+		registerReader(ASDFile.READER);
+		registerReader(ASDBinaryFile.READER);
+		registerReader(CSVFile.READER);
+		registerReader(OnlyReflectanceFile.READER);
+	}
+
+	/**
+	 * Registers a reader. If a reader for the same file type is already
+	 * registered, it is replaced; otherwise the new reader is added with
+	 * the lowest preference when probe scores are equal.
+	 *
+	 * @param reader The reader.
+	 */
+	public static synchronized void registerReader(ISpectrumFileReader reader) {
+		for ( int i = 0; i < readers.size(); i++ ) {
+			ISpectrumFileReader r = (ISpectrumFileReader) readers.get(i);
+			if ( r.getFileType().equals(reader.getFileType()) ) {
+				readers.set(i, reader);
+				dirReaders.clear();
+				return;
+			}
+		}
+		readers.add(reader);
+	}
 
 	/**
 	 * Gets the list of recognized file types.
 	 *
 	 * @return The array of String's containing the type codes.
 	 */
-	public static String[] getFileTypes() {
+	public static synchronized String[] getFileTypes() {
+		String[] filetypes = new String[readers.size()];
+		for ( int i = 0; i < filetypes.length; i++ )
+			filetypes[i] = ((ISpectrumFileReader) readers.get(i)).getFileType();
 		return filetypes;
 	}
 		
+	private static synchronized ISpectrumFileReader[] _getReaders() {
+		return (ISpectrumFileReader[]) readers.toArray(new ISpectrumFileReader[readers.size()]);
+	}
+	
 	/**
 	 * Opens a spectrum file.
 	 *
 	 * This results in the creation of an object according to
-	 * the format of the file.
+	 * the format of the file. The file is read only once.
 	 *
 	 * @param filename The spectrum file name.
 	 * @param filetype Assumed file type.
@@ -53,79 +105,102 @@ public final class SpectrumFileManager {
 	public static ISpectrumFile openSpectrumFile(String filename, String filetype)
 	throws FileNotFoundException, InvalidSpectrumFormatException, IOException
 	{
-		if ( filetype != null ) {
-			if ( filetype.equals("GER") )
-				return new GERFile(filename);
-			if ( filetype.equals("ASDb") )
-				return new ASDBinaryFile(filename);
-			if ( filetype.equals("ASD") )
-				return new ASDFile(filename);
-			if ( filetype.equals("CSV") )
-				return new CSVFile(filename);
-			if ( filetype.equals("Only-Reflectance") )
-				return new OnlyReflectanceFile(filename);
-			
-			throw new InvalidSpectrumFormatException(filetype+ ": file type not recognized");
-		}
-
-		// automatically recognize the format:
-
-		ISpectrumFile sf = null;
+		File file = new File(filename);
+		byte[] contents = _readFile(file);
+		if ( filetype != null )
+			return openSpectrumFile(contents, file.getName(), filetype);
 		
-		//
-		// Some preference seems reasonable to be applied 
-		// according to file name extension.
-		// However this is still ad hoc since there are no standard
-		// extensions for most of the considered formats.
-		// Note also that this could be improved more properly with
-		// a factory design pattern.
-		//
+		// among the readers with the same score, prefer the one that
+		// recognized the previous file in the same directory, as files in
+		// a directory are usually in the same format:
+		String dir = file.getAbsoluteFile().getParent();
+		ISpectrumFileReader dirReader;
+		synchronized ( SpectrumFileManager.class ) {
+			dirReader = (ISpectrumFileReader) dirReaders.get(dir);
+		}
+		ByteBuffer firstBlock = _getFirstBlock(contents);
+		ISpectrumFileReader[] rs = _getReaders();
+		int[] scores = new int[rs.length];
+		for ( int i = 0; i < rs.length; i++ )
+			scores[i] = rs[i].probe(firstBlock, file.getName());
 		
-		// .csv if currently the only extension considered in advance
-		if ( filename.toLowerCase().endsWith(".csv") ) {
+		// try readers by decreasing score, stable wrt preference:
+		while ( true ) {
+			int best = -1;
+			for ( int i = 0; i < rs.length; i++ ) {
+				if ( scores[i] > 0 && (best < 0 || scores[i] > scores[best]
+				||   scores[i] == scores[best] && rs[i] == dirReader) )
+					best = i;
+			}
+			if ( best < 0 )
+				break;
+			scores[best] = 0;
 			try {
-				sf = new CSVFile(filename);
+				ISpectrumFile sf = rs[best].read(contents, file.getName());
+				synchronized ( SpectrumFileManager.class ) {
+					if ( dirReaders.size() >= MAX_CACHED_DIRS )
+						dirReaders.clear();
+					dirReaders.put(dir, rs[best]);
+				}
 				return sf;
 			}
 			catch ( Exception ex ) {
-				// ignore; try the formats below.
+				// ignore; try the next candidate.
 			}
 		}
+		
+		throw new InvalidSpectrumFormatException(
+			file.getName()+
+			": Cannot recognize the format"
+		);
+	}
 
-		try {
-			// try GER:
-			sf = new GERFile(filename);
+	/**
+	 * Parses the contents of a spectrum file of a given type.
+	 *
+	 * @param contents The complete contents of the file.
+	 * @param name     The file name.
+	 * @param filetype The file type.
+	 *
+	 * @return The ISpectrumFile object.
+	 *
+	 * @throws InvalidSpectrumFormatException
+	 * @throws IOException
+	 */
+	public static ISpectrumFile openSpectrumFile(byte[] contents, String name, String filetype)
+	throws InvalidSpectrumFormatException, IOException
+	{
+		ISpectrumFileReader[] rs = _getReaders();
+		for ( int i = 0; i < rs.length; i++ ) {
+			if ( rs[i].getFileType().equals(filetype) )
+				return rs[i].read(contents, name);
 		}
-		catch ( Exception ex1 ) {
-			try {
-				// try ASDb:
-				sf = new ASDBinaryFile(filename);
-			}
-			catch ( Exception ex2 ) {
-				try {
-					// try ASD:
-					sf = new ASDFile(filename);
-				}
-				catch ( Exception ex3 ) {
-					try {
-						// try OnlyReflectanceFile:
-						sf = new OnlyReflectanceFile(filename);
-					}
-					catch ( Exception ex4 ) {
-						// 
-						// Include here for other formats ...
-						//
-						
-						throw new InvalidSpectrumFormatException(
-							new File(filename).getName()+
-							": Cannot recognize the format"
-						);
-					}
-				}
+		throw new InvalidSpectrumFormatException(filetype+ ": file type not recognized");
+	}
+
+	private static ByteBuffer _getFirstBlock(byte[] contents) {
+		return ByteBuffer.wrap(contents, 0, Math.min(contents.length, PROBE_BLOCK_SIZE)).slice();
+	}
+
+	private static byte[] _readFile(File file) throws IOException {
+		InputStream stream = new FileInputStream(file);
+		try {
+			long length = file.length();
+			if ( length > Integer.MAX_VALUE )
+				throw new IOException(file.getName()+ ": File too big");
+			byte[] contents = new byte[(int) length];
+			int offset = 0;
+			while ( offset < contents.length ) {
+				int read = stream.read(contents, offset, contents.length - offset);
+				if ( read < 0 )
+					throw new EOFException(file.getName());
+				offset += read;
 			}
+			return contents;
+		}
+		finally {
+			stream.close();
 		}
-
-		return sf;
 	}
 
 	// Non-instanciable
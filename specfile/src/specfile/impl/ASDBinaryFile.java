@@ -4,7 +4,9 @@ import specfile.*;
 import sig.Signature;
 
 import java.io.*;
-import java.util.StringTokenizer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 
 /**
  * Represents a spectrum file in ASD binary format.
@@ -18,6 +20,9 @@ public class ASDBinaryFile implements ISpectrumFile {
 	private static final int INTEGER_FORMAT = 1;
 	private static final int DOUBLE_FORMAT = 2;
 	
+	/** Offset of the spectrum data. */
+	private static final int DATA_OFFSET = 484;
+	
 
 	
 	ASDBinaryFileHeader header;
@@ -31,55 +36,102 @@ public class ASDBinaryFile implements ISpectrumFile {
 	 */
 	public ASDBinaryFile(String filename)
 	throws FileNotFoundException, InvalidSpectrumFormatException, IOException
+	{
+		this(ByteBuffer.wrap(_readFile(filename)), new File(filename).getName());
+	}
+
+	/**
+	 * Creates a ASDBinaryFile object from the contents of a file.
+	 * The associated signature is sorted.
+	 *
+	 * @param contents ASD binary contents, starting at position 0.
+	 * @param name     The file name, for messages.
+	 */
+	public ASDBinaryFile(ByteBuffer contents, String name)
+	throws InvalidSpectrumFormatException, IOException
 	{
 		sig = new Signature();
-		RandomAccessFile file = new RandomAccessFile(filename, "r");
-		try {
-			header = new ASDBinaryFileHeader(file);
-			if ( !header.company_name.equals("ASD") ) {
+		if ( contents.limit() < DATA_OFFSET || !_hasCompanyName(contents) ) {
+			throw new InvalidSpectrumFormatException(
+				name+
+				": is not an ASD binary file"
+			);
+		}
+		header = new ASDBinaryFileHeader(contents);
+		//System.out.println(header);		
+		//if ( header.data_type != 1 ) { // REF_TYPE -- reflectance
+		//	throw new InvalidSpectrumFormatException(
+		//		name+
+		//		": data_type is not reflectance"
+		//	);
+		//}
+		
+		double wl = header.ch1_wavel;
+		switch ( header.data_format ) {
+			case FLOAT_FORMAT: 
+				if ( contents.limit() < DATA_OFFSET + 4 * header.channels )
+					throw new EOFException(name);
+				ByteBuffer data = contents.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+				data.position(DATA_OFFSET);
+				FloatBuffer values = data.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+				for ( int i = 0; i < header.channels; i++ ) {
+					sig.addDatapoint(wl, values.get(i));
+					wl += header.wavel_step;
+				}
+				break;
+			case INTEGER_FORMAT:
+			case DOUBLE_FORMAT: 
 				throw new InvalidSpectrumFormatException(
-					new File(filename).getName()+
-					": is not an ASD binary file"
+					name+
+					": INTEGER and DOUBLE data formats not implemented yet. Only FLOAT"
 				);
-			}
-			//System.out.println(header);		
-			//if ( header.data_type != 1 ) { // REF_TYPE -- reflectance
-			//	throw new InvalidSpectrumFormatException(
-			//		new File(filename).getName()+
-			//		": data_type is not reflectance"
-			//	);
-			//}
-			
-			file.seek(484);
-	
-			double wl = header.ch1_wavel;
-			switch ( header.data_format ) {
-				case FLOAT_FORMAT: 
-					for ( int i = 0; i < header.channels; i++ ) {
-						sig.addDatapoint(wl, ASDBinaryFileHeader.readFloatLittleEndian(file));
-						wl += header.wavel_step;
-					}
-					break;
-				case INTEGER_FORMAT:
-				case DOUBLE_FORMAT: 
-					throw new InvalidSpectrumFormatException(
-						new File(filename).getName()+
-						": INTEGER and DOUBLE data formats not implemented yet. Only FLOAT"
-					);
-				default:
-					throw new InvalidSpectrumFormatException(
-						new File(filename).getName()+
-						": " +header.data_format+ " : Unknown data format"
-					);
-			}
+			default:
+				throw new InvalidSpectrumFormatException(
+					name+
+					": " +header.data_format+ " : Unknown data format"
+				);
+		}
+		
+		sig.sort();
+	}
+
+	/** Tells if the contents start with the "ASD" company name. */
+	private static boolean _hasCompanyName(ByteBuffer contents) {
+		return contents.limit() >= 3
+			&& contents.get(0) == 'A' && contents.get(1) == 'S' && contents.get(2) == 'D';
+	}
+
+	private static byte[] _readFile(String filename) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(filename, "r");
+		try {
+			byte[] contents = new byte[(int) file.length()];
+			file.readFully(contents);
+			return contents;
 		}
 		finally {
 			file.close();
 		}
-		
-		sig.sort();
 	}
 
+	/** Reader of this format for the registry in SpectrumFileManager. */
+	public static final ISpectrumFileReader READER = new ISpectrumFileReader() {
+		public String getFileType() {
+			return "ASDb";
+		}
+		
+		public int probe(ByteBuffer firstBlock, String name) {
+			if ( !_hasCompanyName(firstBlock) || firstBlock.limit() < 200 )
+				return 0;
+			// only float data format is supported:
+			return (firstBlock.get(199) & 0xff) == FLOAT_FORMAT ? 90 : 0;
+		}
+		
+		public ISpectrumFile read(byte[] contents, String name)
+		throws InvalidSpectrumFormatException, IOException {
+			return new ASDBinaryFile(ByteBuffer.wrap(contents), name);
+		}
+	};
+
 	/**
 	 * Gets the signature.
 	 *
@@ -3,6 +3,8 @@ package specfile.impl;
 import specfile.*;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 
 /**
@@ -38,6 +40,24 @@ public class ASDBinaryFileHeader {
 		instrument = file.readUnsignedByte();
 	}
 	
+	/**
+	 * Creates a binary ASD header from the contents of a file, starting
+	 * at position 0. The buffer is not modified.
+	 */
+	public ASDBinaryFileHeader(ByteBuffer contents) {
+		ByteBuffer buffer = contents.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		byte[] name = new byte[3];
+		buffer.position(0);
+		buffer.get(name);
+		company_name = new String(name);
+		data_type = buffer.get(186) & 0xff;
+		ch1_wavel = buffer.getFloat(191);
+		wavel_step = buffer.getFloat(195);
+		data_format = buffer.get(199) & 0xff;
+		channels = buffer.getShort(204) & 0xffff;
+		instrument = buffer.get(431) & 0xff;
+	}
+	
 	public String toString() {
 		return
 			"company name = " +company_name+ "\n"+
@@ -4,6 +4,8 @@ import specfile.*;
 import sig.Signature;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.StringTokenizer;
 
 /**
@@ -22,11 +24,20 @@ public class ASDFile implements ISpectrumFile {
 	 */
 	public ASDFile(String filename)
 	throws FileNotFoundException, InvalidSpectrumFormatException, IOException {
+		this(new FileInputStream(filename), new File(filename).getName());
+	}
+
+	/**
+	 * Creates a ASDFile object from a stream, which is closed.
+	 *
+	 * @param stream ASD contents.
+	 * @param name   The file name, for messages.
+	 */
+	public ASDFile(InputStream stream, String name)
+	throws InvalidSpectrumFormatException, IOException {
 		sig = new Signature();
 		BufferedReader br = new BufferedReader(
-			new InputStreamReader(
-				new FileInputStream(filename)
-			)
+			new InputStreamReader(stream)
 		);
 
 		// check that is a ASD file:
@@ -50,13 +61,35 @@ public class ASDFile implements ISpectrumFile {
 		// then this is not an ASD file:
 		if ( sig.getSize() < 3 ) {
 			throw new InvalidSpectrumFormatException(
-				new File(filename).getName()+
+				name+
 				": is not an ASD file"
 			);
 		}
 		sig.sort();
 	}
 
+	/** Reader of this format for the registry in SpectrumFileManager. */
+	public static final ISpectrumFileReader READER = new ISpectrumFileReader() {
+		public String getFileType() {
+			return "ASD";
+		}
+		
+		public int probe(ByteBuffer firstBlock, String name) {
+			// at least 3 lines with x,y values are required:
+			List lines = TextProbe.getLines(firstBlock);
+			int count = TextProbe.countNumericLines(lines, 2, " ,\t", false);
+			if ( count >= 3 )
+				return 50;
+			// values may come after a long header:
+			return TextProbe.isComplete(firstBlock) ? 0 : 10;
+		}
+		
+		public ISpectrumFile read(byte[] contents, String name)
+		throws InvalidSpectrumFormatException, IOException {
+			return new ASDFile(new ByteArrayInputStream(contents), name);
+		}
+	};
+
 	/**
 	 * Gets the signature.
 	 *
@@ -4,6 +4,8 @@ import specfile.*;
 import sig.Signature;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.StringTokenizer;
 
 /**
@@ -22,11 +24,20 @@ public class CSVFile implements ISpectrumFile {
 	 */
 	public CSVFile(String filename)
 	throws FileNotFoundException, InvalidSpectrumFormatException, IOException {
+		this(new FileInputStream(filename), new File(filename).getName());
+	}
+
+	/**
+	 * Creates a CSVFile object from a stream, which is closed.
+	 *
+	 * @param stream CSV contents.
+	 * @param name   The file name, for messages.
+	 */
+	public CSVFile(InputStream stream, String name)
+	throws InvalidSpectrumFormatException, IOException {
 		sig = new Signature();
 		BufferedReader br = new BufferedReader(
-			new InputStreamReader(
-				new FileInputStream(filename)
-			)
+			new InputStreamReader(stream)
 		);
 
 		// check that is a CSV file:
@@ -48,12 +59,32 @@ public class CSVFile implements ISpectrumFile {
 		// at least one point
 		if ( sig.getSize() == 0 ) {
 			throw new InvalidSpectrumFormatException(
-				new File(filename).getName()+
+				name+
 				": not a valid spectrum in CSV format"
 			);
 		}
 	}
 
+	/** Reader of this format for the registry in SpectrumFileManager. */
+	public static final ISpectrumFileReader READER = new ISpectrumFileReader() {
+		public String getFileType() {
+			return "CSV";
+		}
+		
+		public int probe(ByteBuffer firstBlock, String name) {
+			// only considered for the .csv extension, as it is very permissive:
+			if ( !name.toLowerCase().endsWith(".csv") )
+				return 0;
+			List lines = TextProbe.getLines(firstBlock);
+			return TextProbe.countNumericLines(lines, 2, ",", false) > 0 ? 80 : 40;
+		}
+		
+		public ISpectrumFile read(byte[] contents, String name)
+		throws InvalidSpectrumFormatException, IOException {
+			return new CSVFile(new ByteArrayInputStream(contents), name);
+		}
+	};
+
 	/**
 	 * Gets the signature.
 	 *
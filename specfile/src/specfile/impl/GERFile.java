@@ -4,6 +4,7 @@ import specfile.*;
 import sig.Signature;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.StringTokenizer;
 
 /**
@@ -36,11 +37,20 @@ public class GERFile implements ISpectrumFile {
 	 */
 	public GERFile(String filename)
 	throws FileNotFoundException, InvalidSpectrumFormatException, IOException {
+		this(new FileInputStream(filename), new File(filename).getName());
+	}
+
+	/**
+	 * Creates a GERFile object from a stream, which is closed.
+	 *
+	 * @param stream GER contents.
+	 * @param name   The file name, for messages.
+	 */
+	public GERFile(InputStream stream, String name)
+	throws InvalidSpectrumFormatException, IOException {
 		sig = new Signature();
 		BufferedReader br = new BufferedReader(
-			new InputStreamReader(
-				new FileInputStream(filename)
-			)
+			new InputStreamReader(stream)
 		);
 
 		// check that is "///GER SIGNATUR FILE///"
@@ -50,7 +60,7 @@ public class GERFile implements ISpectrumFile {
 		     && !line.trim().equals("///GER ASCII FILE///")       // PENDING
 		) {
 			throw new InvalidSpectrumFormatException(
-				new File(filename).getName()+
+				name+
 				": is not a GER file"
 			);
 		}
@@ -84,6 +94,29 @@ public class GERFile implements ISpectrumFile {
 		sig.sort();
 	}
 
+	/** Reader of this format for the registry in SpectrumFileManager. */
+	public static final ISpectrumFileReader READER = new ISpectrumFileReader() {
+		public String getFileType() {
+			return "GER";
+		}
+		
+		public int probe(ByteBuffer firstBlock, String name) {
+			String line = TextProbe.getFirstLine(firstBlock);
+			if ( line == null )
+				return 0;
+			line = line.trim();
+			if ( line.equals("///GER SIGNATUR FILE///")
+			||   line.equals("///GER ASCII FILE///") )
+				return 100;
+			return 0;
+		}
+		
+		public ISpectrumFile read(byte[] contents, String name)
+		throws InvalidSpectrumFormatException, IOException {
+			return new GERFile(new ByteArrayInputStream(contents), name);
+		}
+	};
+
 	/**
 	 * Gets the signature.
 	 *
@@ -4,6 +4,8 @@ import specfile.*;
 import sig.Signature;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 /**
  * Represents a spectrum file in "only reflectance" format.
@@ -29,11 +31,20 @@ public class OnlyReflectanceFile implements ISpectrumFile {
 	 */
 	public OnlyReflectanceFile(String filename)
 	throws FileNotFoundException, InvalidSpectrumFormatException, IOException {
+		this(new FileInputStream(filename), new File(filename).getName());
+	}
+
+	/**
+	 * Creates a OnlyReflectanceFile object from a stream, which is closed.
+	 *
+	 * @param stream Only-Reflectance contents.
+	 * @param name   The file name, for messages.
+	 */
+	public OnlyReflectanceFile(InputStream stream, String name)
+	throws InvalidSpectrumFormatException, IOException {
 		sig = new Signature();
 		BufferedReader br = new BufferedReader(
-			new InputStreamReader(
-				new FileInputStream(filename)
-			)
+			new InputStreamReader(stream)
 		);
 
 		// PENDING: fix these magic numbers:
@@ -61,12 +72,33 @@ public class OnlyReflectanceFile implements ISpectrumFile {
 		// then this is not a valid file:
 		if ( sig.getSize() < 3 ) {
 			throw new InvalidSpectrumFormatException(
-				new File(filename).getName()+
+				name+
 				": is not an \"only reflectance\" file"
 			);
 		}
 	}
 
+	/** Reader of this format for the registry in SpectrumFileManager. */
+	public static final ISpectrumFileReader READER = new ISpectrumFileReader() {
+		public String getFileType() {
+			return "Only-Reflectance";
+		}
+		
+		public int probe(ByteBuffer firstBlock, String name) {
+			// at least 3 lines with a single value are required:
+			List lines = TextProbe.getLines(firstBlock);
+			int count = TextProbe.countNumericLines(lines, 1, " \t", true);
+			if ( count >= 3 )
+				return 40;
+			return TextProbe.isComplete(firstBlock) ? 0 : 5;
+		}
+		
+		public ISpectrumFile read(byte[] contents, String name)
+		throws InvalidSpectrumFormatException, IOException {
+			return new OnlyReflectanceFile(new ByteArrayInputStream(contents), name);
+		}
+	};
+
 	/**
 	 * Gets the signature.
 	 *
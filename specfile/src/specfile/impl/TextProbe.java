@@ -0,0 +1,78 @@
+package specfile.impl;
+
+import specfile.SpectrumFileManager;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Helpers for probing text formats on the first block of a file.
+ * @author Carlos Rueda
+ * @version $Id$
+ */
+class TextProbe {
+	/**
+	 * Gets the complete lines in a block. The last line is discarded
+	 * if the block does not end with a newline, unless the block is the
+	 * complete file.
+	 * The block position is not changed.
+	 */
+	static List getLines(ByteBuffer block) {
+		List lines = new ArrayList();
+		StringBuffer sb = new StringBuffer();
+		for ( int i = block.position(); i < block.limit(); i++ ) {
+			char ch = (char) (block.get(i) & 0xff);
+			if ( ch == '\n' ) {
+				lines.add(sb.toString());
+				sb.setLength(0);
+			}
+			else if ( ch != '\r' )
+				sb.append(ch);
+		}
+		if ( sb.length() > 0 && isComplete(block) )
+			lines.add(sb.toString());
+		return lines;
+	}
+
+	/**
+	 * Gets the first line in a block; null if there is no complete line.
+	 */
+	static String getFirstLine(ByteBuffer block) {
+		StringBuffer sb = new StringBuffer();
+		for ( int i = block.position(); i < block.limit(); i++ ) {
+			char ch = (char) (block.get(i) & 0xff);
+			if ( ch == '\n' || ch == '\r' )
+				return sb.toString();
+			sb.append(ch);
+		}
+		return isComplete(block) ? sb.toString() : null;
+	}
+
+	/**
+	 * Counts the lines starting with the given number of numeric
+	 * values separated by any of the given delimiters.
+	 * If exact is true, lines must have exactly that number of values.
+	 */
+	static int countNumericLines(List lines, int num_values, String delims, boolean exact) {
+		int count = 0;
+		for ( Iterator it = lines.iterator(); it.hasNext(); ) {
+			StringTokenizer st = new StringTokenizer((String) it.next(), delims);
+			if ( exact && st.countTokens() != num_values )
+				continue;
+			try {
+				for ( int i = 0; i < num_values; i++ )
+					Double.parseDouble(st.nextToken().trim());
+				count++;
+			}
+			catch ( Exception ex ) {
+				// not numeric.
+			}
+		}
+		return count;
+	}
+
+	/** Tells if the block is the complete file. */
+	static boolean isComplete(ByteBuffer block) {
+		return block.limit() - block.position() < SpectrumFileManager.PROBE_BLOCK_SIZE;
+	}
+}